@@ -19,6 +19,7 @@ package com.github.avasin.yarmij;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
 
 import javax.annotation.Nonnull;
 
@@ -61,8 +62,8 @@ public abstract class AbstractSocketAware<S extends Closeable> implements Closea
         } catch (IOException e) {
             logger.error("Cannot close '{}'", this, e);
         }
-        final boolean result =
-                        ex instanceof SocketException && SOCKET_CLOSED.equals(ex.getMessage());
+        final boolean result = ex instanceof ClosedChannelException
+                        || ex instanceof SocketException && SOCKET_CLOSED.equals(ex.getMessage());
         if (result) {
             logger.trace("Listening stopped");
             return true;
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BalancingExchanger} spreads calls among several servers providing the same services.
+ * Each call picks two random available endpoints and goes to the one with lower product of calls
+ * in flight and average latency. Endpoint which lost connection is ejected from the rotation for
+ * a cool-down period, calls of {@link Idempotent} methods are retried through other endpoints.
+ * In case {@link HedgingPolicy} is specified, late calls of {@link Idempotent} methods are
+ * duplicated to another endpoint and the first received result is used.
+ */
+@ThreadSafe
+class BalancingExchanger implements Exchanger {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalancingExchanger.class);
+    private final List<Endpoint> endpoints;
+    private final long coolDownMs;
+    private final long timeoutMs;
+    private final Hedger hedger;
+
+    /**
+     * Creates {@link BalancingExchanger} instance.
+     *
+     * @param endpoints endpoints among which calls are spread.
+     * @param coolDownMs period in milliseconds during which failed endpoint does not
+     *                 receive calls.
+     * @param timeoutMs timeout in milliseconds.
+     * @param hedgingPolicy describes when late calls are duplicated or {@code null} in
+     *                 case calls should not be duplicated.
+     */
+    BalancingExchanger(@Nonnull List<Endpoint> endpoints, long coolDownMs, long timeoutMs,
+                    @Nullable HedgingPolicy hedgingPolicy) {
+        this.endpoints = endpoints;
+        this.coolDownMs = coolDownMs;
+        this.timeoutMs = timeoutMs;
+        this.hedger = hedgingPolicy == null ? null : new Hedger(hedgingPolicy);
+    }
+
+    @Nonnull
+    @Override
+    public <I> RmiMethodResultMessage<I> exchange(@Nonnull RmiInvokeMethodMessage<I> message,
+                    boolean retry) throws RmiException, InterruptedException {
+        final Set<Endpoint> failed = new HashSet<>();
+        while (true) {
+            final Endpoint endpoint = choose(failed);
+            try {
+                if (retry && hedger != null && endpoints.size() > 1) {
+                    return hedge(message, endpoint, failed);
+                }
+                return endpoint.exchange(message);
+            } catch (RmiConnectionException ex) {
+                eject(endpoint, failed);
+                if (!retry || failed.size() >= endpoints.size()) {
+                    throw ex;
+                }
+                LOGGER.debug("Retrying '{}' through another endpoint", message, ex);
+            }
+        }
+    }
+
+    private <I> RmiMethodResultMessage<I> hedge(RmiInvokeMethodMessage<I> message,
+                    Endpoint primary, Set<Endpoint> failed)
+                    throws RmiException, InterruptedException {
+        final RmiSignature<I> signature = message.getMessageId().getSignature();
+        final long delayNanos = hedger.getDelayNanos(signature);
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        final Semaphore done = new Semaphore(0);
+        final BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>> listener =
+                        new BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>>() {
+                            @Override
+                            public void accept(PendingCall<I> call,
+                                            RmiMethodResultMessage<I> result) {
+                                done.release();
+                            }
+                        };
+        final Map<PendingCall<I>, Endpoint> calls = new LinkedHashMap<>();
+        calls.put(primary.send(message, listener), primary);
+        boolean hedged = delayNanos < 0L;
+        RmiConnectionException failure = null;
+        try {
+            while (true) {
+                final Iterator<Map.Entry<PendingCall<I>, Endpoint>> iterator =
+                                calls.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    final Map.Entry<PendingCall<I>, Endpoint> entry = iterator.next();
+                    final RmiMethodResultMessage<I> result = entry.getKey().getResult();
+                    if (result == null) {
+                        continue;
+                    }
+                    if (Endpoint.isConnectionFailure(result)) {
+                        iterator.remove();
+                        failure = (RmiConnectionException)result.getException();
+                        eject(entry.getValue(), failed);
+                        continue;
+                    }
+                    hedger.record(signature, System.nanoTime() - start);
+                    return MessageExchanger.checkResult(result);
+                }
+                if (calls.isEmpty()) {
+                    throw failure;
+                }
+                final long now = System.nanoTime();
+                if (now >= deadline) {
+                    RmiEvents.get().callTimedOut(signature, message.getMessageId().getTraceId(),
+                                    timeoutMs);
+                    throw new RmiException(String.format(
+                                    "Cannot get result for '%s' from '%s' in '%s' milliseconds",
+                                    message, calls.values(), timeoutMs));
+                }
+                long waitNanos = deadline - now;
+                if (!hedged) {
+                    final long hedgeAt = start + delayNanos;
+                    if (now >= hedgeAt) {
+                        hedged = true;
+                        sendHedge(message, listener, calls, failed);
+                        continue;
+                    }
+                    waitNanos = Math.min(waitNanos, hedgeAt - now);
+                }
+                done.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            for (PendingCall<I> call : calls.keySet()) {
+                call.cancel(true);
+            }
+        }
+    }
+
+    private <I> void sendHedge(RmiInvokeMethodMessage<I> message,
+                    BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>> listener,
+                    Map<PendingCall<I>, Endpoint> calls, Set<Endpoint> failed) {
+        final Set<Endpoint> excluded = new HashSet<>(failed);
+        excluded.addAll(calls.values());
+        final Endpoint endpoint = choose(excluded);
+        if (endpoint == null || !hedger.tryHedge()) {
+            return;
+        }
+        try {
+            calls.put(endpoint.send(message, listener), endpoint);
+            LOGGER.debug("'{}' is late, duplicate sent to '{}'", message, endpoint);
+        } catch (RmiException ex) {
+            LOGGER.debug("Cannot send duplicate of '{}' to '{}'", message, endpoint, ex);
+            if (ex instanceof RmiConnectionException) {
+                eject(endpoint, failed);
+            }
+        }
+    }
+
+    private void eject(Endpoint endpoint, Set<Endpoint> failed) {
+        if (failed.add(endpoint)) {
+            endpoint.eject(coolDownMs);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public <I> Future<Object> submit(@Nonnull RmiInvokeMethodMessage<I> message)
+                    throws RmiException {
+        final Endpoint endpoint = choose(Collections.<Endpoint>emptySet());
+        try {
+            return endpoint.submit(message);
+        } catch (RmiConnectionException ex) {
+            endpoint.eject(coolDownMs);
+            throw ex;
+        }
+    }
+
+    @Nullable
+    private Endpoint choose(Collection<Endpoint> excluded) {
+        final List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable() && !excluded.contains(endpoint)) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            for (Endpoint endpoint : endpoints) {
+                if (!excluded.contains(endpoint)) {
+                    candidates.add(endpoint);
+                }
+            }
+        }
+        final int size = candidates.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return candidates.get(0);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(size);
+        final int second = (first + 1 + random.nextInt(size - 1)) % size;
+        final Endpoint left = candidates.get(first);
+        final Endpoint right = candidates.get(second);
+        return left.getCost() <= right.getCost() ? left : right;
+    }
+
+    /**
+     * Provides number of duplicates sent because calls were late.
+     *
+     * @return number of duplicates.
+     */
+    long getHedges() {
+        return hedger == null ? 0L : hedger.getHedges();
+    }
+
+    /**
+     * Makes connections to all servers send heartbeats.
+     *
+     * @param policy describes when pings are sent and connection is considered dead or
+     *                 {@code null} in case restored connections should not send heartbeats.
+     */
+    void setHeartbeatPolicy(@Nullable HeartbeatPolicy policy) {
+        for (Endpoint endpoint : endpoints) {
+            endpoint.setHeartbeatPolicy(policy);
+        }
+    }
+
+    /**
+     * Provides statistics of all endpoints in the order they have been specified.
+     *
+     * @return snapshots of endpoint statistics.
+     */
+    @Nonnull
+    List<EndpointStats> getStats() {
+        final List<EndpointStats> result = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            result.add(endpoint.getStats());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Endpoint endpoint : endpoints) {
+            try {
+                endpoint.close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
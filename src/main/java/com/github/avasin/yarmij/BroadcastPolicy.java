@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link BroadcastPolicy} describes how messages broadcast by {@link RmiServer} are queued for
+ * every connection and what happens with the clients which do not read them fast enough.
+ */
+public class BroadcastPolicy {
+    private static final int DEFAULT_MAX_QUEUED = 1024;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private SlowConsumerAction slowConsumerAction = SlowConsumerAction.DROP;
+
+    /**
+     * Specifies maximum number of broadcast messages waiting to be sent to a single connection,
+     * 1024 by default.
+     *
+     * @param maxQueued number of messages.
+     * @return current instance of {@link BroadcastPolicy}.
+     */
+    @Nonnull
+    public BroadcastPolicy withMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+        return this;
+    }
+
+    /**
+     * Specifies what happens once queue of the connection is full,
+     * {@link SlowConsumerAction#DROP} by default.
+     *
+     * @param slowConsumerAction action applied to the slow client.
+     * @return current instance of {@link BroadcastPolicy}.
+     */
+    @Nonnull
+    public BroadcastPolicy withSlowConsumerAction(
+                    @Nonnull SlowConsumerAction slowConsumerAction) {
+        this.slowConsumerAction = slowConsumerAction;
+        return this;
+    }
+
+    int getMaxQueued() {
+        return maxQueued;
+    }
+
+    SlowConsumerAction getSlowConsumerAction() {
+        return slowConsumerAction;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [maxQueued=%s, slowConsumerAction=%s]",
+                        getClass().getSimpleName(), maxQueued, slowConsumerAction);
+    }
+}
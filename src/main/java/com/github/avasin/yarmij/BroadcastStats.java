@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link BroadcastStats} is a snapshot of the statistics collected by {@link RmiServer} for the
+ * broadcast messages.
+ */
+@Immutable
+public class BroadcastStats {
+    private final long broadcasts;
+    private final long serializations;
+    private final long queued;
+    private final long sent;
+    private final long dropped;
+    private final long coalesced;
+    private final long disconnected;
+
+    /**
+     * Creates {@link BroadcastStats} instance.
+     *
+     * @param broadcasts number of broadcast messages.
+     * @param serializations number of times broadcast messages have been serialized.
+     * @param queued number of messages queued for the connections.
+     * @param sent number of messages sent to the connections.
+     * @param dropped number of messages dropped because of slow clients.
+     * @param coalesced number of messages replaced by more recent ones.
+     * @param disconnected number of slow clients which have been disconnected.
+     */
+    public BroadcastStats(long broadcasts, long serializations, long queued, long sent,
+                    long dropped, long coalesced, long disconnected) {
+        this.broadcasts = broadcasts;
+        this.serializations = serializations;
+        this.queued = queued;
+        this.sent = sent;
+        this.dropped = dropped;
+        this.coalesced = coalesced;
+        this.disconnected = disconnected;
+    }
+
+    public long getBroadcasts() {
+        return broadcasts;
+    }
+
+    public long getSerializations() {
+        return serializations;
+    }
+
+    public long getQueued() {
+        return queued;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getDisconnected() {
+        return disconnected;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                        "%s [broadcasts=%s, serializations=%s, queued=%s, sent=%s, dropped=%s, coalesced=%s, disconnected=%s]",
+                        getClass().getSimpleName(), broadcasts, serializations, queued, sent,
+                        dropped, coalesced, disconnected);
+    }
+}
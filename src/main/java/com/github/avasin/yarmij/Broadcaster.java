@@ -0,0 +1,366 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.messages.RmiBroadcastMessage;
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiSignature;
+import com.github.avasin.yarmij.serialization.Serializer;
+
+/**
+ * {@link Broadcaster} sends the same message to many connections of {@link RmiServer}. Message is
+ * serialized once and the same frame is queued for every connection which serializer does not
+ * keep state between messages, other connections serialize message by themselves. Every
+ * connection has its own bounded queue drained by the server thread pool, so slow client does
+ * not delay the others, once its queue is full {@link SlowConsumerAction} is applied.
+ */
+@ThreadSafe
+class Broadcaster {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Broadcaster.class);
+    private static final String BROADCAST = "broadcast";
+    private final Serializer serializer;
+    private final Collection<RmiConnection> connections;
+    private final ExecutorService executor;
+    private final BroadcastPolicy policy;
+    private final ConcurrentMap<String, Collection<RmiConnection>> groups =
+                    new ConcurrentHashMap<>();
+    private final ConcurrentMap<RmiConnection, Outbound> queues = new ConcurrentHashMap<>();
+    private final AtomicLong callNumber = new AtomicLong();
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong serializations = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+
+    /**
+     * Creates {@link Broadcaster} instance.
+     *
+     * @param serializer serializer of the server used to prepare shared frames.
+     * @param connections all connections of the server.
+     * @param executor thread pool which sends queued messages.
+     * @param policy limits of the connection queues.
+     */
+    Broadcaster(@Nonnull Serializer serializer, @Nonnull Collection<RmiConnection> connections,
+                    @Nonnull ExecutorService executor, @Nonnull BroadcastPolicy policy) {
+        this.serializer = serializer;
+        this.connections = connections;
+        this.executor = executor;
+        this.policy = policy;
+    }
+
+    /**
+     * Creates stub which broadcasts every call of its methods.
+     *
+     * @param type listener interface, all its methods should return nothing.
+     * @param group name of the group which members receive calls or {@code null} in
+     *                 case calls should be received by all connections.
+     * @param <I> type of the listener interface.
+     * @return stub of the listener.
+     */
+    @Nonnull
+    <I> I createStub(@Nonnull final Class<I> type, @Nullable final String group) {
+        for (Method method : type.getMethods()) {
+            if (!void.class.equals(method.getReturnType())) {
+                throw new IllegalArgumentException(String.format(
+                                "Broadcast method %s#%s should not return result",
+                                type.getSimpleName(), method.getName()));
+            }
+        }
+        final String threadName = group == null ? BROADCAST : BROADCAST + '-' + group;
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                        new InvocationHandler() {
+                            @Override
+                            public Object invoke(Object proxy, Method method, Object[] args)
+                                            throws Throwable {
+                                if (Object.class.equals(method.getDeclaringClass())) {
+                                    return invokeLocally(proxy, method, args, threadName);
+                                }
+                                final RmiSignature<I> signature = new RmiSignature<>(type,
+                                                method.getName(), method.getParameterTypes());
+                                broadcast(group, new RmiBroadcastMessage<>(new RmiMessageId<>(
+                                                threadName, callNumber.getAndIncrement(),
+                                                signature), args));
+                                return null;
+                            }
+                        }));
+    }
+
+    private static Object invokeLocally(Object proxy, Method method, Object[] args,
+                    String name) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return String.format("%s for '%s'", Broadcaster.class.getSimpleName(), name);
+        }
+    }
+
+    /**
+     * Queues message for every target connection.
+     *
+     * @param group name of the group which members should receive message or
+     *                 {@code null} in case message should be received by all connections.
+     * @param message message which should be sent.
+     * @throws RmiException in case message cannot be serialized.
+     */
+    void broadcast(@Nullable String group, @Nonnull RmiBroadcastMessage<?> message)
+                    throws RmiException {
+        broadcasts.incrementAndGet();
+        byte[] frame = null;
+        for (RmiConnection connection : getTargets(group)) {
+            if (!connection.isOpen()) {
+                disconnected(connection);
+                continue;
+            }
+            if (frame == null && connection.canSendFrames()) {
+                frame = serializer.serialize(message);
+                serializations.incrementAndGet();
+            }
+            getQueue(connection).offer(new Frame(message,
+                            connection.canSendFrames() ? frame : null));
+        }
+    }
+
+    private Collection<RmiConnection> getTargets(String group) {
+        if (group == null) {
+            return connections;
+        }
+        final Collection<RmiConnection> members = groups.get(group);
+        return members == null ? Collections.<RmiConnection>emptySet() : members;
+    }
+
+    private Outbound getQueue(RmiConnection connection) {
+        final Outbound existing = queues.get(connection);
+        if (existing != null) {
+            return existing;
+        }
+        final Outbound created = new Outbound(connection);
+        final Outbound previous = queues.putIfAbsent(connection, created);
+        return previous == null ? created : previous;
+    }
+
+    /**
+     * Adds connection to the group.
+     *
+     * @param group name of the group.
+     * @param connection connection which should receive messages broadcast to the group.
+     * @return {@code true} in case connection has not been member of the group yet.
+     */
+    boolean join(@Nonnull String group, @Nonnull RmiConnection connection) {
+        Collection<RmiConnection> members = groups.get(group);
+        if (members == null) {
+            final Collection<RmiConnection> created =
+                            Collections.newSetFromMap(new ConcurrentHashMap<RmiConnection, Boolean>());
+            members = groups.putIfAbsent(group, created);
+            if (members == null) {
+                members = created;
+            }
+        }
+        return members.add(connection);
+    }
+
+    /**
+     * Removes connection from the group.
+     *
+     * @param group name of the group.
+     * @param connection connection which should not receive messages broadcast to the group.
+     * @return {@code true} in case connection has been member of the group.
+     */
+    boolean leave(@Nonnull String group, @Nonnull RmiConnection connection) {
+        final Collection<RmiConnection> members = groups.get(group);
+        return members != null && members.remove(connection);
+    }
+
+    /**
+     * Forgets connection which has been closed.
+     *
+     * @param connection closed connection.
+     */
+    void disconnected(@Nonnull RmiConnection connection) {
+        for (Collection<RmiConnection> members : groups.values()) {
+            members.remove(connection);
+        }
+        final Outbound queue = queues.remove(connection);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Provides statistics of the broadcast messages.
+     *
+     * @return snapshot of the statistics.
+     */
+    @Nonnull
+    BroadcastStats getStats() {
+        return new BroadcastStats(broadcasts.get(), serializations.get(), queued.get(),
+                        sent.get(), dropped.get(), coalesced.get(), disconnected.get());
+    }
+
+    /**
+     * {@link Frame} is a broadcast message queued for the connection, either serialized in
+     * advance or not.
+     */
+    private static final class Frame {
+        private final RmiBroadcastMessage<?> message;
+        private final byte[] bytes;
+
+        private Frame(RmiBroadcastMessage<?> message, byte[] bytes) {
+            this.message = message;
+            this.bytes = bytes;
+        }
+
+        private boolean isSameMethod(Frame other) {
+            return message.getSignature().equals(other.message.getSignature());
+        }
+    }
+
+    /**
+     * {@link Outbound} is a queue of the messages waiting to be sent to the connection, at most one
+     * thread sends them at a time.
+     */
+    private final class Outbound implements Runnable {
+        private final RmiConnection connection;
+        @GuardedBy("this")
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        @GuardedBy("this")
+        private boolean running;
+
+        private Outbound(RmiConnection connection) {
+            this.connection = connection;
+        }
+
+        private void offer(Frame frame) {
+            synchronized (this) {
+                if (frames.size() >= policy.getMaxQueued() && !overflow(frame)) {
+                    return;
+                }
+                frames.add(frame);
+                queued.incrementAndGet();
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                LOGGER.debug("Broadcast to '{}' stopped, server has been closed", connection, ex);
+                clear();
+            }
+        }
+
+        @GuardedBy("this")
+        private boolean overflow(Frame frame) {
+            switch (policy.getSlowConsumerAction()) {
+                case COALESCE:
+                    int replaced = 0;
+                    for (Iterator<Frame> iterator = frames.iterator(); iterator.hasNext();) {
+                        if (iterator.next().isSameMethod(frame)) {
+                            iterator.remove();
+                            replaced++;
+                        }
+                    }
+                    if (replaced == 0) {
+                        frames.poll();
+                        dropped.incrementAndGet();
+                    }
+                    coalesced.addAndGet(replaced);
+                    return true;
+                case DISCONNECT:
+                    frames.clear();
+                    disconnected.incrementAndGet();
+                    LOGGER.warn("Disconnecting '{}', because it does not read broadcast messages",
+                                    connection);
+                    close(connection);
+                    return false;
+                default:
+                    dropped.incrementAndGet();
+                    return false;
+            }
+        }
+
+        private synchronized void clear() {
+            frames.clear();
+            running = false;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Frame frame;
+                synchronized (this) {
+                    frame = frames.poll();
+                    if (frame == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    if (frame.bytes == null) {
+                        connection.sendMessage(frame.message);
+                    } else {
+                        connection.sendFrame(frame.bytes, frame.message);
+                    }
+                    sent.incrementAndGet();
+                } catch (RmiException ex) {
+                    LOGGER.debug("Cannot broadcast '{}' to '{}'", frame.message, connection, ex);
+                    if (!connection.isOpen()) {
+                        disconnected(connection);
+                        clear();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void close(RmiConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot close '{}'", connection, ex);
+        }
+    }
+}
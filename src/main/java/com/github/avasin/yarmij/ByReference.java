@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link ByReference} marks interfaces which implementations are not transferred when returned
+ * from the service methods. Object stays on the server, client receives a stub which calls it
+ * remotely, so large object graphs are not copied when client needs only a part of them. Server
+ * keeps the object while client uses it and forgets it once lease expires or client releases
+ * the stub by {@link RmiClient#release(Object)}. Objects are bound to the connection through which
+ * they have been returned, so they are lost together with it and could not be called through
+ * {@link RmiBalancingClient}. Lease is renewed only by calls of the stub, so object which has
+ * not been called for longer than the lease is forgotten even though client still holds the stub
+ * and connection is healthy, and further calls fail. Lease is 5 minutes unless specified by
+ * {@link RmiBuilder#withLeaseMs(long)}, clients which keep stubs idle for longer should either
+ * call them periodically or request the object again.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ByReference {
+}
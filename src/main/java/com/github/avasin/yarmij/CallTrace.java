@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+/**
+ * {@link CallTrace} is a breakdown of the time spent by the single remote method invocation.
+ * Stages of the client and of the server are measured by their own clocks, time spent in the
+ * network is what remains from the round trip after the server processing. Time which is not
+ * covered by the stages, like waking up of the calling thread, is the difference between total
+ * time and the sum of the stages. Stages which are not applicable to the connection, e.g.
+ * serialization of the in process calls, are reported as zero.
+ */
+@Immutable
+public class CallTrace {
+    private final long traceId;
+    private final RmiSignature<?> signature;
+    private final long serializationNanos;
+    private final long sendNanos;
+    private final long networkNanos;
+    private final long serverDeserializationNanos;
+    private final long serverQueueNanos;
+    private final long serverExecutionNanos;
+    private final long serverNanos;
+    private final long deserializationNanos;
+    private final long totalNanos;
+
+    /**
+     * Creates {@link CallTrace} instance.
+     *
+     * @param traceId identifier of the trace, the same for the calls made by the server
+     *                 while processing the traced invocation.
+     * @param signature signature of the called method.
+     * @param serializationNanos time spent by the client to convert invocation into bytes.
+     * @param sendNanos time spent by the client to pass bytes to the transport, including
+     *                 waiting for the other messages sent through the same connection.
+     * @param networkNanos round trip time without time spent by the server.
+     * @param serverDeserializationNanos time spent by the server to convert bytes into
+     *                 invocation.
+     * @param serverQueueNanos time invocation waited for the free server thread.
+     * @param serverExecutionNanos time spent by the service implementation.
+     * @param serverNanos time from receiving of the invocation by the server till
+     *                 creation of its result.
+     * @param deserializationNanos time spent by the client to convert bytes into result.
+     * @param totalNanos time of the whole call measured by the client.
+     */
+    public CallTrace(long traceId, @Nonnull RmiSignature<?> signature, long serializationNanos,
+                    long sendNanos, long networkNanos, long serverDeserializationNanos,
+                    long serverQueueNanos, long serverExecutionNanos, long serverNanos,
+                    long deserializationNanos, long totalNanos) {
+        this.traceId = traceId;
+        this.signature = signature;
+        this.serializationNanos = serializationNanos;
+        this.sendNanos = sendNanos;
+        this.networkNanos = networkNanos;
+        this.serverDeserializationNanos = serverDeserializationNanos;
+        this.serverQueueNanos = serverQueueNanos;
+        this.serverExecutionNanos = serverExecutionNanos;
+        this.serverNanos = serverNanos;
+        this.deserializationNanos = deserializationNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    @Nonnull
+    public RmiSignature<?> getSignature() {
+        return signature;
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    public long getNetworkNanos() {
+        return networkNanos;
+    }
+
+    public long getServerDeserializationNanos() {
+        return serverDeserializationNanos;
+    }
+
+    public long getServerQueueNanos() {
+        return serverQueueNanos;
+    }
+
+    public long getServerExecutionNanos() {
+        return serverExecutionNanos;
+    }
+
+    public long getServerNanos() {
+        return serverNanos;
+    }
+
+    public long getDeserializationNanos() {
+        return deserializationNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [traceId=%016x, method=%s#%s, serializationUs=%s, sendUs=%s, "
+                        + "networkUs=%s, serverDeserializationUs=%s, serverQueueUs=%s, "
+                        + "serverExecutionUs=%s, serverUs=%s, deserializationUs=%s, totalUs=%s]",
+                        getClass().getSimpleName(), traceId,
+                        signature.getInterfaceType().getSimpleName(), signature.getMethodName(),
+                        toMicros(serializationNanos), toMicros(sendNanos),
+                        toMicros(networkNanos), toMicros(serverDeserializationNanos),
+                        toMicros(serverQueueNanos), toMicros(serverExecutionNanos),
+                        toMicros(serverNanos), toMicros(deserializationNanos),
+                        toMicros(totalNanos));
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
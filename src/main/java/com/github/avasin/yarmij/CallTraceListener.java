@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link CallTraceListener} receives breakdown of every traced call completed by the client. It
+ * is notified by the calling thread right after the result has been received, so it should not
+ * block.
+ */
+public interface CallTraceListener {
+    /**
+     * Notifies about completed call.
+     *
+     * @param trace breakdown of the time spent by the call.
+     */
+    void traced(@Nonnull CallTrace trace);
+}
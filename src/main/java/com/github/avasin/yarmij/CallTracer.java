@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiServerTiming;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CallTracer} assigns trace identifiers to the calls of the client and turns timings
+ * stamped on their messages into {@link CallTrace}s. Calls made by the server while processing
+ * traced invocation belong to the same trace, even in case their client has no listener.
+ */
+@ThreadSafe
+class CallTracer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallTracer.class);
+    private volatile CallTraceListener listener;
+
+    void setListener(@Nullable CallTraceListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Checks whether calls should be traced.
+     *
+     * @return {@code true} in case listener is specified.
+     */
+    boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * Provides trace identifier for the call made by the current thread.
+     *
+     * @return identifier of the trace of the invocation processed by the current thread,
+     *                 new identifier in case calls are traced or {@code null} otherwise.
+     */
+    @Nullable
+    Long nextTraceId() {
+        final RmiCallContext context = RmiCallContext.current();
+        final Long current = context == null ? null : context.getTraceId();
+        if (current != null || !isEnabled()) {
+            return current;
+        }
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Notifies listener about completed call.
+     *
+     * @param message invocation stamped by the connection through which it has been sent.
+     * @param result result stamped by the connection through which it has been received.
+     * @param startedAt {@link System#nanoTime()} when call has been started.
+     * @param finishedAt {@link System#nanoTime()} when result has been obtained.
+     */
+    void trace(@Nonnull RmiInvokeMethodMessage<?> message,
+                    @Nonnull RmiMethodResultMessage<?> result, long startedAt, long finishedAt) {
+        final CallTraceListener current = listener;
+        final Long traceId = message.getMessageId().getTraceId();
+        if (current == null || traceId == null) {
+            return;
+        }
+        final RmiServerTiming timing = result.getTiming();
+        final long serverNanos = timing == null ? 0L : timing.getTotalNanos();
+        final long networkNanos = message.getSentAt() == 0L || result.getReceivedAt() == 0L ? 0L
+                        : Math.max(0L, result.getReceivedAt() - message.getSentAt() - serverNanos);
+        final CallTrace trace = new CallTrace(traceId, message.getSignature(),
+                        message.getSerializationNanos(), message.getSendNanos(), networkNanos,
+                        timing == null ? 0L : timing.getDeserializationNanos(),
+                        timing == null ? 0L : timing.getQueueNanos(),
+                        timing == null ? 0L : timing.getExecutionNanos(), serverNanos,
+                        result.getDeserializationNanos(), finishedAt - startedAt);
+        try {
+            current.traced(trace);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Listener '{}' failed to process '{}'", current, trace, ex);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.messages.RmiBroadcastMessage;
+import com.github.avasin.yarmij.messages.RmiCallbackMessage;
+import com.github.avasin.yarmij.messages.RmiCallbackReference;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.handlers.RmiInvokeMethodMessageHandler;
+
+/**
+ * {@link CallbackRegistry} keeps {@link Callback}s exported by the client and executes their
+ * methods invoked by the server. Calls of the same callback are executed one by one in the order
+ * they have been received, calls of different callbacks run concurrently, so listening thread is
+ * never blocked by the callback. Callback stays exported until it is explicitly unexported or
+ * client is closed. Listeners of the messages broadcast by the server are executed the same way.
+ */
+@ThreadSafe
+class CallbackRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallbackRegistry.class);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<Long, Exported> callbacks = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Exported> listeners = new ConcurrentHashMap<>();
+    @GuardedBy("this")
+    private final Map<Object, Exported> exported = new IdentityHashMap<>();
+    @GuardedBy("this")
+    private long nextId;
+
+    /**
+     * Replaces arguments passed as {@link Callback} parameters with references to the exported
+     * callbacks.
+     *
+     * @param method called method of the service.
+     * @param args arguments of the call.
+     * @return the same arguments in case there are no callbacks among them, otherwise copy
+     *                 of the arguments with callbacks replaced.
+     */
+    @Nullable
+    Object[] export(@Nonnull Method method, @Nullable Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        final Class<?>[] parameters = method.getParameterTypes();
+        Object[] result = args;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] == null || !parameters[i].isAnnotationPresent(Callback.class)) {
+                continue;
+            }
+            if (result == args) {
+                result = args.clone();
+            }
+            result[i] = export(parameters[i], args[i]);
+        }
+        return result;
+    }
+
+    private synchronized RmiCallbackReference export(Class<?> type, Object callback) {
+        Exported existing = exported.get(callback);
+        if (existing == null) {
+            existing = new Exported(nextId++, type, callback);
+            exported.put(callback, existing);
+            callbacks.put(existing.reference.getCallbackId(), existing);
+            LOGGER.debug("'{}' exported as '{}'", callback, existing.reference);
+        }
+        return existing.reference;
+    }
+
+    /**
+     * Stops serving calls of the callback, server receives failure for every later call.
+     *
+     * @param callback callback which has been passed to the server.
+     * @return {@code true} in case callback has been exported.
+     */
+    synchronized boolean unexport(@Nonnull Object callback) {
+        final Exported removed = exported.remove(callback);
+        if (removed == null) {
+            return false;
+        }
+        callbacks.remove(removed.reference.getCallbackId());
+        return true;
+    }
+
+    /**
+     * Subscribes listener to the messages of the specified interface broadcast by the server,
+     * replacing listener subscribed before.
+     *
+     * @param type listener interface.
+     * @param listener listener which should receive broadcast messages.
+     * @param <I> type of the listener interface.
+     */
+    <I> void subscribe(@Nonnull Class<I> type, @Nonnull I listener) {
+        listeners.put(type, new Exported(-1L, type, listener));
+    }
+
+    /**
+     * Stops delivering of the broadcast messages of the specified interface.
+     *
+     * @param type listener interface.
+     * @return {@code true} in case listener has been subscribed.
+     */
+    boolean unsubscribe(@Nonnull Class<?> type) {
+        return listeners.remove(type) != null;
+    }
+
+    /**
+     * Passes message broadcast by the server to the subscribed listener, message is ignored in
+     * case there is no such listener.
+     *
+     * @param connection connection through which message has been received.
+     * @param message call of the listener method.
+     */
+    void accept(@Nonnull final RmiConnection connection,
+                    @Nonnull RmiBroadcastMessage<?> message) {
+        final Exported target = listeners.get(message.getSignature().getInterfaceType());
+        if (target == null) {
+            LOGGER.debug("There is no listener subscribed for '{}'", message);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        final RmiBroadcastMessage<Object> call = (RmiBroadcastMessage<Object>)message;
+        try {
+            target.execute(new Runnable() {
+                @Override
+                public void run() {
+                    target.handler.accept(connection, call);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.debug("'{}' is ignored, because client has been closed", message, ex);
+        }
+    }
+
+    /**
+     * Executes method of the exported callback and sends its result to the server.
+     *
+     * @param connection connection through which call has been received.
+     * @param message call of the callback method.
+     */
+    void accept(@Nonnull final RmiConnection connection,
+                    @Nonnull final RmiCallbackMessage<?> message) {
+        final Exported target = callbacks.get(message.getCallbackId());
+        if (target == null) {
+            reply(connection, new RmiMethodResultMessage<>(new RmiException(String.format(
+                            "Callback '%s' is not exported", message.getCallbackId())), null,
+                            message.getMessageId()));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        final RmiCallbackMessage<Object> call = (RmiCallbackMessage<Object>)message;
+        try {
+            target.execute(new Runnable() {
+                @Override
+                public void run() {
+                    target.handler.accept(connection, call);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            reply(connection, new RmiMethodResultMessage<>(new RmiException(
+                            "Client has been closed", ex), null, message.getMessageId()));
+        }
+    }
+
+    private static void reply(RmiConnection connection, RmiMethodResultMessage<?> result) {
+        try {
+            connection.sendMessage(result);
+        } catch (RmiException ex) {
+            LOGGER.warn("Cannot send '{}' to '{}'", result, connection, ex);
+        }
+    }
+
+    /**
+     * Stops execution of the callbacks.
+     */
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * {@link Exported} is a callback exported by the client, its calls are executed one by one.
+     */
+    private final class Exported implements Executor {
+        private final RmiCallbackReference reference;
+        private final RmiInvokeMethodMessageHandler<Object> handler;
+        @GuardedBy("this")
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        @GuardedBy("this")
+        private boolean running;
+
+        private Exported(long id, Class<?> type, Object callback) {
+            this.reference = new RmiCallbackReference(id, type);
+            @SuppressWarnings("unchecked")
+            final Class<Object> casted = (Class<Object>)type;
+            this.handler = new RmiInvokeMethodMessageHandler<>(casted, callback);
+        }
+
+        @Override
+        public synchronized void execute(@Nonnull Runnable task) {
+            queue.add(task);
+            if (!running) {
+                running = true;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                final Runnable task;
+                synchronized (this) {
+                    task = queue.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    LOGGER.error("Callback '{}' failed", reference, ex);
+                }
+            }
+        }
+    }
+}
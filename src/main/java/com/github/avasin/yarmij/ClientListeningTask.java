@@ -0,0 +1,328 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.messages.RmiHandshakeMessage;
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.TransportConnector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ClientListeningTask} listens results and callback invocations received by the client. As soon as connection is
+ * lost all pending calls are failed. In case {@link ReconnectPolicy} is specified, connection is
+ * restored with randomized backoff and services used by the client are validated by single
+ * {@link RmiHandshakeMessage} before new connection becomes available for the calls. Handshake
+ * is limited by the call timeout, messages received before its response are handled as soon as
+ * connection becomes available. In case server rejects the handshake connection is not restored
+ * anymore, because retries would be rejected the same way.
+ * <p>
+ * Result carrying {@link RemoteFileRegion} is followed by bytes of the region, which are read by
+ * the thread consuming it. Listening thread does not wait for them, it stops listening and task
+ * is submitted again once region is consumed, or once call timeout expires and region has to be
+ * discarded.
+ */
+class ClientListeningTask implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientListeningTask.class);
+    private static final ScheduledExecutorService DEADLINES = Executors
+                    .newSingleThreadScheduledExecutor(Heartbeat.daemon("yarmij-deadlines"));
+    private final MessageExchanger exchanger;
+    private final ClientMessageHandler handler;
+    private final TransportConnector connector;
+    private final Serializer serializer;
+    private final Deserializer deserializer;
+    private final ReconnectPolicy policy;
+    private final Collection<Class<?>> services;
+    private final long timeoutMs;
+    private final List<RmiMessage<?>> deferred = new ArrayList<>();
+    private final String name = UUID.randomUUID().toString();
+    private final Runnable resumption = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                executor.execute(ClientListeningTask.this);
+            } catch (RejectedExecutionException ex) {
+                LOGGER.debug("Listening of '{}' cannot be resumed", connection, ex);
+                close(connection);
+            }
+        }
+    };
+    private final BiConsumer<RmiConnection, RegionBody> handOff =
+                    new BiConsumer<RmiConnection, RegionBody>() {
+                        @Override
+                        public void accept(final RmiConnection current, final RegionBody region) {
+                            DEADLINES.schedule(new Runnable() {
+                                @Override
+                                public void run() {
+                                    expire(current, region);
+                                }
+                            }, exchanger.getTimeoutMs(), TimeUnit.MILLISECONDS);
+                            region.handOff(resumption);
+                        }
+                    };
+    private long handshakes;
+    private volatile ExecutorService executor;
+    private volatile RmiConnection connection;
+    private volatile HeartbeatPolicy heartbeatPolicy;
+    private volatile boolean closed;
+
+    /**
+     * Creates {@link ClientListeningTask} instance which does not restore lost connection.
+     *
+     * @param connection connection which should be listened.
+     * @param exchanger exchanger which handles received results.
+     * @param registry registry which executes calls of the exported callbacks.
+     */
+    ClientListeningTask(@Nonnull RmiConnection connection, @Nonnull MessageExchanger exchanger,
+                    @Nonnull CallbackRegistry registry) {
+        this(connection, exchanger, registry, null, null, null, null,
+                        Collections.<Class<?>>emptySet(), 0L);
+    }
+
+    /**
+     * Creates {@link ClientListeningTask} instance.
+     *
+     * @param connection initial connection which should be listened or {@code null}
+     *                 in case it should be established by the task.
+     * @param exchanger exchanger which handles received results.
+     * @param registry registry which executes calls of the exported callbacks.
+     * @param connector connector which establishes new transports to the server or
+     *                 {@code null} in case lost connection should not be restored.
+     * @param serializer will be used to convert messages into bytes.
+     * @param deserializer will be used to convert bytes into messages.
+     * @param policy describes delays between reconnection attempts.
+     * @param services interfaces used by the client, which should be available on the
+     *                 server after reconnection.
+     * @param timeoutMs maximum time to wait for the handshake response.
+     */
+    ClientListeningTask(@Nullable RmiConnection connection, @Nonnull MessageExchanger exchanger,
+                    @Nonnull CallbackRegistry registry, @Nullable TransportConnector connector,
+                    @Nullable Serializer serializer, @Nullable Deserializer deserializer,
+                    @Nullable ReconnectPolicy policy,
+                    @Nonnull Collection<Class<?>> services, long timeoutMs) {
+        this.connection = connection;
+        this.exchanger = exchanger;
+        this.handler = new ClientMessageHandler(exchanger, registry);
+        this.connector = connector;
+        this.serializer = serializer;
+        this.deserializer = deserializer;
+        this.policy = policy;
+        this.services = services;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Starts listening in the specified pool, listening stopped to receive file region is resumed
+     * in the same pool.
+     *
+     * @param pool pool which should run the task.
+     */
+    void start(@Nonnull ExecutorService pool) {
+        this.executor = pool;
+        pool.submit(this);
+    }
+
+    @Override
+    public void run() {
+        RmiConnection current = connection;
+        if (current == null && connector != null) {
+            current = restore();
+        }
+        while (current != null) {
+            watch(current);
+            current.setRegionHandOff(executor == null ? null : handOff);
+            if (!new ListeningTask<>(current, Collections.<RmiConnection>emptySet(),
+                            RmiMessage.class, handler).listen()) {
+                return;
+            }
+            exchanger.disconnected(current);
+            if (closed || connector == null) {
+                break;
+            }
+            LOGGER.warn("Connection '{}' has been lost, reconnecting to '{}'", current, connector);
+            current = restore();
+        }
+        exchanger.abandon();
+    }
+
+    @Nullable
+    private RmiConnection restore() {
+        final RmiConnection restored = reconnect();
+        if (restored != null) {
+            exchanger.connected(restored);
+            for (RmiMessage<?> message : deferred) {
+                try {
+                    handler.accept(restored, message);
+                } catch (Exception ex) {
+                    LOGGER.error("Cannot handle '{}' received from '{}' during handshake", message,
+                                    restored, ex);
+                }
+            }
+        }
+        deferred.clear();
+        return restored;
+    }
+
+    @Nullable
+    private RmiConnection reconnect() {
+        for (int attempt = 0; !closed; attempt++) {
+            try {
+                Thread.sleep(policy.getDelayMs(attempt));
+            } catch (InterruptedException ex) {
+                return null;
+            }
+            RmiConnection candidate = null;
+            try {
+                candidate = new RmiConnection(serializer, deserializer, connector.connect());
+                connection = candidate;
+                if (closed) {
+                    candidate.close();
+                    return null;
+                }
+                final RmiException rejection = handshake(candidate);
+                if (rejection != null) {
+                    LOGGER.error("'{}' rejected handshake, connection will not be restored",
+                                    connector, rejection);
+                    closed = true;
+                    close(candidate);
+                    return null;
+                }
+                LOGGER.info("Connection to '{}' restored after '{}' attempts", connector,
+                                attempt + 1);
+                return candidate;
+            } catch (IOException ex) {
+                deferred.clear();
+                LOGGER.debug("Cannot reconnect to '{}'", connector, ex);
+                close(candidate);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validates services on the server through the new connection. Connection is closed in case
+     * server does not answer in time, other messages received before the response are deferred.
+     *
+     * @param candidate new connection to the server.
+     * @return exception describing why server rejected the handshake or {@code null} in
+     *                 case handshake succeeded.
+     * @throws RmiException in case connection has been lost or server did not answer in
+     *                 time.
+     */
+    @Nullable
+    private RmiException handshake(final RmiConnection candidate) throws RmiException {
+        final RmiHandshakeMessage message = new RmiHandshakeMessage(name, handshakes++,
+                        services.toArray(new Class<?>[0]));
+        final ScheduledFuture<?> deadline = DEADLINES.schedule(new Runnable() {
+            @Override
+            public void run() {
+                close(candidate);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            candidate.sendMessage(message);
+            while (candidate.isOpen()) {
+                final RmiMessage<?> response = candidate.receive();
+                if (response == null) {
+                    continue;
+                }
+                if (!(response instanceof RmiMethodResultMessage)
+                                || !message.getMessageId().equals(response.getMessageId())) {
+                    deferred.add(response);
+                    continue;
+                }
+                try {
+                    MessageExchanger.checkResult((RmiMethodResultMessage<?>)response);
+                    return null;
+                } catch (RmiException ex) {
+                    return ex;
+                }
+            }
+        } finally {
+            deadline.cancel(false);
+        }
+        throw new RmiConnectionException(String.format(
+                        "'%s' has been closed before '%s' answered in '%s' milliseconds",
+                        candidate, message, timeoutMs));
+    }
+
+    private void expire(RmiConnection current, RegionBody region) {
+        if (!region.isConsumed() && region.resume()) {
+            LOGGER.warn("Region received through '{}' has not been consumed in '{}' milliseconds,"
+                            + " discarding it", current, exchanger.getTimeoutMs());
+        }
+    }
+
+    private static void close(RmiConnection candidate) {
+        if (candidate == null) {
+            return;
+        }
+        try {
+            candidate.close();
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot close '{}'", candidate, ex);
+        }
+    }
+
+    /**
+     * Makes current connection and connections restored later send heartbeats.
+     *
+     * @param policy describes when pings are sent and connection is considered dead or
+     *                 {@code null} in case restored connections should not send heartbeats.
+     */
+    void setHeartbeatPolicy(@Nullable HeartbeatPolicy policy) {
+        this.heartbeatPolicy = policy;
+        final RmiConnection current = connection;
+        if (current != null) {
+            watch(current);
+        }
+    }
+
+    private void watch(RmiConnection current) {
+        final HeartbeatPolicy policy = heartbeatPolicy;
+        if (policy != null) {
+            current.heartbeat(policy);
+        }
+    }
+
+    /**
+     * Stops restoring of the connection and closes the current one.
+     */
+    void close() {
+        closed = true;
+        close(connection);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+
+import com.github.avasin.yarmij.messages.RmiBroadcastMessage;
+import com.github.avasin.yarmij.messages.RmiCallbackMessage;
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ClientMessageHandler} handles all messages received by the client. Results of the calls
+ * are passed to the {@link MessageExchanger}, calls of the {@link Callback}s exported by the
+ * client and broadcasts to the listeners subscribed by the client are passed to the
+ * {@link CallbackRegistry}.
+ */
+class ClientMessageHandler implements BiConsumer<RmiConnection, RmiMessage<?>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientMessageHandler.class);
+    private final MessageExchanger exchanger;
+    private final CallbackRegistry registry;
+
+    /**
+     * Creates {@link ClientMessageHandler} instance.
+     *
+     * @param exchanger exchanger which handles received results.
+     * @param registry registry which executes calls of the exported callbacks.
+     */
+    ClientMessageHandler(@Nonnull MessageExchanger exchanger,
+                    @Nonnull CallbackRegistry registry) {
+        this.exchanger = exchanger;
+        this.registry = registry;
+    }
+
+    @Override
+    public void accept(@Nonnull RmiConnection connection, @Nonnull RmiMessage<?> message) {
+        if (message instanceof RmiMethodResultMessage) {
+            exchanger.accept(connection, (RmiMethodResultMessage<?>)message);
+        } else if (message instanceof RmiCallbackMessage) {
+            registry.accept(connection, (RmiCallbackMessage<?>)message);
+        } else if (message instanceof RmiBroadcastMessage) {
+            registry.accept(connection, (RmiBroadcastMessage<?>)message);
+        } else {
+            LOGGER.debug("Message '{}' received from '{}' is ignored", message, connection);
+        }
+    }
+}
@@ -18,8 +18,10 @@ package com.github.avasin.yarmij;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
@@ -28,6 +30,8 @@ import javax.annotation.Nullable;
 import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
 import com.github.avasin.yarmij.messages.RmiMessageId;
 import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiReferenceCallMessage;
+import com.github.avasin.yarmij.messages.RmiRemoteReference;
 import com.github.avasin.yarmij.messages.RmiSignature;
 
 import org.slf4j.Logger;
@@ -35,13 +39,25 @@ import org.slf4j.LoggerFactory;
 
 /**
  * {@link DynamicProxy} represents a stub on the client side that converts all client service method
- * calls into message exchange procedure with a server service implementation.
+ * calls into message exchange procedure with a server service implementation. Methods which
+ * declare {@link Future} as a return type are not waiting for the result, cancellation of the
+ * returned future cancels invocation on the server side. Methods marked with {@link Idempotent} are
+ * retried in case connection has been lost. Arguments passed as {@link Callback} parameters stay on
+ * the client, server invokes them back through the same connection. Results returned
+ * {@link ByReference} are represented by stubs which call the object kept by the server, such
+ * calls are never retried, because object is lost together with connection. Calls of the client
+ * with {@link CallTraceListener} are traced, breakdown of the time spent is reported for the calls
+ * which have been completed without waiting for the {@link Future}. Calls are reported to the
+ * {@link RmiEvents}.
  */
 public class DynamicProxy<I> implements InvocationHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamicProxy.class);
     private static final String TO_STRING = "toString";
     private final Class<I> type;
-    private final MessageExchanger exchanger;
+    private final Exchanger exchanger;
+    private final CallbackRegistry registry;
+    private final CallTracer tracer;
+    private final Long objectId;
     private final Map<RmiSignature<?>, AtomicLong> signatureToCallNumber =
                     new ConcurrentHashMap<>();
 
@@ -56,18 +72,85 @@ public class DynamicProxy<I> implements InvocationHandler {
      * @throws InterruptedException in case awaiting of server response has been
      *                 interrupted.
      */
-    public DynamicProxy(@Nonnull Class<I> type, @Nonnull MessageExchanger exchanger)
+    public DynamicProxy(@Nonnull Class<I> type, @Nonnull Exchanger exchanger)
                     throws RmiException, InterruptedException {
+        this(type, exchanger, null, null);
+    }
+
+    /**
+     * Creates {@link DynamicProxy} instance.
+     *
+     * @param type interface type for which proxy instance was created.
+     * @param exchanger exchange messages between client and server in synchronous
+     *                 manner.
+     * @param registry registry which exports {@link Callback}s passed as arguments or
+     *                 {@code null} in case callbacks should be transferred as usual objects.
+     * @param tracer tracer of the calls or {@code null} in case calls should not be
+     *                 traced.
+     * @throws RmiException in case server unaware of the specified interface
+     *                 implementation.
+     * @throws InterruptedException in case awaiting of server response has been
+     *                 interrupted.
+     */
+    DynamicProxy(@Nonnull Class<I> type, @Nonnull Exchanger exchanger,
+                    @Nullable CallbackRegistry registry, @Nullable CallTracer tracer)
+                    throws RmiException, InterruptedException {
+        this.type = type;
+        this.exchanger = exchanger;
+        this.registry = registry;
+        this.tracer = tracer;
+        this.objectId = null;
+        exchanger.exchange(new RmiInvokeMethodMessage<>(
+                        createMessageId(type, type.getSimpleName(), null), null), true);
+    }
+
+    /**
+     * Creates {@link DynamicProxy} instance which calls object returned {@link ByReference}.
+     *
+     * @param type interface type for which proxy instance was created.
+     * @param exchanger exchanger through which reference has been received.
+     * @param registry registry which exports {@link Callback}s passed as arguments or
+     *                 {@code null} in case callbacks should be transferred as usual objects.
+     * @param tracer tracer of the calls or {@code null} in case calls should not be
+     *                 traced.
+     * @param objectId identifier of the object exported by the server.
+     */
+    private DynamicProxy(Class<I> type, Exchanger exchanger, CallbackRegistry registry,
+                    CallTracer tracer, long objectId) {
         this.type = type;
         this.exchanger = exchanger;
-        exchanger.exchange(new RmiInvokeMethodMessage<>(createMessageId(type, type.getSimpleName()),
-                        null));
+        this.registry = registry;
+        this.tracer = tracer;
+        this.objectId = objectId;
     }
 
-    private RmiMessageId<I> createMessageId(Class<I> type, String methodName, Class<?>... parameters) {
+    /**
+     * Asks server to forget the object represented by the stub, so it could be garbage
+     * collected before its lease expires.
+     *
+     * @return {@code true} in case server still kept the object.
+     * @throws RmiException in case stub does not represent object returned
+     *                 {@link ByReference} or server cannot be reached.
+     * @throws InterruptedException in case awaiting of server response has been
+     *                 interrupted.
+     */
+    boolean release() throws RmiException, InterruptedException {
+        if (objectId == null) {
+            throw new RmiException(String.format("'%s' stub is not a reference",
+                            type.getSimpleName()));
+        }
+        final RmiMethodResultMessage<I> result = exchanger.exchange(
+                        new RmiReferenceCallMessage<>(
+                                        createMessageId(type, type.getSimpleName(), null),
+                                        objectId), false);
+        return Boolean.TRUE.equals(result.getResult());
+    }
+
+    private RmiMessageId<I> createMessageId(Class<I> type, String methodName, Long traceId,
+                    Class<?>... parameters) {
         final RmiSignature<I> signature = new RmiSignature<>(type, methodName, parameters);
         return new RmiMessageId<>(Thread.currentThread().getName(), ensureCallNumber(signature),
-                        signature);
+                        signature, traceId);
     }
 
     @Nullable
@@ -80,14 +163,52 @@ public class DynamicProxy<I> implements InvocationHandler {
             return String.format("%s for '%s'", DynamicProxy.class.getSimpleName(), typeName);
         }
         LOGGER.trace("{}#{} called with the following arguments: {}", typeName, methodName, args);
-        final RmiInvokeMethodMessage<I> message =
-                        new RmiInvokeMethodMessage<>(createMessageId(type, methodName, method.getParameterTypes()), args);
-        final RmiMethodResultMessage<I> methodResult = exchanger.exchange(message);
+        final Object[] arguments = registry == null ? args : registry.export(method, args);
+        final Long traceId = tracer == null ? null : tracer.nextTraceId();
+        final RmiMessageId<I> messageId =
+                        createMessageId(type, methodName, traceId, method.getParameterTypes());
+        final RmiInvokeMethodMessage<I> message = objectId == null
+                        ? new RmiInvokeMethodMessage<>(messageId, arguments)
+                        : new RmiReferenceCallMessage<>(messageId, objectId, arguments);
+        final RmiEvents events = RmiEvents.get();
+        final Object event = events.callStarted();
+        boolean failed = true;
+        try {
+            final Object result = call(method, message);
+            failed = false;
+            LOGGER.trace("{}#{} call with {} arguments returned {} result", typeName, methodName,
+                            args, result);
+            return result;
+        } finally {
+            events.callFinished(event, messageId.getSignature(), traceId, failed);
+        }
+    }
+
+    private Object call(Method method, RmiInvokeMethodMessage<I> message)
+                    throws RmiException, InterruptedException {
+        if (Future.class.equals(method.getReturnType())) {
+            return exchanger.submit(message);
+        }
+        final Long traceId = message.getMessageId().getTraceId();
+        final long startedAt = traceId == null ? 0L : System.nanoTime();
+        final RmiMethodResultMessage<I> methodResult = exchanger.exchange(message,
+                        objectId == null && method.isAnnotationPresent(Idempotent.class));
+        if (traceId != null) {
+            tracer.trace(message, methodResult, startedAt, System.nanoTime());
+        }
         final Object result = methodResult.getResult();
-        LOGGER.trace("{}#{} call with {} arguments returned {} result", typeName, methodName, args,
-                        result);
+        if (result instanceof RmiRemoteReference) {
+            return createReference((RmiRemoteReference)result);
+        }
         return result;
+    }
 
+    private Object createReference(RmiRemoteReference reference) {
+        @SuppressWarnings("unchecked")
+        final Class<Object> referenceType = (Class<Object>)reference.getType();
+        return Proxy.newProxyInstance(referenceType.getClassLoader(),
+                        new Class<?>[] {referenceType}, new DynamicProxy<>(referenceType,
+                                        exchanger, registry, tracer, reference.getObjectId()));
     }
 
     private long ensureCallNumber(RmiSignature<I> signature) {
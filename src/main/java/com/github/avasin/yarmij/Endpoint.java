@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.TransportConnector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Endpoint} is a connection to one of the servers used by {@link BalancingExchanger}.
+ * Connection is restored in background, so endpoint which was not reachable initially or has
+ * been lost later returns to the rotation by itself. Tracks number of calls in flight and
+ * exponentially weighted moving average of their latency. The first call is not measured, because
+ * it includes warm-up of both sides and would make the endpoint look slow long after that.
+ * Abandoned call only raises the average, because its latency is known to exceed the time it has
+ * been waited for, but not by how much.
+ */
+@ThreadSafe
+class Endpoint implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Endpoint.class);
+    private static final double LATENCY_WEIGHT = 0.2D;
+    private static final long WARM_UP_CALLS = 1L;
+    private final TransportConnector connector;
+    private final MessageExchanger exchanger;
+    private final ClientListeningTask listener;
+    private final ExecutorService listenerPool = Executors.newSingleThreadExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile double latencyNanos;
+    private volatile long ejectedUntilMs;
+
+    /**
+     * Creates {@link Endpoint} instance and starts listening results from the server.
+     *
+     * @param connector establishes transports to the server.
+     * @param serializer will be used to convert messages into bytes.
+     * @param deserializer will be used to convert bytes into messages.
+     * @param timeoutMs timeout in milliseconds.
+     * @param policy describes delays between reconnection attempts.
+     * @param services interfaces used by the client, which should be available on the
+     *                 server after reconnection.
+     * @param registry registry which executes calls of the callbacks exported by the
+     *                 client.
+     */
+    Endpoint(@Nonnull TransportConnector connector, @Nonnull Serializer serializer,
+                    @Nonnull Deserializer deserializer, long timeoutMs,
+                    @Nonnull ReconnectPolicy policy, @Nonnull Collection<Class<?>> services,
+                    @Nonnull CallbackRegistry registry) {
+        this.connector = connector;
+        RmiConnection connection = null;
+        try {
+            connection = new RmiConnection(serializer, deserializer, connector.connect());
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot connect to '{}', connection will be established in background",
+                            connector, ex);
+        }
+        this.exchanger = new MessageExchanger(connection, timeoutMs);
+        this.listener = new ClientListeningTask(connection, exchanger, registry, connector,
+                        serializer, deserializer, policy, services, timeoutMs);
+        this.listener.start(listenerPool);
+    }
+
+    /**
+     * Sends message through the endpoint and waits for the result, latency of the call is taken
+     * into account unless connection has been lost.
+     *
+     * @param message message which should be sent to the server.
+     * @param <I> type of the interface which method is going to be called.
+     * @return result received from the server.
+     * @throws RmiConnectionException in case connection to the server is not
+     *                 available or has been lost before call completed.
+     * @throws RmiException in case call timed out or failed on the server side.
+     * @throws InterruptedException in case waiting has been interrupted.
+     */
+    @Nonnull
+    <I> RmiMethodResultMessage<I> exchange(@Nonnull RmiInvokeMethodMessage<I> message)
+                    throws RmiException, InterruptedException {
+        inFlight.incrementAndGet();
+        final long start = System.nanoTime();
+        try {
+            final RmiMethodResultMessage<I> result = exchanger.exchange(message, false);
+            completed(System.nanoTime() - start, true);
+            return result;
+        } catch (RmiConnectionException ex) {
+            failures.incrementAndGet();
+            throw ex;
+        } catch (RmiException ex) {
+            completed(System.nanoTime() - start, true);
+            throw ex;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Sends message through the endpoint without waiting for the result.
+     *
+     * @param message message which should be sent to the server.
+     * @param <I> type of the interface which method is going to be called.
+     * @return future which provides result of the call.
+     * @throws RmiException in case message cannot be sent.
+     */
+    @Nonnull
+    <I> Future<Object> submit(@Nonnull RmiInvokeMethodMessage<I> message) throws RmiException {
+        try {
+            return exchanger.submit(message);
+        } catch (RmiConnectionException ex) {
+            failures.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Sends message through the endpoint without waiting for the result, latency of the call is
+     * taken into account once it completes, unless connection has been lost. Cancelled call
+     * raises the latency up to the time it has been waited for, so endpoint which calls are
+     * abandoned as late does not look fast.
+     *
+     * @param message message which should be sent to the server.
+     * @param listener notified once call is done, with {@code null} result in case
+     *                 call has been cancelled.
+     * @param <I> type of the interface which method is going to be called.
+     * @return call which will provide result of the method.
+     * @throws RmiException in case message cannot be sent.
+     */
+    @Nonnull
+    <I> PendingCall<I> send(@Nonnull RmiInvokeMethodMessage<I> message,
+                    @Nonnull final BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>> listener)
+                    throws RmiException {
+        inFlight.incrementAndGet();
+        final long start = System.nanoTime();
+        try {
+            return exchanger.send(message,
+                            new BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>>() {
+                                @Override
+                                public void accept(PendingCall<I> call,
+                                                RmiMethodResultMessage<I> result) {
+                                    inFlight.decrementAndGet();
+                                    if (isConnectionFailure(result)) {
+                                        failures.incrementAndGet();
+                                    } else {
+                                        completed(System.nanoTime() - start, result != null);
+                                    }
+                                    listener.accept(call, result);
+                                }
+                            });
+        } catch (RmiException ex) {
+            inFlight.decrementAndGet();
+            if (ex instanceof RmiConnectionException) {
+                failures.incrementAndGet();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks whether call failed because connection to the server has been lost.
+     *
+     * @param result result of the call.
+     * @return {@code true} in case result contains {@link RmiConnectionException}.
+     */
+    static boolean isConnectionFailure(RmiMethodResultMessage<?> result) {
+        return result != null && result.getException() instanceof RmiConnectionException;
+    }
+
+    private void completed(long nanos, boolean succeeded) {
+        if (succeeded && calls.incrementAndGet() <= WARM_UP_CALLS) {
+            return;
+        }
+        synchronized (this) {
+            final double current = latencyNanos;
+            if (!succeeded && nanos <= current) {
+                return;
+            }
+            latencyNanos = current == 0D ? nanos : current + LATENCY_WEIGHT * (nanos - current);
+        }
+    }
+
+    /**
+     * Estimates how long new call would wait for the result, endpoints without measurements are
+     * considered the fastest ones.
+     *
+     * @return relative cost of the call, lower is better.
+     */
+    double getCost() {
+        return (latencyNanos + 1D) * (inFlight.get() + 1);
+    }
+
+    /**
+     * Excludes endpoint from the rotation for the specified period.
+     *
+     * @param coolDownMs period in milliseconds.
+     */
+    void eject(long coolDownMs) {
+        ejectedUntilMs = System.currentTimeMillis() + coolDownMs;
+        LOGGER.warn("Endpoint '{}' ejected for '{}' milliseconds", connector, coolDownMs);
+    }
+
+    /**
+     * Checks whether calls could be sent through the endpoint.
+     *
+     * @return {@code true} in case connection is established and endpoint is not ejected.
+     */
+    boolean isAvailable() {
+        return exchanger.isConnected() && System.currentTimeMillis() >= ejectedUntilMs;
+    }
+
+    /**
+     * Makes connections to the server send heartbeats.
+     *
+     * @param policy describes when pings are sent and connection is considered dead or
+     *                 {@code null} in case restored connections should not send heartbeats.
+     */
+    void setHeartbeatPolicy(@Nullable HeartbeatPolicy policy) {
+        listener.setHeartbeatPolicy(policy);
+    }
+
+    @Nonnull
+    EndpointStats getStats() {
+        return new EndpointStats(connector.toString(), exchanger.isConnected(),
+                        System.currentTimeMillis() < ejectedUntilMs, inFlight.get(), calls.get(),
+                        failures.get(), latencyNanos / TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    @Override
+    public void close() throws IOException {
+        listener.close();
+        try {
+            exchanger.close();
+        } finally {
+            listenerPool.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return connector.toString();
+    }
+}
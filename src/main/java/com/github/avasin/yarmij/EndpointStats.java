@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link EndpointStats} is a snapshot of the statistics collected by {@link RmiBalancingClient}
+ * for a single server endpoint.
+ */
+@Immutable
+public class EndpointStats {
+    private final String address;
+    private final boolean connected;
+    private final boolean ejected;
+    private final int inFlight;
+    private final long calls;
+    private final long failures;
+    private final double latencyMs;
+
+    /**
+     * Creates {@link EndpointStats} instance.
+     *
+     * @param address description of the endpoint.
+     * @param connected whether connection to the endpoint is currently established.
+     * @param ejected whether endpoint does not receive calls because of recent failure.
+     * @param inFlight number of calls waiting for the result from the endpoint.
+     * @param calls number of completed calls sent to the endpoint.
+     * @param failures number of calls failed because of connection issues.
+     * @param latencyMs exponentially weighted moving average of call latency in
+     *                 milliseconds.
+     */
+    public EndpointStats(@Nonnull String address, boolean connected, boolean ejected,
+                    int inFlight, long calls, long failures, double latencyMs) {
+        this.address = address;
+        this.connected = connected;
+        this.ejected = ejected;
+        this.inFlight = inFlight;
+        this.calls = calls;
+        this.failures = failures;
+        this.latencyMs = latencyMs;
+    }
+
+    @Nonnull
+    public String getAddress() {
+        return address;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getLatencyMs() {
+        return latencyMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                        "%s [address=%s, connected=%s, ejected=%s, inFlight=%s, calls=%s, failures=%s, latencyMs=%.3f]",
+                        getClass().getSimpleName(), address, connected, ejected, inFlight, calls,
+                        failures, latencyMs);
+    }
+}
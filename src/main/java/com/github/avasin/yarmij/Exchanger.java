@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.Closeable;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+
+/**
+ * {@link Exchanger} delivers invocation messages produced by {@link DynamicProxy} to the server
+ * side and provides results of the invocations. Stubs do not know how many servers stay behind
+ * the exchanger.
+ */
+public interface Exchanger extends Closeable {
+    /**
+     * Sends {@link RmiInvokeMethodMessage} instances to the server, awaits for the result to
+     * return, in case awaiting result exceeds timeout than {@link RmiException} will be thrown.
+     *
+     * @param message message which contains information which method of which
+     *                 service implementation required to be executed on the server side.
+     * @param retry whether call could be safely sent again after connection loss.
+     * @param <I> type of the interface which method is going to be called.
+     * @return instance of {@link RmiMethodResultMessage} which contains information about
+     *                 results received after method invocation on the server side.
+     * @throws RmiException in case interaction with a server failed due to
+     *                 connection issues, timeout or failure during method invocation on the server
+     *                 side.
+     * @throws InterruptedException in case process of awaiting server response has
+     *                 been interrupted.
+     */
+    @Nonnull
+    <I> RmiMethodResultMessage<I> exchange(@Nonnull RmiInvokeMethodMessage<I> message,
+                    boolean retry) throws RmiException, InterruptedException;
+
+    /**
+     * Sends {@link RmiInvokeMethodMessage} instance to the server without waiting for the result.
+     *
+     * @param message message which contains information which method of which
+     *                 service implementation required to be executed on the server side.
+     * @param <I> type of the interface which method is going to be called.
+     * @return {@link Future} which will provide result of the method as soon as it
+     *                 received from the server, cancellation of the future cancels invocation on
+     *                 the server side.
+     * @throws RmiException in case message cannot be sent to the server.
+     */
+    @Nonnull
+    <I> Future<Object> submit(@Nonnull RmiInvokeMethodMessage<I> message) throws RmiException;
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiHeartbeatMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Heartbeat} watches single connection according to the {@link HeartbeatPolicy}. All
+ * connections are checked by one daemon thread, pings are sent by separate daemon threads, so
+ * connection which cannot accept bytes does not delay checks of the others. Watching stops as
+ * soon as connection is closed.
+ */
+@ThreadSafe
+class Heartbeat implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Heartbeat.class);
+    private static final ScheduledExecutorService CHECKER =
+                    Executors.newSingleThreadScheduledExecutor(daemon("yarmij-heartbeat"));
+    private static final ExecutorService SENDERS =
+                    Executors.newCachedThreadPool(daemon("yarmij-ping"));
+    private final RmiConnection connection;
+    private final long intervalNanos;
+    private final long deadNanos;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private long pings;
+    private volatile ScheduledFuture<?> schedule;
+
+    private Heartbeat(RmiConnection connection, HeartbeatPolicy policy) {
+        this.connection = connection;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(policy.getIntervalMs());
+        this.deadNanos = intervalNanos * (policy.getMissCount() + 1);
+    }
+
+    /**
+     * Starts watching connection.
+     *
+     * @param connection connection which should be watched.
+     * @param policy describes when pings are sent and connection is considered dead.
+     */
+    static void start(@Nonnull RmiConnection connection, @Nonnull HeartbeatPolicy policy) {
+        final Heartbeat heartbeat = new Heartbeat(connection, policy);
+        heartbeat.schedule = CHECKER.scheduleWithFixedDelay(heartbeat, policy.getIntervalMs(),
+                        policy.getIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        if (!connection.isOpen()) {
+            schedule.cancel(false);
+            return;
+        }
+        final long silentNanos = System.nanoTime() - connection.getLastReceivedAt();
+        if (silentNanos >= deadNanos) {
+            LOGGER.warn("Nothing received from '{}' for '{}' milliseconds, closing it",
+                            connection, TimeUnit.NANOSECONDS.toMillis(silentNanos));
+            schedule.cancel(false);
+            try {
+                connection.close();
+            } catch (IOException ex) {
+                LOGGER.debug("Cannot close '{}'", connection, ex);
+            }
+            return;
+        }
+        if (silentNanos >= intervalNanos && sending.compareAndSet(false, true)) {
+            final RmiHeartbeatMessage ping = new RmiHeartbeatMessage(pings++, false);
+            SENDERS.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        connection.sendMessage(ping);
+                    } catch (RmiException ex) {
+                        LOGGER.debug("Cannot send '{}' to '{}'", ping, connection, ex);
+                    } finally {
+                        sending.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates factory of daemon threads, so watching does not prevent JVM from exiting.
+     *
+     * @param name prefix of the thread names.
+     * @return thread factory.
+     */
+    @Nonnull
+    static ThreadFactory daemon(@Nonnull final String name) {
+        final AtomicInteger threads = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(@Nonnull Runnable task) {
+                final Thread thread = new Thread(task, name + '-' + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [connection=%s, intervalMs=%s, pings=%s]",
+                        getClass().getSimpleName(), connection,
+                        TimeUnit.NANOSECONDS.toMillis(intervalNanos), pings);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link HeartbeatPolicy} describes how connection detects that the other side is gone without
+ * closing it, which TCP keep-alive notices only after hours. Connection which received nothing
+ * during the interval sends ping, the other side answers with pong regardless of its own policy.
+ * Connection is closed once specified number of pings in a row stays unanswered, so pending calls
+ * fail immediately and resources of the connection are released. Any received message counts as
+ * a sign of life, so busy connections send no pings. Interval should be longer than the time
+ * needed to receive the largest message.
+ */
+public class HeartbeatPolicy {
+    private static final long DEFAULT_INTERVAL_MS = 5_000L;
+    private static final int DEFAULT_MISS_COUNT = 3;
+    private long intervalMs = DEFAULT_INTERVAL_MS;
+    private int missCount = DEFAULT_MISS_COUNT;
+
+    /**
+     * Specifies period of silence after which ping is sent, 5 seconds by default.
+     *
+     * @param intervalMs interval in milliseconds.
+     * @return current instance of {@link HeartbeatPolicy}.
+     */
+    @Nonnull
+    public HeartbeatPolicy withIntervalMs(long intervalMs) {
+        this.intervalMs = intervalMs;
+        return this;
+    }
+
+    /**
+     * Specifies number of unanswered pings after which connection is closed, 3 by default.
+     *
+     * @param missCount number of pings.
+     * @return current instance of {@link HeartbeatPolicy}.
+     */
+    @Nonnull
+    public HeartbeatPolicy withMissCount(int missCount) {
+        this.missCount = missCount;
+        return this;
+    }
+
+    long getIntervalMs() {
+        return intervalMs;
+    }
+
+    int getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [intervalMs=%s, missCount=%s]", getClass().getSimpleName(),
+                        intervalMs, missCount);
+    }
+}
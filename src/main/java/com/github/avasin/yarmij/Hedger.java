@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+/**
+ * {@link Hedger} keeps latency of the calls per method and decides, according to
+ * {@link HedgingPolicy}, when duplicate of the call should be sent and whether budget of
+ * duplicates allows it. Policy is copied on creation, so its later changes do not affect calls in
+ * progress.
+ */
+@ThreadSafe
+class Hedger {
+    private static final int DECAY_INTERVAL = 1024;
+    private final long delayNanos;
+    private final double percentile;
+    private final double maxRatio;
+    private final int minSamples;
+    private final ConcurrentMap<RmiSignature<?>, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private long calls;
+    private long hedges;
+
+    /**
+     * Creates {@link Hedger} instance.
+     *
+     * @param policy describes when duplicates are sent.
+     */
+    Hedger(@Nonnull HedgingPolicy policy) {
+        final Long delayMs = policy.getDelayMs();
+        this.delayNanos = delayMs == null ? -1L : TimeUnit.MILLISECONDS.toNanos(delayMs);
+        this.percentile = policy.getPercentile();
+        this.maxRatio = policy.getMaxRatio();
+        this.minSamples = policy.getMinSamples();
+    }
+
+    /**
+     * Registers hedgeable call and calculates delay after which its duplicate should be sent.
+     *
+     * @param signature signature of the called method.
+     * @return delay in nanoseconds or negative value in case latency of the method is not
+     *                 known yet.
+     */
+    long getDelayNanos(@Nonnull RmiSignature<?> signature) {
+        synchronized (lock) {
+            calls++;
+        }
+        if (delayNanos >= 0L) {
+            return delayNanos;
+        }
+        final LatencyHistogram histogram = latencies.get(signature);
+        if (histogram == null || histogram.getCount() < minSamples) {
+            return -1L;
+        }
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Takes duplicate from the budget.
+     *
+     * @return {@code true} in case duplicate could be sent.
+     */
+    boolean tryHedge() {
+        synchronized (lock) {
+            if (hedges + 1 > maxRatio * calls) {
+                return false;
+            }
+            hedges++;
+            return true;
+        }
+    }
+
+    /**
+     * Records latency of the completed call.
+     *
+     * @param signature signature of the called method.
+     * @param nanos latency in nanoseconds.
+     */
+    void record(@Nonnull RmiSignature<?> signature, long nanos) {
+        LatencyHistogram histogram = latencies.get(signature);
+        if (histogram == null) {
+            final LatencyHistogram created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(signature, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+        if (histogram.getCount() >= DECAY_INTERVAL) {
+            histogram.decay();
+        }
+    }
+
+    /**
+     * Provides number of duplicates sent so far.
+     *
+     * @return number of duplicates.
+     */
+    long getHedges() {
+        synchronized (lock) {
+            return hedges;
+        }
+    }
+}
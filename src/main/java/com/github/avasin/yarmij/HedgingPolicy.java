@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link HedgingPolicy} describes when {@link RmiBalancingClient} sends duplicate of the
+ * {@link Idempotent} call to another server, because the first one is late. Whichever result
+ * arrives first is used, the other call is cancelled. Delay is either fixed or taken from the
+ * observed latency percentile of the called method, number of duplicates is limited by the
+ * ratio to all hedgeable calls.
+ */
+public class HedgingPolicy {
+    private static final double DEFAULT_PERCENTILE = 95D;
+    private static final double DEFAULT_MAX_RATIO = 0.05D;
+    private static final int DEFAULT_MIN_SAMPLES = 100;
+    private volatile Long delayMs;
+    private volatile double percentile = DEFAULT_PERCENTILE;
+    private volatile double maxRatio = DEFAULT_MAX_RATIO;
+    private volatile int minSamples = DEFAULT_MIN_SAMPLES;
+
+    /**
+     * Specifies fixed delay after which duplicate is sent, by default delay is taken from the
+     * latency percentile.
+     *
+     * @param delayMs delay in milliseconds.
+     * @return current instance of {@link HedgingPolicy}.
+     */
+    @Nonnull
+    public HedgingPolicy withDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+        return this;
+    }
+
+    /**
+     * Specifies latency percentile of the method after which duplicate is sent, 95 by default.
+     *
+     * @param percentile percentage from {@code 0} to {@code 100}.
+     * @return current instance of {@link HedgingPolicy}.
+     */
+    @Nonnull
+    public HedgingPolicy withPercentile(double percentile) {
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * Specifies maximum ratio of duplicates to all hedgeable calls, 0.05 by default.
+     *
+     * @param maxRatio ratio from {@code 0} to {@code 1}.
+     * @return current instance of {@link HedgingPolicy}.
+     */
+    @Nonnull
+    public HedgingPolicy withMaxRatio(double maxRatio) {
+        this.maxRatio = maxRatio;
+        return this;
+    }
+
+    /**
+     * Specifies number of calls of the method which should complete before its latency
+     * percentile is trusted, 100 by default.
+     *
+     * @param minSamples number of calls.
+     * @return current instance of {@link HedgingPolicy}.
+     */
+    @Nonnull
+    public HedgingPolicy withMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    Long getDelayMs() {
+        return delayMs;
+    }
+
+    double getPercentile() {
+        return percentile;
+    }
+
+    double getMaxRatio() {
+        return maxRatio;
+    }
+
+    int getMinSamples() {
+        return minSamples;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [delayMs=%s, percentile=%s, maxRatio=%s, minSamples=%s]",
+                        getClass().getSimpleName(), delayMs, percentile, maxRatio, minSamples);
+    }
+}
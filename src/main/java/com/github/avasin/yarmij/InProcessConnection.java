@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.serialization.Copier;
+import com.github.avasin.yarmij.transport.Transport;
+
+/**
+ * {@link InProcessConnection} connects client and server running in the same JVM. Messages are
+ * neither serialized nor transferred, instead they are handed to the handler of the other end
+ * directly by the sending thread, optionally after deep copying. Connection does not need
+ * listening thread, so {@link #receive()} is not supported.
+ */
+class InProcessConnection extends RmiConnection {
+    private final Pipe pipe;
+    private final Copier copier;
+    private final Collection<RmiConnection> connections;
+    private InProcessConnection peer;
+    private volatile BiConsumer<RmiConnection, RmiMessage<?>> handler;
+
+    private InProcessConnection(Pipe pipe, Copier copier,
+                    Collection<RmiConnection> connections) {
+        super(pipe);
+        this.pipe = pipe;
+        this.copier = copier;
+        this.connections = connections;
+    }
+
+    /**
+     * Creates pair of connected {@link InProcessConnection}s.
+     *
+     * @param handler handler of the messages received by the server end.
+     * @param connections server connections in which server end is registered while
+     *                 it is open.
+     * @param copier copier of the transferred messages or {@code null} in case messages
+     *                 should be passed by reference.
+     * @return client end of the connection.
+     */
+    @Nonnull
+    static InProcessConnection connect(@Nonnull BiConsumer<RmiConnection, ? extends RmiMessage<?>> handler,
+                    @Nonnull Collection<RmiConnection> connections, @Nullable Copier copier) {
+        final Pipe pipe = new Pipe();
+        final InProcessConnection server = new InProcessConnection(pipe, copier, connections);
+        final InProcessConnection client = new InProcessConnection(pipe, copier, null);
+        server.peer = client;
+        client.peer = server;
+        server.listen(handler);
+        connections.add(server);
+        return client;
+    }
+
+    /**
+     * Specifies handler which receives all messages sent by the other end.
+     *
+     * @param handler handler of the received messages.
+     */
+    void listen(@Nonnull BiConsumer<RmiConnection, ? extends RmiMessage<?>> handler) {
+        @SuppressWarnings("unchecked")
+        final BiConsumer<RmiConnection, RmiMessage<?>> casted =
+                        (BiConsumer<RmiConnection, RmiMessage<?>>)handler;
+        this.handler = casted;
+    }
+
+    @Override
+    public void sendMessage(@Nonnull RmiMessage<?> message) throws RmiException {
+        final BiConsumer<RmiConnection, RmiMessage<?>> target = peer.handler;
+        if (!pipe.isOpen() || target == null) {
+            throw new RmiConnectionException(String.format("Cannot send '%s' message to '%s'",
+                            message, this));
+        }
+        final RmiMessage<?> delivered = copier == null ? message : copier.copy(message);
+        try {
+            target.accept(peer, delivered);
+        } catch (RuntimeException ex) {
+            logger.error("Unexpected error during '{}' message processing from '{}'", delivered,
+                            this, ex);
+        }
+    }
+
+    @Override
+    boolean canSendFrames() {
+        return false;
+    }
+
+    /**
+     * File regions are handed over as they are, so they are read from the file by the caller.
+     *
+     * @return always {@code true}.
+     */
+    @Override
+    public boolean canSendRegions() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public RmiMessage<?> receive() throws RmiException {
+        throw new RmiException(String.format("Messages are delivered directly through '%s'",
+                        this));
+    }
+
+    @Override
+    public void close() {
+        pipe.close();
+        peer.unregister();
+        unregister();
+    }
+
+    private void unregister() {
+        if (connections != null) {
+            connections.remove(this);
+        }
+    }
+
+    /**
+     * {@link Pipe} reflects state of both ends of the connection. It does not transfer bytes.
+     */
+    private static class Pipe implements Transport {
+        private volatile boolean open = true;
+
+        @Override
+        public void send(@Nonnull byte[] frame) throws IOException {
+            throw new IOException("In-process connection does not transfer bytes");
+        }
+
+        @Nullable
+        @Override
+        public byte[] receive() throws IOException {
+            throw new IOException("In-process connection does not transfer bytes");
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        @Override
+        public String toString() {
+            return "in-process";
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link LatencyHistogram} counts recorded values in log-linear buckets, so percentiles are
+ * reported with relative error below {@code 1/128} across the whole range of {@code long} values,
+ * while memory footprint stays constant, about 57 kilobytes. Recording does not allocate and does not block.
+ */
+@ThreadSafe
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final double HUNDRED = 100D;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records single value.
+     *
+     * @param value value to record, negative values are treated as zero.
+     */
+    public void record(long value) {
+        final long normalized = Math.max(0L, value);
+        counts.incrementAndGet(indexOf(normalized));
+        total.incrementAndGet();
+        long current = max.get();
+        while (normalized > current && !max.compareAndSet(current, normalized)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Provides number of recorded values.
+     *
+     * @return number of values.
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Provides maximum recorded value.
+     *
+     * @return maximum value or zero in case nothing has been recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Provides value below or equal to which specified percentage of recorded values are.
+     *
+     * @param percentile percentage from {@code 0} to {@code 100}.
+     * @return highest value equivalent to the percentile bucket or zero in case nothing
+     *                 has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long count = total.get();
+        if (count == 0L) {
+            return 0L;
+        }
+        final long target = Math.max(1L, (long)Math.ceil(
+                        Math.min(HUNDRED, Math.max(0D, percentile)) / HUNDRED * count));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Halves all counts, so old values gradually lose their weight. Values recorded concurrently
+     * could be halved as well.
+     */
+    public void decay() {
+        long remaining = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            final long halved = counts.get(i) >> 1;
+            counts.set(i, halved);
+            remaining += halved;
+        }
+        total.set(remaining);
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        total.set(0L);
+        max.set(0L);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long mantissa = SUB_BUCKETS + index % SUB_BUCKETS;
+        final long next = (mantissa + 1) << shift;
+        return next <= 0L ? Long.MAX_VALUE : next - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [count=%s, p50=%s, p99=%s, max=%s]", getClass().getSimpleName(),
+                        getCount(), getValueAtPercentile(50D), getValueAtPercentile(99D),
+                        getMax());
+    }
+}
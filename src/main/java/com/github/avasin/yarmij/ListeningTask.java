@@ -62,6 +62,19 @@ public class ListeningTask<T extends RmiMessage<?>> implements Runnable {
 
     @Override
     public void run() {
+        if (listen()) {
+            connections.remove(connection);
+        }
+    }
+
+    /**
+     * Receives messages until connection is closed or until received file region takes reading of
+     * the connection over.
+     *
+     * @return {@code true} in case connection has been closed, {@code false} in case
+     *                 listening will be resumed by the consumer of the region.
+     */
+    boolean listen() {
         while (connection.isOpen()) {
             RmiMessage<?> message = null;
             try {
@@ -75,6 +88,9 @@ public class ListeningTask<T extends RmiMessage<?>> implements Runnable {
                     continue;
                 }
                 handler.accept(connection, messageType.cast(message));
+                if (connection.handOffRegion()) {
+                    return false;
+                }
             } catch (RmiException ex) {
                 LOGGER.error("Cannot get new message from '{}'", connection, ex);
             } catch (Exception ex) {
@@ -82,6 +98,6 @@ public class ListeningTask<T extends RmiMessage<?>> implements Runnable {
                                 messageType.getSimpleName(), message, connection, ex);
             }
         }
-        connections.remove(connection);
+        return true;
     }
 }
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LoadGenerator} calls methods of the service through the stubs of {@link RmiClient}s from
+ * several threads and reports latency percentiles of every method, so results of different builds
+ * could be compared. Load follows either closed model, where every thread sends next call as soon
+ * as previous one completes, or open model with constant arrival rate. In the open model latency
+ * is measured from the moment call should have been sent according to the schedule, so slow calls
+ * delaying the following ones do not hide the delay, known as coordinated omission. Calls made
+ * during warm-up are not measured.
+ *
+ * @param <I> type of the service which methods are called.
+ */
+@NotThreadSafe
+public class LoadGenerator<I> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long DEFAULT_DURATION_MS = 10000L;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+    private static final double P50 = 50D;
+    private static final double P99 = 99D;
+    private static final double P999 = 99.9D;
+    private static final String NO_PAYLOAD = "-";
+    private final Class<I> type;
+    private final RmiClient[] clients;
+    private final Map<Method, PayloadGenerator> calls = new LinkedHashMap<>();
+    private int concurrency = 1;
+    private Double rate;
+    private long durationMs = DEFAULT_DURATION_MS;
+    private long warmUpMs;
+
+    /**
+     * Creates {@link LoadGenerator} instance.
+     *
+     * @param type type of the service which methods are called.
+     * @param clients clients which stubs are used by the load generating threads in
+     *                 turn.
+     */
+    public LoadGenerator(@Nonnull Class<I> type, @Nonnull RmiClient... clients) {
+        if (clients.length == 0) {
+            throw new IllegalArgumentException("At least one client is required");
+        }
+        this.type = type;
+        this.clients = clients.clone();
+    }
+
+    /**
+     * Adds method to the load, calls are spread evenly across added methods.
+     *
+     * @param methodName name of the service method, which should not be overloaded.
+     * @param payload provides arguments of the calls.
+     * @return current instance of {@link LoadGenerator}.
+     */
+    @Nonnull
+    public LoadGenerator<I> withCall(@Nonnull String methodName,
+                    @Nonnull PayloadGenerator payload) {
+        Method found = null;
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                if (found != null) {
+                    throw new IllegalArgumentException(String.format(
+                                    "Method '%s' of '%s' is overloaded", methodName, type));
+                }
+                found = method;
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException(
+                            String.format("'%s' has no method '%s'", type, methodName));
+        }
+        calls.put(found, payload);
+        return this;
+    }
+
+    /**
+     * Specifies number of threads which make calls, 1 by default.
+     *
+     * @param concurrency number of threads.
+     * @return current instance of {@link LoadGenerator}.
+     */
+    @Nonnull
+    public LoadGenerator<I> withConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Switches load to the open model with constant arrival rate, by default every thread sends
+     * next call as soon as previous one completes.
+     *
+     * @param callsPerSecond number of calls sent per second by all threads.
+     * @return current instance of {@link LoadGenerator}.
+     */
+    @Nonnull
+    public LoadGenerator<I> withRate(double callsPerSecond) {
+        this.rate = callsPerSecond;
+        return this;
+    }
+
+    /**
+     * Specifies duration of the measured load, 10 seconds by default.
+     *
+     * @param durationMs duration in milliseconds.
+     * @return current instance of {@link LoadGenerator}.
+     */
+    @Nonnull
+    public LoadGenerator<I> withDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+        return this;
+    }
+
+    /**
+     * Specifies duration of the load which precedes measurement, no warm-up by default.
+     *
+     * @param warmUpMs duration in milliseconds.
+     * @return current instance of {@link LoadGenerator}.
+     */
+    @Nonnull
+    public LoadGenerator<I> withWarmUpMs(long warmUpMs) {
+        this.warmUpMs = warmUpMs;
+        return this;
+    }
+
+    /**
+     * Generates the load and waits for all calls to complete. Calls which should have been sent
+     * before the end of the load are made even if they are late.
+     *
+     * @return statistics of every method in the order methods have been added.
+     * @throws RmiException in case stubs cannot be obtained or arguments cannot be
+     *                 generated.
+     * @throws InterruptedException in case load generation has been interrupted.
+     */
+    @Nonnull
+    public Map<String, LoadStats> run() throws RmiException, InterruptedException {
+        if (calls.isEmpty()) {
+            throw new IllegalStateException("No methods to call have been added");
+        }
+        final List<Method> methods = new ArrayList<>(calls.keySet());
+        final MethodLoad[] loads = new MethodLoad[methods.size()];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new MethodLoad(methods.get(i), calls.get(methods.get(i)));
+        }
+        final List<I> services = new ArrayList<>(clients.length);
+        for (RmiClient client : clients) {
+            services.add(client.getService(type));
+        }
+        final long startedAt = System.nanoTime();
+        final long measuredFrom = startedAt + TimeUnit.MILLISECONDS.toNanos(warmUpMs);
+        final long endAt = measuredFrom + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        final AtomicLong sequence = new AtomicLong();
+        final ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            final List<Future<?>> workers = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(pool.submit(new Worker(services.get(i % services.size()), loads,
+                                sequence, startedAt, measuredFrom, endAt)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new RmiException(String.format("Load of '%s' failed", type), ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        final Map<String, LoadStats> result = new LinkedHashMap<>();
+        for (MethodLoad load : loads) {
+            final LoadStats stats = load.toStats();
+            LOGGER.info("{}", stats);
+            result.put(stats.getMethod(), stats);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Generates load against running servers and prints statistics of every method.
+     *
+     * @param args comma separated addresses of the servers as {@code host:port}, service
+     *                 interface, {@link PayloadGenerator} implementation with public default
+     *                 constructor or {@code -} for methods without parameters, comma separated
+     *                 method names and optional number of threads, rate in calls per second or
+     *                 {@code 0} for the closed model, duration and warm-up in milliseconds.
+     * @throws Exception in case classes cannot be loaded, servers are not available or load
+     *                 failed.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println(String.format("Usage: %s <host:port>[,<host:port>...] "
+                            + "<service interface> <payload generator|%s> <method>[,<method>...] "
+                            + "[threads] [calls per second] [duration ms] [warm-up ms]",
+                            LoadGenerator.class.getName(), NO_PAYLOAD));
+            return;
+        }
+        final String[] addresses = args[0].split(",");
+        final RmiClient[] clients = new RmiClient[addresses.length];
+        final RmiBuilder builder = new RmiBuilder();
+        try {
+            for (int i = 0; i < addresses.length; i++) {
+                final int separator = addresses[i].lastIndexOf(':');
+                clients[i] = builder.client(addresses[i].substring(0, separator),
+                                Integer.parseInt(addresses[i].substring(separator + 1)));
+            }
+            for (LoadStats stats : configure(Class.forName(args[1]), clients, args).run()
+                            .values()) {
+                System.out.println(stats);
+            }
+        } finally {
+            for (RmiClient client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+    }
+
+    private static <T> LoadGenerator<T> configure(Class<T> type, RmiClient[] clients,
+                    String[] args) throws ReflectiveOperationException {
+        final PayloadGenerator payload = NO_PAYLOAD.equals(args[2]) ? new PayloadGenerator() {
+            @Nonnull
+            @Override
+            public Object[] generate(@Nonnull Method method, long sequence) {
+                return new Object[0];
+            }
+        } : (PayloadGenerator)Class.forName(args[2]).getConstructor().newInstance();
+        final LoadGenerator<T> result = new LoadGenerator<>(type, clients);
+        for (String method : args[3].split(",")) {
+            result.withCall(method, payload);
+        }
+        if (args.length > 4) {
+            result.withConcurrency(Integer.parseInt(args[4]));
+        }
+        if (args.length > 5 && Double.parseDouble(args[5]) > 0D) {
+            result.withRate(Double.parseDouble(args[5]));
+        }
+        if (args.length > 6) {
+            result.withDurationMs(Long.parseLong(args[6]));
+        }
+        if (args.length > 7) {
+            result.withWarmUpMs(Long.parseLong(args[7]));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [type=%s, methods=%s, concurrency=%s, rate=%s, durationMs=%s, "
+                        + "warmUpMs=%s]", getClass().getSimpleName(), type, calls.size(),
+                        concurrency, rate, durationMs, warmUpMs);
+    }
+
+    /**
+     * Thread making calls until the end of the load.
+     */
+    private final class Worker implements Runnable {
+        private final I service;
+        private final MethodLoad[] loads;
+        private final AtomicLong sequence;
+        private final long startedAt;
+        private final long measuredFrom;
+        private final long endAt;
+
+        private Worker(I service, MethodLoad[] loads, AtomicLong sequence, long startedAt,
+                        long measuredFrom, long endAt) {
+            this.service = service;
+            this.loads = loads;
+            this.sequence = sequence;
+            this.startedAt = startedAt;
+            this.measuredFrom = measuredFrom;
+            this.endAt = endAt;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long next = sequence.getAndIncrement();
+                final long scheduledAt = rate == null ? System.nanoTime()
+                                : startedAt + (long)(next * NANOS_PER_SECOND / rate);
+                if (scheduledAt - endAt >= 0L) {
+                    return;
+                }
+                final long delay = scheduledAt - System.nanoTime();
+                if (delay > 0L) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                final MethodLoad load = loads[(int)(next % loads.length)];
+                final boolean failed = load.call(service, next);
+                if (scheduledAt - measuredFrom >= 0L) {
+                    load.record(System.nanoTime() - scheduledAt, failed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls of single method and their latency.
+     */
+    private static final class MethodLoad {
+        private final Method method;
+        private final PayloadGenerator payload;
+        private final LatencyHistogram latencyUs = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        private MethodLoad(Method method, PayloadGenerator payload) {
+            this.method = method;
+            this.payload = payload;
+        }
+
+        private boolean call(Object service, long sequence) {
+            final Object[] arguments = payload.generate(method, sequence);
+            try {
+                method.invoke(service, arguments);
+                return false;
+            } catch (InvocationTargetException ex) {
+                LOGGER.debug("Call of '{}' failed", method.getName(), ex.getCause());
+                return true;
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private void record(long latencyNanos, boolean failed) {
+            latencyUs.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        private LoadStats toStats() {
+            return new LoadStats(method.getName(), latencyUs.getCount(), errors.get(),
+                            latencyUs.getValueAtPercentile(P50),
+                            latencyUs.getValueAtPercentile(P99),
+                            latencyUs.getValueAtPercentile(P999), latencyUs.getMax());
+        }
+    }
+}
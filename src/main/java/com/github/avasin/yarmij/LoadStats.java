@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link LoadStats} describes calls of single method made by {@link LoadGenerator}. Latency of the
+ * call is measured from the moment it should have been sent according to the arrival rate, so
+ * delays caused by the calls waiting for the previous ones are included.
+ */
+@Immutable
+public class LoadStats {
+    private final String method;
+    private final long calls;
+    private final long errors;
+    private final long p50Us;
+    private final long p99Us;
+    private final long p999Us;
+    private final long maxUs;
+
+    /**
+     * Creates {@link LoadStats} instance.
+     *
+     * @param method name of the called method.
+     * @param calls number of the measured calls.
+     * @param errors number of the measured calls which failed.
+     * @param p50Us median latency in microseconds.
+     * @param p99Us 99th percentile of latency in microseconds.
+     * @param p999Us 99.9th percentile of latency in microseconds.
+     * @param maxUs maximum latency in microseconds.
+     */
+    public LoadStats(@Nonnull String method, long calls, long errors, long p50Us, long p99Us,
+                    long p999Us, long maxUs) {
+        this.method = method;
+        this.calls = calls;
+        this.errors = errors;
+        this.p50Us = p50Us;
+        this.p99Us = p99Us;
+        this.p999Us = p999Us;
+        this.maxUs = maxUs;
+    }
+
+    @Nonnull
+    public String getMethod() {
+        return method;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getP50Us() {
+        return p50Us;
+    }
+
+    public long getP99Us() {
+        return p99Us;
+    }
+
+    public long getP999Us() {
+        return p999Us;
+    }
+
+    public long getMaxUs() {
+        return maxUs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [method=%s, calls=%s, errors=%s, p50Us=%s, p99Us=%s, "
+                        + "p999Us=%s, maxUs=%s]", getClass().getSimpleName(), method, calls,
+                        errors, p50Us, p99Us, p999Us, maxUs);
+    }
+}
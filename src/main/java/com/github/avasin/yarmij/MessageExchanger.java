@@ -16,19 +16,18 @@
 
 package com.github.avasin.yarmij;
 
-import java.io.Closeable;
 import java.io.IOException;
-import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import com.github.avasin.yarmij.messages.RmiCancelMessage;
 import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
 import com.github.avasin.yarmij.messages.RmiMessageId;
 import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
@@ -39,28 +38,46 @@ import org.slf4j.LoggerFactory;
 
 /**
  * {@link MessageExchanger} sends a message and waits for the response. Handles all messages that
- * have been received by {@link ListeningTask} on the client side.
+ * have been received by {@link ListeningTask} on the client side. In case client stops waiting for
+ * the response, because of timeout, interruption or cancellation of the {@link PendingCall}, server
+ * side is notified with {@link RmiCancelMessage}. As soon as connection is lost all pending calls
+ * fail with {@link RmiConnectionException}, calls which could be retried are sent again once
+ * connection is restored.
  */
 public class MessageExchanger
-                implements Closeable, BiConsumer<RmiConnection, RmiMethodResultMessage<?>> {
-    private final RmiConnection connection;
-    private final Map<RmiMessageId<?>, BlockingQueue<? extends RmiMethodResultMessage<?>>>
-                    receivedResults = new ConcurrentHashMap<>();
+                implements Exchanger, BiConsumer<RmiConnection, RmiMethodResultMessage<?>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageExchanger.class);
+    private final Map<RmiMessageId<?>, PendingCall<?>> pendingCalls = new ConcurrentHashMap<>();
     private final long timeoutMs;
+    private final Object lock = new Object();
+    private volatile RmiConnection connection;
+    private boolean connected;
+    private boolean closed;
 
     /**
      * Creates {@link MessageExchanger} instance.
      *
      * @param connection is going to be used to send messages in asynchronous
-     *                 manner.
+     *                 manner, {@code null} in case calls should fail until connection is
+     *                 established.
      * @param timeoutMs timeout in milliseconds after which method invocation
      *                 without a response will be treated as failed.
      */
-    public MessageExchanger(@Nonnull RmiConnection connection, long timeoutMs) {
+    public MessageExchanger(@Nullable RmiConnection connection, long timeoutMs) {
         this.connection = connection;
+        this.connected = connection != null;
         this.timeoutMs = timeoutMs;
     }
 
+    /**
+     * Provides maximum time to wait for the result of the call.
+     *
+     * @return timeout in milliseconds.
+     */
+    long getTimeoutMs() {
+        return timeoutMs;
+    }
+
     /**
      * Sends {@link RmiInvokeMethodMessage} instances to the server, awaits for the result to
      * return, in case awaiting result exceeds timeout than {@link RmiException} will be thrown.
@@ -79,16 +96,221 @@ public class MessageExchanger
     @Nonnull
     public <I> RmiMethodResultMessage<I> exchange(@Nonnull RmiInvokeMethodMessage<I> message)
                     throws RmiException, InterruptedException {
-        final BlockingQueue<RmiMethodResultMessage<I>> results = new LinkedBlockingQueue<>(1);
-        receivedResults.put(message.getMessageId(), results);
-        connection.sendMessage(message);
-        final RmiMethodResultMessage<I> result = results.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        return exchange(message, false);
+    }
+
+    /**
+     * Sends {@link RmiInvokeMethodMessage} instances to the server, awaits for the result to
+     * return, in case awaiting result exceeds timeout than {@link RmiException} will be thrown.
+     * Retried calls which failed because connection has been lost are sent again as soon as
+     * connection is restored, until timeout expires.
+     *
+     * @param message message which contains information which method of which
+     *                 service implementation required to be executed on the server side.
+     * @param retry whether call could be safely sent again after connection loss.
+     * @param <I> type of the interface which method is going to be called.
+     * @return instance of {@link RmiMethodResultMessage} which contains information about
+     *                 results received after method invocation on the server side.
+     * @throws RmiException in case interaction with a server failed due to
+     *                 connection issues, timeout or failure during method invocation on the server
+     *                 side.
+     * @throws InterruptedException in case process of awaiting server response has
+     *                 been interrupted.
+     */
+    @Nonnull
+    @Override
+    public <I> RmiMethodResultMessage<I> exchange(@Nonnull RmiInvokeMethodMessage<I> message,
+                    boolean retry) throws RmiException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            try {
+                return exchange(message, deadline);
+            } catch (RmiConnectionException ex) {
+                if (!retry || !awaitConnection(deadline)) {
+                    throw ex;
+                }
+                LOGGER.debug("Retrying '{}' through restored connection", message);
+            }
+        }
+    }
+
+    private <I> RmiMethodResultMessage<I> exchange(RmiInvokeMethodMessage<I> message,
+                    long deadline) throws RmiException, InterruptedException {
+        final PendingCall<I> call = send(message, null);
+        final RmiMethodResultMessage<I> result;
+        try {
+            result = call.await(Math.max(0L,
+                            TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        } catch (InterruptedException ex) {
+            call.cancel(true);
+            throw ex;
+        } catch (CancellationException ex) {
+            throw new RmiException(String.format("Call of '%s' has been cancelled", message), ex);
+        }
         if (result == null) {
+            call.cancel(true);
+            RmiEvents.get().callTimedOut(message.getSignature(),
+                            message.getMessageId().getTraceId(), timeoutMs);
             throw new RmiException(
                             String.format("Cannot get result for '%s' from '%s' in '%s' milliseconds",
                                             message, connection, timeoutMs));
         }
+        return checkResult(result);
+    }
+
+    /**
+     * Sends {@link RmiInvokeMethodMessage} instance to the server without waiting for the result.
+     *
+     * @param message message which contains information which method of which
+     *                 service implementation required to be executed on the server side.
+     * @param <I> type of the interface which method is going to be called.
+     * @return {@link Future} which will provide result of the method as soon as it
+     *                 received from the server, cancellation of the future cancels invocation on
+     *                 the server side.
+     * @throws RmiException in case message cannot be sent to the server.
+     */
+    @Nonnull
+    @Override
+    public <I> Future<Object> submit(@Nonnull RmiInvokeMethodMessage<I> message)
+                    throws RmiException {
+        return send(message, null);
+    }
+
+    /**
+     * Sends {@link RmiInvokeMethodMessage} instance to the server without waiting for the result.
+     *
+     * @param message message which should be sent to the server.
+     * @param listener notified once call is done, with {@code null} result in case
+     *                 call has been cancelled.
+     * @param <I> type of the interface which method is going to be called.
+     * @return call which will provide result of the method.
+     * @throws RmiException in case message cannot be sent to the server.
+     */
+    @Nonnull
+    <I> PendingCall<I> send(@Nonnull RmiInvokeMethodMessage<I> message,
+                    @Nullable BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>> listener)
+                    throws RmiException {
+        final PendingCall<I> call = new PendingCall<>(this, message.getMessageId(), listener);
+        final RmiConnection current;
+        synchronized (lock) {
+            if (!connected) {
+                throw new RmiConnectionException(String.format(
+                                "Cannot send '%s' message, connection is not available", message));
+            }
+            current = connection;
+            pendingCalls.put(message.getMessageId(), call);
+        }
+        try {
+            current.sendMessage(message);
+        } catch (RmiException ex) {
+            pendingCalls.remove(message.getMessageId());
+            throw ex;
+        }
+        return call;
+    }
 
+    private boolean awaitConnection(long deadline) throws InterruptedException {
+        synchronized (lock) {
+            while (!connected) {
+                final long remaining = deadline - System.nanoTime();
+                if (closed || remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether connection is available for the calls.
+     *
+     * @return {@code true} in case connection is established.
+     */
+    boolean isConnected() {
+        synchronized (lock) {
+            return connected;
+        }
+    }
+
+    /**
+     * Makes restored connection available for the calls.
+     *
+     * @param restored connection which has been established instead of the lost one.
+     */
+    void connected(@Nonnull RmiConnection restored) {
+        synchronized (lock) {
+            connection = restored;
+            connected = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Makes calls waiting for the connection to be restored fail immediately, because it is not
+     * going to be restored.
+     */
+    void abandon() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Fails all pending calls, because connection through which they have been sent is lost.
+     * Calls sent later fail immediately until connection is restored.
+     *
+     * @param lost connection which has been lost.
+     * @return {@code true} in case lost connection has been used by the exchanger.
+     */
+    boolean disconnected(@Nonnull RmiConnection lost) {
+        synchronized (lock) {
+            if (lost != connection || !connected) {
+                return false;
+            }
+            connected = false;
+        }
+        final Iterator<PendingCall<?>> calls = pendingCalls.values().iterator();
+        while (calls.hasNext()) {
+            final PendingCall<?> call = calls.next();
+            calls.remove();
+            call.fail(new RmiConnectionException(String.format(
+                            "Connection '%s' has been lost before '%s' completed", lost,
+                            call.getMessageId())));
+        }
+        return true;
+    }
+
+    /**
+     * Stops waiting for the result of the specified call and asks server to cancel its
+     * processing.
+     *
+     * @param call which has been cancelled on the client side.
+     */
+    void cancel(@Nonnull PendingCall<?> call) {
+        final RmiMessageId<?> messageId = call.getMessageId();
+        if (!pendingCalls.remove(messageId, call)) {
+            return;
+        }
+        try {
+            connection.sendMessage(new RmiCancelMessage<>(messageId));
+        } catch (RmiException ex) {
+            LOGGER.warn("Cannot notify '{}' about cancellation of '{}'", connection, messageId, ex);
+        }
+    }
+
+    /**
+     * Checks whether method invocation on the server side completed successfully.
+     *
+     * @param result message received from the server.
+     * @param <I> type of the interface which method has been called.
+     * @return the same result message in case invocation did not fail.
+     * @throws RmiException in case method invocation failed on the server side.
+     */
+    @Nonnull
+    static <I> RmiMethodResultMessage<I> checkResult(@Nonnull RmiMethodResultMessage<I> result)
+                    throws RmiException {
         final Throwable exception = result.getException();
         if (exception != null) {
             if (exception instanceof RmiException) {
@@ -104,16 +326,39 @@ public class MessageExchanger
 
     @Override
     public void close() throws IOException {
-        connection.close();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        final RmiConnection current = connection;
+        if (current != null) {
+            current.close();
+        }
     }
 
     @Override
     public void accept(@Nonnull RmiConnection connection,
                     @Nonnull RmiMethodResultMessage<?> message) {
         @SuppressWarnings("unchecked")
-        final BlockingQueue<RmiMethodResultMessage<?>> messages =
-                        (BlockingQueue<RmiMethodResultMessage<?>>)receivedResults
-                                        .get(message.getMessageId());
-        messages.add(message);
+        final PendingCall<Object> call =
+                        (PendingCall<Object>)pendingCalls.remove(message.getMessageId());
+        if (call == null) {
+            LOGGER.debug("Result '{}' is not awaited anymore", message);
+            if (message.getResult() instanceof RemoteFileRegion) {
+                discard((RemoteFileRegion)message.getResult());
+            }
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        final RmiMethodResultMessage<Object> result = (RmiMethodResultMessage<Object>)message;
+        call.complete(result);
+    }
+
+    private static void discard(RemoteFileRegion region) {
+        try {
+            region.discard();
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot discard '{}'", region, ex);
+        }
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+/**
+ * {@link PassingPolicy} specifies how arguments, results and exceptions are passed between client
+ * and server running in the same JVM.
+ */
+public enum PassingPolicy {
+    /**
+     * Every message is deeply copied, so client and server never share mutable objects, exactly as
+     * it happens when they interact over the network.
+     */
+    COPY,
+    /**
+     * Messages are passed by reference, which is the fastest way, but client and server share the
+     * same instances, so changes made on one side are visible on the other.
+     */
+    REFERENCE
+}
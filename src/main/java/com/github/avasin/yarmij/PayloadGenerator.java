@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.lang.reflect.Method;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link PayloadGenerator} provides arguments of the calls made by {@link LoadGenerator}. It is
+ * called concurrently by all load generating threads.
+ */
+public interface PayloadGenerator {
+    /**
+     * Generates arguments of the next call.
+     *
+     * @param method method which is going to be called.
+     * @param sequence number of the call since the start of the load.
+     * @return arguments of the call.
+     */
+    @Nonnull
+    Object[] generate(@Nonnull Method method, long sequence);
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+
+/**
+ * {@link PendingCall} represents remote method invocation which result has not been received
+ * yet. Cancellation of the call notifies server side, so it could stop processing of the
+ * invocation.
+ *
+ * @param <I> type of the service which method has been called.
+ */
+@ThreadSafe
+class PendingCall<I> implements Future<Object> {
+    private final MessageExchanger exchanger;
+    private final RmiMessageId<I> messageId;
+    private final BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>> listener;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile RmiMethodResultMessage<I> result;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates {@link PendingCall} instance.
+     *
+     * @param exchanger which sent invocation message and will notify about its
+     *                 result.
+     * @param messageId identifier of the sent invocation message.
+     * @param listener notified once call is done, with {@code null} result in case
+     *                 call has been cancelled.
+     */
+    PendingCall(@Nonnull MessageExchanger exchanger, @Nonnull RmiMessageId<I> messageId,
+                    @Nullable BiConsumer<PendingCall<I>, RmiMethodResultMessage<I>> listener) {
+        this.exchanger = exchanger;
+        this.messageId = messageId;
+        this.listener = listener;
+    }
+
+    @Nonnull
+    RmiMessageId<I> getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Completes call with result received from the server.
+     *
+     * @param message which contains result of the method invocation.
+     */
+    void complete(@Nonnull RmiMethodResultMessage<I> message) {
+        synchronized (done) {
+            if (isDone()) {
+                return;
+            }
+            result = message;
+            done.countDown();
+        }
+        notifyListener(message);
+    }
+
+    /**
+     * Completes call with failure detected on the client side.
+     *
+     * @param exception reason of the failure.
+     */
+    void fail(@Nonnull RmiException exception) {
+        complete(new RmiMethodResultMessage<>(exception, null, messageId));
+    }
+
+    /**
+     * Waits for the result of the method invocation.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds.
+     * @return result message or {@code null} in case it has not been received in time.
+     * @throws InterruptedException in case waiting has been interrupted.
+     * @throws CancellationException in case call has been cancelled.
+     */
+    @Nullable
+    RmiMethodResultMessage<I> await(long timeoutMs) throws InterruptedException {
+        done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        if (cancelled) {
+            throw new CancellationException(String.format("'%s' call cancelled", messageId));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (done) {
+            if (isDone()) {
+                return false;
+            }
+            cancelled = true;
+            done.countDown();
+        }
+        exchanger.cancel(this);
+        notifyListener(null);
+        return true;
+    }
+
+    private void notifyListener(RmiMethodResultMessage<I> message) {
+        if (listener != null) {
+            listener.accept(this, message);
+        }
+    }
+
+    /**
+     * Provides result of the completed call without waiting.
+     *
+     * @return result message or {@code null} in case call is not completed or has been
+     *                 cancelled.
+     */
+    @Nullable
+    RmiMethodResultMessage<I> getResult() {
+        return cancelled ? null : result;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public Object get() throws InterruptedException, ExecutionException {
+        try {
+            return get(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public Object get(long timeout, @Nonnull TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+        final RmiMethodResultMessage<I> message = await(unit.toMillis(timeout));
+        if (message == null) {
+            throw new TimeoutException(String.format(
+                            "Cannot get result for '%s' in '%s' milliseconds", messageId,
+                            unit.toMillis(timeout)));
+        }
+        try {
+            return MessageExchanger.checkResult(message).getResult();
+        } catch (RmiException ex) {
+            throw new ExecutionException(ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s, done=%s, cancelled=%s]",
+                        getClass().getSimpleName(), messageId, isDone(), cancelled);
+    }
+}
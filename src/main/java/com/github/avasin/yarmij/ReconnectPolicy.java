@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link ReconnectPolicy} describes how client restores lost connection to the server. The first
+ * attempt is made immediately, every next attempt is delayed exponentially longer up to the
+ * maximum delay. Delays are randomized, so clients disconnected at the same time do not reconnect
+ * at the same time.
+ */
+public class ReconnectPolicy {
+    private static final long DEFAULT_INITIAL_DELAY_MS = 50L;
+    private static final long DEFAULT_MAX_DELAY_MS = 5_000L;
+    private static final int MAX_SHIFT = 30;
+    private final Random random = new Random();
+    private long initialDelayMs = DEFAULT_INITIAL_DELAY_MS;
+    private long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+
+    /**
+     * Specifies delay before the second reconnection attempt.
+     *
+     * @param initialDelayMs delay in milliseconds.
+     * @return current instance of {@link ReconnectPolicy}.
+     */
+    @Nonnull
+    public ReconnectPolicy withInitialDelayMs(long initialDelayMs) {
+        this.initialDelayMs = initialDelayMs;
+        return this;
+    }
+
+    /**
+     * Specifies maximum delay between reconnection attempts.
+     *
+     * @param maxDelayMs delay in milliseconds.
+     * @return current instance of {@link ReconnectPolicy}.
+     */
+    @Nonnull
+    public ReconnectPolicy withMaxDelayMs(long maxDelayMs) {
+        this.maxDelayMs = maxDelayMs;
+        return this;
+    }
+
+    /**
+     * Calculates delay before reconnection attempt. Delay is chosen randomly between half and the
+     * whole of the exponentially growing backoff.
+     *
+     * @param attempt number of the attempt starting from zero.
+     * @return delay in milliseconds.
+     */
+    public long getDelayMs(int attempt) {
+        if (attempt == 0) {
+            return 0L;
+        }
+        final long backoff = Math.min(maxDelayMs,
+                        initialDelayMs << Math.min(attempt - 1, MAX_SHIFT));
+        final long half = backoff / 2;
+        synchronized (random) {
+            return half + (long)(random.nextDouble() * (backoff - half));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [initialDelayMs=%s, maxDelayMs=%s]", getClass().getSimpleName(),
+                        initialDelayMs, maxDelayMs);
+    }
+}
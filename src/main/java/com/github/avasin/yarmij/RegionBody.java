@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link RegionBody} represents bytes of the {@link RemoteFileRegion} which follow the result
+ * carrying it on the connection. Bytes are read from the connection by the thread which consumes
+ * the region, so thread listening to the connection could hand reading over to it and stop,
+ * rather than wait until region is consumed.
+ */
+@ThreadSafe
+class RegionBody {
+    private final RmiConnection connection;
+    private final long length;
+    private final AtomicReference<Runnable> resumption = new AtomicReference<>();
+    private volatile boolean consumed;
+
+    /**
+     * Creates {@link RegionBody} instance.
+     *
+     * @param connection connection through which region has been received.
+     * @param length number of bytes in the region.
+     */
+    RegionBody(@Nonnull RmiConnection connection, long length) {
+        this.connection = connection;
+        this.length = length;
+    }
+
+    /**
+     * Receives bytes of the region into the specified channel.
+     *
+     * @param target channel which should receive bytes of the region.
+     * @throws IOException in case region has been already consumed or its bytes cannot be
+     *                 received or written.
+     */
+    synchronized void transferTo(@Nonnull WritableByteChannel target) throws IOException {
+        if (consumed) {
+            throw new IOException(String.format("Region received through '%s' has been already"
+                            + " consumed", connection));
+        }
+        consume(target);
+    }
+
+    /**
+     * Skips bytes of the region, unless they have been already consumed.
+     *
+     * @throws IOException in case bytes of the region cannot be received.
+     */
+    synchronized void discard() throws IOException {
+        if (!consumed) {
+            consume(null);
+        }
+    }
+
+    /**
+     * Hands reading of the connection over to the thread consuming the region. Listening is
+     * resumed as soon as region is consumed or discarded, or right away in case it is being
+     * consumed already.
+     *
+     * @param resume task which resumes listening of the connection.
+     */
+    void handOff(@Nonnull Runnable resume) {
+        resumption.set(resume);
+        if (consumed) {
+            resume();
+        }
+    }
+
+    /**
+     * Resumes listening of the connection, unless it has been resumed already. Region which is not
+     * consumed yet is discarded by the listening thread.
+     *
+     * @return {@code true} in case listening has been resumed by this call.
+     */
+    boolean resume() {
+        final Runnable resume = resumption.getAndSet(null);
+        if (resume == null) {
+            return false;
+        }
+        resume.run();
+        return true;
+    }
+
+    boolean isConsumed() {
+        return consumed;
+    }
+
+    private void consume(@Nullable WritableByteChannel target) throws IOException {
+        consumed = true;
+        try {
+            connection.receiveRegion(target, length);
+        } finally {
+            resume();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s [connection=%s, length=%s, consumed=%s]",
+                        getClass().getSimpleName(), connection, length, consumed);
+    }
+}
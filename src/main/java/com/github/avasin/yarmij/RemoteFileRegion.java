@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RemoteFileRegion} describes part of the file which should be returned by the service
+ * method without loading it into memory. Only path and bounds of the region are serialized, bytes
+ * of the region are sent right after the result by {@link FileChannel#transferTo},
+ * bypassing serializer and compression, which requires transport supporting
+ * {@link com.github.avasin.yarmij.transport.RegionTransport}.
+ * <p>
+ * Region received by the client should be consumed promptly by {@link #transferTo} or
+ * {@link #map}, connection does not receive anything else until region is consumed or discarded.
+ * Region which is not consumed within call timeout is discarded. Region returned by the server
+ * running in the same JVM is read from the file itself.
+ */
+public class RemoteFileRegion {
+    private final String path;
+    private final long offset;
+    private final long length;
+    private transient volatile RegionBody body;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RemoteFileRegion() {
+        this.path = null;
+        this.offset = 0L;
+        this.length = 0L;
+    }
+
+    /**
+     * Creates {@link RemoteFileRegion} instance which covers the whole file.
+     *
+     * @param file file which should be returned.
+     */
+    public RemoteFileRegion(@Nonnull File file) {
+        this(file, 0L, file.length());
+    }
+
+    /**
+     * Creates {@link RemoteFileRegion} instance.
+     *
+     * @param file file which region should be returned.
+     * @param offset position of the first byte of the region in the file.
+     * @param length number of bytes in the region.
+     */
+    public RemoteFileRegion(@Nonnull File file, long offset, long length) {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException(String.format("'%s' is not a file", file));
+        }
+        if (offset < 0L || length < 0L || offset + length > file.length()) {
+            throw new IllegalArgumentException(String.format(
+                            "Region [offset=%s, length=%s] is out of '%s' bounds", offset, length,
+                            file));
+        }
+        this.path = file.getAbsolutePath();
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Nonnull
+    public String getPath() {
+        return path;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Makes region read its bytes from the connection through which it has been received.
+     *
+     * @param received bytes of the region which follow the result.
+     */
+    void attach(@Nonnull RegionBody received) {
+        this.body = received;
+    }
+
+    /**
+     * Writes bytes of the region into the specified channel. Could be called only once for the
+     * region received from the server.
+     *
+     * @param target channel which should receive bytes of the region.
+     * @return number of bytes written.
+     * @throws IOException in case region has been already consumed or its bytes cannot be
+     *                 received or written.
+     */
+    public long transferTo(@Nonnull WritableByteChannel target) throws IOException {
+        final RegionBody received = body;
+        if (received != null) {
+            received.transferTo(target);
+            return length;
+        }
+        try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long transferred = 0L;
+            while (transferred < length) {
+                final long written = file.transferTo(offset + transferred,
+                                length - transferred, target);
+                if (written <= 0L) {
+                    throw new IOException(String.format(
+                                    "'%s' ended '%s' bytes before region end", path,
+                                    length - transferred));
+                }
+                transferred += written;
+            }
+            return transferred;
+        }
+    }
+
+    /**
+     * Writes bytes of the region into the specified file, replacing its content, and maps it
+     * into memory. Could be called only once for the region received from the server.
+     *
+     * @param file file which should receive bytes of the region.
+     * @return buffer mapped to the whole content of the file.
+     * @throws IOException in case region has been already consumed or its bytes cannot be
+     *                 received or written.
+     */
+    @Nonnull
+    public MappedByteBuffer map(@Nonnull File file) throws IOException {
+        try (RandomAccessFile target = new RandomAccessFile(file, "rw")) {
+            target.setLength(0L);
+            final FileChannel channel = target.getChannel();
+            transferTo(channel);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0L, length);
+        }
+    }
+
+    /**
+     * Skips bytes of the region received from the server, so connection could receive the next
+     * message. Does nothing in case region has been already consumed.
+     *
+     * @throws IOException in case bytes of the region cannot be received.
+     */
+    public void discard() throws IOException {
+        final RegionBody received = body;
+        if (received != null) {
+            received.discard();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [path=%s, offset=%s, length=%s]", getClass().getSimpleName(),
+                        path, offset, length);
+    }
+}
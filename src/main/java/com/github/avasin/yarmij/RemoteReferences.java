@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.messages.RmiRemoteReference;
+import com.github.avasin.yarmij.messages.handlers.RmiInvokeMethodMessageHandler;
+
+/**
+ * {@link RemoteReferences} keeps objects returned {@link ByReference} through one connection.
+ * Every call of the object renews its lease, objects which have not been called during the lease
+ * are forgotten, as well as all objects once connection is lost. Expired objects are looked up
+ * lazily, while other objects are exported or called.
+ */
+@ThreadSafe
+public class RemoteReferences {
+    /**
+     * Lease of the exported objects used unless specified explicitly.
+     */
+    public static final long DEFAULT_LEASE_MS = TimeUnit.MINUTES.toMillis(5L);
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteReferences.class);
+    private final Map<Long, Exported> exported = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final long leaseNanos;
+    private volatile long nextSweep;
+
+    /**
+     * Creates {@link RemoteReferences} instance.
+     *
+     * @param leaseMs period in milliseconds after which object which has not been
+     *                 called is forgotten.
+     */
+    public RemoteReferences(long leaseMs) {
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMs);
+        this.nextSweep = System.nanoTime() + leaseNanos;
+    }
+
+    /**
+     * Exports object, so it could be called by the client.
+     *
+     * @param type interface of the object known by the client.
+     * @param object object which should stay on the server.
+     * @param <I> type of the object interface.
+     * @return reference which should be sent to the client instead of the object.
+     */
+    @Nonnull
+    public <I> RmiRemoteReference export(@Nonnull Class<I> type, @Nonnull I object) {
+        sweep();
+        final RmiRemoteReference reference = new RmiRemoteReference(nextId.getAndIncrement(), type);
+        exported.put(reference.getObjectId(), new Exported(type, object));
+        LOGGER.debug("'{}' exported as '{}'", object, reference);
+        return reference;
+    }
+
+    /**
+     * Provides handler which invokes methods of the exported object and renews its lease.
+     *
+     * @param objectId identifier of the exported object.
+     * @return handler of the invocations or {@code null} in case object has not been
+     *                 exported or its lease expired.
+     */
+    @Nullable
+    public RmiInvokeMethodMessageHandler<?> get(long objectId) {
+        sweep();
+        final Exported target = exported.get(objectId);
+        if (target == null) {
+            return null;
+        }
+        if (target.isExpired(System.nanoTime())) {
+            exported.remove(objectId, target);
+            return null;
+        }
+        target.renew();
+        return target.handler;
+    }
+
+    /**
+     * Forgets exported object, because client does not need it anymore.
+     *
+     * @param objectId identifier of the exported object.
+     * @return {@code true} in case object has been exported.
+     */
+    public boolean release(long objectId) {
+        return exported.remove(objectId) != null;
+    }
+
+    /**
+     * Forgets all exported objects, because connection has been lost.
+     */
+    public void clear() {
+        exported.clear();
+    }
+
+    /**
+     * Provides number of objects which are currently exported.
+     *
+     * @return number of objects.
+     */
+    public int size() {
+        return exported.size();
+    }
+
+    private void sweep() {
+        final long now = System.nanoTime();
+        if (now - nextSweep < 0) {
+            return;
+        }
+        nextSweep = now + leaseNanos / 4;
+        for (Iterator<Exported> iterator = exported.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * {@link Exported} is an object exported by the server and the time it has been used last.
+     */
+    private final class Exported {
+        private final RmiInvokeMethodMessageHandler<?> handler;
+        private volatile long usedAt = System.nanoTime();
+
+        private <I> Exported(Class<I> type, I object) {
+            this.handler = new RmiInvokeMethodMessageHandler<>(type, object);
+        }
+
+        private void renew() {
+            usedAt = System.nanoTime();
+        }
+
+        private boolean isExpired(long now) {
+            return now - usedAt > leaseNanos;
+        }
+    }
+}
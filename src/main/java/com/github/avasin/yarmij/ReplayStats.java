@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link ReplayStats} is a result of the {@link WireReplay}: number of replayed invocations, their
+ * outcomes and latency percentiles measured from sending of the invocation till receiving of its
+ * result.
+ */
+@Immutable
+public class ReplayStats {
+    private final long sent;
+    private final long completed;
+    private final long failed;
+    private final long lost;
+    private final long skipped;
+    private final long elapsedMs;
+    private final long p50Us;
+    private final long p90Us;
+    private final long p99Us;
+    private final long p999Us;
+    private final long maxUs;
+
+    /**
+     * Creates {@link ReplayStats} instance.
+     *
+     * @param sent number of invocations sent to the target server.
+     * @param completed number of invocations completed successfully.
+     * @param failed number of invocations which failed, either on the server side or
+     *                 because they could not be sent.
+     * @param lost number of invocations which results have not been received in time.
+     * @param skipped number of captured frames which are not invocations or cannot be
+     *                 deserialized.
+     * @param elapsedMs duration of the replay in milliseconds.
+     * @param p50Us median latency in microseconds.
+     * @param p90Us 90th percentile of latency in microseconds.
+     * @param p99Us 99th percentile of latency in microseconds.
+     * @param p999Us 99.9th percentile of latency in microseconds.
+     * @param maxUs maximum latency in microseconds.
+     */
+    public ReplayStats(long sent, long completed, long failed, long lost, long skipped,
+                    long elapsedMs, long p50Us, long p90Us, long p99Us, long p999Us, long maxUs) {
+        this.sent = sent;
+        this.completed = completed;
+        this.failed = failed;
+        this.lost = lost;
+        this.skipped = skipped;
+        this.elapsedMs = elapsedMs;
+        this.p50Us = p50Us;
+        this.p90Us = p90Us;
+        this.p99Us = p99Us;
+        this.p999Us = p999Us;
+        this.maxUs = maxUs;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getLost() {
+        return lost;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public long getP50Us() {
+        return p50Us;
+    }
+
+    public long getP90Us() {
+        return p90Us;
+    }
+
+    public long getP99Us() {
+        return p99Us;
+    }
+
+    public long getP999Us() {
+        return p999Us;
+    }
+
+    public long getMaxUs() {
+        return maxUs;
+    }
+
+    /**
+     * Provides share of the sent invocations which failed or have been lost.
+     *
+     * @return ratio from {@code 0} to {@code 1}.
+     */
+    public double getErrorRate() {
+        return sent == 0L ? 0D : (double)(failed + lost) / sent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [sent=%s, completed=%s, failed=%s, lost=%s, skipped=%s, "
+                        + "elapsedMs=%s, errorRate=%.4f, p50Us=%s, p90Us=%s, p99Us=%s, "
+                        + "p999Us=%s, maxUs=%s]", getClass().getSimpleName(), sent, completed,
+                        failed, lost, skipped, elapsedMs, getErrorRate(), p50Us, p90Us, p99Us,
+                        p999Us, maxUs);
+    }
+}
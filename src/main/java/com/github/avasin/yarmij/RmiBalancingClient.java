@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.TransportConnector;
+
+/**
+ * {@link RmiBalancingClient} connects to several servers providing the same services and spreads
+ * calls among them using power of two choices on calls in flight and average latency. Stubs do not
+ * depend on particular server, endpoint which lost connection is ejected for a cool-down period
+ * and returns to the rotation as soon as connection is restored. Late calls of {@link Idempotent}
+ * methods could be duplicated to another server according to {@link HedgingPolicy}. Creates one
+ * listening thread per server.
+ */
+public class RmiBalancingClient extends RmiClient {
+    private final BalancingExchanger balancer;
+
+    /**
+     * Creates {@link RmiBalancingClient} instance. Servers which are not reachable initially are
+     * connected in background.
+     *
+     * @param connectors establish transports to the servers.
+     * @param serializer will be used to convert messages into bytes.
+     * @param deserializer will be used to convert bytes into messages.
+     * @param timeoutMs timeout in milliseconds
+     * @param reconnectPolicy describes delays between reconnection attempts.
+     * @param coolDownMs period in milliseconds during which failed server does not
+     *                 receive calls.
+     * @param hedgingPolicy describes when late calls are duplicated or {@code null} in
+     *                 case calls should not be duplicated.
+     */
+    public RmiBalancingClient(@Nonnull Collection<? extends TransportConnector> connectors,
+                    @Nonnull Serializer serializer, @Nonnull Deserializer deserializer,
+                    long timeoutMs, @Nonnull ReconnectPolicy reconnectPolicy, long coolDownMs,
+                    @Nullable HedgingPolicy hedgingPolicy) {
+        this(new ConcurrentHashMap<Class<?>, Object>(), new CallbackRegistry(), connectors,
+                        serializer, deserializer, timeoutMs, reconnectPolicy, coolDownMs,
+                        hedgingPolicy);
+    }
+
+    private RmiBalancingClient(Map<Class<?>, Object> registeredServices,
+                    CallbackRegistry registry, Collection<? extends TransportConnector> connectors,
+                    Serializer serializer, Deserializer deserializer, long timeoutMs,
+                    ReconnectPolicy reconnectPolicy, long coolDownMs, HedgingPolicy hedgingPolicy) {
+        this(registeredServices, registry, new BalancingExchanger(createEndpoints(connectors,
+                        serializer, deserializer, timeoutMs, reconnectPolicy,
+                        registeredServices.keySet(), registry), coolDownMs, timeoutMs,
+                        hedgingPolicy));
+    }
+
+    private RmiBalancingClient(Map<Class<?>, Object> registeredServices,
+                    CallbackRegistry registry, BalancingExchanger balancer) {
+        super(balancer, registeredServices, registry);
+        this.balancer = balancer;
+    }
+
+    private static List<Endpoint> createEndpoints(
+                    Collection<? extends TransportConnector> connectors, Serializer serializer,
+                    Deserializer deserializer, long timeoutMs, ReconnectPolicy reconnectPolicy,
+                    Collection<Class<?>> services, CallbackRegistry registry) {
+        if (connectors.isEmpty()) {
+            throw new IllegalArgumentException("At least one server should be specified");
+        }
+        final List<Endpoint> result = new ArrayList<>(connectors.size());
+        for (TransportConnector connector : connectors) {
+            result.add(new Endpoint(connector, serializer, deserializer, timeoutMs,
+                            reconnectPolicy, services, registry));
+        }
+        return result;
+    }
+
+    @Override
+    public void setHeartbeatPolicy(@Nullable HeartbeatPolicy policy) {
+        balancer.setHeartbeatPolicy(policy);
+    }
+
+    /**
+     * Provides statistics collected for each server.
+     *
+     * @return snapshots of statistics in the order servers have been specified.
+     */
+    @Nonnull
+    public List<EndpointStats> getEndpointStats() {
+        return balancer.getStats();
+    }
+
+    /**
+     * Provides number of calls duplicated to another server because they were late.
+     *
+     * @return number of duplicates.
+     */
+    public long getHedgedCalls() {
+        return balancer.getHedges();
+    }
+}
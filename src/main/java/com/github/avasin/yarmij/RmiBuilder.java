@@ -16,16 +16,35 @@
 
 package com.github.avasin.yarmij;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
+import com.github.avasin.yarmij.serialization.Copier;
+import com.github.avasin.yarmij.serialization.BudgetedDeserializer;
+import com.github.avasin.yarmij.serialization.DeduplicatingDeserializer;
+import com.github.avasin.yarmij.serialization.DeduplicatingSerializer;
 import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.InboundBudget;
+import com.github.avasin.yarmij.serialization.KryoCopier;
 import com.github.avasin.yarmij.serialization.KryoDeserializer;
 import com.github.avasin.yarmij.serialization.KryoSerializer;
 import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.InProcessTransportServer;
+import com.github.avasin.yarmij.transport.SharedMemoryTransportConnector;
+import com.github.avasin.yarmij.transport.SharedMemoryTransportServer;
+import com.github.avasin.yarmij.transport.SocketTransportConnector;
+import com.github.avasin.yarmij.transport.SocketTransportServer;
+import com.github.avasin.yarmij.transport.TransportConnector;
+import com.github.avasin.yarmij.transport.TransportOptions;
+import com.github.avasin.yarmij.transport.TransportServer;
+import com.github.avasin.yarmij.transport.UnixDomainSocketTransportConnector;
+import com.github.avasin.yarmij.transport.UnixDomainSocketTransportServer;
 
 /**
  * {@link RmiBuilder} provides a simple way to create client and server endpoints with desired
@@ -36,10 +55,27 @@ public class RmiBuilder {
     private static final Deserializer DEFAULT_DESERIALIZER = new KryoDeserializer();
     private static final Serializer DEFAULT_SERIALIZER = new KryoSerializer();
     private static final long DEFAULT_TIMEOUT_MS = 30_000L;
+    private static final int DEFAULT_SHARED_MEMORY_CAPACITY = 1 << 20;
+    private static final Copier DEFAULT_COPIER = new KryoCopier();
+    private static final long DEFAULT_COOL_DOWN_MS = 10_000L;
 
     private Serializer serializer;
     private Deserializer deserializer;
     private Long timeoutMs;
+    private Integer sharedMemoryCapacity;
+    private PassingPolicy passingPolicy;
+    private TransportOptions transportOptions;
+    private ReconnectPolicy reconnectPolicy;
+    private Long coolDownMs;
+    private HedgingPolicy hedgingPolicy;
+    private InboundBudget inboundBudget;
+    private BroadcastPolicy broadcastPolicy;
+    private Integer maxCallsInFlight;
+    private Long leaseMs;
+    private Integer deduplicationMinSize;
+    private CallTraceListener callTraceListener;
+    private HeartbeatPolicy heartbeatPolicy;
+    private long deduplicationMaxBytes;
 
     /**
      * Creates {@link RmiClient} endpoint.
@@ -52,12 +88,66 @@ public class RmiBuilder {
      */
     @Nonnull
     public RmiClient client(@Nonnull String address, int port) throws RmiException {
+        return client(new SocketTransportConnector(address, port, getTransportOptions()));
+    }
+
+    /**
+     * Creates {@link RmiClient} endpoint which interacts with the server through custom
+     * transport.
+     *
+     * @param connector connector which establishes transport to the server.
+     * @return instance of {@link RmiClient} which could provide proxy stubs for server
+     *                 interface implementations.
+     * @throws RmiException in case connection to remote server failed.
+     */
+    @Nonnull
+    public RmiClient client(@Nonnull TransportConnector connector) throws RmiException {
+        if (reconnectPolicy != null) {
+            return configured(new RmiClient(connector, getSerializer(), getDeserializer(),
+                            getTimeoutMs(), reconnectPolicy));
+        }
         try {
-            return new RmiClient(new RmiConnection(getSerializer(), getDeserializer(),
-                            new Socket(address, port)), getTimeoutMs());
+            return configured(new RmiClient(new RmiConnection(getSerializer(), getDeserializer(),
+                            connector.connect()), getTimeoutMs()));
         } catch (IOException ex) {
-            throw new RmiException(String.format("Cannot connect to '%s:%s'", address, port), ex);
+            throw new RmiException(String.format("Cannot connect to '%s'", connector), ex);
+        }
+    }
+
+    /**
+     * Creates {@link RmiBalancingClient} endpoint which spreads calls among several TCP servers
+     * providing the same services.
+     *
+     * @param servers addresses of the servers.
+     * @return instance of {@link RmiBalancingClient} which could provide proxy stubs for
+     *                 server interface implementations.
+     */
+    @Nonnull
+    public RmiBalancingClient balancingClient(@Nonnull InetSocketAddress... servers) {
+        final List<TransportConnector> connectors = new ArrayList<>(servers.length);
+        for (InetSocketAddress server : servers) {
+            connectors.add(new SocketTransportConnector(server.getHostString(), server.getPort(),
+                            getTransportOptions()));
         }
+        return balancingClient(connectors);
+    }
+
+    /**
+     * Creates {@link RmiBalancingClient} endpoint which spreads calls among several servers
+     * providing the same services through custom transports. Lost connections are always
+     * restored, with {@link ReconnectPolicy} specified for the builder or the default one.
+     *
+     * @param connectors connectors which establish transports to the servers.
+     * @return instance of {@link RmiBalancingClient} which could provide proxy stubs for
+     *                 server interface implementations.
+     */
+    @Nonnull
+    public RmiBalancingClient balancingClient(
+                    @Nonnull Collection<? extends TransportConnector> connectors) {
+        return configured(new RmiBalancingClient(connectors, getSerializer(), getDeserializer(),
+                        getTimeoutMs(),
+                        reconnectPolicy == null ? new ReconnectPolicy() : reconnectPolicy,
+                        getCoolDownMs(), hedgingPolicy));
     }
 
     /**
@@ -71,12 +161,331 @@ public class RmiBuilder {
     @Nonnull
     public RmiServer server(int port) throws RmiException {
         try {
-            return new RmiServer(new ServerSocket(port), getDeserializer(), getSerializer());
+            return server(SocketTransportServer.bind(port, getTransportOptions()));
         } catch (IOException ex) {
             throw new RmiException(String.format("Cannot register server on '%s' port", port), ex);
         }
     }
 
+    /**
+     * Creates {@link RmiServer} endpoint which accepts clients through custom transport.
+     *
+     * @param transportServer server which accepts transports initiated by clients.
+     * @return instance of {@link RmiServer} which would be used to register supported
+     *                 interface implementations on the server side.
+     */
+    @Nonnull
+    public RmiServer server(@Nonnull TransportServer transportServer) {
+        final RmiServer result = new RmiServer(transportServer, getDeserializer(),
+                        getSerializer(), getTimeoutMs(),
+                        broadcastPolicy == null ? new BroadcastPolicy() : broadcastPolicy);
+        result.setHeartbeatPolicy(heartbeatPolicy);
+        if (maxCallsInFlight != null) {
+            result.setMaxCallsInFlight(maxCallsInFlight);
+        }
+        if (leaseMs != null) {
+            result.setLeaseMs(leaseMs);
+        }
+        return result;
+    }
+
+    /**
+     * Creates {@link RmiClient} endpoint which interacts with the server running on the same host
+     * through shared memory.
+     *
+     * @param directory directory listening by the shared memory server, should be placed
+     *                 on a memory backed file system, like {@code /dev/shm}.
+     * @return instance of {@link RmiClient} which could provide proxy stubs for server
+     *                 interface implementations.
+     * @throws RmiException in case server did not accept connection in time.
+     */
+    @Nonnull
+    public RmiClient sharedMemoryClient(@Nonnull File directory) throws RmiException {
+        return client(new SharedMemoryTransportConnector(directory, getSharedMemoryCapacity(),
+                        getTimeoutMs()));
+    }
+
+    /**
+     * Creates {@link RmiServer} endpoint which accepts clients running on the same host through
+     * shared memory.
+     *
+     * @param directory directory in which clients will create shared memory files,
+     *                 should be placed on a memory backed file system, like {@code /dev/shm}.
+     * @return instance of {@link RmiServer} which would be used to register supported
+     *                 interface implementations on the server side.
+     * @throws RmiException in case directory cannot be watched.
+     */
+    @Nonnull
+    public RmiServer sharedMemoryServer(@Nonnull File directory) throws RmiException {
+        try {
+            return server(new SharedMemoryTransportServer(directory));
+        } catch (IOException ex) {
+            throw new RmiException(String.format("Cannot register server in '%s' directory",
+                            directory), ex);
+        }
+    }
+
+    /**
+     * Creates {@link RmiClient} endpoint which interacts with the server running on the same host
+     * through Unix domain socket. Requires Java 16 or later.
+     *
+     * @param path socket file listening by the server.
+     * @return instance of {@link RmiClient} which could provide proxy stubs for server
+     *                 interface implementations.
+     * @throws RmiException in case connection to the server failed or Unix domain sockets
+     *                 are not supported.
+     */
+    @Nonnull
+    public RmiClient unixSocketClient(@Nonnull File path) throws RmiException {
+        return client(new UnixDomainSocketTransportConnector(path));
+    }
+
+    /**
+     * Creates {@link RmiServer} endpoint which accepts clients running on the same host through
+     * Unix domain socket. Requires Java 16 or later.
+     *
+     * @param path socket file to listen, file should not exist and would be removed when
+     *                 server is closed.
+     * @return instance of {@link RmiServer} which would be used to register supported
+     *                 interface implementations on the server side.
+     * @throws RmiException in case socket cannot be bound or Unix domain sockets are not
+     *                 supported.
+     */
+    @Nonnull
+    public RmiServer unixSocketServer(@Nonnull File path) throws RmiException {
+        try {
+            return server(new UnixDomainSocketTransportServer(path));
+        } catch (IOException ex) {
+            throw new RmiException(String.format("Cannot register server on '%s' socket", path),
+                            ex);
+        }
+    }
+
+    /**
+     * Creates {@link RmiServer} endpoint which is reachable only by clients running in the same
+     * JVM, so it does not listen any port.
+     *
+     * @return instance of {@link RmiServer} which would be used to register supported
+     *                 interface implementations on the server side.
+     */
+    @Nonnull
+    public RmiServer inProcessServer() {
+        return server(new InProcessTransportServer());
+    }
+
+    /**
+     * Creates {@link RmiClient} endpoint which calls implementations registered in the server
+     * running in the same JVM directly, without serialization and network transfer. Any server
+     * could be used, not only created by {@link #inProcessServer()}.
+     *
+     * @param server server which implementations should be called.
+     * @return instance of {@link RmiClient} which could provide proxy stubs for server
+     *                 interface implementations.
+     */
+    @Nonnull
+    public RmiClient inProcessClient(@Nonnull RmiServer server) {
+        final Copier copier = getPassingPolicy() == PassingPolicy.COPY ? DEFAULT_COPIER : null;
+        return configured(new RmiClient(server.connectInProcess(copier), getTimeoutMs()));
+    }
+
+    /**
+     * Creates {@link WireReplay} of the capture recorded by the server created with the same
+     * codecs, see {@link RmiServer#capture(WireCapture)}.
+     *
+     * @param capture file which contains the capture.
+     * @return instance of {@link WireReplay} which sends captured invocations again.
+     */
+    @Nonnull
+    public WireReplay wireReplay(@Nonnull File capture) {
+        return new WireReplay(capture, getSerializer(), getDeserializer(), getTimeoutMs());
+    }
+
+    private <C extends RmiClient> C configured(C client) {
+        client.setCallTraceListener(callTraceListener);
+        client.setHeartbeatPolicy(heartbeatPolicy);
+        return client;
+    }
+
+    /**
+     * Makes clients restore lost connection by themselves. Pending calls fail as soon as
+     * connection is lost, calls of {@link Idempotent} methods are retried once connection is
+     * restored. By default clients do not reconnect.
+     *
+     * @param reconnectPolicy describes delays between reconnection attempts.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withReconnectPolicy(@Nonnull ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+        return this;
+    }
+
+    /**
+     * Makes {@link RmiBalancingClient} duplicate late calls of {@link Idempotent} methods to
+     * another server. By default calls are not duplicated.
+     *
+     * @param hedgingPolicy describes when late calls are duplicated.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withHedgingPolicy(@Nonnull HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+        return this;
+    }
+
+    /**
+     * Specifies how long server which lost connection does not receive calls from
+     * {@link RmiBalancingClient}, 10 seconds by default.
+     *
+     * @param coolDownMs period in milliseconds.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withCoolDownMs(long coolDownMs) {
+        this.coolDownMs = coolDownMs;
+        return this;
+    }
+
+    /**
+     * Limits memory used by messages received by clients and servers created by the builder. The
+     * same budget could be shared by several builders. By default received frames are not
+     * limited.
+     *
+     * @param inboundBudget limits and shared budget of the received messages.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withInboundBudget(@Nonnull InboundBudget inboundBudget) {
+        this.inboundBudget = inboundBudget;
+        return this;
+    }
+
+    /**
+     * Specifies how broadcast messages are queued by servers created by the builder. By default
+     * up to 1024 messages are queued for every connection, further messages are dropped.
+     *
+     * @param broadcastPolicy limits of the connection queues.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withBroadcastPolicy(@Nonnull BroadcastPolicy broadcastPolicy) {
+        this.broadcastPolicy = broadcastPolicy;
+        return this;
+    }
+
+    /**
+     * Limits number of invocations processed at the same time for every connection of the servers
+     * created by the builder, further invocations are queued until earlier ones complete. By
+     * default up to 16 invocations are processed for every connection.
+     *
+     * @param maxCallsInFlight maximum number of invocations processed at the same time.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withMaxCallsInFlight(int maxCallsInFlight) {
+        this.maxCallsInFlight = maxCallsInFlight;
+        return this;
+    }
+
+    /**
+     * Specifies lease of the objects returned {@link ByReference} by the servers created by the
+     * builder. Object which has not been called during the lease is forgotten, even though client
+     * still holds its stub. By default objects are kept for 5 minutes after the last call.
+     *
+     * @param leaseMs period in milliseconds after which object which has not been called is
+     *                 forgotten.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withLeaseMs(long leaseMs) {
+        this.leaseMs = leaseMs;
+        return this;
+    }
+
+    /**
+     * Makes clients and servers created by the builder send every large argument through the
+     * connection only once, later invocations refer to it by digest. Both sides of the connection
+     * should be created with the same limit. By default arguments are sent with every
+     * invocation.
+     *
+     * @param minSize minimal size of the serialized argument which should be
+     *                 deduplicated.
+     * @param maxBytes maximum total size of the arguments remembered for each connection.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withArgumentDeduplication(int minSize, long maxBytes) {
+        this.deduplicationMinSize = minSize;
+        this.deduplicationMaxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Makes clients and servers send heartbeats through idle connections and close connections
+     * which other side stopped answering, so pending calls fail and resources are released
+     * without waiting for the timeout. By default heartbeats are not sent, but are answered.
+     *
+     * @param heartbeatPolicy describes when pings are sent and connection is considered
+     *                 dead.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withHeartbeatPolicy(@Nonnull HeartbeatPolicy heartbeatPolicy) {
+        this.heartbeatPolicy = heartbeatPolicy;
+        return this;
+    }
+
+    /**
+     * Makes clients created by the builder report breakdown of the time spent by every call:
+     * serialization, sending, network, server queueing and execution and deserialization of the
+     * result. By default calls are not traced.
+     *
+     * @param callTraceListener listener which receives traces of the calls.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withCallTraceListener(@Nonnull CallTraceListener callTraceListener) {
+        this.callTraceListener = callTraceListener;
+        return this;
+    }
+
+    /**
+     * Specifies socket options of TCP clients and servers.
+     *
+     * @param transportOptions desired options.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withTransportOptions(@Nonnull TransportOptions transportOptions) {
+        this.transportOptions = transportOptions;
+        return this;
+    }
+
+    /**
+     * Specifies how objects are passed between in-process clients and servers.
+     *
+     * @param passingPolicy desired policy, {@link PassingPolicy#COPY} by default.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withPassingPolicy(@Nonnull PassingPolicy passingPolicy) {
+        this.passingPolicy = passingPolicy;
+        return this;
+    }
+
+    /**
+     * Specifies size of the shared memory buffer used for each direction by shared memory
+     * clients.
+     *
+     * @param capacity size of the buffer in bytes, should be a power of two.
+     * @return current instance of {@link RmiBuilder}.
+     */
+    @Nonnull
+    public RmiBuilder withSharedMemoryCapacity(int capacity) {
+        this.sharedMemoryCapacity = capacity;
+        return this;
+    }
+
     /**
      * Specifies desired timeout in milliseconds that will be used to interact with a server.
      *
@@ -114,15 +523,38 @@ public class RmiBuilder {
     }
 
     private Deserializer getDeserializer() {
-        return deserializer == null ? DEFAULT_DESERIALIZER : deserializer;
+        Deserializer result = deserializer == null ? DEFAULT_DESERIALIZER : deserializer;
+        if (deduplicationMinSize != null) {
+            result = new DeduplicatingDeserializer(result, deduplicationMaxBytes);
+        }
+        return inboundBudget == null ? result : new BudgetedDeserializer(result, inboundBudget);
     }
 
     private Serializer getSerializer() {
-        return serializer == null ? DEFAULT_SERIALIZER : serializer;
+        final Serializer result = serializer == null ? DEFAULT_SERIALIZER : serializer;
+        return deduplicationMinSize == null ? result
+                        : new DeduplicatingSerializer(result, deduplicationMinSize,
+                                        deduplicationMaxBytes);
     }
 
     private long getTimeoutMs() {
         return timeoutMs == null ? DEFAULT_TIMEOUT_MS : timeoutMs;
     }
 
+    private long getCoolDownMs() {
+        return coolDownMs == null ? DEFAULT_COOL_DOWN_MS : coolDownMs;
+    }
+
+    private TransportOptions getTransportOptions() {
+        return transportOptions == null ? new TransportOptions() : transportOptions;
+    }
+
+    private PassingPolicy getPassingPolicy() {
+        return passingPolicy == null ? PassingPolicy.COPY : passingPolicy;
+    }
+
+    private int getSharedMemoryCapacity() {
+        return sharedMemoryCapacity == null ? DEFAULT_SHARED_MEMORY_CAPACITY : sharedMemoryCapacity;
+    }
+
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiServerTiming;
+
+/**
+ * {@link RmiCallContext} describes method invocation which is currently processed on the server
+ * side. Service implementations could poll {@link #isCurrentCancelled()} to find out that client
+ * is not interested in the result anymore and stop long running work. Thread which executes
+ * cancelled invocation is interrupted as well. Context of the traced invocation collects timings
+ * of its processing, which are sent to the client together with the result, and passes trace
+ * identifier to the calls made by the service implementation.
+ */
+@ThreadSafe
+public class RmiCallContext {
+    private static final ThreadLocal<RmiCallContext> CURRENT = new ThreadLocal<>();
+
+    private final RmiMessageId<?> messageId;
+    private final RmiConnection connection;
+    private final RemoteReferences references;
+    private Thread thread;
+    private boolean cancelled;
+    private boolean completed;
+    private long receivedAt;
+    private long deserializationNanos;
+    private long startedAt;
+    private long executionNanos;
+
+    /**
+     * Creates {@link RmiCallContext} instance.
+     *
+     * @param messageId identifier of the message which processing is described by
+     *                 context.
+     */
+    public RmiCallContext(@Nonnull RmiMessageId<?> messageId) {
+        this(messageId, null);
+    }
+
+    /**
+     * Creates {@link RmiCallContext} instance.
+     *
+     * @param messageId identifier of the message which processing is described by
+     *                 context.
+     * @param connection connection through which message has been received or
+     *                 {@code null} in case it is unknown.
+     */
+    public RmiCallContext(@Nonnull RmiMessageId<?> messageId,
+                    @Nullable RmiConnection connection) {
+        this(messageId, connection, null);
+    }
+
+    /**
+     * Creates {@link RmiCallContext} instance.
+     *
+     * @param messageId identifier of the message which processing is described by
+     *                 context.
+     * @param connection connection through which message has been received or
+     *                 {@code null} in case it is unknown.
+     * @param references objects exported for the connection or {@code null} in case
+     *                 results could not be returned {@link ByReference}.
+     */
+    public RmiCallContext(@Nonnull RmiMessageId<?> messageId,
+                    @Nullable RmiConnection connection, @Nullable RemoteReferences references) {
+        this.messageId = messageId;
+        this.connection = connection;
+        this.references = references;
+    }
+
+    /**
+     * Returns context of the invocation processed by the current thread.
+     *
+     * @return context of the current invocation or {@code null} in case current thread is
+     *                 not processing remote method invocation.
+     */
+    @Nullable
+    public static RmiCallContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Checks whether invocation processed by the current thread has been cancelled by the client.
+     *
+     * @return {@code true} in case current invocation has been cancelled.
+     */
+    public static boolean isCurrentCancelled() {
+        final RmiCallContext context = CURRENT.get();
+        return context != null && context.isCancelled();
+    }
+
+    @Nonnull
+    public RmiMessageId<?> getMessageId() {
+        return messageId;
+    }
+
+    @Nullable
+    public RmiConnection getConnection() {
+        return connection;
+    }
+
+    @Nullable
+    public RemoteReferences getReferences() {
+        return references;
+    }
+
+    /**
+     * Returns identifier of the trace to which invocation belongs.
+     *
+     * @return trace identifier or {@code null} in case invocation is not traced.
+     */
+    @Nullable
+    public Long getTraceId() {
+        return messageId.getTraceId();
+    }
+
+    /**
+     * Remembers when invocation has been received.
+     *
+     * @param receivedAt {@link System#nanoTime()} when frame of the invocation has been
+     *                 received.
+     * @param deserializationNanos time spent to convert frame into invocation.
+     */
+    public synchronized void received(long receivedAt, long deserializationNanos) {
+        this.receivedAt = receivedAt;
+        this.deserializationNanos = deserializationNanos;
+    }
+
+    /**
+     * Remembers time spent by the service implementation.
+     *
+     * @param executionNanos duration of the implementation method call.
+     */
+    public synchronized void executed(long executionNanos) {
+        this.executionNanos = executionNanos;
+    }
+
+    /**
+     * Provides timing of the invocation up to the current moment.
+     *
+     * @return timing of the invocation processing.
+     */
+    @Nonnull
+    public synchronized RmiServerTiming getTiming() {
+        final long now = System.nanoTime();
+        final long queuedAt = receivedAt + deserializationNanos;
+        return new RmiServerTiming(deserializationNanos,
+                        receivedAt == 0L || startedAt == 0L ? 0L
+                                        : Math.max(0L, startedAt - queuedAt),
+                        executionNanos, receivedAt == 0L ? 0L : now - receivedAt);
+    }
+
+    /**
+     * Binds context to the current thread, so it would be interrupted in case of cancellation,
+     * and remembers when processing of the invocation has been started.
+     */
+    public void attach() {
+        synchronized (this) {
+            thread = Thread.currentThread();
+            startedAt = System.nanoTime();
+        }
+        CURRENT.set(this);
+    }
+
+    /**
+     * Unbinds context from the current thread and clears interruption flag that might be left by
+     * cancellation, so the thread could be safely reused.
+     */
+    public void detach() {
+        synchronized (this) {
+            thread = null;
+        }
+        CURRENT.remove();
+        Thread.interrupted();
+    }
+
+    /**
+     * Cancels invocation and interrupts thread which is processing it.
+     *
+     * @return {@code true} in case invocation has been cancelled, {@code false} in case it
+     *                 has been already completed or cancelled before.
+     */
+    public synchronized boolean cancel() {
+        if (cancelled || completed) {
+            return false;
+        }
+        cancelled = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * Marks invocation as completed, after that it could not be cancelled anymore.
+     *
+     * @return {@code true} in case result of the invocation should be sent to the client,
+     *                 {@code false} in case invocation has been cancelled.
+     */
+    public synchronized boolean complete() {
+        if (cancelled) {
+            return false;
+        }
+        completed = true;
+        return true;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s, cancelled=%s]", getClass().getSimpleName(),
+                        messageId, isCancelled());
+    }
+}
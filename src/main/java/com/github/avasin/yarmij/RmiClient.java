@@ -19,24 +19,32 @@ package com.github.avasin.yarmij;
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Proxy;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
-import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.TransportConnector;
 
 /**
  * {@link RmiClient} used to connect to server side and provide stubs for requested services.
- * Creates one thread to listen messages received from server.
+ * Creates one thread to listen messages received from server, unless client is connected to the
+ * server running in the same JVM. Client created with {@link ReconnectPolicy} restores lost
+ * connection by itself, stubs obtained before connection loss remain usable. {@link Callback}s
+ * passed to the server are executed by separate threads, so they never block listening thread.
  */
 public class RmiClient implements Closeable {
     private final ExecutorService listenerPool = Executors.newSingleThreadExecutor();
-    private final MessageExchanger exchanger;
-    private final Map<Class<?>, Object> registeredServices = new HashMap<>();
+    private final Exchanger exchanger;
+    private final Map<Class<?>, Object> registeredServices;
+    private final ClientListeningTask listener;
+    private final CallbackRegistry registry;
+    private final CallTracer tracer = new CallTracer();
 
     /**
      * Creates {@link RmiClient} instance.
@@ -46,11 +54,66 @@ public class RmiClient implements Closeable {
      * @param timeoutMs timeout in milliseconds
      */
     public RmiClient(@Nonnull RmiConnection connection, long timeoutMs) {
-        this.exchanger = new MessageExchanger(connection, timeoutMs);
-        this.listenerPool.submit(new ListeningTask<>(connection,
-                        Collections.<RmiConnection>emptySet(), RmiMethodResultMessage.class,
-                        exchanger));
+        final MessageExchanger messageExchanger = new MessageExchanger(connection, timeoutMs);
+        this.exchanger = messageExchanger;
+        this.registeredServices = new ConcurrentHashMap<>();
+        this.registry = new CallbackRegistry();
+        if (connection instanceof InProcessConnection) {
+            ((InProcessConnection)connection)
+                            .listen(new ClientMessageHandler(messageExchanger, registry));
+            this.listener = null;
+            return;
+        }
+        this.listener = new ClientListeningTask(connection, messageExchanger, registry);
+        this.listener.start(listenerPool);
+    }
+
+    /**
+     * Creates {@link RmiClient} instance which restores lost connection.
+     *
+     * @param connector establishes transports to the server.
+     * @param serializer will be used to convert messages into bytes.
+     * @param deserializer will be used to convert bytes into messages.
+     * @param timeoutMs timeout in milliseconds
+     * @param reconnectPolicy describes delays between reconnection attempts.
+     * @throws RmiException in case initial connection cannot be established.
+     */
+    public RmiClient(@Nonnull TransportConnector connector, @Nonnull Serializer serializer,
+                    @Nonnull Deserializer deserializer, long timeoutMs,
+                    @Nonnull ReconnectPolicy reconnectPolicy) throws RmiException {
+        final RmiConnection connection;
+        try {
+            connection = new RmiConnection(serializer, deserializer, connector.connect());
+        } catch (IOException ex) {
+            throw new RmiException(String.format("Cannot connect to '%s'", connector), ex);
+        }
+        final MessageExchanger messageExchanger = new MessageExchanger(connection, timeoutMs);
+        this.exchanger = messageExchanger;
+        this.registeredServices = new ConcurrentHashMap<>();
+        this.registry = new CallbackRegistry();
+        this.listener = new ClientListeningTask(connection, messageExchanger, registry,
+                        connector, serializer, deserializer, reconnectPolicy,
+                        registeredServices.keySet(), timeoutMs);
+        this.listener.start(listenerPool);
+    }
 
+    /**
+     * Creates {@link RmiClient} instance which sends calls through the specified exchanger, which
+     * manages its connections by itself.
+     *
+     * @param exchanger delivers calls to the servers.
+     * @param registeredServices storage of the stubs, its keys are the services used by
+     *                 the client.
+     * @param registry registry which executes calls of the callbacks exported by the
+     *                 client.
+     */
+    RmiClient(@Nonnull Exchanger exchanger, @Nonnull Map<Class<?>, Object> registeredServices,
+                    @Nonnull CallbackRegistry registry) {
+        this.exchanger = exchanger;
+        this.registeredServices = registeredServices;
+        this.registry = registry;
+        this.listener = null;
+        listenerPool.shutdown();
     }
 
     /**
@@ -78,15 +141,99 @@ public class RmiClient implements Closeable {
             }
             final Object newServiceProxy =
                             Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type},
-                                            new DynamicProxy<>(type, exchanger));
+                                            new DynamicProxy<>(type, exchanger, registry, tracer));
             registeredServices.put(type, newServiceProxy);
             return type.cast(newServiceProxy);
         }
     }
 
+    /**
+     * Specifies listener which receives breakdown of the time spent by every call of the client,
+     * calls made by the server while processing traced call belong to the same trace. Tracing
+     * costs several timestamps per call and identifier of the trace sent with every message.
+     *
+     * @param listener listener of the traced calls or {@code null} in case calls should
+     *                 not be traced anymore.
+     */
+    public void setCallTraceListener(@Nullable CallTraceListener listener) {
+        tracer.setListener(listener);
+    }
+
+    /**
+     * Makes connection to the server send heartbeats, so server which disappeared without closing
+     * the connection is noticed and pending calls fail without waiting for the timeout. Restored
+     * connections send heartbeats as well. Has no effect on the client connected in process.
+     *
+     * @param policy describes when pings are sent and connection is considered dead or
+     *                 {@code null} in case restored connections should not send heartbeats.
+     */
+    public void setHeartbeatPolicy(@Nullable HeartbeatPolicy policy) {
+        if (listener != null) {
+            listener.setHeartbeatPolicy(policy);
+        }
+    }
+
+    /**
+     * Subscribes listener to the messages broadcast by the server through stub of the same
+     * interface, replacing listener subscribed before. Messages are delivered to the listener one
+     * by one in the order they have been received.
+     *
+     * @param type listener interface.
+     * @param listener listener which should receive broadcast messages.
+     * @param <I> type of the listener interface.
+     */
+    public <I> void subscribe(@Nonnull Class<I> type, @Nonnull I listener) {
+        registry.subscribe(type, listener);
+    }
+
+    /**
+     * Stops delivering of the broadcast messages to the listener of the specified interface.
+     *
+     * @param type listener interface.
+     * @return {@code true} in case listener has been subscribed.
+     */
+    public boolean unsubscribe(@Nonnull Class<?> type) {
+        return registry.unsubscribe(type);
+    }
+
+    /**
+     * Asks server to forget the object returned {@link ByReference}, so it does not wait for the
+     * lease to expire. Stub should not be used afterwards.
+     *
+     * @param stub stub of the object received from the server.
+     * @return {@code true} in case server still kept the object.
+     * @throws RmiException in case specified object is not a stub of the object returned
+     *                 by reference or server cannot be reached.
+     * @throws InterruptedException in case awaiting of server response has been
+     *                 interrupted.
+     */
+    public boolean release(@Nonnull Object stub) throws RmiException, InterruptedException {
+        if (!Proxy.isProxyClass(stub.getClass())
+                        || !(Proxy.getInvocationHandler(stub) instanceof DynamicProxy)) {
+            throw new RmiException(String.format("'%s' is not a stub", stub));
+        }
+        return ((DynamicProxy<?>)Proxy.getInvocationHandler(stub)).release();
+    }
+
+    /**
+     * Stops serving calls of the {@link Callback} passed to the server, later calls of its stub
+     * fail on the server side.
+     *
+     * @param callback callback which has been passed as an argument of the service
+     *                 method.
+     * @return {@code true} in case callback has been exported.
+     */
+    public boolean unexport(@Nonnull Object callback) {
+        return registry.unexport(callback);
+    }
+
     @Override
     public void close() throws IOException {
+        if (listener != null) {
+            listener.close();
+        }
         exchanger.close();
+        registry.close();
         listenerPool.shutdownNow();
     }
 
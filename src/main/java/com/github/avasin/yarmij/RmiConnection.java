@@ -16,32 +16,70 @@
 
 package com.github.avasin.yarmij;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.PushbackInputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.github.avasin.yarmij.messages.AbstractRmiMessage;
+import com.github.avasin.yarmij.messages.RmiHeartbeatMessage;
 import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.serialization.BudgetedDeserializer;
 import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.InboundBudget;
 import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.serialization.SessionScoped;
+import com.github.avasin.yarmij.serialization.StreamingDeserializer;
+import com.github.avasin.yarmij.transport.FrameInputStream;
+import com.github.avasin.yarmij.transport.RegionTransport;
+import com.github.avasin.yarmij.transport.SocketTransport;
+import com.github.avasin.yarmij.transport.StreamingTransport;
+import com.github.avasin.yarmij.transport.Transport;
 
 /**
- * {@link RmiConnection} used to convert messages into bytes and send them over the network.
- * Connection relies on {@link Socket} implementation.
+ * {@link RmiConnection} used to convert messages into frames of bytes and send them over the
+ * network. Connection relies on {@link Transport} implementation to deliver frames. Serializers
+ * and deserializers implementing {@link SessionScoped} get a separate session for each
+ * connection, such connection sends messages in the order they have been serialized. In case both
+ * transport and deserializer support streaming, received message is deserialized while it is read
+ * from the transport, so it is never kept in memory as a whole. Limits of the
+ * {@link BudgetedDeserializer} are passed to the transport, so frames exceeding them are rejected
+ * before they are allocated. Messages of the traced invocations
+ * are stamped with time spent to serialize, send and deserialize them. Sent and received frames
+ * are reported to the {@link RmiEvents}, received frames could be recorded by {@link WireCapture}.
+ * Heartbeats are answered by the connection itself, connection watched according to the
+ * {@link HeartbeatPolicy} is closed once the other side stops answering. Results carrying
+ * {@link RemoteFileRegion} are followed by bytes of the region sent directly from the file, which
+ * are read from the connection by the thread consuming received region.
  */
-public class RmiConnection extends AbstractSocketAware<Socket> {
+public class RmiConnection extends AbstractSocketAware<Transport> {
     private static final String FAILURE_MESSAGE_FORMAT = "Cannot receive and parse data for '%s'";
+    private static final int REGION_FRAME_LENGTH = 8 << 20;
+    private static final int REGION_BUFFER_SIZE = 64 << 10;
     private final Serializer serializer;
     private final Deserializer deserializer;
-    private final DataOutputStream output;
-    private final DataInputStream input;
-    private final PushbackInputStream checker;
+    private final boolean stateful;
+    private final boolean sessionDeserializer;
+    private final boolean streaming;
+    private final long maxMessageSize;
+    private final Object sendLock = new Object();
     private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean watched = new AtomicBoolean();
+    private volatile long lastReceivedAt = System.nanoTime();
+    private volatile WireCapture capture;
+    private volatile int captureId = WireCapture.NOT_CAPTURED;
+    private volatile RegionBody pendingRegion;
+    private volatile BiConsumer<RmiConnection, RegionBody> regionHandOff;
 
     /**
      * Creates {@link RmiConnection} instance.
@@ -54,77 +92,268 @@ public class RmiConnection extends AbstractSocketAware<Socket> {
      */
     public RmiConnection(@Nonnull Serializer serializer, @Nonnull Deserializer deserializer,
                     @Nonnull Socket socket) throws RmiException {
-        super(socket);
-        this.serializer = serializer;
-        this.deserializer = deserializer;
+        this(serializer, deserializer, createTransport(socket));
+    }
+
+    /**
+     * Creates {@link RmiConnection} instance.
+     *
+     * @param serializer will be used to convert messages into bytes.
+     * @param deserializer will be used to convert bytes into messages.
+     * @param transport established transport to send/receive frames
+     */
+    public RmiConnection(@Nonnull Serializer serializer, @Nonnull Deserializer deserializer,
+                    @Nonnull Transport transport) {
+        super(transport);
+        this.serializer = openSession(serializer);
+        this.deserializer = openSession(deserializer);
+        this.stateful = this.serializer != serializer;
+        this.sessionDeserializer = this.deserializer != deserializer;
+        this.streaming = transport instanceof StreamingTransport
+                        && this.deserializer instanceof StreamingDeserializer;
+        if (this.deserializer instanceof BudgetedDeserializer) {
+            final InboundBudget budget = ((BudgetedDeserializer)this.deserializer).getBudget();
+            this.maxMessageSize = budget.getMaxDecompressedSize();
+            if (transport instanceof StreamingTransport) {
+                ((StreamingTransport)transport).setFrameLimit(budget);
+            }
+        } else {
+            this.maxMessageSize = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Creates {@link RmiConnection} instance which does not convert messages into bytes, so
+     * subclass is responsible for delivery of messages.
+     *
+     * @param transport transport which reflects state of the connection.
+     */
+    RmiConnection(@Nonnull Transport transport) {
+        this(null, null, transport);
+    }
+
+    /**
+     * Opens separate session of the codec in case it is {@link SessionScoped}.
+     *
+     * @param codec serializer or deserializer which could be shared by connections.
+     * @param <T> type of the codec.
+     * @return codec serving single connection.
+     */
+    static <T> T openSession(T codec) {
+        if (codec instanceof SessionScoped) {
+            @SuppressWarnings("unchecked")
+            final SessionScoped<T> scoped = (SessionScoped<T>)codec;
+            return scoped.openSession();
+        }
+        return codec;
+    }
+
+    private static Transport createTransport(Socket socket) throws RmiException {
         try {
-            this.output = new DataOutputStream(socket.getOutputStream());
-            this.checker = new PushbackInputStream(socket.getInputStream());
-            this.input = new DataInputStream(checker);
-            socket.setKeepAlive(true);
+            return new SocketTransport(socket);
         } catch (IOException ex) {
-            throw new RmiException(
-                            String.format("Cannot get output and input streams for socket to '%s:%s'",
-                                            socket.getInetAddress(), socket.getPort()), ex);
+            throw new RmiException(String.format("Cannot configure socket to '%s:%s'",
+                            socket.getInetAddress(), socket.getPort()), ex);
         }
-
     }
 
     /**
-     * Checks whether underlying socket connection still opened and well configured.
+     * Checks whether underlying transport still opened and well configured.
      *
-     * @return {@code true} in case underlying socket still opened and configured.
+     * @return {@code true} in case underlying transport still opened and configured.
      */
     public boolean isOpen() {
-        return !socket.isClosed();
+        return socket.isOpen();
     }
 
     /**
-     * Sends message over the socket.
+     * Sends message over the transport. Could be called concurrently, every message is written
+     * as a whole.
      *
      * @param message that is going to be serialized and transferred to connected
-     *                 endpoint over the network.
-     * @throws RmiException in case error during serialization/byte transferring
-     *                 process.
+     *                 endpoint.
+     * @throws RmiException in case error during serialization process.
+     * @throws RmiConnectionException in case bytes cannot be transferred.
      */
     public void sendMessage(@Nonnull RmiMessage<?> message) throws RmiException {
+        final boolean traced = isTraced(message);
+        final Object event = RmiEvents.get().sendStarted();
+        final long startedAt = traced || event != null ? System.nanoTime() : 0L;
+        if (stateful) {
+            synchronized (sendLock) {
+                send(message, traced, event, startedAt);
+            }
+            return;
+        }
+        send(message, traced, event, startedAt);
+    }
+
+    private static boolean isTraced(RmiMessage<?> message) {
+        return message.getMessageId().getTraceId() != null
+                        && message instanceof AbstractRmiMessage;
+    }
+
+    /**
+     * Sends frame serialized in advance over the transport, frame is not copied and should not be
+     * changed afterwards. Should be used only in case {@link #canSendFrames()}.
+     *
+     * @param frame serialized message.
+     * @param message message which has been serialized, used for diagnostics.
+     * @throws RmiConnectionException in case bytes cannot be transferred.
+     */
+    void sendFrame(@Nonnull byte[] frame, @Nonnull RmiMessage<?> message) throws RmiException {
+        try {
+            socket.send(frame);
+        } catch (IOException ex) {
+            throw new RmiConnectionException(String.format("Cannot send '%s' message to '%s'",
+                            message, socket), ex);
+        }
+    }
+
+    /**
+     * Checks whether frames serialized in advance could be sent through the connection, which is
+     * not the case when its serializer keeps state between messages.
+     *
+     * @return {@code true} in case {@link #sendFrame(byte[], RmiMessage)} could be used.
+     */
+    boolean canSendFrames() {
+        return !stateful;
+    }
+
+    /**
+     * Checks whether results carrying {@link RemoteFileRegion} could be sent through the
+     * connection.
+     *
+     * @return {@code true} in case transport of the connection could send file regions.
+     */
+    public boolean canSendRegions() {
+        return socket instanceof RegionTransport;
+    }
+
+    private void send(RmiMessage<?> message, boolean traced, Object event, long startedAt)
+                    throws RmiException {
+        final boolean timed = traced || event != null;
+        final long serializingAt = timed ? System.nanoTime() : 0L;
+        final byte[] serialized = serializer.serialize(message);
+        if (serialized == null || serialized.length == 0) {
+            return;
+        }
+        final long serializedAt = timed ? System.nanoTime() : 0L;
+        final RemoteFileRegion region = getRegion(message);
         try {
-            final byte[] serialized = serializer.serialize(message);
-            if (serialized != null && serialized.length > 0) {
-                output.writeInt(serialized.length);
-                output.write(serialized);
+            if (region == null) {
+                socket.send(serialized);
+            } else {
+                sendRegion(serialized, region);
             }
-            output.flush();
         } catch (IOException ex) {
-            throw new RmiException(String.format("Cannot send '%s' message to '%s:%s'", message,
-                            socket.getInetAddress(), socket.getPort()), ex);
+            throw new RmiConnectionException(String.format("Cannot send '%s' message to '%s'",
+                            message, socket), ex);
+        }
+        final long serializationNanos = serializedAt - serializingAt;
+        if (traced) {
+            final long sentAt = System.nanoTime();
+            ((AbstractRmiMessage<?>)message).sent(serializationNanos,
+                            sentAt - startedAt - serializationNanos, sentAt);
+        }
+        RmiEvents.get().frameSent(event, message, serialized.length, serializationNanos);
+    }
+
+    @Nullable
+    private static RemoteFileRegion getRegion(RmiMessage<?> message) {
+        if (!(message instanceof RmiMethodResultMessage)) {
+            return null;
+        }
+        final Object result = ((RmiMethodResultMessage<?>)message).getResult();
+        return result instanceof RemoteFileRegion ? (RemoteFileRegion)result : null;
+    }
+
+    private void sendRegion(byte[] serialized, RemoteFileRegion region) throws IOException {
+        if (!canSendRegions()) {
+            throw new IOException(String.format("'%s' cannot send file regions", socket));
+        }
+        try (FileChannel file = FileChannel.open(Paths.get(region.getPath()),
+                        StandardOpenOption.READ)) {
+            ((RegionTransport)socket).send(serialized, file, region.getOffset(),
+                            region.getLength(), REGION_FRAME_LENGTH);
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Makes connection record every received frame, in case capture decides so. Received frames
+     * are not deserialized while they are read from now on, because capture needs them as a
+     * whole. Should be called before the first message is received.
+     *
+     * @param wireCapture capture which should receive frames.
+     */
+    void capture(@Nonnull WireCapture wireCapture) {
+        final int id = wireCapture.connected();
+        if (id != WireCapture.NOT_CAPTURED) {
+            captureId = id;
+            capture = wireCapture;
+        }
+    }
+
+    /**
+     * Starts sending pings through the idle connection and closes it once they stay unanswered.
+     * Does nothing in case connection is already watched.
+     *
+     * @param policy describes when pings are sent and connection is considered dead.
+     */
+    void heartbeat(@Nonnull HeartbeatPolicy policy) {
+        if (watched.compareAndSet(false, true)) {
+            Heartbeat.start(this, policy);
         }
     }
 
     /**
-     * Receives message from opened socket channel.
+     * Provides time when the last frame has been received.
+     *
+     * @return value of {@link System#nanoTime()} or time of creation of the connection
+     *                 in case nothing has been received yet.
+     */
+    long getLastReceivedAt() {
+        return lastReceivedAt;
+    }
+
+    /**
+     * Receives message from opened transport.
      *
      * @return instance of {@link RmiMessage} in from recently received bytes or {@code
-     *                 null} in case channel has been closed and there is no latest message.
+     *                 null} in case channel has been closed and there is no latest message or
+     *                 in case heartbeat has been received.
      * @throws RmiException in case of error while receiving bytes or in case of
      *                 error during deserialization of received bytes.
      */
     @Nullable
     public RmiMessage<?> receive() throws RmiException {
         try {
-            // TODO Change to byte buffer
-            final int firstByte = checker.read();
-            if (firstByte < 0) {
+            final RegionBody region = pendingRegion;
+            if (region != null) {
+                pendingRegion = null;
+                region.discard();
+            }
+            final WireCapture currentCapture = capture;
+            if (streaming && currentCapture == null) {
+                return receiveStream();
+            }
+            final byte[] data = socket.receive();
+            if (data == null) {
                 close();
                 logger.debug("Other side closed '{}'.", this);
                 return null;
             }
-            checker.unread(firstByte);
-            final int length = input.readInt();
-            final byte[] data = new byte[length];
-            input.readFully(data);
-            final RmiMessage<?> result = deserializer.deserialize(data, RmiMessage.class);
-            return result;
+            final long receivedAt = System.nanoTime();
+            lastReceivedAt = receivedAt;
+            if (currentCapture != null) {
+                currentCapture.record(captureId, data);
+            }
+            final Object event = RmiEvents.get().receiveStarted();
+            return attach(answer(stamp(deserializer.deserialize(data, RmiMessage.class),
+                            receivedAt, event, data.length)));
         } catch (IOException ex) {
             if (handleIoException(ex)) {
                 return null;
@@ -133,22 +362,198 @@ public class RmiConnection extends AbstractSocketAware<Socket> {
         }
     }
 
+    private RmiMessage<?> receiveStream() throws IOException {
+        try (FrameInputStream data = ((StreamingTransport)socket).receiveStream()) {
+            if (data == null) {
+                close();
+                logger.debug("Other side closed '{}'.", this);
+                return null;
+            }
+            final long receivedAt = System.nanoTime();
+            lastReceivedAt = receivedAt;
+            final Object event = RmiEvents.get().receiveStarted();
+            try {
+                return attach(answer(stamp(((StreamingDeserializer)deserializer).deserialize(
+                                data, RmiMessage.class, maxMessageSize), receivedAt, event,
+                                data.getLength())));
+            } catch (IOException ex) {
+                // rest of the rejected frame is not skipped, it might never arrive
+                close();
+                throw ex;
+            }
+        }
+    }
+
+    private RmiMessage<?> attach(RmiMessage<?> message) {
+        final RemoteFileRegion region = message == null ? null : getRegion(message);
+        if (region != null && region.getLength() > 0L) {
+            final RegionBody body = new RegionBody(this, region.getLength());
+            region.attach(body);
+            pendingRegion = body;
+        }
+        return message;
+    }
+
+    /**
+     * Makes listening thread hand reading of the connection over to the consumer of every received
+     * {@link RemoteFileRegion}, rather than discard region which is not consumed before the next
+     * message is received.
+     *
+     * @param handOff handler which takes region received through the connection and
+     *                 resumes listening once it is consumed or {@code null} in case region
+     *                 should be discarded.
+     */
+    void setRegionHandOff(@Nullable BiConsumer<RmiConnection, RegionBody> handOff) {
+        this.regionHandOff = handOff;
+    }
+
+    /**
+     * Hands bytes of the region carried by the last received message over to its consumer, in
+     * case connection has been configured to do so. Listening thread should not receive anything
+     * else afterwards, listening is resumed by the hand off handler.
+     *
+     * @return {@code true} in case listening thread should stop.
+     */
+    boolean handOffRegion() {
+        final BiConsumer<RmiConnection, RegionBody> handOff = regionHandOff;
+        final RegionBody region = pendingRegion;
+        if (handOff == null || region == null) {
+            return false;
+        }
+        handOff.accept(this, region);
+        return true;
+    }
+
+    /**
+     * Receives bytes of the {@link RemoteFileRegion} which follow the result carrying it. Should be
+     * called by the thread consuming the region while nobody else listens the connection. Bytes are
+     * received completely even if target fails to write them, so the next message could be
+     * received afterwards.
+     *
+     * @param target channel which should receive bytes of the region or {@code null} in
+     *                 case they should be skipped.
+     * @param length number of bytes in the region.
+     * @throws IOException in case bytes cannot be received or written into the target.
+     */
+    void receiveRegion(@Nullable WritableByteChannel target, long length) throws IOException {
+        final byte[] buffer = new byte[REGION_BUFFER_SIZE];
+        IOException failure = null;
+        long remaining = length;
+        try {
+            while (remaining > 0L) {
+                if (socket instanceof StreamingTransport) {
+                    try (FrameInputStream frame = ((StreamingTransport)socket).receiveStream()) {
+                        remaining -= checkRegionFrame(frame == null ? -1 : frame.getLength(),
+                                        remaining);
+                        int read;
+                        while ((read = frame.read(buffer)) > 0) {
+                            failure = write(target, failure, ByteBuffer.wrap(buffer, 0, read));
+                        }
+                    }
+                } else {
+                    final byte[] frame = socket.receive();
+                    remaining -= checkRegionFrame(frame == null ? -1 : frame.length, remaining);
+                    failure = write(target, failure, ByteBuffer.wrap(frame));
+                }
+                lastReceivedAt = System.nanoTime();
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int checkRegionFrame(int frameLength, long remaining) throws IOException {
+        if (frameLength < 0) {
+            throw new EOFException(String.format("'%s' closed '%s' bytes before region end",
+                            this, remaining));
+        }
+        if (frameLength > remaining) {
+            throw new IOException(String.format("Frame of '%s' bytes exceeds '%s' bytes left in"
+                            + " region received through '%s'", frameLength, remaining, this));
+        }
+        return frameLength;
+    }
+
+    @Nullable
+    private static IOException write(@Nullable WritableByteChannel target,
+                    @Nullable IOException failure, ByteBuffer bytes) {
+        if (target == null || failure != null) {
+            return failure;
+        }
+        try {
+            while (bytes.hasRemaining()) {
+                target.write(bytes);
+            }
+            return null;
+        } catch (IOException ex) {
+            return ex;
+        }
+    }
+
+    private RmiMessage<?> answer(RmiMessage<?> message) {
+        if (!(message instanceof RmiHeartbeatMessage)) {
+            return message;
+        }
+        final RmiHeartbeatMessage heartbeat = (RmiHeartbeatMessage)message;
+        if (!heartbeat.isPong()) {
+            try {
+                sendMessage(heartbeat.reply());
+            } catch (RmiException ex) {
+                logger.debug("Cannot answer '{}' from '{}'", heartbeat, this, ex);
+            }
+        }
+        return null;
+    }
+
+    private static RmiMessage<?> stamp(RmiMessage<?> message, long receivedAt, Object event,
+                    int size) {
+        if (message == null) {
+            return null;
+        }
+        if (isTraced(message)) {
+            ((AbstractRmiMessage<?>)message).received(receivedAt, System.nanoTime() - receivedAt);
+        }
+        RmiEvents.get().frameReceived(event, message, size);
+        return message;
+    }
+
     @Override
     public String toString() {
-        return String.format("%s [address=%s, port=%s, closed=%s]", getClass().getSimpleName(),
-                        socket.getInetAddress(), socket.getPort(), socket.isClosed());
+        return String.format("%s [transport=%s, closed=%s]", getClass().getSimpleName(), socket,
+                        !socket.isOpen());
     }
 
     @Override
     public void close() throws IOException {
-        if (closed.get()) {
+        if (closed.getAndSet(true)) {
             return;
         }
-        logger.trace("Closing connection to '{}:{}'", socket.getInetAddress(), socket.getPort());
-        closed.set(true);
-        checker.close();
-        input.close();
-        output.close();
-        socket.close();
+        logger.trace("Closing connection to '{}'", socket);
+        try {
+            socket.close();
+        } finally {
+            if (stateful) {
+                closeSession(serializer);
+            }
+            if (sessionDeserializer) {
+                closeSession(deserializer);
+            }
+        }
+    }
+
+    /**
+     * Closes session of the codec opened by {@link #openSession(Object)}.
+     *
+     * @param codec codec serving single connection.
+     * @throws IOException in case resources of the codec cannot be released.
+     */
+    static void closeSession(Object codec) throws IOException {
+        if (codec instanceof Closeable) {
+            ((Closeable)codec).close();
+        }
     }
 }
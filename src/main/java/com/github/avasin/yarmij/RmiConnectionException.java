@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+/**
+ * {@link RmiConnectionException} is thrown in case call failed because connection to the server is
+ * not available, so it is unknown whether the server processed the call or not.
+ */
+public class RmiConnectionException extends RmiException {
+    private static final long serialVersionUID = -2807424137296497131L;
+
+    /**
+     * Creates {@link RmiConnectionException} instance.
+     *
+     * @param message that describes failure reason.
+     */
+    public RmiConnectionException(String message) {
+        super(message);
+    }
+
+    /**
+     * Creates {@link RmiConnectionException} instance.
+     *
+     * @param message that describes failure reason.
+     * @param cause cause that has been wrapped with {@link RmiConnectionException} instance.
+     */
+    public RmiConnectionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RmiEvents} reports activity of the library to JDK Flight Recorder: remote calls, calls
+ * which exceeded timeout, sent and received frames, serialization and deserialization of the
+ * messages. Events are emitted only on Java 11 or later, where implementation compiled
+ * separately from the rest of the library is available, on older runtimes and Android all
+ * methods do nothing.
+ * <p>
+ * Methods which start duration events return {@code null} unless corresponding event is
+ * enabled in the running recording, so overhead is a single check when recording is off. Calls
+ * are recorded without stack traces, calls which take longer than threshold of the
+ * {@code yarmij.SlowCall} event, 100 milliseconds by default, are recorded once more together
+ * with stack trace. Threshold is changed through settings of the recording.
+ */
+public abstract class RmiEvents {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RmiEvents.class);
+    private static final String EVENT_CLASS = "jdk.jfr.Event";
+    private static final String IMPLEMENTATION_CLASS =
+                    "com.github.avasin.yarmij.FlightRecorderEvents";
+    private static final RmiEvents INSTANCE = load();
+
+    private static RmiEvents load() {
+        try {
+            Class.forName(EVENT_CLASS);
+            return (RmiEvents)Class.forName(IMPLEMENTATION_CLASS).getDeclaredConstructor()
+                            .newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            LOGGER.debug("Flight Recorder events are not available", ex);
+            return new RmiEvents() {
+            };
+        }
+    }
+
+    /**
+     * Provides events reporter suitable for the current runtime.
+     *
+     * @return events reporter, which does nothing in case Flight Recorder is not available.
+     */
+    @Nonnull
+    public static RmiEvents get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts recording of the remote call.
+     *
+     * @return started event or {@code null} in case calls are not recorded.
+     */
+    @Nullable
+    public Object callStarted() {
+        return null;
+    }
+
+    /**
+     * Completes recording of the remote call.
+     *
+     * @param event event returned by {@link #callStarted()}.
+     * @param signature signature of the called method.
+     * @param traceId trace identifier of the call or {@code null} in case call is not
+     *                 traced.
+     * @param failed whether call failed.
+     */
+    public void callFinished(@Nullable Object event, @Nonnull RmiSignature<?> signature,
+                    @Nullable Long traceId, boolean failed) {
+    }
+
+    /**
+     * Records call which result has not been received in time.
+     *
+     * @param signature signature of the called method.
+     * @param traceId trace identifier of the call or {@code null} in case call is not
+     *                 traced.
+     * @param timeoutMs timeout which has been exceeded in milliseconds.
+     */
+    public void callTimedOut(@Nonnull RmiSignature<?> signature, @Nullable Long traceId,
+                    long timeoutMs) {
+    }
+
+    /**
+     * Starts recording of the frame sending, including serialization of the message.
+     *
+     * @return started event or {@code null} in case sent frames are not recorded.
+     */
+    @Nullable
+    public Object sendStarted() {
+        return null;
+    }
+
+    /**
+     * Completes recording of the frame sending.
+     *
+     * @param event event returned by {@link #sendStarted()}.
+     * @param message message which has been sent.
+     * @param size size of the frame in bytes.
+     * @param serializationNanos time spent to convert message into frame.
+     */
+    public void frameSent(@Nullable Object event, @Nonnull RmiMessage<?> message, int size,
+                    long serializationNanos) {
+    }
+
+    /**
+     * Starts recording of the received frame processing, which begins as soon as frame is
+     * available.
+     *
+     * @return started event or {@code null} in case received frames are not recorded.
+     */
+    @Nullable
+    public Object receiveStarted() {
+        return null;
+    }
+
+    /**
+     * Completes recording of the received frame processing.
+     *
+     * @param event event returned by {@link #receiveStarted()}.
+     * @param message message deserialized from the frame.
+     * @param size size of the frame in bytes, which is known from the frame header even in
+     *                 case message has been deserialized while frame has been read.
+     */
+    public void frameReceived(@Nullable Object event, @Nonnull RmiMessage<?> message, int size) {
+    }
+
+    /**
+     * Starts recording of the object serialization.
+     *
+     * @return started event or {@code null} in case serialization is not recorded.
+     */
+    @Nullable
+    public Object serializationStarted() {
+        return null;
+    }
+
+    /**
+     * Completes recording of the object serialization.
+     *
+     * @param event event returned by {@link #serializationStarted()}.
+     * @param type type of the serialized object.
+     * @param rawSize size of the serialized object before compression in bytes.
+     * @param size size of the serialized object after compression in bytes.
+     */
+    public void serialized(@Nullable Object event, @Nonnull Class<?> type, int rawSize,
+                    int size) {
+    }
+
+    /**
+     * Starts recording of the object deserialization.
+     *
+     * @return started event or {@code null} in case deserialization is not recorded.
+     */
+    @Nullable
+    public Object deserializationStarted() {
+        return null;
+    }
+
+    /**
+     * Completes recording of the object deserialization.
+     *
+     * @param event event returned by {@link #deserializationStarted()}.
+     * @param type type of the deserialized object.
+     * @param rawSize size of the decompressed data in bytes or {@code -1} in case data
+     *                 has been decompressed while it has been read.
+     * @param size size of the received data in bytes or {@code -1} in case it has been
+     *                 read while it has been deserialized.
+     */
+    public void deserialized(@Nullable Object event, @Nonnull Class<?> type, int rawSize,
+                    int size) {
+    }
+}
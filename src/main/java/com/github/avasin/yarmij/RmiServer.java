@@ -18,7 +18,6 @@ package com.github.avasin.yarmij;
 
 import java.io.IOException;
 import java.net.ServerSocket;
-import java.net.Socket;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -28,30 +27,46 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.github.avasin.yarmij.messages.RmiMessage;
 import com.github.avasin.yarmij.messages.handlers.RmiInvokeMethodMessageHandler;
 import com.github.avasin.yarmij.messages.handlers.RmiServerMessageHandler;
+import com.github.avasin.yarmij.serialization.Copier;
 import com.github.avasin.yarmij.serialization.Deserializer;
 import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.SocketTransportServer;
+import com.github.avasin.yarmij.transport.Transport;
+import com.github.avasin.yarmij.transport.TransportServer;
 
 /**
  * {@link RmiServer} used to register service implementations on the server side and hide client
  * requests to execute particular method of desired service implementation. Creates a thread for
- * every client connection.
+ * every client connection, which also sets the connection up, so accepting thread only accepts
+ * clients. Method invocations are executed by the same thread pool, number of invocations
+ * processed at the same time for one connection is limited. Invocations
+ * which are still in progress when their connection is lost are cancelled. Implementations could
+ * invoke {@link Callback}s passed by the clients back through the same connection and broadcast
+ * the same message to many clients, serializing it only once. Received frames could be captured
+ * to replay them later by {@link WireReplay}.
  */
 @ThreadSafe
-public class RmiServer extends AbstractSocketAware<ServerSocket> implements Runnable {
+public class RmiServer extends AbstractSocketAware<TransportServer> implements Runnable {
     private final Deserializer deserializer;
     private final Serializer serializer;
     private final ExecutorService threadPool;
+    private final long callbackTimeoutMs;
+    private final Broadcaster broadcasts;
     private final Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers =
                     new ConcurrentHashMap<>();
     private final Collection<RmiConnection> connections =
                     Collections.newSetFromMap(new ConcurrentHashMap<RmiConnection, Boolean>());
-    private final BiConsumer<RmiConnection, RmiMessage<?>> messageHandler;
     private final CountDownLatch isStarted = new CountDownLatch(1);
+    private volatile WireCapture capture;
+    private volatile HeartbeatPolicy heartbeatPolicy;
+    private volatile int maxCallsInFlight = RmiServerMessageHandler.DEFAULT_MAX_CALLS_IN_FLIGHT;
+    private volatile long leaseMs = RemoteReferences.DEFAULT_LEASE_MS;
 
     /**
      * Creates {@link RmiServer} instance.
@@ -64,11 +79,64 @@ public class RmiServer extends AbstractSocketAware<ServerSocket> implements Runn
      */
     public RmiServer(@Nonnull ServerSocket socket, @Nonnull Deserializer deserializer,
                     @Nonnull Serializer serializer) {
-        super(socket);
+        this(new SocketTransportServer(socket), deserializer, serializer);
+    }
+
+    /**
+     * Creates {@link RmiServer} instance.
+     *
+     * @param server underlying transport server that will be used to accept client
+     *                 connections.
+     * @param deserializer that will be used to convert received bytes into
+     *                 messages.
+     * @param serializer that will be used to convert messages into bytes.
+     */
+    public RmiServer(@Nonnull TransportServer server, @Nonnull Deserializer deserializer,
+                    @Nonnull Serializer serializer) {
+        this(server, deserializer, serializer,
+                        RmiServerMessageHandler.DEFAULT_CALLBACK_TIMEOUT_MS);
+    }
+
+    /**
+     * Creates {@link RmiServer} instance.
+     *
+     * @param server underlying transport server that will be used to accept client
+     *                 connections.
+     * @param deserializer that will be used to convert received bytes into
+     *                 messages.
+     * @param serializer that will be used to convert messages into bytes.
+     * @param callbackTimeoutMs timeout in milliseconds after which invocation of the
+     *                 {@link Callback} passed by the client without a response will be treated
+     *                 as failed.
+     */
+    public RmiServer(@Nonnull TransportServer server, @Nonnull Deserializer deserializer,
+                    @Nonnull Serializer serializer, long callbackTimeoutMs) {
+        this(server, deserializer, serializer, callbackTimeoutMs, new BroadcastPolicy());
+    }
+
+    /**
+     * Creates {@link RmiServer} instance.
+     *
+     * @param server underlying transport server that will be used to accept client
+     *                 connections.
+     * @param deserializer that will be used to convert received bytes into
+     *                 messages.
+     * @param serializer that will be used to convert messages into bytes.
+     * @param callbackTimeoutMs timeout in milliseconds after which invocation of the
+     *                 {@link Callback} passed by the client without a response will be treated
+     *                 as failed.
+     * @param broadcastPolicy limits of the broadcast messages queued for every
+     *                 connection.
+     */
+    public RmiServer(@Nonnull TransportServer server, @Nonnull Deserializer deserializer,
+                    @Nonnull Serializer serializer, long callbackTimeoutMs,
+                    @Nonnull BroadcastPolicy broadcastPolicy) {
+        super(server);
         this.deserializer = deserializer;
         this.serializer = serializer;
-        this.messageHandler = new RmiServerMessageHandler(handlers);
+        this.callbackTimeoutMs = callbackTimeoutMs;
         this.threadPool = Executors.newCachedThreadPool();
+        this.broadcasts = new Broadcaster(serializer, connections, threadPool, broadcastPolicy);
     }
 
     /**
@@ -82,11 +150,166 @@ public class RmiServer extends AbstractSocketAware<ServerSocket> implements Runn
         handlers.put(type, new RmiInvokeMethodMessageHandler<>(type, implementation));
     }
 
+    /**
+     * Connects client running in the same JVM directly to the registered implementations. Messages
+     * are handed over without serialization and network transfer, while invocations are processed
+     * by the same thread pool and follow the same cancellation rules as remote ones.
+     *
+     * @param copier copier of the transferred messages or {@code null} in case messages
+     *                 should be passed by reference.
+     * @return client end of the connection.
+     */
+    @Nonnull
+    RmiConnection connectInProcess(@Nullable Copier copier) {
+        return InProcessConnection.connect(createHandler(), connections, copier);
+    }
+
+    /**
+     * Creates stub which sends every call of its methods to all connected clients. Message is
+     * serialized once for all clients, clients receive it only in case they subscribed listener
+     * of the same interface by {@link RmiClient#subscribe(Class, Object)}.
+     *
+     * @param type listener interface, all its methods should return nothing.
+     * @param <I> type of the listener interface.
+     * @return stub of the listener, calls of its methods return as soon as message is queued
+     *                 for every client.
+     * @throws IllegalArgumentException in case some methods of the interface return
+     *                 result.
+     */
+    @Nonnull
+    public <I> I broadcaster(@Nonnull Class<I> type) {
+        return broadcasts.createStub(type, null);
+    }
+
+    /**
+     * Creates stub which sends every call of its methods to the clients which joined the group.
+     *
+     * @param type listener interface, all its methods should return nothing.
+     * @param group name of the group.
+     * @param <I> type of the listener interface.
+     * @return stub of the listener, calls of its methods return as soon as message is queued
+     *                 for every member of the group.
+     * @throws IllegalArgumentException in case some methods of the interface return
+     *                 result.
+     * @see #join(String)
+     */
+    @Nonnull
+    public <I> I broadcaster(@Nonnull Class<I> type, @Nonnull String group) {
+        return broadcasts.createStub(type, group);
+    }
+
+    /**
+     * Adds client which invocation is processed by the current thread to the group, client stays
+     * in the group until it leaves it or disconnects.
+     *
+     * @param group name of the group.
+     * @return {@code true} in case client has not been member of the group yet.
+     * @throws IllegalStateException in case current thread does not process remote
+     *                 invocation.
+     */
+    public boolean join(@Nonnull String group) {
+        return broadcasts.join(group, getCurrentConnection());
+    }
+
+    /**
+     * Removes client which invocation is processed by the current thread from the group.
+     *
+     * @param group name of the group.
+     * @return {@code true} in case client has been member of the group.
+     * @throws IllegalStateException in case current thread does not process remote
+     *                 invocation.
+     */
+    public boolean leave(@Nonnull String group) {
+        return broadcasts.leave(group, getCurrentConnection());
+    }
+
+    private static RmiConnection getCurrentConnection() {
+        final RmiCallContext context = RmiCallContext.current();
+        final RmiConnection connection = context == null ? null : context.getConnection();
+        if (connection == null) {
+            throw new IllegalStateException("Current thread does not process remote invocation");
+        }
+        return connection;
+    }
+
+    /**
+     * Starts recording frames received through connections accepted from now on, so they could
+     * be replayed later against another server. Recording of the already captured connections
+     * stops when capture is closed.
+     *
+     * @param wireCapture capture which should receive frames or {@code null} in case new
+     *                 connections should not be captured.
+     */
+    public void capture(@Nullable WireCapture wireCapture) {
+        this.capture = wireCapture;
+    }
+
+    /**
+     * Makes connections accepted from now on send heartbeats, so client which disappeared without
+     * closing the connection is noticed and resources held for it are released.
+     *
+     * @param policy describes when pings are sent and connection is considered dead or
+     *                 {@code null} in case new connections should not send heartbeats.
+     */
+    public void setHeartbeatPolicy(@Nullable HeartbeatPolicy policy) {
+        this.heartbeatPolicy = policy;
+    }
+
+    /**
+     * Limits number of invocations processed at the same time for every connection accepted from
+     * now on, further invocations received through the connection are queued until earlier ones
+     * complete. By default up to 16 invocations are processed for every connection.
+     *
+     * @param limit maximum number of invocations processed at the same time.
+     */
+    public void setMaxCallsInFlight(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException(String.format(
+                            "Limit of the calls in flight should be positive, but was '%s'",
+                            limit));
+        }
+        this.maxCallsInFlight = limit;
+    }
+
+    /**
+     * Specifies lease of the objects returned {@link ByReference} through connections accepted
+     * from now on. Object which has not been called during the lease is forgotten, even though
+     * client still holds its stub, because stubs do not renew leases while idle. By default
+     * objects are kept for 5 minutes after the last call.
+     *
+     * @param leaseMs period in milliseconds after which object which has not been called is
+     *                 forgotten.
+     */
+    public void setLeaseMs(long leaseMs) {
+        if (leaseMs <= 0) {
+            throw new IllegalArgumentException(String.format(
+                            "Lease of the exported objects should be positive, but was '%s'",
+                            leaseMs));
+        }
+        this.leaseMs = leaseMs;
+    }
+
+    private RmiServerMessageHandler createHandler() {
+        return new RmiServerMessageHandler(handlers, threadPool, callbackTimeoutMs,
+                        maxCallsInFlight, leaseMs);
+    }
+
+    /**
+     * Provides statistics of the broadcast messages.
+     *
+     * @return snapshot of the statistics.
+     */
+    @Nonnull
+    public BroadcastStats getBroadcastStats() {
+        return broadcasts.getStats();
+    }
+
     /**
      * Waits for the server to be started and ready to accept connections and returns listening
      * port.
      *
-     * @return port number that listening by the server.
+     * @return port number that listening by the server or {@code -1} in case underlying
+     *                 transport does not rely on ports.
      * @throws InterruptedException in case awaiting of server starting has been
      *                 interrupted.
      */
@@ -105,29 +328,67 @@ public class RmiServer extends AbstractSocketAware<ServerSocket> implements Runn
 
     @Override
     public String toString() {
-        return String.format("%s [address=%s, port=%s, closed=%s]", getClass().getSimpleName(),
-                        socket.getInetAddress(), socket.getLocalPort(), socket.isClosed());
+        return String.format("%s [address=%s, closed=%s]", getClass().getSimpleName(), socket,
+                        !socket.isOpen());
     }
 
     @Override
     public void run() {
         isStarted.countDown();
-        while (!socket.isClosed()) {
+        while (socket.isOpen()) {
             try {
-                final Socket clientSocket = socket.accept();
-                logger.trace("Received connection from '{}:{}'", clientSocket.getInetAddress(), clientSocket.getPort());
-                final RmiConnection connection =
-                                new RmiConnection(serializer, deserializer, clientSocket);
-                connections.add(connection);
-                threadPool.submit(new ListeningTask<>(connection, connections, RmiMessage.class,
-                                messageHandler));
+                final Transport transport = socket.accept();
+                logger.trace("Received connection from '{}'", transport);
+                threadPool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(transport);
+                    }
+                });
             } catch (IOException ex) {
                 if (handleIoException(ex)) {
                     return;
                 }
-                logger.error("Cannot accept new connection on '{}'", socket.getLocalPort(), ex);
+                logger.error("Cannot accept new connection on '{}'", socket, ex);
             }
         }
     }
 
+    /**
+     * Sets up connection through the accepted transport and listens it until it is closed. Runs
+     * in the thread pool, so the accepting thread is not delayed by the setup.
+     */
+    private void serve(Transport transport) {
+        final RmiConnection connection = new RmiConnection(serializer, deserializer, transport);
+        final WireCapture currentCapture = capture;
+        if (currentCapture != null) {
+            connection.capture(currentCapture);
+        }
+        connections.add(connection);
+        if (!socket.isOpen()) {
+            connections.remove(connection);
+            closeQuietly(connection);
+            return;
+        }
+        final HeartbeatPolicy policy = heartbeatPolicy;
+        if (policy != null) {
+            connection.heartbeat(policy);
+        }
+        final RmiServerMessageHandler handler = createHandler();
+        try {
+            new ListeningTask<>(connection, connections, RmiMessage.class, handler).run();
+        } finally {
+            handler.disconnected();
+            broadcasts.disconnected(connection);
+        }
+    }
+
+    private void closeQuietly(RmiConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException ex) {
+            logger.debug("Cannot close '{}'", connection, ex);
+        }
+    }
+
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiCallbackMessage;
+import com.github.avasin.yarmij.messages.RmiCallbackReference;
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+/**
+ * {@link ServerCallbacks} provides stubs of the {@link Callback}s exported by the client connected
+ * through one connection. Calls of the stubs are sent back through the same connection, methods
+ * which declare {@link Future} as a return type are not waiting for the result. The same callback
+ * is always represented by the same stub, so it could be used as a key or removed from the
+ * collection of listeners. As soon as connection is lost stubs fail with
+ * {@link RmiConnectionException}.
+ */
+@ThreadSafe
+public class ServerCallbacks {
+    private static final String CALLBACK = "callback-";
+    private final long timeoutMs;
+    private final ConcurrentMap<Long, Object> stubs = new ConcurrentHashMap<>();
+    private final AtomicLong callNumber = new AtomicLong();
+    @GuardedBy("this")
+    private MessageExchanger exchanger;
+    @GuardedBy("this")
+    private RmiConnection connection;
+
+    /**
+     * Creates {@link ServerCallbacks} instance.
+     *
+     * @param timeoutMs timeout in milliseconds after which callback invocation
+     *                 without a response will be treated as failed.
+     */
+    public ServerCallbacks(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Replaces references to the callbacks among received arguments with their stubs.
+     *
+     * @param connection connection through which arguments have been received.
+     * @param args arguments of the method invocation.
+     * @return the same arguments in case there are no references among them, otherwise copy
+     *                 of the arguments with references replaced.
+     */
+    @Nullable
+    public Object[] resolve(@Nonnull RmiConnection connection, @Nullable Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] result = args;
+        for (int i = 0; i < args.length; i++) {
+            if (!(args[i] instanceof RmiCallbackReference)) {
+                continue;
+            }
+            if (result == args) {
+                result = args.clone();
+            }
+            result[i] = getStub(connection, (RmiCallbackReference)args[i]);
+        }
+        return result;
+    }
+
+    private Object getStub(RmiConnection connection, RmiCallbackReference reference) {
+        final Long id = reference.getCallbackId();
+        final Object existing = stubs.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        final Class<?> type = reference.getType();
+        final Object created = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                        new Stub(getExchanger(connection), reference));
+        final Object previous = stubs.putIfAbsent(id, created);
+        return previous == null ? created : previous;
+    }
+
+    private synchronized MessageExchanger getExchanger(RmiConnection connection) {
+        if (exchanger == null) {
+            this.exchanger = new MessageExchanger(connection, timeoutMs);
+            this.connection = connection;
+        }
+        return exchanger;
+    }
+
+    /**
+     * Completes invocation of the callback with the result received from the client.
+     *
+     * @param connection connection through which result has been received.
+     * @param result result of the callback invocation.
+     */
+    public void accept(@Nonnull RmiConnection connection,
+                    @Nonnull RmiMethodResultMessage<?> result) {
+        final MessageExchanger current;
+        synchronized (this) {
+            current = exchanger;
+        }
+        if (current != null) {
+            current.accept(connection, result);
+        }
+    }
+
+    /**
+     * Fails pending invocations of the callbacks, because connection has been lost. Later calls
+     * of the stubs fail immediately.
+     */
+    public void disconnected() {
+        final MessageExchanger current;
+        final RmiConnection lost;
+        synchronized (this) {
+            current = exchanger;
+            lost = connection;
+        }
+        if (current != null) {
+            current.disconnected(lost);
+        }
+    }
+
+    /**
+     * {@link Stub} sends invocations of the callback methods to the client.
+     */
+    private final class Stub implements InvocationHandler {
+        private final MessageExchanger exchanger;
+        private final RmiCallbackReference reference;
+
+        private Stub(MessageExchanger exchanger, RmiCallbackReference reference) {
+            this.exchanger = exchanger;
+            this.reference = reference;
+        }
+
+        @Nullable
+        @Override
+        public Object invoke(@Nonnull Object proxy, @Nonnull Method method,
+                        @Nullable Object[] args) throws Throwable {
+            if (Object.class.equals(method.getDeclaringClass())) {
+                return invokeLocally(proxy, method, args);
+            }
+            @SuppressWarnings("unchecked")
+            final Class<Object> type = (Class<Object>)reference.getType();
+            final RmiSignature<Object> signature =
+                            new RmiSignature<>(type, method.getName(), method.getParameterTypes());
+            final RmiCallbackMessage<Object> message = new RmiCallbackMessage<>(
+                            new RmiMessageId<>(CALLBACK + reference.getCallbackId(),
+                                            callNumber.getAndIncrement(), signature),
+                            reference.getCallbackId(), args);
+            if (Future.class.equals(method.getReturnType())) {
+                return exchanger.submit(message);
+            }
+            return exchanger.exchange(message, false).getResult();
+        }
+
+        private Object invokeLocally(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return String.format("%s for '%s'", ServerCallbacks.class.getSimpleName(),
+                                    reference);
+            }
+        }
+    }
+}
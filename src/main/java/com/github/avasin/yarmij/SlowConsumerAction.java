@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+/**
+ * {@link SlowConsumerAction} specifies what happens with the broadcast to the connection which
+ * queue of the messages waiting to be sent is full, because client does not read them fast
+ * enough.
+ */
+public enum SlowConsumerAction {
+    /**
+     * New message is not sent to the slow client, messages already queued are kept.
+     */
+    DROP,
+    /**
+     * New message replaces queued messages of the same method, as it carries more recent state.
+     * In case there are no such messages, the oldest queued message is dropped.
+     */
+    COALESCE,
+    /**
+     * Slow client is disconnected, it is expected to reconnect and request actual state.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link WireCapture} records frames received by the {@link RmiServer} into the file, so they could
+ * be replayed later by {@link WireReplay}. Every record keeps identifier of the connection, time
+ * passed since the capture has been started and the frame exactly as it has been received. Frames
+ * of the stateful codecs depend on the preceding frames of the same connection, so sampling picks
+ * whole connections rather than single frames. Failure to write the file stops the capture, but
+ * never affects the server.
+ */
+@ThreadSafe
+public class WireCapture implements Closeable {
+    /**
+     * Marks the beginning of the capture file.
+     */
+    static final int MAGIC = 0x594D4350;
+    /**
+     * Version of the capture file format.
+     */
+    static final int VERSION = 1;
+    /**
+     * Identifier of the connection which frames are not captured.
+     */
+    static final int NOT_CAPTURED = -1;
+    private static final Logger LOGGER = LoggerFactory.getLogger(WireCapture.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final File file;
+    private final double sampleRate;
+    private final long startedAt = System.nanoTime();
+    private final AtomicInteger connections = new AtomicInteger();
+    @GuardedBy("this")
+    private final DataOutputStream output;
+    @GuardedBy("this")
+    private long frames;
+    @GuardedBy("this")
+    private long bytes;
+    @GuardedBy("this")
+    private boolean closed;
+
+    /**
+     * Creates {@link WireCapture} instance which captures all connections.
+     *
+     * @param file file which should contain the capture, replaced in case it exists.
+     * @throws IOException in case file cannot be created.
+     */
+    public WireCapture(@Nonnull File file) throws IOException {
+        this(file, 1D);
+    }
+
+    /**
+     * Creates {@link WireCapture} instance.
+     *
+     * @param file file which should contain the capture, replaced in case it exists.
+     * @param sampleRate share of the connections which should be captured, from {@code 0}
+     *                 to {@code 1}.
+     * @throws IOException in case file cannot be created.
+     */
+    public WireCapture(@Nonnull File file, double sampleRate) throws IOException {
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.output = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    /**
+     * Decides whether frames of the new connection should be captured.
+     *
+     * @return identifier of the captured connection or {@link #NOT_CAPTURED}.
+     */
+    int connected() {
+        if (sampleRate < 1D && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return NOT_CAPTURED;
+        }
+        return connections.getAndIncrement();
+    }
+
+    /**
+     * Appends received frame to the capture.
+     *
+     * @param connectionId identifier of the connection provided by {@link #connected()}.
+     * @param frame frame as it has been received.
+     */
+    synchronized void record(int connectionId, @Nonnull byte[] frame) {
+        if (closed) {
+            return;
+        }
+        try {
+            output.writeInt(connectionId);
+            output.writeLong(System.nanoTime() - startedAt);
+            output.writeInt(frame.length);
+            output.write(frame);
+            frames++;
+            bytes += frame.length;
+        } catch (IOException ex) {
+            LOGGER.error("Capture into '{}' stopped, because frame cannot be written", file, ex);
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Provides number of the captured frames.
+     *
+     * @return number of frames.
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Provides total size of the captured frames.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot close '{}'", file, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        output.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s [file=%s, sampleRate=%s, frames=%s, bytes=%s, closed=%s]",
+                        getClass().getSimpleName(), file, sampleRate, frames, bytes, closed);
+    }
+}
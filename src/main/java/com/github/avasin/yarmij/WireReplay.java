@@ -0,0 +1,307 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.transport.TransportConnector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link WireReplay} sends invocations recorded by {@link WireCapture} to the server again, keeping
+ * original intervals between them, scaled or as fast as possible. Every captured connection is
+ * replayed through its own connection, frames are decoded by the same codec as on the server side
+ * and invocations are serialized again, other frames are skipped. Calls made through the objects
+ * returned by reference and calls of the {@link Callback}s cannot be reproduced, so they fail.
+ */
+@NotThreadSafe
+public class WireReplay {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WireReplay.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double[] PERCENTILES = {50D, 90D, 99D, 99.9D};
+    private final File file;
+    private final Serializer serializer;
+    private final Deserializer deserializer;
+    private final long timeoutMs;
+    private double speed = 1D;
+
+    /**
+     * Creates {@link WireReplay} instance.
+     *
+     * @param file file which contains the capture.
+     * @param serializer will be used to convert invocations into bytes.
+     * @param deserializer will be used to decode captured frames and results.
+     * @param timeoutMs timeout in milliseconds after which invocation without a
+     *                 result is treated as lost.
+     */
+    public WireReplay(@Nonnull File file, @Nonnull Serializer serializer,
+                    @Nonnull Deserializer deserializer, long timeoutMs) {
+        this.file = file;
+        this.serializer = serializer;
+        this.deserializer = deserializer;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Specifies how many times faster than captured invocations are replayed, {@code 1} by
+     * default, {@link Double#POSITIVE_INFINITY} sends them without pauses.
+     *
+     * @param speed positive speed factor.
+     * @return current instance of {@link WireReplay}.
+     */
+    @Nonnull
+    public WireReplay withSpeed(double speed) {
+        if (!(speed > 0D)) {
+            throw new IllegalArgumentException(
+                            String.format("Speed should be positive, but was '%s'", speed));
+        }
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * Replays the capture and waits for the results of all sent invocations.
+     *
+     * @param connector establishes connections to the target server.
+     * @return statistics of the replay.
+     * @throws IOException in case capture cannot be read or connection to the target
+     *                 server cannot be established.
+     * @throws InterruptedException in case replay has been interrupted.
+     */
+    @Nonnull
+    public ReplayStats replay(@Nonnull TransportConnector connector)
+                    throws IOException, InterruptedException {
+        final ExecutorService listenerPool = Executors.newCachedThreadPool();
+        final Map<Integer, ReplayedConnection> connections = new HashMap<>();
+        final Outcome outcome = new Outcome();
+        final long startedAt = System.nanoTime();
+        long sent = 0L;
+        long skipped = 0L;
+        try (DataInputStream input = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            readHeader(input);
+            Long firstFrameNanos = null;
+            while (true) {
+                final int connectionId;
+                try {
+                    connectionId = input.readInt();
+                } catch (EOFException ex) {
+                    break;
+                }
+                final long frameNanos;
+                final byte[] frame;
+                try {
+                    frameNanos = input.readLong();
+                    frame = new byte[input.readInt()];
+                    input.readFully(frame);
+                } catch (EOFException ex) {
+                    LOGGER.warn("Capture '{}' ends with incomplete frame", file, ex);
+                    break;
+                }
+                ReplayedConnection connection = connections.get(connectionId);
+                if (connection == null) {
+                    connection = new ReplayedConnection(connector, listenerPool);
+                    connections.put(connectionId, connection);
+                }
+                final RmiMessage<?> message = connection.decode(frame);
+                if (!(message instanceof RmiInvokeMethodMessage)) {
+                    skipped++;
+                    continue;
+                }
+                if (firstFrameNanos == null) {
+                    firstFrameNanos = frameNanos;
+                }
+                pace(startedAt + (long)((frameNanos - firstFrameNanos) / speed));
+                @SuppressWarnings("unchecked")
+                final RmiInvokeMethodMessage<Object> invocation =
+                                (RmiInvokeMethodMessage<Object>)message;
+                outcome.send(connection.exchanger, invocation);
+                sent++;
+            }
+            outcome.await(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        } finally {
+            for (ReplayedConnection connection : connections.values()) {
+                connection.close();
+            }
+            listenerPool.shutdownNow();
+        }
+        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        final LatencyHistogram latency = outcome.latencyUs;
+        return new ReplayStats(sent, outcome.completed.get(), outcome.failed.get(),
+                        outcome.lost.get(), skipped, elapsedMs,
+                        latency.getValueAtPercentile(PERCENTILES[0]),
+                        latency.getValueAtPercentile(PERCENTILES[1]),
+                        latency.getValueAtPercentile(PERCENTILES[2]),
+                        latency.getValueAtPercentile(PERCENTILES[3]), latency.getMax());
+    }
+
+    private void readHeader(DataInputStream input) throws IOException {
+        final int magic = input.readInt();
+        final int version = input.readInt();
+        if (magic != WireCapture.MAGIC || version != WireCapture.VERSION) {
+            throw new RmiException(String.format(
+                            "'%s' is not a capture of version '%s', magic '%s', version '%s'",
+                            file, WireCapture.VERSION, Integer.toHexString(magic), version));
+        }
+    }
+
+    private static void pace(long sendAt) throws InterruptedException {
+        final long delay = sendAt - System.nanoTime();
+        if (delay > 0L) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [file=%s, speed=%s, timeoutMs=%s]", getClass().getSimpleName(),
+                        file, speed, timeoutMs);
+    }
+
+    /**
+     * Connection to the target server which replays frames of single captured connection.
+     */
+    private final class ReplayedConnection implements Closeable {
+        private final Deserializer decoder;
+        private final MessageExchanger exchanger;
+
+        private ReplayedConnection(TransportConnector connector, ExecutorService listenerPool)
+                        throws IOException {
+            final RmiConnection connection =
+                            new RmiConnection(serializer, deserializer, connector.connect());
+            this.decoder = RmiConnection.openSession(deserializer);
+            this.exchanger = new MessageExchanger(connection, timeoutMs);
+            listenerPool.submit(new ClientListeningTask(connection, exchanger,
+                            new CallbackRegistry()));
+        }
+
+        private RmiMessage<?> decode(byte[] frame) {
+            try {
+                return decoder.deserialize(frame, RmiMessage.class);
+            } catch (RmiException ex) {
+                LOGGER.warn("Captured frame of '{}' bytes cannot be decoded", frame.length, ex);
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                exchanger.close();
+            } finally {
+                RmiConnection.closeSession(decoder);
+            }
+        }
+    }
+
+    /**
+     * Collects results of the replayed invocations.
+     */
+    private static final class Outcome {
+        private final Set<PendingCall<Object>> pending =
+                        Collections.newSetFromMap(new ConcurrentHashMap<PendingCall<Object>,
+                                        Boolean>());
+        private final LatencyHistogram latencyUs = new LatencyHistogram();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong lost = new AtomicLong();
+        private long expected;
+        private long finished;
+
+        private void send(MessageExchanger exchanger, RmiInvokeMethodMessage<Object> message) {
+            final long sentAt = System.nanoTime();
+            final BiConsumer<PendingCall<Object>, RmiMethodResultMessage<Object>> listener =
+                            new BiConsumer<PendingCall<Object>, RmiMethodResultMessage<Object>>() {
+                                @Override
+                                public void accept(PendingCall<Object> call,
+                                                RmiMethodResultMessage<Object> result) {
+                                    completed(call, result, sentAt);
+                                }
+                            };
+            final PendingCall<Object> call;
+            try {
+                call = exchanger.send(message, listener);
+            } catch (RmiException ex) {
+                LOGGER.debug("Cannot replay '{}'", message, ex);
+                failed.incrementAndGet();
+                return;
+            }
+            expected++;
+            if (!call.isDone()) {
+                pending.add(call);
+            }
+        }
+
+        private void completed(PendingCall<Object> call, RmiMethodResultMessage<Object> result,
+                        long sentAt) {
+            pending.remove(call);
+            if (result != null) {
+                latencyUs.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+                if (result.getException() == null) {
+                    completed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+            synchronized (this) {
+                finished++;
+                notifyAll();
+            }
+        }
+
+        private void await(long deadline) throws InterruptedException {
+            for (PendingCall<Object> call : pending) {
+                final long remainingMs =
+                                TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (call.await(Math.max(0L, remainingMs)) == null && call.cancel(true)) {
+                    lost.incrementAndGet();
+                }
+            }
+            synchronized (this) {
+                // listeners are notified after waiting calls are released
+                while (finished < expected && deadline - System.nanoTime() > 0L) {
+                    TimeUnit.NANOSECONDS.timedWait(this, deadline - System.nanoTime());
+                }
+            }
+        }
+    }
+}
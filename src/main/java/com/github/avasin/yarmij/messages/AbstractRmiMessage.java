@@ -19,10 +19,17 @@ package com.github.avasin.yarmij.messages;
 import javax.annotation.Nonnull;
 
 /**
- * {@link AbstractRmiMessage} provides common {@link RmiMessage} functionality and state.
+ * {@link AbstractRmiMessage} provides common {@link RmiMessage} functionality and state. Messages
+ * of the traced invocations are stamped with timings of their transfer by the connection, stamps
+ * are local to the process and never serialized.
  */
 public class AbstractRmiMessage<I> implements RmiMessage<I> {
     private final RmiMessageId<I> messageId;
+    private transient long serializationNanos;
+    private transient long sendNanos;
+    private transient long sentAt;
+    private transient long deserializationNanos;
+    private transient long receivedAt;
 
     /**
      * Creates {@link AbstractRmiMessage} instance.
@@ -38,4 +45,62 @@ public class AbstractRmiMessage<I> implements RmiMessage<I> {
     public RmiMessageId<I> getMessageId() {
         return messageId;
     }
+
+    /**
+     * Stamps message with timings of its sending.
+     *
+     * @param serializationNanos time spent to convert message into bytes.
+     * @param sendNanos time spent to pass bytes to the transport, including waiting for
+     *                 the other messages sent through the same connection.
+     * @param sentAt {@link System#nanoTime()} when message has been sent.
+     */
+    public void sent(long serializationNanos, long sendNanos, long sentAt) {
+        this.serializationNanos = serializationNanos;
+        this.sendNanos = sendNanos;
+        this.sentAt = sentAt;
+    }
+
+    /**
+     * Stamps message with timings of its receiving.
+     *
+     * @param receivedAt {@link System#nanoTime()} when frame of the message has been
+     *                 received.
+     * @param deserializationNanos time spent to convert bytes into message.
+     */
+    public void received(long receivedAt, long deserializationNanos) {
+        this.receivedAt = receivedAt;
+        this.deserializationNanos = deserializationNanos;
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    /**
+     * Returns moment when message has been sent.
+     *
+     * @return {@link System#nanoTime()} when message has been sent or {@code 0} in case it
+     *                 has not been stamped.
+     */
+    public long getSentAt() {
+        return sentAt;
+    }
+
+    public long getDeserializationNanos() {
+        return deserializationNanos;
+    }
+
+    /**
+     * Returns moment when frame of the message has been received.
+     *
+     * @return {@link System#nanoTime()} when frame has been received or {@code 0} in case
+     *                 message has not been stamped.
+     */
+    public long getReceivedAt() {
+        return receivedAt;
+    }
 }
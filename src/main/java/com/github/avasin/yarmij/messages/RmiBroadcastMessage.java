@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link RmiBroadcastMessage} message sent by the server to many clients at once to invoke method
+ * of the listener subscribed by the client. Message is one way, so it is never answered.
+ *
+ * @param <I> type of the listener interface.
+ */
+public class RmiBroadcastMessage<I> extends RmiInvokeMethodMessage<I> {
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiBroadcastMessage() {
+        this(null, null);
+    }
+
+    /**
+     * Creates {@link RmiBroadcastMessage} instance.
+     *
+     * @param messageId message identifier.
+     * @param args contains method arguments or {@code null} in case method does not
+     *                 accept parameters.
+     */
+    public RmiBroadcastMessage(@Nonnull RmiMessageId<I> messageId, @Nullable Object[] args) {
+        super(messageId, args);
+    }
+
+    @Nonnull
+    @Override
+    public RmiBroadcastMessage<I> withArgs(@Nullable Object[] replaced) {
+        return new RmiBroadcastMessage<>(getMessageId(), replaced);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link RmiCallbackMessage} message sent by the server to invoke method of the callback exported
+ * by the client.
+ *
+ * @param <I> type of the callback interface.
+ */
+public class RmiCallbackMessage<I> extends RmiInvokeMethodMessage<I> {
+    private final long callbackId;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiCallbackMessage() {
+        this(null, 0L);
+    }
+
+    /**
+     * Creates {@link RmiCallbackMessage} instance.
+     *
+     * @param messageId message identifier.
+     * @param callbackId identifier of the callback which method should be invoked.
+     * @param args contains method arguments or {@code null} in case method does not
+     *                 accept parameters.
+     */
+    public RmiCallbackMessage(@Nonnull RmiMessageId<I> messageId, long callbackId,
+                    @Nullable Object... args) {
+        super(messageId, args);
+        this.callbackId = callbackId;
+    }
+
+    public long getCallbackId() {
+        return callbackId;
+    }
+
+    @Nonnull
+    @Override
+    public RmiCallbackMessage<I> withArgs(@Nullable Object[] replaced) {
+        return new RmiCallbackMessage<>(getMessageId(), callbackId, replaced);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s, callbackId=%s, args=%s]",
+                        getClass().getSimpleName(), getMessageId(), callbackId,
+                        Arrays.toString(getArgs()));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RmiCallbackReference} replaces callback object passed as an argument of the method
+ * invocation, it identifies callback exported by the client which sent the invocation.
+ */
+public class RmiCallbackReference {
+    private final long callbackId;
+    private final Class<?> type;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiCallbackReference() {
+        this(0L, null);
+    }
+
+    /**
+     * Creates {@link RmiCallbackReference} instance.
+     *
+     * @param callbackId identifier of the callback unique for the client.
+     * @param type interface implemented by the callback.
+     */
+    public RmiCallbackReference(long callbackId, @Nonnull Class<?> type) {
+        this.callbackId = callbackId;
+        this.type = type;
+    }
+
+    public long getCallbackId() {
+        return callbackId;
+    }
+
+    @Nonnull
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [callbackId=%s, type=%s]", getClass().getSimpleName(),
+                        callbackId, type.getSimpleName());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RmiCancelMessage} control message which asks the server side to stop processing of the
+ * method invocation identified by the same {@link RmiMessageId} and not to send its result.
+ *
+ * @param <I> type of the service which method invocation should be cancelled.
+ */
+public class RmiCancelMessage<I> extends AbstractRmiMessage<I> {
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiCancelMessage() {
+        this(null);
+    }
+
+    /**
+     * Creates {@link RmiCancelMessage} instance.
+     *
+     * @param messageId identifier of the {@link RmiInvokeMethodMessage} which
+     *                 processing should be cancelled.
+     */
+    public RmiCancelMessage(@Nonnull RmiMessageId<I> messageId) {
+        super(messageId);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s]", getClass().getSimpleName(), getMessageId());
+    }
+}
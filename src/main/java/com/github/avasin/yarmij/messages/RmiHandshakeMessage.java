@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.messages;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RmiHandshakeMessage} control message which is sent by reconnected client to check that
+ * the server still has implementations for all services used by the client.
+ */
+public class RmiHandshakeMessage extends AbstractRmiMessage<RmiHandshakeMessage> {
+    private static final String METHOD_NAME = "handshake";
+    private final Class<?>[] services;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiHandshakeMessage() {
+        super(null);
+        this.services = null;
+    }
+
+    /**
+     * Creates {@link RmiHandshakeMessage} instance.
+     *
+     * @param clientName name which identifies client among other clients.
+     * @param number sequence number of the handshake.
+     * @param services interfaces which implementations are required by the client.
+     */
+    public RmiHandshakeMessage(@Nonnull String clientName, long number,
+                    @Nonnull Class<?>... services) {
+        super(new RmiMessageId<>(clientName, number,
+                        new RmiSignature<>(RmiHandshakeMessage.class, METHOD_NAME,
+                                        new Class<?>[0])));
+        this.services = services;
+    }
+
+    @Nonnull
+    public Class<?>[] getServices() {
+        return services;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s, services=%s]", getClass().getSimpleName(),
+                        getMessageId(), Arrays.toString(services));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RmiHeartbeatMessage} control message which is sent through idle connection to check that
+ * the other side is still alive. Ping is answered by the receiving connection with pong carrying
+ * the same number, neither reaches message handlers.
+ */
+public class RmiHeartbeatMessage extends AbstractRmiMessage<RmiHeartbeatMessage> {
+    private static final String NAME = "heartbeat";
+    private static final String PING = "ping";
+    private static final String PONG = "pong";
+    private final boolean pong;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiHeartbeatMessage() {
+        super(null);
+        this.pong = false;
+    }
+
+    /**
+     * Creates {@link RmiHeartbeatMessage} instance.
+     *
+     * @param number sequence number of the ping.
+     * @param pong {@code true} in case message answers ping with the same number.
+     */
+    public RmiHeartbeatMessage(long number, boolean pong) {
+        super(new RmiMessageId<>(NAME, number, new RmiSignature<>(RmiHeartbeatMessage.class,
+                        pong ? PONG : PING, new Class<?>[0])));
+        this.pong = pong;
+    }
+
+    public boolean isPong() {
+        return pong;
+    }
+
+    /**
+     * Creates answer to the ping.
+     *
+     * @return pong with the same number.
+     */
+    @Nonnull
+    public RmiHeartbeatMessage reply() {
+        return new RmiHeartbeatMessage(getMessageId().getCallNumber(), true);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s, pong=%s]", getClass().getSimpleName(),
+                        getMessageId(), pong);
+    }
+}
@@ -60,6 +60,18 @@ public class RmiInvokeMethodMessage<I> extends AbstractRmiMessage<I> {
         return args;
     }
 
+    /**
+     * Creates copy of the message with different arguments, which identifies the same
+     * invocation.
+     *
+     * @param replaced arguments of the copy.
+     * @return copy of the message of the same type.
+     */
+    @Nonnull
+    public RmiInvokeMethodMessage<I> withArgs(@Nullable Object[] replaced) {
+        return new RmiInvokeMethodMessage<>(getMessageId(), replaced);
+    }
+
     @Override
     public String toString() {
         return String.format("%s [messageId=%s, args=%s]", getClass().getSimpleName(),
@@ -19,10 +19,13 @@ package com.github.avasin.yarmij.messages;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * {@link RmiMessageId} contains information that identifies message used for exchange between
- * client and server.
+ * client and server. Traced invocations carry identifier of the trace, which is copied to all
+ * messages related to the invocation, including calls made by the server while processing it.
+ * Trace identifier does not take part in equality of the message identifiers.
  *
  * @param <I> type of the implementation that will handle method invocation.
  */
@@ -30,6 +33,7 @@ public class RmiMessageId<I> {
     private final String threadName;
     private final long callNumber;
     private final RmiSignature<I> signature;
+    private final Long traceId;
 
     /**
      * Required by Kryo library for serialization.
@@ -47,9 +51,24 @@ public class RmiMessageId<I> {
      */
     public RmiMessageId(@Nonnull String threadName, long callNumber,
                     @Nonnull RmiSignature<I> signature) {
+        this(threadName, callNumber, signature, null);
+    }
+
+    /**
+     * Creates {@link RmiMessageId} instance.
+     *
+     * @param threadName name of the thread that created message identifier.
+     * @param callNumber sequence number of method call.
+     * @param signature signature of the method that is going to be called.
+     * @param traceId identifier of the trace to which invocation belongs or {@code null}
+     *                 in case invocation is not traced.
+     */
+    public RmiMessageId(@Nonnull String threadName, long callNumber,
+                    @Nonnull RmiSignature<I> signature, @Nullable Long traceId) {
         this.threadName = threadName;
         this.callNumber = callNumber;
         this.signature = signature;
+        this.traceId = traceId;
     }
 
     @Nonnull
@@ -57,6 +76,15 @@ public class RmiMessageId<I> {
         return signature;
     }
 
+    public long getCallNumber() {
+        return callNumber;
+    }
+
+    @Nullable
+    public Long getTraceId() {
+        return traceId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -78,8 +106,8 @@ public class RmiMessageId<I> {
 
     @Override
     public String toString() {
-        return String.format("%s [threadName=%s, callNumber=%s, signature=%s]",
+        return String.format("%s [threadName=%s, callNumber=%s, signature=%s, traceId=%s]",
                         getClass().getSimpleName(), this.threadName, this.callNumber,
-                        this.signature);
+                        this.signature, this.traceId);
     }
 }
@@ -20,13 +20,14 @@ import javax.annotation.Nullable;
 
 /**
  * {@link RmiMethodResultMessage} message that contains information about result of method
- * invocation.
+ * invocation. Results of the traced invocations carry timing of their processing by the server.
  *
  * @param <I> type of the service which method result message should contain.
  */
 public class RmiMethodResultMessage<I> extends AbstractRmiMessage<I> {
     private final Throwable exception;
     private final Object result;
+    private final RmiServerTiming timing;
 
     /**
      * Required by Kryo library for serialization.
@@ -44,9 +45,24 @@ public class RmiMethodResultMessage<I> extends AbstractRmiMessage<I> {
      */
     public RmiMethodResultMessage(@Nullable Throwable exception, @Nullable Object result,
                     @Nonnull RmiMessageId<I> messageId) {
+        this(exception, result, messageId, null);
+    }
+
+    /**
+     * Creates {@link RmiMethodResultMessage} instance
+     *
+     * @param exception that might happen during method execution process.
+     * @param result value returned by method on the server side.
+     * @param messageId original message identifier.
+     * @param timing timing of the traced invocation on the server side or {@code null}
+     *                 in case invocation is not traced.
+     */
+    public RmiMethodResultMessage(@Nullable Throwable exception, @Nullable Object result,
+                    @Nonnull RmiMessageId<I> messageId, @Nullable RmiServerTiming timing) {
         super(messageId);
         this.exception = exception;
         this.result = result;
+        this.timing = timing;
     }
 
     @Nullable
@@ -59,9 +75,15 @@ public class RmiMethodResultMessage<I> extends AbstractRmiMessage<I> {
         return result;
     }
 
+    @Nullable
+    public RmiServerTiming getTiming() {
+        return timing;
+    }
+
     @Override
     public String toString() {
-        return String.format("%s [messageId=%s, exception=%s, result=%s]",
-                        getClass().getSimpleName(), this.getMessageId(), exception, result);
+        return String.format("%s [messageId=%s, exception=%s, result=%s, timing=%s]",
+                        getClass().getSimpleName(), this.getMessageId(), exception, result,
+                        timing);
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link RmiReferenceCallMessage} message sent by the client to invoke method of the object
+ * exported by the server instead of the registered service implementation.
+ *
+ * @param <I> type of the exported object interface.
+ */
+public class RmiReferenceCallMessage<I> extends RmiInvokeMethodMessage<I> {
+    private final long objectId;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiReferenceCallMessage() {
+        this(null, 0L);
+    }
+
+    /**
+     * Creates {@link RmiReferenceCallMessage} instance.
+     *
+     * @param messageId message identifier.
+     * @param objectId identifier of the object which method should be invoked.
+     * @param args contains method arguments or {@code null} in case method does not
+     *                 accept parameters.
+     */
+    public RmiReferenceCallMessage(@Nonnull RmiMessageId<I> messageId, long objectId,
+                    @Nullable Object... args) {
+        super(messageId, args);
+        this.objectId = objectId;
+    }
+
+    public long getObjectId() {
+        return objectId;
+    }
+
+    @Nonnull
+    @Override
+    public RmiReferenceCallMessage<I> withArgs(@Nullable Object[] replaced) {
+        return new RmiReferenceCallMessage<>(getMessageId(), objectId, replaced);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [messageId=%s, objectId=%s, args=%s]",
+                        getClass().getSimpleName(), getMessageId(), objectId,
+                        Arrays.toString(getArgs()));
+    }
+}
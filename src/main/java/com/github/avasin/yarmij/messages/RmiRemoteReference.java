@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RmiRemoteReference} replaces result of the method invocation which stays on the server,
+ * it identifies object exported for the connection through which invocation has been received.
+ */
+public class RmiRemoteReference {
+    private final long objectId;
+    private final Class<?> type;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiRemoteReference() {
+        this(0L, null);
+    }
+
+    /**
+     * Creates {@link RmiRemoteReference} instance.
+     *
+     * @param objectId identifier of the object unique for the connection.
+     * @param type interface implemented by the object.
+     */
+    public RmiRemoteReference(long objectId, @Nonnull Class<?> type) {
+        this.objectId = objectId;
+        this.type = type;
+    }
+
+    public long getObjectId() {
+        return objectId;
+    }
+
+    @Nonnull
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [objectId=%s, type=%s]", getClass().getSimpleName(), objectId,
+                        type.getSimpleName());
+    }
+}
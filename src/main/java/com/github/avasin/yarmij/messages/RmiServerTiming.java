@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.messages;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RmiServerTiming} describes where time of the traced invocation has been spent on the
+ * server side. Durations are measured by the server clock, so client is able to infer time spent
+ * in the network without synchronized clocks.
+ */
+public class RmiServerTiming {
+    private final long deserializationNanos;
+    private final long queueNanos;
+    private final long executionNanos;
+    private final long totalNanos;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private RmiServerTiming() {
+        this(0L, 0L, 0L, 0L);
+    }
+
+    /**
+     * Creates {@link RmiServerTiming} instance.
+     *
+     * @param deserializationNanos time spent to convert received bytes into invocation.
+     * @param queueNanos time invocation waited for the free thread.
+     * @param executionNanos time spent by the service implementation.
+     * @param totalNanos time from receiving of the invocation till creation of its
+     *                 result.
+     */
+    public RmiServerTiming(long deserializationNanos, long queueNanos, long executionNanos,
+                    long totalNanos) {
+        this.deserializationNanos = deserializationNanos;
+        this.queueNanos = queueNanos;
+        this.executionNanos = executionNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    public long getDeserializationNanos() {
+        return deserializationNanos;
+    }
+
+    public long getQueueNanos() {
+        return queueNanos;
+    }
+
+    public long getExecutionNanos() {
+        return executionNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [deserializationUs=%s, queueUs=%s, executionUs=%s, totalUs=%s]",
+                        getClass().getSimpleName(),
+                        TimeUnit.NANOSECONDS.toMicros(deserializationNanos),
+                        TimeUnit.NANOSECONDS.toMicros(queueNanos),
+                        TimeUnit.NANOSECONDS.toMicros(executionNanos),
+                        TimeUnit.NANOSECONDS.toMicros(totalNanos));
+    }
+}
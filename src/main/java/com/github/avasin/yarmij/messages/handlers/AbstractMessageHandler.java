@@ -19,13 +19,17 @@ package com.github.avasin.yarmij.messages.handlers;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.github.avasin.yarmij.messages.RmiBroadcastMessage;
 import com.github.avasin.yarmij.messages.RmiMessage;
 import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiServerTiming;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.avasin.yarmij.BiConsumer;
+import com.github.avasin.yarmij.RemoteFileRegion;
+import com.github.avasin.yarmij.RmiCallContext;
 import com.github.avasin.yarmij.RmiConnection;
 import com.github.avasin.yarmij.RmiException;
 
@@ -40,7 +44,11 @@ abstract class AbstractMessageHandler<M extends RmiMessage<?>>
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     /**
-     * Sends {@link RmiMethodResultMessage} message back to the client side.
+     * Sends {@link RmiMethodResultMessage} message back to the client side, unless invocation
+     * processed by the current thread has been cancelled by the client. One way
+     * {@link RmiBroadcastMessage}s are never answered. Answers to the traced invocations carry
+     * timing of their processing. {@link RemoteFileRegion} result is replaced by the failure in
+     * case connection cannot send file regions.
      *
      * @param connection that will be used to send back message.
      * @param message original message which processing caused creation answer
@@ -53,8 +61,27 @@ abstract class AbstractMessageHandler<M extends RmiMessage<?>>
     protected <I> void sendMethodResultMessage(@Nonnull RmiConnection connection,
                     @Nonnull RmiMessage<I> message, @Nullable Throwable exception,
                     @Nullable Object result) {
-        final RmiMethodResultMessage<I> methodResult =
-                        new RmiMethodResultMessage<>(exception, result, message.getMessageId());
+        if (message instanceof RmiBroadcastMessage) {
+            return;
+        }
+        final RmiCallContext context = RmiCallContext.current();
+        final boolean current = context != null
+                        && context.getMessageId().equals(message.getMessageId());
+        final RmiServerTiming timing = current && message.getMessageId().getTraceId() != null
+                        ? context.getTiming() : null;
+        final boolean sendable = !(result instanceof RemoteFileRegion)
+                        || connection.canSendRegions();
+        final RmiMethodResultMessage<I> methodResult = sendable
+                        ? new RmiMethodResultMessage<>(exception, result, message.getMessageId(),
+                                        timing)
+                        : new RmiMethodResultMessage<I>(new RmiException(String.format(
+                                        "'%s' cannot send '%s'", connection, result)), null,
+                                        message.getMessageId(), timing);
+        if (current && !context.complete()) {
+            logger.debug("Response '{}' suppressed, because invocation has been cancelled",
+                            methodResult);
+            return;
+        }
         try {
             connection.sendMessage(methodResult);
         } catch (RmiException ex) {
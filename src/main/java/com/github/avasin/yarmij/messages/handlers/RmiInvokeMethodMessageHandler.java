@@ -20,15 +20,24 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnull;
 
 import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.ByReference;
+import com.github.avasin.yarmij.RemoteReferences;
+import com.github.avasin.yarmij.RmiCallContext;
 import com.github.avasin.yarmij.RmiConnection;
 import com.github.avasin.yarmij.messages.RmiSignature;
 
 /**
- * {@link RmiInvokeMethodMessageHandler} handles {@link RmiInvokeMethodMessage} instances.
+ * {@link RmiInvokeMethodMessageHandler} handles {@link RmiInvokeMethodMessage} instances. In case
+ * method declares {@link Future} as a return type, result of the future is sent to the client.
+ * Results of the methods returning {@link ByReference} interface stay on the server, client
+ * receives reference to the exported object instead. Time spent by the implementation is
+ * recorded in the {@link RmiCallContext}, so it could be reported for traced invocations.
  */
 public class RmiInvokeMethodMessageHandler<I>
                 extends AbstractMessageHandler<RmiInvokeMethodMessage<I>> {
@@ -68,8 +77,13 @@ public class RmiInvokeMethodMessageHandler<I>
         Throwable exception = null;
         Object result = null;
         final Object[] arguments = message.getArgs();
+        final long startedAt = System.nanoTime();
         try {
             result = method.invoke(implementation, arguments);
+            if (result instanceof Future && Future.class.equals(method.getReturnType())) {
+                result = await((Future<?>)result);
+            }
+            result = export(method.getReturnType(), result);
         } catch (Throwable ex) {
             exception = ex instanceof InvocationTargetException ?
                             ((InvocationTargetException)ex).getTargetException() :
@@ -78,7 +92,35 @@ public class RmiInvokeMethodMessageHandler<I>
                             implementationClass.getSimpleName(), signature.getMethodName(), message.getArgs(),
                             exception);
         }
+        executed(message, System.nanoTime() - startedAt);
         sendMethodResultMessage(transport, message, exception, result);
     }
 
+    private static void executed(RmiInvokeMethodMessage<?> message, long executionNanos) {
+        final RmiCallContext context = RmiCallContext.current();
+        if (context != null && context.getMessageId().equals(message.getMessageId())) {
+            context.executed(executionNanos);
+        }
+    }
+
+    private static <R> Object export(Class<R> type, Object result) {
+        if (result == null || !type.isAnnotationPresent(ByReference.class)) {
+            return result;
+        }
+        final RmiCallContext context = RmiCallContext.current();
+        final RemoteReferences references = context == null ? null : context.getReferences();
+        return references == null ? result : references.export(type, type.cast(result));
+    }
+
+    private static Object await(Future<?> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            throw ex.getCause();
+        }
+    }
+
 }
@@ -16,36 +16,157 @@
 
 package com.github.avasin.yarmij.messages.handlers;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nonnull;
 
+import com.github.avasin.yarmij.messages.AbstractRmiMessage;
+import com.github.avasin.yarmij.messages.RmiCancelMessage;
+import com.github.avasin.yarmij.messages.RmiHandshakeMessage;
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
 import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiReferenceCallMessage;
 import com.github.avasin.yarmij.BiConsumer;
+import com.github.avasin.yarmij.RemoteReferences;
+import com.github.avasin.yarmij.RmiCallContext;
 import com.github.avasin.yarmij.RmiConnection;
 import com.github.avasin.yarmij.RmiException;
+import com.github.avasin.yarmij.ServerCallbacks;
+import com.github.avasin.yarmij.messages.RmiMessageId;
 import com.github.avasin.yarmij.messages.RmiSignature;
 
 /**
  * {@link RmiServerMessageHandler} handles all incoming {@link RmiMessage}s received by RMI server
- * side.
+ * side through one connection. Method invocations are processed by the thread pool, so listening
+ * thread is able to receive {@link RmiCancelMessage}s for invocations that are still in progress.
+ * Number of invocations processed at the same time for the connection is limited, further
+ * invocations are queued and processed by the same threads as soon as earlier ones complete, so
+ * client pipelining calls does not occupy unlimited number of threads.
+ * {@link RmiHandshakeMessage}s of reconnected clients are answered immediately. Callbacks passed
+ * by the client are replaced with stubs which invoke them back through the same connection.
+ * Objects returned by reference are kept per connection and called by their identifiers.
+ * Traced invocations are answered together with timing of their processing.
  */
 public class RmiServerMessageHandler extends AbstractMessageHandler<RmiMessage<?>> {
+    /**
+     * Timeout of the client callback invocations used unless specified explicitly.
+     */
+    public static final long DEFAULT_CALLBACK_TIMEOUT_MS = 30000L;
+    /**
+     * Number of invocations processed at the same time for one connection used unless specified
+     * explicitly.
+     */
+    public static final int DEFAULT_MAX_CALLS_IN_FLIGHT = 16;
     private final Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers;
+    private final ExecutorService executor;
+    private final int maxCallsInFlight;
+    private final Queue<Runnable> queued = new ArrayDeque<>();
+    private final Map<RmiMessageId<?>, RmiCallContext> calls = new ConcurrentHashMap<>();
+    private final ServerCallbacks callbacks;
+    private final RemoteReferences references;
+    private int inFlight;
+
+    /**
+     * Creates {@link RmiServerMessageHandler} instance.
+     *
+     * @param handlers mapping from service type to handler which should process all
+     *                 remote method calls to related implementation.
+     * @param executor thread pool which will be used to process method invocations.
+     */
+    public RmiServerMessageHandler(
+                    @Nonnull Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers,
+                    @Nonnull ExecutorService executor) {
+        this(handlers, executor, DEFAULT_CALLBACK_TIMEOUT_MS);
+    }
 
     /**
      * Creates {@link RmiServerMessageHandler} instance.
      *
      * @param handlers mapping from service type to handler which should process all
      *                 remote method calls to related implementation.
+     * @param executor thread pool which will be used to process method invocations.
+     * @param callbackTimeoutMs timeout in milliseconds after which invocation of the
+     *                 client callback without a response will be treated as failed.
      */
     public RmiServerMessageHandler(
-                    @Nonnull Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers) {
+                    @Nonnull Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers,
+                    @Nonnull ExecutorService executor, long callbackTimeoutMs) {
+        this(handlers, executor, callbackTimeoutMs, DEFAULT_MAX_CALLS_IN_FLIGHT);
+    }
+
+    /**
+     * Creates {@link RmiServerMessageHandler} instance.
+     *
+     * @param handlers mapping from service type to handler which should process all
+     *                 remote method calls to related implementation.
+     * @param executor thread pool which will be used to process method invocations.
+     * @param callbackTimeoutMs timeout in milliseconds after which invocation of the
+     *                 client callback without a response will be treated as failed.
+     * @param maxCallsInFlight maximum number of invocations processed at the same time,
+     *                 further invocations are queued.
+     */
+    public RmiServerMessageHandler(
+                    @Nonnull Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers,
+                    @Nonnull ExecutorService executor, long callbackTimeoutMs,
+                    int maxCallsInFlight) {
+        this(handlers, executor, callbackTimeoutMs, maxCallsInFlight,
+                        RemoteReferences.DEFAULT_LEASE_MS);
+    }
+
+    /**
+     * Creates {@link RmiServerMessageHandler} instance.
+     *
+     * @param handlers mapping from service type to handler which should process all
+     *                 remote method calls to related implementation.
+     * @param executor thread pool which will be used to process method invocations.
+     * @param callbackTimeoutMs timeout in milliseconds after which invocation of the
+     *                 client callback without a response will be treated as failed.
+     * @param maxCallsInFlight maximum number of invocations processed at the same time,
+     *                 further invocations are queued.
+     * @param leaseMs period in milliseconds after which object returned by reference which
+     *                 has not been called is forgotten.
+     */
+    public RmiServerMessageHandler(
+                    @Nonnull Map<Class<?>, BiConsumer<RmiConnection, ? extends RmiMessage<?>>> handlers,
+                    @Nonnull ExecutorService executor, long callbackTimeoutMs,
+                    int maxCallsInFlight, long leaseMs) {
+        if (maxCallsInFlight <= 0) {
+            throw new IllegalArgumentException(String.format(
+                            "Limit of the calls in flight should be positive, but was '%s'",
+                            maxCallsInFlight));
+        }
         this.handlers = handlers;
+        this.executor = executor;
+        this.maxCallsInFlight = maxCallsInFlight;
+        this.callbacks = new ServerCallbacks(callbackTimeoutMs);
+        this.references = new RemoteReferences(leaseMs);
     }
 
     @Override
     public void accept(@Nonnull RmiConnection connection, @Nonnull RmiMessage<?> message) {
+        if (message instanceof RmiCancelMessage) {
+            cancel(message.getMessageId());
+            return;
+        }
+        if (message instanceof RmiHandshakeMessage) {
+            handshake(connection, (RmiHandshakeMessage)message);
+            return;
+        }
+        if (message instanceof RmiMethodResultMessage) {
+            callbacks.accept(connection, (RmiMethodResultMessage<?>)message);
+            return;
+        }
+        if (message instanceof RmiReferenceCallMessage) {
+            callReference(connection, (RmiReferenceCallMessage<?>)message);
+            return;
+        }
         final RmiSignature<?> signature = message.getMessageId().getSignature();
         final Class<?> type = signature.getInterfaceType();
         @SuppressWarnings("unchecked")
@@ -64,6 +185,128 @@ public class RmiServerMessageHandler extends AbstractMessageHandler<RmiMessage<?
                             type.getSimpleName());
             return;
         }
-        handler.accept(connection, message);
+        dispatch(connection, message, handler);
+    }
+
+    private void callReference(RmiConnection connection, RmiReferenceCallMessage<?> message) {
+        final RmiSignature<?> signature = message.getSignature();
+        final String typeName = signature.getInterfaceType().getSimpleName();
+        if (typeName.equals(signature.getMethodName())) {
+            sendMethodResultMessage(connection, message, null,
+                            references.release(message.getObjectId()));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        final BiConsumer<RmiConnection, RmiMessage<?>> handler =
+                        (BiConsumer<RmiConnection, RmiMessage<?>>)(BiConsumer<?, ?>)references
+                                        .get(message.getObjectId());
+        if (handler == null) {
+            sendMethodResultMessage(connection, message, new RmiException(String.format(
+                            "Object '%s' of '%s' interface is not exported or its lease expired",
+                            message.getObjectId(), typeName)), null);
+            return;
+        }
+        dispatch(connection, message, handler);
+    }
+
+    private void dispatch(final RmiConnection connection, RmiMessage<?> message,
+                    final BiConsumer<RmiConnection, RmiMessage<?>> handler) {
+        final RmiMessage<?> invocation = resolve(connection, message);
+        final RmiCallContext context =
+                        new RmiCallContext(message.getMessageId(), connection, references);
+        if (message.getMessageId().getTraceId() != null) {
+            final AbstractRmiMessage<?> stamped = (AbstractRmiMessage<?>)message;
+            context.received(stamped.getReceivedAt() == 0L ? System.nanoTime()
+                            : stamped.getReceivedAt(), stamped.getDeserializationNanos());
+        }
+        calls.put(message.getMessageId(), context);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                context.attach();
+                try {
+                    if (!context.isCancelled()) {
+                        handler.accept(connection, invocation);
+                    }
+                } finally {
+                    context.detach();
+                    calls.remove(context.getMessageId());
+                }
+            }
+        });
+    }
+
+    private void submit(final Runnable invocation) {
+        synchronized (queued) {
+            if (inFlight >= maxCallsInFlight) {
+                queued.add(invocation);
+                return;
+            }
+            inFlight++;
+        }
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Runnable next = invocation;
+                do {
+                    try {
+                        next.run();
+                    } catch (RuntimeException ex) {
+                        logger.error("Invocation failed unexpectedly", ex);
+                    }
+                    synchronized (queued) {
+                        next = queued.poll();
+                        if (next == null) {
+                            inFlight--;
+                        }
+                    }
+                } while (next != null);
+            }
+        });
+    }
+
+    private <I> RmiMessage<?> resolve(RmiConnection connection, RmiMessage<I> message) {
+        if (!(message instanceof RmiInvokeMethodMessage)) {
+            return message;
+        }
+        final Object[] args = ((RmiInvokeMethodMessage<I>)message).getArgs();
+        final Object[] resolved = callbacks.resolve(connection, args);
+        return resolved == args ? message
+                        : ((RmiInvokeMethodMessage<I>)message).withArgs(resolved);
+    }
+
+    private void handshake(RmiConnection connection, RmiHandshakeMessage message) {
+        final Collection<String> missing = new ArrayList<>();
+        for (Class<?> service : message.getServices()) {
+            if (!handlers.containsKey(service)) {
+                missing.add(service.getSimpleName());
+            }
+        }
+        sendMethodResultMessage(connection, message, missing.isEmpty() ? null : new RmiException(
+                        String.format("There is no service implementation registered for '%s' interfaces",
+                                        missing)), null);
+    }
+
+    /**
+     * Cancels all invocations which are still in progress, because connection through which their
+     * results should be sent has been lost. Stubs of the client callbacks fail from now on and
+     * objects returned by reference are forgotten.
+     */
+    public void disconnected() {
+        callbacks.disconnected();
+        references.clear();
+        for (RmiCallContext context : calls.values()) {
+            if (context.cancel()) {
+                logger.debug("Invocation of '{}' has been cancelled, because client disconnected",
+                                context.getMessageId());
+            }
+        }
+    }
+
+    private void cancel(RmiMessageId<?> messageId) {
+        final RmiCallContext context = calls.get(messageId);
+        if (context != null && context.cancel()) {
+            logger.debug("Invocation of '{}' has been cancelled by the client", messageId);
+        }
     }
 }
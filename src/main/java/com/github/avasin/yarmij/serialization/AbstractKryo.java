@@ -16,9 +16,17 @@
 
 package com.github.avasin.yarmij.serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.serializers.JavaSerializer;
 
 /**
@@ -30,15 +38,56 @@ public abstract class AbstractKryo {
     private final ThreadLocal<Kryo> kryos = new ThreadLocal<Kryo>(){
         @Override
         protected Kryo initialValue() {
-            final Kryo result = new Kryo();
-            result.setClassLoader(Thread.currentThread().getContextClassLoader());
-            result.addDefaultSerializer(Throwable.class, new JavaSerializer());
-            result.setRegistrationRequired(false);
-            return result;
+            return configure(new Kryo());
         }
     };
 
     protected Kryo getInstance() {
         return kryos.get();
     }
+
+    /**
+     * Applies settings common for all {@link Kryo} instances used to transfer messages.
+     *
+     * @param kryo instance to configure.
+     * @return the same instance.
+     */
+    protected static Kryo configure(Kryo kryo) {
+        kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+        kryo.addDefaultSerializer(Throwable.class, new CopyingJavaSerializer());
+        kryo.setRegistrationRequired(false);
+        return kryo;
+    }
+
+    /**
+     * {@link JavaSerializer} which is able to copy objects by writing and reading them back with
+     * Java serialization.
+     */
+    private static class CopyingJavaSerializer extends JavaSerializer {
+        @Override
+        public Object copy(final Kryo kryo, Object original) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                    output.writeObject(original);
+                }
+                try (ObjectInputStream input = new ObjectInputStream(
+                                new ByteArrayInputStream(bytes.toByteArray())) {
+                    @Override
+                    protected Class<?> resolveClass(ObjectStreamClass type)
+                                    throws IOException, ClassNotFoundException {
+                        try {
+                            return Class.forName(type.getName(), false, kryo.getClassLoader());
+                        } catch (ClassNotFoundException ex) {
+                            return super.resolveClass(type);
+                        }
+                    }
+                }) {
+                    return input.readObject();
+                }
+            } catch (IOException | ClassNotFoundException ex) {
+                throw new KryoException("Error during Java copy.", ex);
+            }
+        }
+    }
 }
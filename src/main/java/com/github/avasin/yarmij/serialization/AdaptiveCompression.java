@@ -0,0 +1,347 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.RmiException;
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+/**
+ * {@link AdaptiveCompression} compresses messages by the delegate {@link Compression} only for
+ * the method signatures and directions where it pays off. Compression of a signature is probed
+ * on several messages, in case saved bytes are too few or saving of a byte takes too much time
+ * messages are sent as is, compression is probed again periodically. Every message starts with
+ * a byte which tells whether the rest is compressed, so receiver needs no statistics. Statistics
+ * are shared by all sessions opened from the same instance.
+ */
+@ThreadSafe
+public class AdaptiveCompression implements StreamingCompression, SessionScoped<Compression> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveCompression.class);
+    private static final byte STORED = 0;
+    private static final byte COMPRESSED = 1;
+    private static final int DEFAULT_PROBE_MESSAGES = 16;
+    private static final int DEFAULT_PROBE_INTERVAL = 1024;
+    private static final double DEFAULT_MIN_SAVING = 0.1D;
+    private static final double DEFAULT_MAX_NANOS_PER_SAVED_BYTE = 100D;
+    private final Compression delegate;
+    private final ConcurrentMap<Key, Decision> decisions;
+    private final int probeMessages;
+    private final int probeInterval;
+    private final double minSaving;
+    private final double maxNanosPerSavedByte;
+
+    /**
+     * Creates {@link AdaptiveCompression} instance with default thresholds.
+     *
+     * @param delegate compression applied to the messages where it pays off.
+     */
+    public AdaptiveCompression(@Nonnull Compression delegate) {
+        this(delegate, DEFAULT_PROBE_MESSAGES, DEFAULT_PROBE_INTERVAL, DEFAULT_MIN_SAVING,
+                        DEFAULT_MAX_NANOS_PER_SAVED_BYTE);
+    }
+
+    /**
+     * Creates {@link AdaptiveCompression} instance.
+     *
+     * @param delegate compression applied to the messages where it pays off.
+     * @param probeMessages number of compressed messages after which decision is made.
+     * @param probeInterval number of messages sent as is before compression is probed
+     *                 again.
+     * @param minSaving minimal part of the bytes which compression should save, e.g.
+     *                 {@code 0.1} for 10%.
+     * @param maxNanosPerSavedByte maximal compression time in nanoseconds worth of a
+     *                 single saved byte.
+     */
+    public AdaptiveCompression(@Nonnull Compression delegate, int probeMessages,
+                    int probeInterval, double minSaving, double maxNanosPerSavedByte) {
+        this(delegate, new ConcurrentHashMap<Key, Decision>(), probeMessages, probeInterval,
+                        minSaving, maxNanosPerSavedByte);
+    }
+
+    private AdaptiveCompression(Compression delegate, ConcurrentMap<Key, Decision> decisions,
+                    int probeMessages, int probeInterval, double minSaving,
+                    double maxNanosPerSavedByte) {
+        this.delegate = delegate;
+        this.decisions = decisions;
+        this.probeMessages = probeMessages;
+        this.probeInterval = probeInterval;
+        this.minSaving = minSaving;
+        this.maxNanosPerSavedByte = maxNanosPerSavedByte;
+    }
+
+    @Nonnull
+    @Override
+    public Compression openSession() {
+        final Compression opened = Sessions.open(delegate);
+        return opened == delegate ? this : new AdaptiveCompression(opened, decisions,
+                        probeMessages, probeInterval, minSaving, maxNanosPerSavedByte);
+    }
+
+    /**
+     * Compresses serialized message taking into account statistics of the similar messages.
+     *
+     * @param compression compression which should be applied.
+     * @param data serialized message.
+     * @param message message which has been serialized.
+     * @return compressed bytes.
+     * @throws IOException in case message cannot be compressed.
+     */
+    @Nonnull
+    static byte[] compress(@Nonnull Compression compression, @Nonnull byte[] data,
+                    @Nonnull Object message) throws IOException {
+        if (compression instanceof AdaptiveCompression) {
+            return ((AdaptiveCompression)compression).compress(data, message);
+        }
+        return compression.compress(data);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] compress(@Nonnull byte[] data) throws IOException {
+        return compress(data, null);
+    }
+
+    /**
+     * Compresses serialized message in case compression pays off for the similar messages.
+     *
+     * @param data serialized message.
+     * @param message message which has been serialized, its type and signature
+     *                 identify similar messages.
+     * @return compressed or stored bytes.
+     * @throws IOException in case message cannot be compressed.
+     */
+    @Nonnull
+    public byte[] compress(@Nonnull byte[] data, @Nullable Object message) throws IOException {
+        final Decision decision = getDecision(message);
+        if (!decision.shouldCompress()) {
+            decision.stored(data.length);
+            return prepend(STORED, data, 0, data.length);
+        }
+        final long started = System.nanoTime();
+        final byte[] compressed = delegate.compress(data);
+        decision.compressed(data.length, compressed.length, System.nanoTime() - started);
+        return prepend(COMPRESSED, compressed, 0, compressed.length);
+    }
+
+    private Decision getDecision(Object message) {
+        final Key key = new Key(message);
+        final Decision existing = decisions.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final Decision created = new Decision(key);
+        final Decision previous = decisions.putIfAbsent(key, created);
+        return previous == null ? created : previous;
+    }
+
+    private static byte[] prepend(byte flag, byte[] data, int offset, int length) {
+        final byte[] result = new byte[length + 1];
+        result[0] = flag;
+        System.arraycopy(data, offset, result, 1, length);
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] decompress(@Nonnull byte[] data) throws IOException {
+        if (data.length == 0) {
+            throw new RmiException("Adaptively compressed message has no header");
+        }
+        final byte[] rest = Arrays.copyOfRange(data, 1, data.length);
+        switch (data[0]) {
+            case STORED:
+                return rest;
+            case COMPRESSED:
+                return delegate.decompress(rest);
+            default:
+                throw new RmiException(String.format("Unknown '%s' compression header",
+                                data[0]));
+        }
+    }
+
+    @Nonnull
+    @Override
+    public InputStream decompress(@Nonnull InputStream data) throws IOException {
+        final int header = data.read();
+        switch (header) {
+            case STORED:
+                return data;
+            case COMPRESSED:
+                return KryoDeserializer.decompress(delegate, data);
+            default:
+                throw new RmiException(String.format("Unknown '%s' compression header", header));
+        }
+    }
+
+    /**
+     * Provides statistics and current decisions for every kind of sent messages.
+     *
+     * @return snapshot of the statistics.
+     */
+    @Nonnull
+    public List<CompressionStats> getStats() {
+        final List<CompressionStats> result = new ArrayList<>();
+        for (Decision decision : decisions.values()) {
+            result.add(decision.getStats());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                        "%s [delegate=%s, probeMessages=%s, probeInterval=%s, minSaving=%s, maxNanosPerSavedByte=%s]",
+                        getClass().getSimpleName(), delegate, probeMessages, probeInterval,
+                        minSaving, maxNanosPerSavedByte);
+    }
+
+    /**
+     * {@link Key} identifies messages of the same type sent for the same method.
+     */
+    private static final class Key {
+        private final Class<?> type;
+        private final RmiSignature<?> signature;
+
+        private Key(Object message) {
+            this.type = message == null ? null : message.getClass();
+            this.signature = message instanceof RmiMessage
+                            ? ((RmiMessage<?>)message).getMessageId().getSignature()
+                            : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key)o;
+            return type == other.type && Objects.equals(signature, other.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, signature);
+        }
+
+        @Override
+        public String toString() {
+            if (signature == null) {
+                return type == null ? "unknown" : type.getSimpleName();
+            }
+            return String.format("%s %s#%s", type.getSimpleName(),
+                            signature.getInterfaceType().getSimpleName(),
+                            signature.getMethodName());
+        }
+    }
+
+    /**
+     * {@link Decision} collects statistics of the similar messages and decides whether they
+     * should be compressed.
+     */
+    @ThreadSafe
+    private final class Decision {
+        private final Key key;
+        @GuardedBy("this")
+        private boolean compressing = true;
+        @GuardedBy("this")
+        private int remaining = probeMessages;
+        @GuardedBy("this")
+        private long probeRawBytes;
+        @GuardedBy("this")
+        private long probeCompressedBytes;
+        @GuardedBy("this")
+        private long probeNanos;
+        @GuardedBy("this")
+        private long messages;
+        @GuardedBy("this")
+        private long compressedMessages;
+        @GuardedBy("this")
+        private long rawBytes;
+        @GuardedBy("this")
+        private long sentBytes;
+        @GuardedBy("this")
+        private long compressionNanos;
+
+        private Decision(Key key) {
+            this.key = key;
+        }
+
+        private synchronized boolean shouldCompress() {
+            if (!compressing && --remaining <= 0) {
+                compressing = true;
+                remaining = probeMessages;
+                LOGGER.debug("Probing compression of '{}' again", key);
+            }
+            return compressing;
+        }
+
+        private synchronized void stored(int size) {
+            messages++;
+            rawBytes += size;
+            sentBytes += size;
+        }
+
+        private synchronized void compressed(int size, int compressedSize, long nanos) {
+            messages++;
+            compressedMessages++;
+            rawBytes += size;
+            sentBytes += compressedSize;
+            compressionNanos += nanos;
+            probeRawBytes += size;
+            probeCompressedBytes += compressedSize;
+            probeNanos += nanos;
+            if (--remaining > 0) {
+                return;
+            }
+            final long saved = probeRawBytes - probeCompressedBytes;
+            compressing = saved >= probeRawBytes * minSaving
+                            && probeNanos <= saved * maxNanosPerSavedByte;
+            remaining = compressing ? probeMessages : probeInterval;
+            LOGGER.debug("Compression of '{}' {}: '{}' bytes saved of '{}' in '{}' nanoseconds",
+                            key, compressing ? "pays off" : "does not pay off", saved,
+                            probeRawBytes, probeNanos);
+            probeRawBytes = 0L;
+            probeCompressedBytes = 0L;
+            probeNanos = 0L;
+        }
+
+        private synchronized CompressionStats getStats() {
+            return new CompressionStats(key.toString(), compressing, messages,
+                            compressedMessages, rawBytes, sentBytes, compressionNanos);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.RmiException;
+import com.github.avasin.yarmij.transport.FrameInputStream;
+
+/**
+ * {@link BudgetedDeserializer} applies {@link InboundBudget} limits to the messages deserialized
+ * by the delegate. Length of the frame read from the transport is checked and charged to the
+ * budget before any of its bytes is read. Decompressed size is enforced by
+ * {@link StreamingDeserializer} delegates, while message is read in case their compression is
+ * {@link StreamingCompression} or right after decompression otherwise.
+ */
+@ThreadSafe
+public class BudgetedDeserializer
+                implements StreamingDeserializer, SessionScoped<Deserializer>, Closeable {
+    private final Deserializer delegate;
+    private final InboundBudget budget;
+
+    /**
+     * Creates {@link BudgetedDeserializer} instance.
+     *
+     * @param delegate deserializer which actually deserializes messages.
+     * @param budget limits which should be applied, could be shared by many
+     *                 deserializers.
+     */
+    public BudgetedDeserializer(@Nonnull Deserializer delegate, @Nonnull InboundBudget budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+    }
+
+    /**
+     * Provides limits applied to the messages.
+     *
+     * @return budget shared by the deserializers.
+     */
+    @Nonnull
+    public InboundBudget getBudget() {
+        return budget;
+    }
+
+    @Nonnull
+    @Override
+    public Deserializer openSession() {
+        final Deserializer opened = Sessions.open(delegate);
+        return opened == delegate ? this : new BudgetedDeserializer(opened, budget);
+    }
+
+    @Nullable
+    @Override
+    public <T> T deserialize(@Nullable byte[] data, @Nonnull Class<T> desiredType)
+                    throws RmiException {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        return deserialize(new ByteArrayInputStream(data), data.length, desiredType,
+                        Long.MAX_VALUE);
+    }
+
+    @Nullable
+    @Override
+    public <T> T deserialize(@Nonnull InputStream data, @Nonnull Class<T> desiredType,
+                    long maxSize) throws RmiException {
+        if (data instanceof FrameInputStream) {
+            return deserialize(data, ((FrameInputStream)data).getLength(), desiredType, maxSize);
+        }
+        return deserialize(data, 0, desiredType, maxSize);
+    }
+
+    private <T> T deserialize(InputStream data, int length, Class<T> desiredType, long maxSize)
+                    throws RmiException {
+        final long charge = budget.acquire(length);
+        final long limit = Math.min(maxSize, budget.getMaxDecompressedSize());
+        try {
+            if (delegate instanceof StreamingDeserializer) {
+                return ((StreamingDeserializer)delegate).deserialize(data, desiredType, limit);
+            }
+            try (InputStream source = data) {
+                return delegate.deserialize(KryoDeserializer.readFully(source), desiredType);
+            } catch (IOException ex) {
+                throw new RmiException("Cannot read received message", ex);
+            }
+        } catch (RmiException ex) {
+            if (LimitedInputStream.isLimitExceeded(ex)) {
+                budget.rejected();
+            }
+            throw ex;
+        } finally {
+            budget.release(charge);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Sessions.close(delegate);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [delegate=%s, budget=%s]", getClass().getSimpleName(), delegate,
+                        budget);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link Compression} reduces size of the serialized message before it is sent. Implementations
+ * which keep state between messages should implement {@link SessionScoped}, so each connection
+ * gets its own instance, and {@link java.io.Closeable} in case state holds resources.
+ */
+public interface Compression {
+    /**
+     * Compresses serialized message.
+     *
+     * @param data serialized message.
+     * @return compressed bytes.
+     * @throws IOException in case data cannot be compressed.
+     */
+    @Nonnull
+    byte[] compress(@Nonnull byte[] data) throws IOException;
+
+    /**
+     * Restores serialized message from compressed bytes.
+     *
+     * @param data compressed bytes.
+     * @return serialized message.
+     * @throws IOException in case data cannot be decompressed.
+     */
+    @Nonnull
+    byte[] decompress(@Nonnull byte[] data) throws IOException;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link CompressionStats} is a snapshot of the statistics collected by
+ * {@link AdaptiveCompression} for messages of the same type sent for the same method.
+ */
+@Immutable
+public class CompressionStats {
+    private final String messages;
+    private final boolean compressing;
+    private final long count;
+    private final long compressedCount;
+    private final long rawBytes;
+    private final long sentBytes;
+    private final long compressionNanos;
+
+    /**
+     * Creates {@link CompressionStats} instance.
+     *
+     * @param messages description of the message type and method signature.
+     * @param compressing whether such messages are currently compressed.
+     * @param count number of sent messages.
+     * @param compressedCount number of sent messages which have been compressed.
+     * @param rawBytes total size of the serialized messages.
+     * @param sentBytes total size of the messages after compression.
+     * @param compressionNanos total time spent on compression in nanoseconds.
+     */
+    public CompressionStats(@Nonnull String messages, boolean compressing, long count,
+                    long compressedCount, long rawBytes, long sentBytes, long compressionNanos) {
+        this.messages = messages;
+        this.compressing = compressing;
+        this.count = count;
+        this.compressedCount = compressedCount;
+        this.rawBytes = rawBytes;
+        this.sentBytes = sentBytes;
+        this.compressionNanos = compressionNanos;
+    }
+
+    @Nonnull
+    public String getMessages() {
+        return messages;
+    }
+
+    public boolean isCompressing() {
+        return compressing;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getCompressedCount() {
+        return compressedCount;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public long getSavedBytes() {
+        return rawBytes - sentBytes;
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                        "%s [messages=%s, compressing=%s, count=%s, compressedCount=%s, rawBytes=%s, sentBytes=%s, compressionNanos=%s]",
+                        getClass().getSimpleName(), messages, compressing, count,
+                        compressedCount, rawBytes, sentBytes, compressionNanos);
+    }
+}
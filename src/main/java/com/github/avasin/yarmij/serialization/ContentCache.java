@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link ContentCache} remembers contents sent through the connection by their digests, least
+ * recently used contents are forgotten once their total size exceeds the limit. Both ends of the
+ * connection keep the same cache, which changes in the same way as long as the same operations
+ * are applied in the same order, so sender knows which contents receiver still keeps.
+ */
+@NotThreadSafe
+class ContentCache {
+    private final long maxBytes;
+    private final LinkedHashMap<ByteBuffer, Entry> entries;
+    private long bytes;
+
+    /**
+     * Creates empty {@link ContentCache} instance.
+     *
+     * @param maxBytes maximum total size of the remembered contents.
+     */
+    ContentCache(long maxBytes) {
+        this(maxBytes, new LinkedHashMap<ByteBuffer, Entry>(16, 0.75F, true), 0L);
+    }
+
+    private ContentCache(long maxBytes, LinkedHashMap<ByteBuffer, Entry> entries, long bytes) {
+        this.maxBytes = maxBytes;
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Marks content as recently used.
+     *
+     * @param digest digest of the content.
+     * @return {@code true} in case content is remembered.
+     */
+    boolean touch(@Nonnull byte[] digest) {
+        return entries.get(ByteBuffer.wrap(digest)) != null;
+    }
+
+    /**
+     * Provides remembered content and marks it as recently used.
+     *
+     * @param digest digest of the content.
+     * @return remembered content or {@code null} in case it has been forgotten or has not
+     *                 been kept.
+     */
+    @Nullable
+    byte[] get(@Nonnull byte[] digest) {
+        final Entry entry = entries.get(ByteBuffer.wrap(digest));
+        return entry == null ? null : entry.content;
+    }
+
+    /**
+     * Remembers content, forgetting least recently used ones in case limit is exceeded.
+     *
+     * @param digest digest of the content.
+     * @param size size of the content.
+     * @param content content itself or {@code null} in case only digest should be kept.
+     */
+    void put(@Nonnull byte[] digest, int size, @Nullable byte[] content) {
+        final Entry previous = entries.put(ByteBuffer.wrap(digest), new Entry(size, content));
+        bytes += size - (previous == null ? 0 : previous.size);
+        for (Iterator<Entry> iterator = entries.values().iterator();
+                        bytes > maxBytes && iterator.hasNext();) {
+            bytes -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Creates independent copy of the cache, so changes could be discarded.
+     *
+     * @return copy of the cache.
+     */
+    @Nonnull
+    ContentCache copy() {
+        final LinkedHashMap<ByteBuffer, Entry> copied =
+                        new LinkedHashMap<>(Math.max(16, entries.size() * 2), 0.75F, true);
+        for (Map.Entry<ByteBuffer, Entry> entry : entries.entrySet()) {
+            copied.put(entry.getKey(), entry.getValue());
+        }
+        return new ContentCache(maxBytes, copied, bytes);
+    }
+
+    /**
+     * {@link Entry} is a remembered content.
+     */
+    private static final class Entry {
+        private final int size;
+        private final byte[] content;
+
+        private Entry(int size, byte[] content) {
+            this.size = size;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ContentReference} replaces large argument of the invocation. It carries serialized
+ * argument the first time argument is sent through the connection, later only its digest is sent.
+ */
+final class ContentReference {
+    private final byte[] digest;
+    private final byte[] content;
+
+    /**
+     * Required by Kryo library for serialization.
+     */
+    private ContentReference() {
+        this(null, null);
+    }
+
+    /**
+     * Creates {@link ContentReference} instance.
+     *
+     * @param digest digest of the serialized argument.
+     * @param content serialized argument or {@code null} in case other side already
+     *                 keeps it.
+     */
+    ContentReference(@Nonnull byte[] digest, @Nullable byte[] content) {
+        this.digest = digest;
+        this.content = content;
+    }
+
+    @Nonnull
+    byte[] getDigest() {
+        return digest;
+    }
+
+    @Nullable
+    byte[] getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link Copier} creates deep copies of the objects, so copy does not share mutable state with
+ * the original.
+ */
+public interface Copier {
+    /**
+     * Creates deep copy of the object.
+     *
+     * @param data object instance which is going to be copied.
+     * @param <T> type of the object.
+     * @return deep copy of the source object or {@code null} in case source object is
+     *                 {@code null}.
+     * @throws RmiException in case object cannot be copied.
+     */
+    @Nullable
+    <T> T copy(@Nullable T data) throws RmiException;
+}
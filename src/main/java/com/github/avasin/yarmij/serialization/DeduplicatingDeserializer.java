@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.esotericsoftware.kryo.io.Input;
+
+import com.github.avasin.yarmij.RmiException;
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+
+/**
+ * {@link DeduplicatingDeserializer} restores large arguments of the invocations sent by
+ * {@link DeduplicatingSerializer}. Contents received through the connection are kept by their
+ * digests until limit, which should be the same as the sender's one, is exceeded. Every
+ * invocation receives its own copy of the argument deserialized from the kept content, so
+ * invocations never share mutable objects.
+ */
+@ThreadSafe
+public class DeduplicatingDeserializer extends AbstractKryo
+                implements StreamingDeserializer, SessionScoped<Deserializer>, Closeable {
+    private final Deserializer delegate;
+    private final long maxBytes;
+    @GuardedBy("this")
+    private final ContentCache cache;
+
+    /**
+     * Creates {@link DeduplicatingDeserializer} instance with default limit.
+     *
+     * @param delegate deserializer which actually deserializes messages.
+     */
+    public DeduplicatingDeserializer(@Nonnull Deserializer delegate) {
+        this(delegate, DeduplicatingSerializer.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates {@link DeduplicatingDeserializer} instance.
+     *
+     * @param delegate deserializer which actually deserializes messages.
+     * @param maxBytes maximum total size of the contents remembered for each connection.
+     */
+    public DeduplicatingDeserializer(@Nonnull Deserializer delegate, long maxBytes) {
+        this(delegate, maxBytes, null);
+    }
+
+    private DeduplicatingDeserializer(Deserializer delegate, long maxBytes, ContentCache cache) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.cache = cache;
+    }
+
+    @Nonnull
+    @Override
+    public Deserializer openSession() {
+        return new DeduplicatingDeserializer(Sessions.open(delegate), maxBytes,
+                        new ContentCache(maxBytes));
+    }
+
+    @Nullable
+    @Override
+    public <T> T deserialize(@Nullable byte[] data, @Nonnull Class<T> desiredType)
+                    throws RmiException {
+        return resolve(delegate.deserialize(data, desiredType), desiredType);
+    }
+
+    @Nullable
+    @Override
+    public <T> T deserialize(@Nonnull InputStream data, @Nonnull Class<T> desiredType,
+                    long maxSize) throws RmiException {
+        if (delegate instanceof StreamingDeserializer) {
+            return resolve(((StreamingDeserializer)delegate).deserialize(data, desiredType,
+                            maxSize), desiredType);
+        }
+        try (InputStream source = data) {
+            return deserialize(KryoDeserializer.readFully(source), desiredType);
+        } catch (IOException ex) {
+            throw new RmiException("Cannot read received message", ex);
+        }
+    }
+
+    private <T> T resolve(T data, Class<T> desiredType) throws RmiException {
+        if (cache == null || !(data instanceof RmiInvokeMethodMessage)) {
+            return data;
+        }
+        final RmiInvokeMethodMessage<?> message = (RmiInvokeMethodMessage<?>)data;
+        final Object[] args = message.getArgs();
+        if (args == null) {
+            return data;
+        }
+        Object[] replaced = null;
+        synchronized (this) {
+            for (int i = 0; i < args.length; i++) {
+                if (!(args[i] instanceof ContentReference)) {
+                    continue;
+                }
+                if (replaced == null) {
+                    replaced = args.clone();
+                }
+                replaced[i] = restore((ContentReference)args[i]);
+            }
+        }
+        return replaced == null ? data : desiredType.cast(message.withArgs(replaced));
+    }
+
+    @GuardedBy("this")
+    private Object restore(ContentReference reference) throws RmiException {
+        final byte[] digest = reference.getDigest();
+        byte[] content = reference.getContent();
+        if (content == null) {
+            content = cache.get(digest);
+            if (content == null) {
+                throw new RmiException(String.format("Content '%064x' is unknown, limits of "
+                                + "the sender and receiver differ", new BigInteger(1, digest)));
+            }
+        } else {
+            cache.put(digest, content.length, content);
+        }
+        try (Input input = new Input(content)) {
+            return getInstance().readClassAndObject(input);
+        } catch (Exception ex) {
+            throw new RmiException("Cannot deserialize deduplicated argument", ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Sessions.close(delegate);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [delegate=%s, maxBytes=%s]", getClass().getSimpleName(),
+                        delegate, maxBytes);
+    }
+}
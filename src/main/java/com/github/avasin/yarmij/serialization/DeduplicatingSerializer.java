@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.esotericsoftware.kryo.io.Output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.RmiException;
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+
+/**
+ * {@link DeduplicatingSerializer} sends every large argument of the invocation through the
+ * connection only once. Argument which serialized form exceeds the threshold is replaced with its
+ * digest, content is attached only in case it has not been sent through the connection before or
+ * has been forgotten since. Contents are forgotten in least recently used order once their total
+ * size exceeds the limit, {@link DeduplicatingDeserializer} on the other side should use the same
+ * limit, so both sides forget the same contents. Messages are serialized by the delegate, which
+ * should not change their order.
+ */
+@ThreadSafe
+public class DeduplicatingSerializer extends AbstractKryo
+                implements Serializer, SessionScoped<Serializer>, Closeable {
+    /**
+     * Minimal size of the argument which is deduplicated used unless specified explicitly.
+     */
+    public static final int DEFAULT_MIN_SIZE = 64 * 1024;
+    /**
+     * Maximum total size of the remembered contents used unless specified explicitly.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatingSerializer.class);
+    private final Serializer delegate;
+    private final int minSize;
+    private final long maxBytes;
+    private final Counters counters;
+    @GuardedBy("this")
+    private ContentCache cache;
+
+    /**
+     * Creates {@link DeduplicatingSerializer} instance with default threshold and limit.
+     *
+     * @param delegate serializer which actually serializes messages.
+     */
+    public DeduplicatingSerializer(@Nonnull Serializer delegate) {
+        this(delegate, DEFAULT_MIN_SIZE, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates {@link DeduplicatingSerializer} instance.
+     *
+     * @param delegate serializer which actually serializes messages.
+     * @param minSize minimal size of the serialized argument which should be
+     *                 deduplicated.
+     * @param maxBytes maximum total size of the contents remembered for each connection.
+     */
+    public DeduplicatingSerializer(@Nonnull Serializer delegate, int minSize, long maxBytes) {
+        this(delegate, minSize, maxBytes, new Counters(), null);
+    }
+
+    private DeduplicatingSerializer(Serializer delegate, int minSize, long maxBytes,
+                    Counters counters, ContentCache cache) {
+        this.delegate = delegate;
+        this.minSize = minSize;
+        this.maxBytes = maxBytes;
+        this.counters = counters;
+        this.cache = cache;
+    }
+
+    @Nonnull
+    @Override
+    public Serializer openSession() {
+        return new DeduplicatingSerializer(Sessions.open(delegate), minSize, maxBytes, counters,
+                        new ContentCache(maxBytes));
+    }
+
+    @Nullable
+    @Override
+    public synchronized byte[] serialize(@Nullable Object data) throws RmiException {
+        if (cache == null || !(data instanceof RmiInvokeMethodMessage)) {
+            return delegate.serialize(data);
+        }
+        final RmiInvokeMethodMessage<?> message = (RmiInvokeMethodMessage<?>)data;
+        final Object[] args = message.getArgs();
+        if (args == null) {
+            return delegate.serialize(data);
+        }
+        ContentCache next = null;
+        Object[] replaced = null;
+        long uploaded = 0L;
+        long uploadedBytes = 0L;
+        long deduplicated = 0L;
+        long savedBytes = 0L;
+        for (int i = 0; i < args.length; i++) {
+            final byte[] content = toContent(args[i]);
+            if (content == null) {
+                continue;
+            }
+            if (next == null) {
+                next = cache.copy();
+                replaced = args.clone();
+            }
+            final byte[] digest = digest(content);
+            if (next.touch(digest)) {
+                replaced[i] = new ContentReference(digest, null);
+                deduplicated++;
+                savedBytes += content.length;
+            } else {
+                next.put(digest, content.length, null);
+                replaced[i] = new ContentReference(digest, content);
+                uploaded++;
+                uploadedBytes += content.length;
+            }
+        }
+        if (next == null) {
+            return delegate.serialize(data);
+        }
+        final byte[] result = delegate.serialize(message.withArgs(replaced));
+        cache = next;
+        counters.add(uploaded, deduplicated, uploadedBytes, savedBytes);
+        LOGGER.trace("{} sent '{}' arguments as digests", message, deduplicated);
+        return result;
+    }
+
+    private byte[] toContent(Object arg) throws RmiException {
+        if (arg == null || arg instanceof Number || arg instanceof Boolean
+                        || arg instanceof Character || arg instanceof Enum
+                        || arg instanceof String && ((String)arg).length() * 3 < minSize
+                        || arg instanceof byte[] && ((byte[])arg).length < minSize) {
+            return null;
+        }
+        try (ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+                        Output output = new Output(serialized)) {
+            getInstance().writeClassAndObject(output, arg);
+            output.flush();
+            return serialized.size() < minSize ? null : serialized.toByteArray();
+        } catch (Exception ex) {
+            throw new RmiException(String.format("Cannot serialize '%s' argument",
+                            arg.getClass().getSimpleName()), ex);
+        }
+    }
+
+    /**
+     * Calculates digest of the content.
+     *
+     * @param content serialized argument.
+     * @return digest which identifies content.
+     */
+    @Nonnull
+    static byte[] digest(@Nonnull byte[] content) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Provides statistics of the large arguments sent by all connections.
+     *
+     * @return snapshot of the statistics.
+     */
+    @Nonnull
+    public DeduplicationStats getStats() {
+        return counters.getStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Sessions.close(delegate);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [delegate=%s, minSize=%s, maxBytes=%s]",
+                        getClass().getSimpleName(), delegate, minSize, maxBytes);
+    }
+
+    /**
+     * {@link Counters} collects statistics shared by all sessions.
+     */
+    private static final class Counters {
+        private final AtomicLong uploaded = new AtomicLong();
+        private final AtomicLong deduplicated = new AtomicLong();
+        private final AtomicLong uploadedBytes = new AtomicLong();
+        private final AtomicLong savedBytes = new AtomicLong();
+
+        private void add(long uploadedArgs, long deduplicatedArgs, long uploadedSize,
+                        long savedSize) {
+            uploaded.addAndGet(uploadedArgs);
+            deduplicated.addAndGet(deduplicatedArgs);
+            uploadedBytes.addAndGet(uploadedSize);
+            savedBytes.addAndGet(savedSize);
+        }
+
+        private DeduplicationStats getStats() {
+            return new DeduplicationStats(uploaded.get(), deduplicated.get(), uploadedBytes.get(),
+                            savedBytes.get());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link DeduplicationStats} is a snapshot of the statistics collected by
+ * {@link DeduplicatingSerializer} for large arguments of the invocations.
+ */
+@Immutable
+public class DeduplicationStats {
+    private final long uploaded;
+    private final long deduplicated;
+    private final long uploadedBytes;
+    private final long savedBytes;
+
+    /**
+     * Creates {@link DeduplicationStats} instance.
+     *
+     * @param uploaded number of large arguments sent with their content.
+     * @param deduplicated number of large arguments sent as digests only.
+     * @param uploadedBytes total size of the sent contents.
+     * @param savedBytes total size of the contents which have not been sent again.
+     */
+    public DeduplicationStats(long uploaded, long deduplicated, long uploadedBytes,
+                    long savedBytes) {
+        this.uploaded = uploaded;
+        this.deduplicated = deduplicated;
+        this.uploadedBytes = uploadedBytes;
+        this.savedBytes = savedBytes;
+    }
+
+    public long getUploaded() {
+        return uploaded;
+    }
+
+    public long getDeduplicated() {
+        return deduplicated;
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [uploaded=%s, deduplicated=%s, uploadedBytes=%s, savedBytes=%s]",
+                        getClass().getSimpleName(), uploaded, deduplicated, uploadedBytes,
+                        savedBytes);
+    }
+}
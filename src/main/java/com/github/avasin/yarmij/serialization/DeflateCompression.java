@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DeflateCompression} compresses messages of a single connection with context takeover:
+ * every message is compressed as raw deflate block with the tail of previously transferred
+ * messages used as preset dictionary, so similar messages are encoded as references to the
+ * previous ones. Memory kept per connection is bounded by the window size, deflate state itself
+ * is shared by all connections served by the same thread. Both sides should use the same window
+ * size, messages should be decompressed in the order they have been compressed.
+ */
+@NotThreadSafe
+public class DeflateCompression implements Compression, SessionScoped<Compression> {
+    /**
+     * Maximum window size supported by deflate.
+     */
+    public static final int MAX_WINDOW_SIZE = 32 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeflateCompression.class);
+    private static final int DEFAULT_WINDOW_SIZE = 16 * 1024;
+    private final int windowSize;
+    private final int level;
+    private final byte[] window;
+    private int windowLength;
+
+    /**
+     * Creates {@link DeflateCompression} instance with 16 KiB window and default compression
+     * level.
+     */
+    public DeflateCompression() {
+        this(DEFAULT_WINDOW_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates {@link DeflateCompression} instance.
+     *
+     * @param windowSize number of previously transferred bytes used as dictionary, up to
+     *                 {@link #MAX_WINDOW_SIZE}, zero disables context takeover.
+     * @param level compression level from {@link Deflater#BEST_SPEED} to
+     *                 {@link Deflater#BEST_COMPRESSION} or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public DeflateCompression(int windowSize, int level) {
+        if (windowSize < 0 || windowSize > MAX_WINDOW_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                            "Window size '%s' should be between 0 and %s", windowSize,
+                            MAX_WINDOW_SIZE));
+        }
+        this.windowSize = windowSize;
+        this.level = Deflaters.checkLevel(level);
+        this.window = new byte[windowSize];
+    }
+
+    @Nonnull
+    @Override
+    public Compression openSession() {
+        return new DeflateCompression(windowSize, level);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] compress(@Nonnull byte[] data) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 16);
+        Deflaters.deflate(data, level, window, windowLength, compressed);
+        final byte[] result = compressed.toByteArray();
+        LOGGER.trace("Serialized '{}' bytes compressed into '{}' bytes with '{}' bytes of context",
+                        data.length, result.length, windowLength);
+        remember(data);
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] decompress(@Nonnull byte[] data) throws IOException {
+        final byte[] result = Deflaters.inflate(data, 0, window, windowLength);
+        remember(result);
+        LOGGER.trace("Decompressed '{}' bytes from '{}' bytes", result.length, data.length);
+        return result;
+    }
+
+    private void remember(byte[] data) {
+        if (data.length >= windowSize) {
+            System.arraycopy(data, data.length - windowSize, window, 0, windowSize);
+            windowLength = windowSize;
+            return;
+        }
+        final int kept = Math.min(windowLength, windowSize - data.length);
+        System.arraycopy(window, windowLength - kept, window, 0, kept);
+        System.arraycopy(data, 0, window, kept, data.length);
+        windowLength = kept + data.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [windowSize=%s, level=%s]", getClass().getSimpleName(),
+                        windowSize, level);
+    }
+}
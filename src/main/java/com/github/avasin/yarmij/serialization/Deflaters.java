@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link Deflaters} compresses and decompresses raw deflate blocks with optional preset
+ * dictionary. Native deflate state is kept per thread, so compressions do not hold it per
+ * connection.
+ */
+final class Deflaters {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int LEVELS = Deflater.BEST_COMPRESSION + 2;
+    private static final ThreadLocal<Deflater[]> DEFLATERS = new ThreadLocal<Deflater[]>() {
+        @Override
+        protected Deflater[] initialValue() {
+            return new Deflater[LEVELS];
+        }
+    };
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private Deflaters() {
+    }
+
+    /**
+     * Checks whether compression level is supported.
+     *
+     * @param level compression level.
+     * @return the same level.
+     * @throws IllegalArgumentException in case level is not supported.
+     */
+    static int checkLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(
+                            String.format("Unsupported compression level '%s'", level));
+        }
+        return level;
+    }
+
+    /**
+     * Compresses data into raw deflate block.
+     *
+     * @param data data to compress.
+     * @param level compression level.
+     * @param dictionary preset dictionary or {@code null}.
+     * @param dictionaryLength number of dictionary bytes to use.
+     * @param output receives compressed bytes.
+     */
+    static void deflate(@Nonnull byte[] data, int level, @Nullable byte[] dictionary,
+                    int dictionaryLength, @Nonnull ByteArrayOutputStream output) {
+        final Deflater deflater = getDeflater(level);
+        deflater.reset();
+        if (dictionary != null && dictionaryLength > 0) {
+            deflater.setDictionary(dictionary, 0, dictionaryLength);
+        }
+        deflater.setInput(data);
+        deflater.finish();
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        while (!deflater.finished()) {
+            final int written = deflater.deflate(chunk);
+            output.write(chunk, 0, written);
+        }
+    }
+
+    /**
+     * Decompresses raw deflate block.
+     *
+     * @param data compressed bytes.
+     * @param offset position of the block in the data.
+     * @param dictionary preset dictionary used by compression or {@code null}.
+     * @param dictionaryLength number of dictionary bytes to use.
+     * @return decompressed bytes.
+     * @throws RmiException in case data is corrupted or does not match the dictionary.
+     */
+    @Nonnull
+    static byte[] inflate(@Nonnull byte[] data, int offset, @Nullable byte[] dictionary,
+                    int dictionaryLength) throws RmiException {
+        final Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        if (dictionary != null && dictionaryLength > 0) {
+            inflater.setDictionary(dictionary, 0, dictionaryLength);
+        }
+        inflater.setInput(data, offset, data.length - offset);
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream(data.length * 4);
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        try {
+            while (!inflater.finished()) {
+                final int read = inflater.inflate(chunk);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new RmiException(String.format(
+                                    "Compressed message of '%s' bytes is truncated", data.length));
+                }
+                decompressed.write(chunk, 0, read);
+            }
+        } catch (DataFormatException ex) {
+            throw new RmiException(String.format("Decompression from '%s' bytes failed",
+                            data.length), ex);
+        }
+        return decompressed.toByteArray();
+    }
+
+    private static Deflater getDeflater(int level) {
+        final Deflater[] deflaters = DEFLATERS.get();
+        final int index = level - Deflater.DEFAULT_COMPRESSION;
+        Deflater result = deflaters[index];
+        if (result == null) {
+            result = new Deflater(level, true);
+            deflaters[index] = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link DictionaryCompression} compresses every message independently as raw deflate block with
+ * preset dictionary built from representative messages by {@link DictionaryTrainer}, so even small
+ * messages are compressed well without keeping state between messages. Each message starts with
+ * the Adler-32 identifier of the dictionary it has been compressed with, receiver picks the
+ * dictionary by identifier, so peers could switch to a new dictionary one by one while still
+ * accepting the old one.
+ */
+@ThreadSafe
+public class DictionaryCompression implements Compression {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryCompression.class);
+    private static final int ID_SIZE = 4;
+    private static final int BYTE_MASK = 0xFF;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    private final int level;
+    private final Map<Integer, byte[]> dictionaries = new HashMap<>();
+
+    /**
+     * Creates {@link DictionaryCompression} instance with default compression level.
+     *
+     * @param dictionary dictionary used to compress messages.
+     */
+    public DictionaryCompression(@Nonnull byte[] dictionary) {
+        this(dictionary, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates {@link DictionaryCompression} instance.
+     *
+     * @param dictionary dictionary used to compress messages.
+     * @param level compression level from {@link Deflater#BEST_SPEED} to
+     *                 {@link Deflater#BEST_COMPRESSION} or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param accepted other dictionaries which could be used by the other side.
+     */
+    public DictionaryCompression(@Nonnull byte[] dictionary, int level,
+                    @Nonnull byte[]... accepted) {
+        this.dictionary = dictionary.clone();
+        this.dictionaryId = getDictionaryId(dictionary);
+        this.level = Deflaters.checkLevel(level);
+        for (byte[] other : accepted) {
+            dictionaries.put(getDictionaryId(other), other.clone());
+        }
+        dictionaries.put(dictionaryId, this.dictionary);
+    }
+
+    /**
+     * Creates {@link DictionaryCompression} instance with dictionary stored in the file.
+     *
+     * @param file file created by {@link DictionaryTrainer}.
+     * @return compression which uses the dictionary.
+     * @throws IOException in case file cannot be read.
+     */
+    @Nonnull
+    public static DictionaryCompression load(@Nonnull File file) throws IOException {
+        return new DictionaryCompression(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Calculates identifier of the dictionary.
+     *
+     * @param dictionary dictionary bytes.
+     * @return Adler-32 checksum of the dictionary, the same as used by zlib.
+     */
+    public static int getDictionaryId(@Nonnull byte[] dictionary) {
+        final Adler32 checksum = new Adler32();
+        checksum.update(dictionary, 0, dictionary.length);
+        return (int)checksum.getValue();
+    }
+
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] compress(@Nonnull byte[] data) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 16);
+        for (int shift = (ID_SIZE - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            compressed.write(dictionaryId >>> shift);
+        }
+        Deflaters.deflate(data, level, dictionary, dictionary.length, compressed);
+        final byte[] result = compressed.toByteArray();
+        LOGGER.trace("Serialized '{}' bytes compressed into '{}' bytes", data.length,
+                        result.length);
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] decompress(@Nonnull byte[] data) throws IOException {
+        if (data.length < ID_SIZE) {
+            throw new RmiException(String.format(
+                            "Compressed message of '%s' bytes has no dictionary identifier",
+                            data.length));
+        }
+        int id = 0;
+        for (int i = 0; i < ID_SIZE; i++) {
+            id = id << Byte.SIZE | data[i] & BYTE_MASK;
+        }
+        final byte[] used = dictionaries.get(id);
+        if (used == null) {
+            throw new RmiException(String.format("Message compressed with unknown '%08x' dictionary",
+                            id));
+        }
+        final byte[] result = Deflaters.inflate(data, ID_SIZE, used, used.length);
+        LOGGER.trace("Decompressed '{}' bytes from '{}' bytes", result.length, data.length);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [dictionaryId=%08x, dictionarySize=%s, level=%s]",
+                        getClass().getSimpleName(), dictionaryId, dictionary.length, level);
+    }
+}
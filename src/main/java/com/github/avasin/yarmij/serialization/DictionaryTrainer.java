@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DictionaryTrainer} captures serialized messages passing through it to the delegate
+ * {@link Compression} and builds dictionary for {@link DictionaryCompression} from them. Samples
+ * are chosen uniformly from all captured messages. Samples saved by
+ * {@link #saveSamples(File)} could be turned into dictionary offline:
+ * <pre>
+ * java com.github.avasin.yarmij.serialization.DictionaryTrainer samples dictionary.bin [size]
+ * </pre>
+ * Dictionary consists of byte sequences common for many samples, the most valuable ones are placed
+ * at the end of the dictionary, where deflate reaches them with the shortest distances.
+ */
+@ThreadSafe
+public class DictionaryTrainer implements Compression {
+    /**
+     * Default size of the dictionary, deflate could not refer further anyway.
+     */
+    public static final int DEFAULT_DICTIONARY_SIZE = DeflateCompression.MAX_WINDOW_SIZE;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryTrainer.class);
+    private static final int GRAM_SIZE = 8;
+    private static final int MIN_OCCURRENCES = 2;
+    private static final int OCCURRENCE_RATIO = 20;
+    private static final String SAMPLE_FORMAT = "sample-%05d.bin";
+    private final Compression delegate;
+    private final int maxSamples;
+    private final List<byte[]> samples = new ArrayList<>();
+    private final Random random = new Random();
+    private long captured;
+
+    /**
+     * Creates {@link DictionaryTrainer} instance.
+     *
+     * @param delegate compression which actually compresses messages, should not be
+     *                 {@link SessionScoped}.
+     * @param maxSamples maximum number of kept samples.
+     */
+    public DictionaryTrainer(@Nonnull Compression delegate, int maxSamples) {
+        this.delegate = delegate;
+        this.maxSamples = maxSamples;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] compress(@Nonnull byte[] data) throws IOException {
+        capture(data);
+        return delegate.compress(data);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] decompress(@Nonnull byte[] data) throws IOException {
+        final byte[] result = delegate.decompress(data);
+        capture(result);
+        return result;
+    }
+
+    private synchronized void capture(byte[] data) {
+        captured++;
+        if (samples.size() < maxSamples) {
+            samples.add(data.clone());
+            return;
+        }
+        final long index = (long)(random.nextDouble() * captured);
+        if (index < maxSamples) {
+            samples.set((int)index, data.clone());
+        }
+    }
+
+    /**
+     * Provides captured samples.
+     *
+     * @return copy of the captured samples.
+     */
+    @Nonnull
+    public synchronized List<byte[]> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    /**
+     * Saves captured samples into directory, one file per sample.
+     *
+     * @param directory directory which will contain samples.
+     * @throws IOException in case samples cannot be written.
+     */
+    public void saveSamples(@Nonnull File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        final List<byte[]> current = getSamples();
+        for (int i = 0; i < current.size(); i++) {
+            Files.write(new File(directory, String.format(SAMPLE_FORMAT, i)).toPath(),
+                            current.get(i));
+        }
+    }
+
+    /**
+     * Loads samples saved by {@link #saveSamples(File)}.
+     *
+     * @param directory directory which contains samples.
+     * @return loaded samples.
+     * @throws IOException in case samples cannot be read.
+     */
+    @Nonnull
+    public static List<byte[]> loadSamples(@Nonnull File directory) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException(String.format("Cannot list samples in '%s'", directory));
+        }
+        Arrays.sort(files);
+        final List<byte[]> result = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.isFile()) {
+                result.add(Files.readAllBytes(file.toPath()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds dictionary from captured samples.
+     *
+     * @param maxSize maximum size of the dictionary in bytes.
+     * @return dictionary bytes.
+     */
+    @Nonnull
+    public byte[] train(int maxSize) {
+        return train(getSamples(), maxSize);
+    }
+
+    /**
+     * Builds dictionary from samples. Byte sequences which occur in at least 5% of samples are
+     * collected, ranked by their frequency multiplied by length and concatenated until the size
+     * limit is reached.
+     *
+     * @param samples serialized messages representative for the traffic.
+     * @param maxSize maximum size of the dictionary in bytes.
+     * @return dictionary bytes.
+     */
+    @Nonnull
+    public static byte[] train(@Nonnull Collection<byte[]> samples, int maxSize) {
+        final Map<String, Integer> occurrences = countGrams(samples);
+        final int threshold = Math.max(MIN_OCCURRENCES, samples.size() / OCCURRENCE_RATIO);
+        final Map<String, Long> segments = new HashMap<>();
+        for (byte[] sample : samples) {
+            final String text = new String(sample, StandardCharsets.ISO_8859_1);
+            int start = -1;
+            long score = 0L;
+            for (int i = 0; i <= text.length() - GRAM_SIZE; i++) {
+                final int count = occurrences.get(text.substring(i, i + GRAM_SIZE));
+                if (count >= threshold) {
+                    if (start < 0) {
+                        start = i;
+                        score = 0L;
+                    }
+                    score += count;
+                    continue;
+                }
+                addSegment(segments, text, start, i - 1 + GRAM_SIZE, score);
+                start = -1;
+            }
+            addSegment(segments, text, start, text.length(), score);
+        }
+        final List<Map.Entry<String, Long>> ranked = new ArrayList<>(segments.entrySet());
+        Collections.sort(ranked, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> first, Map.Entry<String, Long> second) {
+                return Long.compare(second.getValue(), first.getValue());
+            }
+        });
+        final List<String> selected = new ArrayList<>();
+        final StringBuilder all = new StringBuilder();
+        int size = 0;
+        for (Map.Entry<String, Long> segment : ranked) {
+            final String value = segment.getKey();
+            if (size + value.length() > maxSize || all.indexOf(value) >= 0) {
+                continue;
+            }
+            selected.add(value);
+            all.append(value);
+            size += value.length();
+        }
+        final StringBuilder result = new StringBuilder(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            result.append(selected.get(i));
+        }
+        LOGGER.debug("Dictionary of '{}' bytes built from '{}' segments of '{}' samples", size,
+                        selected.size(), samples.size());
+        return result.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static Map<String, Integer> countGrams(Collection<byte[]> samples) {
+        final Map<String, Integer> result = new HashMap<>();
+        for (byte[] sample : samples) {
+            final String text = new String(sample, StandardCharsets.ISO_8859_1);
+            final Set<String> grams = new HashSet<>();
+            for (int i = 0; i <= text.length() - GRAM_SIZE; i++) {
+                grams.add(text.substring(i, i + GRAM_SIZE));
+            }
+            for (String gram : grams) {
+                final Integer count = result.get(gram);
+                result.put(gram, count == null ? 1 : count + 1);
+            }
+        }
+        return result;
+    }
+
+    private static void addSegment(Map<String, Long> segments, String text, int start, int end,
+                    long score) {
+        if (start < 0) {
+            return;
+        }
+        final String segment = text.substring(start, end);
+        final Long existing = segments.get(segment);
+        if (existing == null || existing < score) {
+            segments.put(segment, score);
+        }
+    }
+
+    /**
+     * Builds dictionary from samples saved by {@link #saveSamples(File)}.
+     *
+     * @param args directory with samples, dictionary file and optional maximum size of
+     *                 the dictionary.
+     * @throws IOException in case samples cannot be read or dictionary cannot be
+     *                 written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(String.format("Usage: %s <samples directory> <dictionary file> "
+                            + "[max size]", DictionaryTrainer.class.getName()));
+            return;
+        }
+        final int maxSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DICTIONARY_SIZE;
+        final byte[] dictionary = train(loadSamples(new File(args[0])), maxSize);
+        Files.write(new File(args[1]).toPath(), dictionary);
+        System.out.println(String.format("Dictionary '%08x' of '%s' bytes written to '%s'",
+                        DictionaryCompression.getDictionaryId(dictionary), dictionary.length,
+                        args[1]));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [delegate=%s, maxSamples=%s]", getClass().getSimpleName(),
+                        delegate, maxSamples);
+    }
+}
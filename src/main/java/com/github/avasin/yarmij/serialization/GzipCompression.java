@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link GzipCompression} compresses every serialized message independently. Received message
+ * could be decompressed while it is read.
+ */
+@ThreadSafe
+public class GzipCompression implements StreamingCompression {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GzipCompression.class);
+    private static final int CNUNK_SIZE = 1024;
+
+    @Nonnull
+    @Override
+    public byte[] compress(@Nonnull byte[] rawSerialized) throws IOException {
+        try (ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                        GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(rawSerialized);
+            gzip.finish();
+            final byte[] rawCompressed = compressed.toByteArray();
+            LOGGER.trace("Serialized '{}' bytes compressed into '{}' bytes",
+                            rawSerialized.length, rawCompressed.length);
+            return rawCompressed;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public byte[] decompress(@Nonnull byte[] data) throws IOException {
+        try (ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
+            try (GZIPInputStream serialized = new GZIPInputStream(new ByteArrayInputStream(data))) {
+                final byte[] chunk = new byte[CNUNK_SIZE];
+                int read;
+                while ((read = serialized.read(chunk, 0, chunk.length)) != -1) {
+                    buffer.write(chunk, 0, read);
+                }
+            }
+            final byte[] decompressed = buffer.toByteArray();
+            LOGGER.trace("Decompressed '{}' bytes from '{}' bytes", decompressed.length,
+                            data.length);
+
+            return decompressed;
+        } catch (Exception ex) {
+            throw new RmiException(
+                            String.format("Decompression from '%s' bytes failed", data.length), ex);
+        }
+    }
+
+    @Nonnull
+    @Override
+    public InputStream decompress(@Nonnull InputStream data) throws IOException {
+        return new GZIPInputStream(data, CNUNK_SIZE);
+    }
+}
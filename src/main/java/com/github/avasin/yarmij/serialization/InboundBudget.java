@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.avasin.yarmij.RmiException;
+import com.github.avasin.yarmij.transport.FrameLimit;
+
+/**
+ * {@link InboundBudget} limits memory used by received messages. Frames larger than the maximum
+ * frame size and messages which decompress into more than the maximum decompressed size are
+ * rejected, transports check frame size before the frame is allocated. Frames being deserialized are charged to the budget shared by all connections using
+ * the same instance, once it is exhausted reading of the next frame waits until budget is
+ * released, so the other side is slowed down by the transport instead of memory being
+ * allocated.
+ */
+@ThreadSafe
+public class InboundBudget implements FrameLimit {
+    private static final int DEFAULT_MAX_FRAME_SIZE = 64 << 20;
+    private static final long DEFAULT_MAX_DECOMPRESSED_SIZE = 256L << 20;
+    private static final long DEFAULT_MAX_INBOUND_BYTES = 512L << 20;
+    private volatile int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private volatile long maxDecompressedSize = DEFAULT_MAX_DECOMPRESSED_SIZE;
+    @GuardedBy("this")
+    private long maxInboundBytes = DEFAULT_MAX_INBOUND_BYTES;
+    @GuardedBy("this")
+    private long inboundBytes;
+    @GuardedBy("this")
+    private long pausedReads;
+    @GuardedBy("this")
+    private long rejectedMessages;
+
+    /**
+     * Specifies maximum size of the received frame, 64MB by default.
+     *
+     * @param maxFrameSize size in bytes.
+     * @return current instance of {@link InboundBudget}.
+     */
+    @Nonnull
+    public InboundBudget withMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    /**
+     * Specifies maximum size of the received message after decompression, 256MB by default.
+     *
+     * @param maxDecompressedSize size in bytes.
+     * @return current instance of {@link InboundBudget}.
+     */
+    @Nonnull
+    public InboundBudget withMaxDecompressedSize(long maxDecompressedSize) {
+        this.maxDecompressedSize = maxDecompressedSize;
+        return this;
+    }
+
+    /**
+     * Specifies total size of the frames which could be deserialized at the same time by all
+     * connections, 512MB by default.
+     *
+     * @param maxInboundBytes size in bytes.
+     * @return current instance of {@link InboundBudget}.
+     */
+    @Nonnull
+    public InboundBudget withMaxInboundBytes(long maxInboundBytes) {
+        synchronized (this) {
+            this.maxInboundBytes = maxInboundBytes;
+            notifyAll();
+        }
+        return this;
+    }
+
+    /**
+     * Provides maximum size of the received message after decompression.
+     *
+     * @return size in bytes.
+     */
+    public long getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+
+    /**
+     * Checks that frame does not exceed maximum size, rejected frame is counted.
+     *
+     * @param length length of the frame in bytes.
+     * @throws RmiException in case frame is too large.
+     */
+    @Override
+    public void check(int length) throws RmiException {
+        if (length > maxFrameSize) {
+            rejected();
+            throw new RmiException(String.format(
+                            "Frame of '%s' bytes exceeds maximum frame size of '%s' bytes",
+                            length, maxFrameSize));
+        }
+    }
+
+    /**
+     * Checks that frame does not exceed maximum size and takes its size from the budget, waits
+     * until budget is available.
+     *
+     * @param length length of the frame in bytes.
+     * @return number of bytes taken from the budget, which should be released.
+     * @throws RmiException in case frame is too large or waiting has been
+     *                 interrupted.
+     */
+    long acquire(int length) throws RmiException {
+        check(length);
+        synchronized (this) {
+            final long charge = Math.min(length, maxInboundBytes);
+            if (inboundBytes + charge > maxInboundBytes) {
+                pausedReads++;
+                while (inboundBytes + charge > maxInboundBytes) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new RmiException(String.format(
+                                        "Waiting for budget of '%s' bytes has been interrupted",
+                                        charge), ex);
+                    }
+                }
+            }
+            inboundBytes += charge;
+            return charge;
+        }
+    }
+
+    /**
+     * Returns bytes taken by {@link #acquire(int)} to the budget.
+     *
+     * @param charge number of bytes.
+     */
+    synchronized void release(long charge) {
+        inboundBytes -= charge;
+        notifyAll();
+    }
+
+    /**
+     * Counts message rejected because it exceeds limits.
+     */
+    synchronized void rejected() {
+        rejectedMessages++;
+    }
+
+    /**
+     * Provides limits and current usage of the budget.
+     *
+     * @return snapshot of the statistics.
+     */
+    @Nonnull
+    public synchronized InboundStats getStats() {
+        return new InboundStats(maxFrameSize, maxDecompressedSize, maxInboundBytes, inboundBytes,
+                        pausedReads, rejectedMessages);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [maxFrameSize=%s, maxDecompressedSize=%s]",
+                        getClass().getSimpleName(), maxFrameSize, maxDecompressedSize);
+    }
+}
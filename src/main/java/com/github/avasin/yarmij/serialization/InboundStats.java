@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * {@link InboundStats} is a snapshot of the limits and usage of the {@link InboundBudget}.
+ */
+@Immutable
+public class InboundStats {
+    private final int maxFrameSize;
+    private final long maxDecompressedSize;
+    private final long maxInboundBytes;
+    private final long inboundBytes;
+    private final long pausedReads;
+    private final long rejectedMessages;
+
+    /**
+     * Creates {@link InboundStats} instance.
+     *
+     * @param maxFrameSize maximum size of the received frame in bytes.
+     * @param maxDecompressedSize maximum size of the decompressed message in bytes.
+     * @param maxInboundBytes total size of the frames which could be deserialized at the
+     *                 same time.
+     * @param inboundBytes size of the frames being deserialized.
+     * @param pausedReads number of frames which waited for the budget.
+     * @param rejectedMessages number of messages rejected because of limits.
+     */
+    public InboundStats(int maxFrameSize, long maxDecompressedSize, long maxInboundBytes,
+                    long inboundBytes, long pausedReads, long rejectedMessages) {
+        this.maxFrameSize = maxFrameSize;
+        this.maxDecompressedSize = maxDecompressedSize;
+        this.maxInboundBytes = maxInboundBytes;
+        this.inboundBytes = inboundBytes;
+        this.pausedReads = pausedReads;
+        this.rejectedMessages = rejectedMessages;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public long getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+
+    public long getMaxInboundBytes() {
+        return maxInboundBytes;
+    }
+
+    public long getInboundBytes() {
+        return inboundBytes;
+    }
+
+    public long getPausedReads() {
+        return pausedReads;
+    }
+
+    public long getRejectedMessages() {
+        return rejectedMessages;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                        "%s [maxFrameSize=%s, maxDecompressedSize=%s, maxInboundBytes=%s, inboundBytes=%s, pausedReads=%s, rejectedMessages=%s]",
+                        getClass().getSimpleName(), maxFrameSize, maxDecompressedSize,
+                        maxInboundBytes, inboundBytes, pausedReads, rejectedMessages);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link KryoCopier} copies objects in memory, without converting them into bytes.
+ */
+public class KryoCopier extends AbstractKryo implements Copier {
+    @Override
+    @Nullable
+    public <T> T copy(@Nullable T data) throws RmiException {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return getInstance().copy(data);
+        } catch (Exception ex) {
+            throw new RmiException(String.format("Cannot copy '%s' object",
+                            data.getClass().getSimpleName()), ex);
+        }
+    }
+}
@@ -18,7 +18,9 @@ package com.github.avasin.yarmij.serialization;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.util.zip.GZIPInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -28,14 +30,47 @@ import com.esotericsoftware.kryo.io.Input;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.avasin.yarmij.RmiEvents;
 import com.github.avasin.yarmij.RmiException;
 
 /**
  * {@link KryoDeserializer} deserialize messages serialized by appropriate Kryo serializer.
+ * {@link Compression} should be the same as used by the serializer. Messages read from the stream
+ * are decompressed while they are read in case compression is {@link StreamingCompression}.
+ * Deserializations are reported to the {@link RmiEvents}.
  */
-public class KryoDeserializer extends AbstractKryo implements Deserializer {
+public class KryoDeserializer extends AbstractKryo
+                implements StreamingDeserializer, SessionScoped<Deserializer>, Closeable {
+    /**
+     * Size of the buffer used to read message from the stream.
+     */
+    static final int BUFFER_SIZE = 4096;
     private static final Logger LOGGER = LoggerFactory.getLogger(KryoDeserializer.class);
-    private static final int CNUNK_SIZE = 1024;
+    private final Compression compression;
+
+    /**
+     * Creates {@link KryoDeserializer} instance which expects messages compressed by
+     * {@link GzipCompression}.
+     */
+    public KryoDeserializer() {
+        this(new GzipCompression());
+    }
+
+    /**
+     * Creates {@link KryoDeserializer} instance.
+     *
+     * @param compression decompresses received messages.
+     */
+    public KryoDeserializer(@Nonnull Compression compression) {
+        this.compression = compression;
+    }
+
+    @Nonnull
+    @Override
+    public Deserializer openSession() {
+        final Compression opened = Sessions.open(compression);
+        return opened == compression ? this : new KryoDeserializer(opened);
+    }
 
     @Override
     @Nullable
@@ -44,8 +79,33 @@ public class KryoDeserializer extends AbstractKryo implements Deserializer {
         if (data == null || data.length == 0) {
             return null;
         }
-        final byte[] decompressed = decompress(data);
-        return deserialize(decompressed);
+        final Object event = RmiEvents.get().deserializationStarted();
+        final byte[] decompressed = decompress(compression, data);
+        final T result = deserialize(decompressed);
+        RmiEvents.get().deserialized(event, result == null ? desiredType : result.getClass(),
+                        decompressed.length, data.length);
+        return result;
+    }
+
+    @Override
+    @Nullable
+    public <T> T deserialize(@Nonnull InputStream data, @Nonnull Class<T> desiredType,
+                    long maxSize) throws RmiException {
+        final Object event = RmiEvents.get().deserializationStarted();
+        try (Input input = new Input(
+                        new LimitedInputStream(decompress(compression, data), maxSize),
+                        BUFFER_SIZE)) {
+            @SuppressWarnings("unchecked")
+            final T result = (T)getInstance().readClassAndObject(input);
+            LOGGER.trace("{} deserialized from '{}' bytes", result, input.total());
+            RmiEvents.get().deserialized(event, result == null ? desiredType : result.getClass(),
+                            (int)input.total(), -1);
+            return result;
+        } catch (RmiException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RmiException("Deserialization from stream failed", ex);
+        }
     }
 
     private <T> T deserialize(byte[] data) throws RmiException {
@@ -61,23 +121,73 @@ public class KryoDeserializer extends AbstractKryo implements Deserializer {
         }
     }
 
-    private static byte[] decompress(byte[] data) throws RmiException {
-        try (ByteArrayOutputStream buffer = new ByteArrayOutputStream()) {
-            try (GZIPInputStream serialized = new GZIPInputStream(new ByteArrayInputStream(data))) {
-                final byte[] chunk = new byte[CNUNK_SIZE];
-                int read;
-                while ((read = serialized.read(chunk, 0, chunk.length)) != -1) {
-                    buffer.write(chunk, 0, read);
-                }
-            }
-            final byte[] decompressed = buffer.toByteArray();
-            LOGGER.trace("Decompressed '{}' bytes from '{}' bytes", decompressed.length,
-                            data.length);
-
-            return decompressed;
-        } catch (Exception ex) {
+    /**
+     * Decompresses received message.
+     *
+     * @param compression compression used by the other side.
+     * @param data received bytes.
+     * @return serialized message.
+     * @throws RmiException in case data cannot be decompressed.
+     */
+    @Nonnull
+    static byte[] decompress(@Nonnull Compression compression, @Nonnull byte[] data)
+                    throws RmiException {
+        try {
+            return compression.decompress(data);
+        } catch (RmiException ex) {
+            throw ex;
+        } catch (IOException | RuntimeException ex) {
             throw new RmiException(
                             String.format("Decompression from '%s' bytes failed", data.length), ex);
         }
     }
+
+    /**
+     * Decompresses message while it is read, in case compression does not support streaming
+     * message is read and decompressed as a whole.
+     *
+     * @param compression compression used by the other side.
+     * @param data stream of the received message.
+     * @return stream of the serialized message, closing it closes the source stream.
+     * @throws RmiException in case message cannot be read or decompressed.
+     */
+    @Nonnull
+    static InputStream decompress(@Nonnull Compression compression, @Nonnull InputStream data)
+                    throws RmiException {
+        try {
+            if (compression instanceof StreamingCompression) {
+                return ((StreamingCompression)compression).decompress(data);
+            }
+            try (InputStream source = data) {
+                return new ByteArrayInputStream(decompress(compression, readFully(source)));
+            }
+        } catch (RmiException ex) {
+            throw ex;
+        } catch (IOException | RuntimeException ex) {
+            throw new RmiException("Decompression from stream failed", ex);
+        }
+    }
+
+    /**
+     * Reads all bytes of the stream.
+     *
+     * @param data stream to read.
+     * @return read bytes.
+     * @throws IOException in case stream cannot be read.
+     */
+    @Nonnull
+    static byte[] readFully(@Nonnull InputStream data) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(BUFFER_SIZE);
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = data.read(chunk)) != -1) {
+            result.write(chunk, 0, read);
+        }
+        return result.toByteArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        Sessions.close(compression);
+    }
 }
@@ -17,9 +17,10 @@
 package com.github.avasin.yarmij.serialization;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.esotericsoftware.kryo.io.Output;
@@ -27,13 +28,42 @@ import com.esotericsoftware.kryo.io.Output;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.avasin.yarmij.RmiEvents;
 import com.github.avasin.yarmij.RmiException;
 
 /**
- * {@link KryoSerializer} serializes objects into bytes.
+ * {@link KryoSerializer} serializes objects into bytes. Serialized bytes are compressed by
+ * {@link GzipCompression} unless another {@link Compression} is specified, in case compression is
+ * {@link SessionScoped} serializer becomes session scoped as well. Sizes of the objects before and
+ * after compression are reported to the {@link RmiEvents}.
  */
-public class KryoSerializer extends AbstractKryo implements Serializer {
+public class KryoSerializer extends AbstractKryo
+                implements Serializer, SessionScoped<Serializer>, Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(KryoSerializer.class);
+    private final Compression compression;
+
+    /**
+     * Creates {@link KryoSerializer} instance which compresses every message independently.
+     */
+    public KryoSerializer() {
+        this(new GzipCompression());
+    }
+
+    /**
+     * Creates {@link KryoSerializer} instance.
+     *
+     * @param compression compresses serialized messages.
+     */
+    public KryoSerializer(@Nonnull Compression compression) {
+        this.compression = compression;
+    }
+
+    @Nonnull
+    @Override
+    public Serializer openSession() {
+        final Compression opened = Sessions.open(compression);
+        return opened == compression ? this : new KryoSerializer(opened);
+    }
 
     @Override
     @Nullable
@@ -41,28 +71,25 @@ public class KryoSerializer extends AbstractKryo implements Serializer {
         if (data == null) {
             return null;
         }
+        final Object event = RmiEvents.get().serializationStarted();
         try (ByteArrayOutputStream serialized = new ByteArrayOutputStream();
                         Output output = new Output(serialized)) {
             getInstance().writeClassAndObject(output, data);
             output.flush();
             final byte[] rawSerialized = serialized.toByteArray();
             LOGGER.trace("{} serialized into '{}' bytes", data, rawSerialized.length);
-            return compress(rawSerialized);
+            final byte[] result = AdaptiveCompression.compress(compression, rawSerialized, data);
+            RmiEvents.get().serialized(event, data.getClass(), rawSerialized.length,
+                            result.length);
+            return result;
         } catch (Exception ex) {
             throw new RmiException(String.format("Cannot serialize '%s' object",
                             data.getClass().getSimpleName()), ex);
         }
     }
 
-    private static byte[] compress(byte[] rawSerialized) throws IOException {
-        try (ByteArrayOutputStream compressed = new ByteArrayOutputStream();
-                        GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
-            gzip.write(rawSerialized);
-            gzip.finish();
-            final byte[] rawCompressed = compressed.toByteArray();
-            LOGGER.trace("Serialized '{}' bytes compressed into '{}' bytes",
-                            rawSerialized.length, rawCompressed.length);
-            return rawCompressed;
-        }
+    @Override
+    public void close() throws IOException {
+        Sessions.close(compression);
     }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultClassResolver;
+import com.esotericsoftware.kryo.util.MapReferenceResolver;
+
+/**
+ * {@link KryoSession} is a {@link Kryo} instance which remembers class names and short strings
+ * written or read in previous messages of the connection, so they are transferred in full only
+ * once and referred by small identifiers later. Both sides add entries in the same order and clear
+ * tables at the same message boundary, once any of them reaches its limit.
+ */
+@NotThreadSafe
+class KryoSession {
+    private static final int NULL = 0;
+    private static final int LITERAL = 1;
+    private static final int REMEMBERED_LITERAL = 2;
+    private static final int FIRST_REFERENCE = 3;
+    private final SessionClassResolver classes = new SessionClassResolver();
+    private final Map<String, Integer> writtenStrings = new HashMap<>();
+    private final List<String> readStrings = new ArrayList<>();
+    private final int maxClasses;
+    private final int maxStrings;
+    private final int maxStringLength;
+    private final Kryo kryo;
+
+    /**
+     * Creates {@link KryoSession} instance.
+     *
+     * @param maxClasses maximum number of remembered class names.
+     * @param maxStrings maximum number of remembered strings.
+     * @param maxStringLength maximum length of the string which could be remembered.
+     */
+    KryoSession(int maxClasses, int maxStrings, int maxStringLength) {
+        this.maxClasses = maxClasses;
+        this.maxStrings = maxStrings;
+        this.maxStringLength = maxStringLength;
+        this.kryo = AbstractKryo.configure(new Kryo(classes, new MapReferenceResolver()));
+        this.kryo.setReferences(false);
+        this.kryo.register(String.class, new StringTableSerializer());
+    }
+
+    @Nonnull
+    Kryo getKryo() {
+        return kryo;
+    }
+
+    /**
+     * Completes message, tables are cleared in case any of them is full.
+     */
+    void endMessage() {
+        if (classes.size() >= maxClasses
+                        || Math.max(writtenStrings.size(), readStrings.size()) >= maxStrings) {
+            clear();
+        }
+    }
+
+    /**
+     * Forgets all remembered class names and strings.
+     */
+    void clear() {
+        classes.clear();
+        writtenStrings.clear();
+        readStrings.clear();
+    }
+
+    /**
+     * {@link DefaultClassResolver} which keeps class name identifiers between messages.
+     */
+    private static class SessionClassResolver extends DefaultClassResolver {
+        @Override
+        public void reset() {
+            // class name identifiers are kept until session tables are cleared
+        }
+
+        void clear() {
+            super.reset();
+        }
+
+        int size() {
+            return Math.max(nextNameId, nameIdToClass == null ? 0 : nameIdToClass.size);
+        }
+    }
+
+    /**
+     * {@link com.esotericsoftware.kryo.Serializer} which writes remembered strings as
+     * identifiers.
+     */
+    private class StringTableSerializer extends com.esotericsoftware.kryo.Serializer<String> {
+        StringTableSerializer() {
+            super(true, true);
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, String value) {
+            if (value == null) {
+                output.writeVarInt(NULL, true);
+                return;
+            }
+            final Integer id = writtenStrings.get(value);
+            if (id != null) {
+                output.writeVarInt(FIRST_REFERENCE + id, true);
+                return;
+            }
+            if (value.length() > maxStringLength || writtenStrings.size() >= maxStrings) {
+                output.writeVarInt(LITERAL, true);
+            } else {
+                writtenStrings.put(value, writtenStrings.size());
+                output.writeVarInt(REMEMBERED_LITERAL, true);
+            }
+            output.writeString(value);
+        }
+
+        @Override
+        public String read(Kryo kryo, Input input, Class<? extends String> type) {
+            final int code = input.readVarInt(true);
+            switch (code) {
+                case NULL:
+                    return null;
+                case LITERAL:
+                    return input.readString();
+                case REMEMBERED_LITERAL:
+                    final String value = input.readString();
+                    readStrings.add(value);
+                    return value;
+                default:
+                    final int id = code - FIRST_REFERENCE;
+                    if (id >= readStrings.size()) {
+                        throw new KryoException(String.format(
+                                        "Unknown string '%s', session tables are out of sync", id));
+                    }
+                    return readStrings.get(id);
+            }
+        }
+    }
+}
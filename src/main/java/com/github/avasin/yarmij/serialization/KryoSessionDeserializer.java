@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.esotericsoftware.kryo.io.Input;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link KryoSessionDeserializer} deserializes messages of a single connection serialized by
+ * {@link KryoSessionSerializer}. Messages should be deserialized in the order they have been
+ * received. Once deserialization fails, tables are not in sync with the other side anymore, so
+ * connection should be closed.
+ */
+@NotThreadSafe
+public class KryoSessionDeserializer implements StreamingDeserializer,
+                SessionScoped<Deserializer>, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KryoSessionDeserializer.class);
+    private final int maxClasses;
+    private final int maxStrings;
+    private final int maxStringLength;
+    private final Compression compression;
+    private final KryoSession session;
+
+    /**
+     * Creates {@link KryoSessionDeserializer} instance with default table sizes.
+     */
+    public KryoSessionDeserializer() {
+        this(KryoSessionSerializer.DEFAULT_MAX_CLASSES, KryoSessionSerializer.DEFAULT_MAX_STRINGS,
+                        KryoSessionSerializer.DEFAULT_MAX_STRING_LENGTH);
+    }
+
+    /**
+     * Creates {@link KryoSessionDeserializer} instance, limits should be the same as specified
+     * for the {@link KryoSessionSerializer} on the other side.
+     *
+     * @param maxClasses maximum number of remembered class names.
+     * @param maxStrings maximum number of remembered strings.
+     * @param maxStringLength maximum length of the string which could be remembered.
+     */
+    public KryoSessionDeserializer(int maxClasses, int maxStrings, int maxStringLength) {
+        this(maxClasses, maxStrings, maxStringLength, new GzipCompression());
+    }
+
+    /**
+     * Creates {@link KryoSessionDeserializer} instance, limits and compression should be the
+     * same as specified for the {@link KryoSessionSerializer} on the other side.
+     *
+     * @param maxClasses maximum number of remembered class names.
+     * @param maxStrings maximum number of remembered strings.
+     * @param maxStringLength maximum length of the string which could be remembered.
+     * @param compression decompresses received messages.
+     */
+    public KryoSessionDeserializer(int maxClasses, int maxStrings, int maxStringLength,
+                    @Nonnull Compression compression) {
+        this.compression = compression;
+        this.maxClasses = maxClasses;
+        this.maxStrings = maxStrings;
+        this.maxStringLength = maxStringLength;
+        this.session = new KryoSession(maxClasses, maxStrings, maxStringLength);
+    }
+
+    @Nonnull
+    @Override
+    public Deserializer openSession() {
+        return new KryoSessionDeserializer(maxClasses, maxStrings, maxStringLength,
+                        Sessions.open(compression));
+    }
+
+    @Override
+    @Nullable
+    public <T> T deserialize(@Nullable byte[] data, @Nonnull Class<T> desiredType)
+                    throws RmiException {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        final byte[] decompressed = KryoDeserializer.decompress(compression, data);
+        try (Input input = new Input(decompressed)) {
+            return read(input);
+        } catch (Exception ex) {
+            throw new RmiException(String.format("Deserialization from '%s' bytes failed",
+                            decompressed.length), ex);
+        }
+    }
+
+    @Override
+    @Nullable
+    public <T> T deserialize(@Nonnull InputStream data, @Nonnull Class<T> desiredType,
+                    long maxSize) throws RmiException {
+        try (Input input = new Input(new LimitedInputStream(
+                        KryoDeserializer.decompress(compression, data), maxSize),
+                        KryoDeserializer.BUFFER_SIZE)) {
+            return read(input);
+        } catch (RmiException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RmiException("Deserialization from stream failed", ex);
+        }
+    }
+
+    private <T> T read(Input input) {
+        if (input.readByte() == KryoSessionSerializer.RESET) {
+            session.clear();
+        }
+        @SuppressWarnings("unchecked")
+        final T result = (T)session.getKryo().readClassAndObject(input);
+        session.endMessage();
+        LOGGER.trace("{} deserialized from '{}' bytes", result, input.total());
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Sessions.close(compression);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.esotericsoftware.kryo.io.Output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link KryoSessionSerializer} serializes messages of a single connection with
+ * {@link KryoSession}, so class names and short strings sent earlier are referred by small
+ * identifiers. Messages should be transferred in the order they have been serialized and
+ * deserialized by {@link KryoSessionDeserializer}. In case serialization fails, the next message
+ * asks the other side to clear its tables as well.
+ */
+@ThreadSafe
+public class KryoSessionSerializer implements Serializer, SessionScoped<Serializer>,
+                Closeable {
+    static final byte RESET = 1;
+    static final byte CONTINUE = 0;
+    static final int DEFAULT_MAX_CLASSES = 1024;
+    static final int DEFAULT_MAX_STRINGS = 4096;
+    static final int DEFAULT_MAX_STRING_LENGTH = 256;
+    private static final Logger LOGGER = LoggerFactory.getLogger(KryoSessionSerializer.class);
+    private final int maxClasses;
+    private final int maxStrings;
+    private final int maxStringLength;
+    private final Compression compression;
+    private final KryoSession session;
+    private boolean resetPending = true;
+
+    /**
+     * Creates {@link KryoSessionSerializer} instance with default table sizes.
+     */
+    public KryoSessionSerializer() {
+        this(DEFAULT_MAX_CLASSES, DEFAULT_MAX_STRINGS, DEFAULT_MAX_STRING_LENGTH);
+    }
+
+    /**
+     * Creates {@link KryoSessionSerializer} instance.
+     *
+     * @param maxClasses maximum number of remembered class names.
+     * @param maxStrings maximum number of remembered strings.
+     * @param maxStringLength maximum length of the string which could be remembered.
+     */
+    public KryoSessionSerializer(int maxClasses, int maxStrings, int maxStringLength) {
+        this(maxClasses, maxStrings, maxStringLength, new GzipCompression());
+    }
+
+    /**
+     * Creates {@link KryoSessionSerializer} instance.
+     *
+     * @param maxClasses maximum number of remembered class names.
+     * @param maxStrings maximum number of remembered strings.
+     * @param maxStringLength maximum length of the string which could be remembered.
+     * @param compression compresses serialized messages.
+     */
+    public KryoSessionSerializer(int maxClasses, int maxStrings, int maxStringLength,
+                    @Nonnull Compression compression) {
+        this.compression = compression;
+        this.maxClasses = maxClasses;
+        this.maxStrings = maxStrings;
+        this.maxStringLength = maxStringLength;
+        this.session = new KryoSession(maxClasses, maxStrings, maxStringLength);
+    }
+
+    @Nonnull
+    @Override
+    public Serializer openSession() {
+        return new KryoSessionSerializer(maxClasses, maxStrings, maxStringLength,
+                        Sessions.open(compression));
+    }
+
+    @Override
+    @Nullable
+    public synchronized byte[] serialize(@Nullable Object data) throws RmiException {
+        if (data == null) {
+            return null;
+        }
+        final boolean reset = resetPending;
+        try (ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+                        Output output = new Output(serialized)) {
+            if (reset) {
+                session.clear();
+            }
+            output.writeByte(reset ? RESET : CONTINUE);
+            session.getKryo().writeClassAndObject(output, data);
+            output.flush();
+            session.endMessage();
+            resetPending = false;
+            final byte[] rawSerialized = serialized.toByteArray();
+            LOGGER.trace("{} serialized into '{}' bytes", data, rawSerialized.length);
+            return AdaptiveCompression.compress(compression, rawSerialized, data);
+        } catch (Exception ex) {
+            resetPending = true;
+            throw new RmiException(String.format("Cannot serialize '%s' object",
+                            data.getClass().getSimpleName()), ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Sessions.close(compression);
+    }
+}
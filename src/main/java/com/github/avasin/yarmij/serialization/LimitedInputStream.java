@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link LimitedInputStream} fails as soon as more bytes than allowed are read from the wrapped
+ * stream, so decompressed message could not take more memory than expected.
+ */
+@NotThreadSafe
+class LimitedInputStream extends FilterInputStream {
+    private final long limit;
+    private long read;
+
+    /**
+     * Creates {@link LimitedInputStream} instance.
+     *
+     * @param input stream which should be limited.
+     * @param limit maximum number of bytes which could be read.
+     */
+    LimitedInputStream(@Nonnull InputStream input, long limit) {
+        super(input);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int result = super.read();
+        if (result >= 0) {
+            count(1);
+        }
+        return result;
+    }
+
+    @Override
+    public int read(@Nonnull byte[] buffer, int offset, int length) throws IOException {
+        final int result = super.read(buffer, offset, length);
+        if (result > 0) {
+            count(result);
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long length) throws IOException {
+        final long result = super.skip(length);
+        count(result);
+        return result;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long bytes) throws LimitExceededException {
+        read += bytes;
+        if (read > limit) {
+            throw new LimitExceededException(String.format(
+                            "Decompressed message exceeds maximum size of '%s' bytes", limit));
+        }
+    }
+
+    /**
+     * Checks whether failure has been caused by exceeded limit.
+     *
+     * @param failure failure of the deserialization.
+     * @return {@code true} in case limit has been exceeded.
+     */
+    static boolean isLimitExceeded(@Nonnull Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LimitExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@link LimitExceededException} signals that stream contains more bytes than allowed.
+     */
+    private static final class LimitExceededException extends RmiException {
+        private static final long serialVersionUID = 1L;
+
+        private LimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link SessionScoped} is implemented by serializers and deserializers which keep state between
+ * messages of the same connection, so each connection should get its own instance.
+ *
+ * @param <T> type of the instance serving single connection.
+ */
+public interface SessionScoped<T> {
+    /**
+     * Creates instance with empty state which serves single connection.
+     *
+     * @return new instance with the same settings.
+     */
+    @Nonnull
+    T openSession();
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link Sessions} contains helpers for the instances which could be {@link SessionScoped}.
+ */
+final class Sessions {
+    private Sessions() {
+    }
+
+    /**
+     * Opens session in case instance is {@link SessionScoped}.
+     *
+     * @param instance instance which could be shared by connections.
+     * @param <T> type of the instance.
+     * @return new instance serving single connection or the same instance in case it
+     *                 does not keep state between messages.
+     */
+    @Nonnull
+    static <T> T open(@Nonnull T instance) {
+        if (instance instanceof SessionScoped) {
+            @SuppressWarnings("unchecked")
+            final SessionScoped<T> scoped = (SessionScoped<T>)instance;
+            return scoped.openSession();
+        }
+        return instance;
+    }
+
+    /**
+     * Closes instance in case it holds resources.
+     *
+     * @param instance instance which could be {@link Closeable}.
+     * @throws IOException in case resources cannot be released.
+     */
+    static void close(@Nonnull Object instance) throws IOException {
+        if (instance instanceof Closeable) {
+            ((Closeable)instance).close();
+        }
+    }
+}
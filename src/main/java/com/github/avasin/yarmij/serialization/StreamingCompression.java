@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link StreamingCompression} is {@link Compression} which could decompress message while it is
+ * being read.
+ */
+public interface StreamingCompression extends Compression {
+    /**
+     * Wraps stream of the compressed message.
+     *
+     * @param data stream of the compressed message.
+     * @return stream of the decompressed message, closing it closes the source stream.
+     * @throws IOException in case compressed message header cannot be read.
+     */
+    @Nonnull
+    InputStream decompress(@Nonnull InputStream data) throws IOException;
+}
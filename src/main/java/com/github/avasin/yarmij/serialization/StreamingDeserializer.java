@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.serialization;
+
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.RmiException;
+
+/**
+ * {@link StreamingDeserializer} is {@link Deserializer} which could read object from the stream
+ * of the received frame without buffering the whole frame first.
+ */
+public interface StreamingDeserializer extends Deserializer {
+
+    /**
+     * Creates object instance of desired type from the stream.
+     *
+     * @param data stream of the single frame, it is closed once object is read.
+     * @param desiredType type which is going going to be created from bytes.
+     * @param maxSize maximum size of the decompressed message in bytes.
+     * @param <T> desired type of the result instance.
+     * @return object instance.
+     * @throws RmiException in case of error during deserialization or in case
+     *                 decompressed message exceeds maximum size.
+     */
+    @Nullable
+    <T> T deserialize(@Nonnull InputStream data, @Nonnull Class<T> desiredType, long maxSize)
+                    throws RmiException;
+}
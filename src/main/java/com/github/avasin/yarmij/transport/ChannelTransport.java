@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ChannelTransport} is {@link Transport} implementation which relies on blocking
+ * {@link SocketChannel}. Frames are transferred through streams which are reading and writing
+ * channel directly, so unlike streams created by {@link java.nio.channels.Channels} they could be
+ * used concurrently without blocking each other. File regions are transferred from the file to
+ * the channel by the kernel, without copying them into user space.
+ * <p>
+ * Note that {@link SocketChannel} is interruptible, so interruption of the thread blocked in I/O
+ * operation closes the transport. Interrupt status of the sending thread is cleared while frame is
+ * written and restored afterwards, so thread which has been interrupted before does not close it.
+ */
+public class ChannelTransport implements StreamingTransport, RegionTransport {
+    private static final int BUFFER_SIZE = 8192;
+    private final SocketChannel channel;
+    private final FramedStreams frames;
+
+    /**
+     * Creates {@link ChannelTransport} instance.
+     *
+     * @param channel connected channel which would be used to transfer bytes, channel is
+     *                 switched to blocking mode.
+     * @throws IOException in case channel cannot be configured.
+     */
+    public ChannelTransport(@Nonnull SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        this.frames = new FramedStreams(
+                        new BufferedInputStream(new ChannelInputStream(channel), BUFFER_SIZE),
+                        new BufferedOutputStream(new ChannelOutputStream(channel), BUFFER_SIZE));
+    }
+
+    /**
+     * Creates {@link ChannelTransport} instance for the TCP channel.
+     *
+     * @param channel connected channel which would be used to transfer bytes, channel is
+     *                 switched to blocking mode.
+     * @param options options which should be applied to the socket of the channel.
+     * @throws IOException in case channel cannot be configured.
+     */
+    public ChannelTransport(@Nonnull SocketChannel channel, @Nonnull TransportOptions options)
+                    throws IOException {
+        this(channel);
+        options.apply(channel.socket());
+    }
+
+    @Override
+    public void send(@Nonnull byte[] frame) throws IOException {
+        final boolean interrupted = Thread.interrupted();
+        try {
+            frames.write(frame);
+        } finally {
+            restore(interrupted);
+        }
+    }
+
+    @Override
+    public void send(@Nonnull byte[] frame, @Nonnull FileChannel file, long position,
+                    long count, int maxFrameLength) throws IOException {
+        final boolean interrupted = Thread.interrupted();
+        try {
+            frames.write(frame, file, position, count, maxFrameLength, channel);
+        } finally {
+            restore(interrupted);
+        }
+    }
+
+    private static void restore(boolean interrupted) {
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] receive() throws IOException {
+        return frames.read();
+    }
+
+    @Nullable
+    @Override
+    public FrameInputStream receiveStream() throws IOException {
+        return frames.readStream();
+    }
+
+    @Override
+    public void setFrameLimit(@Nullable FrameLimit limit) {
+        frames.setFrameLimit(limit);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException ex) {
+            return String.valueOf(channel);
+        }
+    }
+
+    private static class ChannelInputStream extends InputStream {
+        private final SocketChannel channel;
+        private final byte[] single = new byte[1];
+
+        private ChannelInputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            return channel.read(ByteBuffer.wrap(bytes, offset, length));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class ChannelOutputStream extends OutputStream {
+        private final SocketChannel channel;
+
+        private ChannelOutputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[] {(byte)value}, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link FrameInputStream} reads bytes of a single received frame directly from the underlying
+ * stream. Length of the frame is known before any of its bytes is read, so receiver could decide
+ * whether the frame could be accepted. Closing the stream skips unread bytes of the frame.
+ */
+@NotThreadSafe
+public class FrameInputStream extends InputStream {
+    private final InputStream input;
+    private final int length;
+    private int remaining;
+
+    /**
+     * Creates {@link FrameInputStream} instance.
+     *
+     * @param input stream positioned at the first byte of the frame.
+     * @param length length of the frame in bytes.
+     */
+    FrameInputStream(@Nonnull InputStream input, int length) {
+        this.input = input;
+        this.length = length;
+        this.remaining = length;
+    }
+
+    /**
+     * Provides length of the frame announced by its header.
+     *
+     * @return length of the frame in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int result = input.read();
+        if (result < 0) {
+            throw new EOFException(String.format("Stream ended '%s' bytes before frame end",
+                            remaining));
+        }
+        remaining--;
+        return result;
+    }
+
+    @Override
+    public int read(@Nonnull byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int read = input.read(buffer, offset, Math.min(length, remaining));
+        if (read < 0) {
+            throw new EOFException(String.format("Stream ended '%s' bytes before frame end",
+                            remaining));
+        }
+        remaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return Math.min(input.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        while (remaining > 0) {
+            final long skipped = input.skip(remaining);
+            if (skipped > 0) {
+                remaining -= skipped;
+            } else if (read() < 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [length=%s, remaining=%s]", getClass().getSimpleName(), length,
+                        remaining);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.IOException;
+
+/**
+ * {@link FrameLimit} checks length announced by the header of the received frame, before memory
+ * for the frame is allocated or any of its bytes is read.
+ */
+public interface FrameLimit {
+    /**
+     * Checks whether frame of the specified length could be received.
+     *
+     * @param length length of the frame in bytes.
+     * @throws IOException in case frame exceeds the limit.
+     */
+    void check(int length) throws IOException;
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link FramedStreams} transfers frames through the pair of streams. Every frame is prefixed with
+ * its length encoded as four bytes integer. Received frame could be read either as a whole or as a
+ * stream bounded by its length. Bytes of the file region could be written directly to the channel
+ * underlying the output stream, bypassing its buffer. Length of the frame read as a whole is
+ * checked by {@link FrameLimit} before the frame is allocated.
+ */
+@ThreadSafe
+class FramedStreams {
+    private final DataInputStream input;
+    private final DataOutputStream output;
+    private FrameInputStream current;
+    private volatile FrameLimit frameLimit;
+
+    /**
+     * Creates {@link FramedStreams} instance.
+     *
+     * @param input stream to read frames sent by the other side.
+     * @param output stream to write frames, it should be buffered in case every write
+     *                 causes system call.
+     */
+    FramedStreams(@Nonnull InputStream input, @Nonnull OutputStream output) {
+        this.input = new DataInputStream(input);
+        this.output = new DataOutputStream(output);
+    }
+
+    /**
+     * Writes frame as a whole and flushes output stream. Could be called concurrently.
+     *
+     * @param frame bytes of the frame.
+     * @throws IOException in case frame cannot be written.
+     */
+    void write(@Nonnull byte[] frame) throws IOException {
+        synchronized (output) {
+            output.writeInt(frame.length);
+            output.write(frame);
+            output.flush();
+        }
+    }
+
+    /**
+     * Writes frame followed by the bytes of the file region split into frames, region bytes are
+     * transferred from the file directly to the channel underlying output stream. Could be called
+     * concurrently with {@link #write(byte[])}, no other frame is written in between.
+     *
+     * @param frame bytes of the frame which announces the region.
+     * @param file file which region should be written.
+     * @param position position of the first byte of the region in the file.
+     * @param count number of bytes in the region.
+     * @param maxFrameLength maximum number of region bytes in a single frame.
+     * @param target channel which writes to the same destination as output stream.
+     * @throws IOException in case frame or region cannot be written.
+     */
+    void write(@Nonnull byte[] frame, @Nonnull FileChannel file, long position, long count,
+                    int maxFrameLength, @Nonnull WritableByteChannel target) throws IOException {
+        synchronized (output) {
+            output.writeInt(frame.length);
+            output.write(frame);
+            long sent = 0L;
+            while (sent < count) {
+                final int length = (int)Math.min(count - sent, maxFrameLength);
+                output.writeInt(length);
+                output.flush();
+                long transferred = 0L;
+                while (transferred < length) {
+                    final long written = file.transferTo(position + sent + transferred,
+                                    length - transferred, target);
+                    if (written <= 0L) {
+                        throw new EOFException(String.format(
+                                        "File ended '%s' bytes before region end",
+                                        count - sent - transferred));
+                    }
+                    transferred += written;
+                }
+                sent += length;
+            }
+            output.flush();
+        }
+    }
+
+    /**
+     * Specifies limit checked before frame read by {@link #read()} is allocated.
+     *
+     * @param frameLimit limit of the frame length or {@code null} in case length is not
+     *                 limited.
+     */
+    void setFrameLimit(@Nullable FrameLimit frameLimit) {
+        this.frameLimit = frameLimit;
+    }
+
+    /**
+     * Reads next frame, blocks until it is received. Should not be called concurrently.
+     *
+     * @return bytes of the frame or {@code null} in case other side closed stream.
+     * @throws IOException in case frame cannot be read or it exceeds the limit.
+     */
+    @Nullable
+    byte[] read() throws IOException {
+        final int length = readLength();
+        if (length < 0) {
+            return null;
+        }
+        final FrameLimit limit = frameLimit;
+        if (limit != null) {
+            limit.check(length);
+        }
+        final byte[] result = new byte[length];
+        input.readFully(result);
+        return result;
+    }
+
+    /**
+     * Reads header of the next frame, blocks until it is received. Unread bytes of the previous
+     * frame stream are skipped. Should not be called concurrently.
+     *
+     * @return stream of the frame bytes or {@code null} in case other side closed stream.
+     * @throws IOException in case frame header cannot be read.
+     */
+    @Nullable
+    FrameInputStream readStream() throws IOException {
+        final int length = readLength();
+        if (length < 0) {
+            return null;
+        }
+        current = new FrameInputStream(input, length);
+        return current;
+    }
+
+    private int readLength() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        final int first = input.read();
+        if (first < 0) {
+            return -1;
+        }
+        final int length = first << 24 | input.readUnsignedByte() << 16
+                        | input.readUnsignedByte() << 8 | input.readUnsignedByte();
+        if (length < 0) {
+            throw new StreamCorruptedException(String.format("Invalid frame length '%s'", length));
+        }
+        return length;
+    }
+}
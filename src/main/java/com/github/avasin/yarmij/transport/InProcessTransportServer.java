@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link InProcessTransportServer} is {@link TransportServer} which never accepts any transport.
+ * It is used by servers which are reachable only by clients running in the same JVM, such clients
+ * are attached to the server directly, so the server does not need to listen anything.
+ */
+public class InProcessTransportServer implements TransportServer {
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    @Nonnull
+    @Override
+    public Transport accept() throws IOException {
+        try {
+            closed.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        }
+        throw new AsynchronousCloseException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return closed.getCount() > 0;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        closed.countDown();
+    }
+
+    @Override
+    public String toString() {
+        return "in-process";
+    }
+}
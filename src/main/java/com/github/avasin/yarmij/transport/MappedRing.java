@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link MappedRing} single producer single consumer ring buffer placed in memory shared between
+ * two processes. Producer and consumer are publishing their positions with ordered stores, so
+ * no locks are required. Waiting side spins first, then yields and finally parks with growing
+ * intervals, because there is no way to wake up thread from the other process. Spinning is
+ * skipped on single processor machines, because it only delays the other side.
+ */
+final class MappedRing {
+    /**
+     * Size of the ring header which contains write and read positions on separate cache lines.
+     */
+    static final int HEADER_SIZE = 128;
+    private static final int READ_INDEX_OFFSET = 64;
+    private static final int SPIN_ATTEMPTS =
+                    Runtime.getRuntime().availableProcessors() > 1 ? 20_000 : 0;
+    private static final int YIELD_ATTEMPTS = SPIN_ATTEMPTS + 100;
+    private static final long MIN_PARK_NS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAX_PARK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MAX_PARK_SHIFT = 10;
+
+    private final ByteBuffer data;
+    private final int capacity;
+    private final int mask;
+    private final long writeIndexAddress;
+    private final long readIndexAddress;
+    private final long localClosedAddress;
+    private final long peerClosedAddress;
+
+    /**
+     * Creates {@link MappedRing} instance.
+     *
+     * @param buffer memory mapped buffer which contains ring.
+     * @param offset position of the ring header in the buffer.
+     * @param capacity size of the ring data, should be a power of two.
+     * @param localClosedAddress address of the flag which is set when current process
+     *                 closes transport.
+     * @param peerClosedAddress address of the flag which is set when other process
+     *                 closes transport.
+     */
+    MappedRing(@Nonnull ByteBuffer buffer, int offset, int capacity, long localClosedAddress,
+                    long peerClosedAddress) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset + HEADER_SIZE);
+        duplicate.limit(offset + HEADER_SIZE + capacity);
+        this.data = duplicate.slice();
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.writeIndexAddress = UnsafeAccess.address(buffer) + offset;
+        this.readIndexAddress = writeIndexAddress + READ_INDEX_OFFSET;
+        this.localClosedAddress = localClosedAddress;
+        this.peerClosedAddress = peerClosedAddress;
+    }
+
+    /**
+     * Calculates amount of bytes occupied by ring with specified capacity.
+     *
+     * @param capacity size of the ring data.
+     * @return size of the ring including its header.
+     */
+    static int size(int capacity) {
+        return HEADER_SIZE + capacity;
+    }
+
+    /**
+     * Waits a bit before the next attempt to check shared state.
+     *
+     * @param attempt number of unsuccessful attempts made before.
+     * @throws InterruptedIOException in case waiting thread has been interrupted.
+     */
+    static void idle(int attempt) throws InterruptedIOException {
+        if (attempt < SPIN_ATTEMPTS) {
+            return;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedIOException("Waiting for shared memory has been interrupted");
+        }
+        if (attempt < YIELD_ATTEMPTS) {
+            Thread.yield();
+            return;
+        }
+        final int shift = Math.min(attempt - YIELD_ATTEMPTS, MAX_PARK_SHIFT);
+        LockSupport.parkNanos(Math.min(MIN_PARK_NS << shift, MAX_PARK_NS));
+    }
+
+    private boolean isSet(long flagAddress) {
+        return UnsafeAccess.getIntVolatile(flagAddress) != 0;
+    }
+
+    /**
+     * {@link Input} reads bytes written to the ring by the other process.
+     */
+    @NotThreadSafe
+    final class Input extends InputStream {
+        private final ByteBuffer buffer = data.duplicate();
+        private final byte[] single = new byte[1];
+        private long position = UnsafeAccess.getLongVolatile(readIndexAddress);
+
+        @Override
+        public int read() throws IOException {
+            final int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            final long written = awaitData();
+            if (written < 0) {
+                return -1;
+            }
+            final int available = (int)Math.min(written - position, length);
+            final int index = (int)(position & mask);
+            final int first = Math.min(available, capacity - index);
+            buffer.position(index);
+            buffer.get(bytes, offset, first);
+            if (available > first) {
+                buffer.position(0);
+                buffer.get(bytes, offset + first, available - first);
+            }
+            position += available;
+            UnsafeAccess.putOrderedLong(readIndexAddress, position);
+            return available;
+        }
+
+        @Override
+        public int available() {
+            return (int)(UnsafeAccess.getLongVolatile(writeIndexAddress) - position);
+        }
+
+        private long awaitData() throws IOException {
+            for (int attempt = 0; ; attempt++) {
+                long written = UnsafeAccess.getLongVolatile(writeIndexAddress);
+                if (written != position) {
+                    return written;
+                }
+                if (isSet(localClosedAddress)) {
+                    throw new AsynchronousCloseException();
+                }
+                if (isSet(peerClosedAddress)) {
+                    written = UnsafeAccess.getLongVolatile(writeIndexAddress);
+                    return written == position ? -1 : written;
+                }
+                idle(attempt);
+            }
+        }
+    }
+
+    /**
+     * {@link Output} writes bytes to the ring, written bytes become visible to the other process
+     * on {@link #flush()} or when ring is full.
+     */
+    @NotThreadSafe
+    final class Output extends OutputStream {
+        private final ByteBuffer buffer = data.duplicate();
+        private final byte[] single = new byte[1];
+        private long position = UnsafeAccess.getLongVolatile(writeIndexAddress);
+        private long published = position;
+        private long consumed = UnsafeAccess.getLongVolatile(readIndexAddress);
+
+        @Override
+        public void write(int value) throws IOException {
+            single[0] = (byte)value;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            int remaining = length;
+            int from = offset;
+            while (remaining > 0) {
+                final int free = awaitSpace();
+                final int chunk = Math.min(free, remaining);
+                final int index = (int)(position & mask);
+                final int first = Math.min(chunk, capacity - index);
+                buffer.position(index);
+                buffer.put(bytes, from, first);
+                if (chunk > first) {
+                    buffer.position(0);
+                    buffer.put(bytes, from + first, chunk - first);
+                }
+                position += chunk;
+                from += chunk;
+                remaining -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (position == published) {
+                return;
+            }
+            checkOpen();
+            UnsafeAccess.putOrderedLong(writeIndexAddress, position);
+            published = position;
+        }
+
+        private int awaitSpace() throws IOException {
+            int free = (int)(capacity - (position - consumed));
+            if (free > 0) {
+                return free;
+            }
+            flush();
+            for (int attempt = 0; ; attempt++) {
+                consumed = UnsafeAccess.getLongVolatile(readIndexAddress);
+                free = (int)(capacity - (position - consumed));
+                if (free > 0) {
+                    return free;
+                }
+                checkOpen();
+                idle(attempt);
+            }
+        }
+
+        private void checkOpen() throws IOException {
+            if (isSet(localClosedAddress)) {
+                throw new AsynchronousCloseException();
+            }
+            if (isSet(peerClosedAddress)) {
+                throw new EOFException("Other side closed shared memory transport");
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link RegionTransport} is {@link Transport} which could send bytes of a file region straight
+ * from the file to the underlying connection using {@link FileChannel#transferTo}, so they are
+ * neither copied into the heap nor serialized. Region follows the frame which announces it and is
+ * split into ordinary frames, so receiver reads it with {@link #receive()} or
+ * {@link StreamingTransport#receiveStream()}.
+ */
+public interface RegionTransport extends Transport {
+    /**
+     * Sends frame followed by the bytes of the file region split into frames of at most
+     * {@code maxFrameLength} bytes. Could be called concurrently, nothing is sent by other threads
+     * until the whole region is sent.
+     *
+     * @param frame bytes of the frame which announces the region.
+     * @param file file which region should be sent.
+     * @param position position of the first byte of the region in the file.
+     * @param count number of bytes in the region.
+     * @param maxFrameLength maximum number of region bytes in a single frame.
+     * @throws IOException in case frame or region cannot be sent, transport should not be
+     *                 used afterwards, because region might be sent partially.
+     */
+    void send(@Nonnull byte[] frame, @Nonnull FileChannel file, long position, long count,
+                    int maxFrameLength) throws IOException;
+}
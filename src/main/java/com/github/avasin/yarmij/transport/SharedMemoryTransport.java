@@ -0,0 +1,375 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.ConnectException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link SharedMemoryTransport} is {@link Transport} implementation for processes running on the
+ * same host. Processes exchange bytes through a pair of {@link MappedRing}s placed in a memory
+ * mapped file, so neither network stack nor system calls are involved into the data transfer. To
+ * keep data in memory the file should be placed on a memory backed file system, like
+ * {@code /dev/shm} on Linux.
+ * <p>
+ * Client creates and initializes the file under temporary name and then atomically renames it,
+ * so {@link SharedMemoryTransportServer} would never see partially initialized file. Server
+ * removes the file as soon as it mapped, so it exists only until connection is established.
+ * <p>
+ * Mapping is released as soon as transport is closed and the last thread which has been reading
+ * or writing at that moment leaves the mapped memory, so closed transports do not hold the memory
+ * until garbage collection.
+ */
+public class SharedMemoryTransport implements StreamingTransport {
+    /**
+     * Suffix of the files which are ready to be accepted by the server.
+     */
+    static final String FILE_SUFFIX = ".shm";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x594d524a;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int ACCEPTED_OFFSET = 64;
+    private static final int CLIENT_CLOSED_OFFSET = 128;
+    private static final int SERVER_CLOSED_OFFSET = 192;
+    private static final int HEADER_SIZE = 256;
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final long closedAddress;
+    private final String name;
+    private final boolean client;
+    private final FramedStreams frames;
+    /**
+     * Number of threads accessing mapped memory, {@link #CLOSED} bit is set once transport has
+     * been closed and no new threads are allowed to enter.
+     */
+    private final AtomicInteger users = new AtomicInteger();
+
+    private SharedMemoryTransport(MappedByteBuffer buffer, int capacity, String name,
+                    boolean client) {
+        this.buffer = buffer;
+        this.address = UnsafeAccess.address(buffer);
+        this.name = name;
+        this.client = client;
+        final long clientClosed = address + CLIENT_CLOSED_OFFSET;
+        final long serverClosed = address + SERVER_CLOSED_OFFSET;
+        final int toServerOffset = HEADER_SIZE;
+        final int toClientOffset = HEADER_SIZE + MappedRing.size(capacity);
+        if (client) {
+            this.closedAddress = clientClosed;
+            this.frames = new FramedStreams(
+                            new GuardedInput(new MappedRing(buffer, toClientOffset, capacity,
+                                            clientClosed, serverClosed).new Input()),
+                            new GuardedOutput(new MappedRing(buffer, toServerOffset, capacity,
+                                            clientClosed, serverClosed).new Output()));
+        } else {
+            this.closedAddress = serverClosed;
+            this.frames = new FramedStreams(
+                            new GuardedInput(new MappedRing(buffer, toServerOffset, capacity,
+                                            serverClosed, clientClosed).new Input()),
+                            new GuardedOutput(new MappedRing(buffer, toClientOffset, capacity,
+                                            serverClosed, clientClosed).new Output()));
+        }
+    }
+
+    /**
+     * Creates shared memory file in the directory listening by {@link SharedMemoryTransportServer}
+     * and waits until server will accept it.
+     *
+     * @param directory directory listening by the server.
+     * @param capacity size of the buffer for each direction in bytes, should be a power of
+     *                 two.
+     * @param timeoutMs maximum time to wait until server will accept connection.
+     * @return transport connected to the server.
+     * @throws IOException in case file cannot be created or server did not accept it in
+     *                 time.
+     */
+    @Nonnull
+    public static SharedMemoryTransport connect(@Nonnull File directory, int capacity,
+                    long timeoutMs) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                            String.format("Capacity '%s' is not a power of two", capacity));
+        }
+        final String name = UUID.randomUUID().toString();
+        final File temporary = new File(directory, name + TEMP_SUFFIX);
+        final File file = new File(directory, name + FILE_SUFFIX);
+        final MappedByteBuffer buffer =
+                        create(temporary, HEADER_SIZE + 2L * MappedRing.size(capacity));
+        final long address = UnsafeAccess.address(buffer);
+        UnsafeAccess.putInt(address + MAGIC_OFFSET, MAGIC);
+        UnsafeAccess.putInt(address + VERSION_OFFSET, VERSION);
+        UnsafeAccess.putIntVolatile(address + CAPACITY_OFFSET, capacity);
+        if (!temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException(String.format("Cannot publish '%s' shared memory file", file));
+        }
+        final SharedMemoryTransport result =
+                        new SharedMemoryTransport(buffer, capacity, file.getPath(), true);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (int attempt = 0; !result.isSet(ACCEPTED_OFFSET); attempt++) {
+            if (System.nanoTime() - deadline > 0) {
+                result.close();
+                file.delete();
+                throw new ConnectException(String.format(
+                                "Shared memory file '%s' has not been accepted in '%s' milliseconds",
+                                file, timeoutMs));
+            }
+            MappedRing.idle(attempt);
+        }
+        return result;
+    }
+
+    /**
+     * Maps shared memory file created by the client and notifies client that connection has been
+     * accepted.
+     *
+     * @param file shared memory file created by the client.
+     * @return transport connected to the client.
+     * @throws IOException in case file cannot be mapped, it has unsupported format or its
+     *                 header does not match its size.
+     */
+    @Nonnull
+    static SharedMemoryTransport accept(@Nonnull File file) throws IOException {
+        final MappedByteBuffer buffer = open(file);
+        final long address = UnsafeAccess.address(buffer);
+        if (buffer.capacity() < HEADER_SIZE
+                        || UnsafeAccess.getIntVolatile(address + MAGIC_OFFSET) != MAGIC
+                        || UnsafeAccess.getInt(address + VERSION_OFFSET) != VERSION) {
+            UnsafeAccess.unmap(buffer);
+            throw new IOException(String.format("'%s' has unsupported format", file));
+        }
+        final int capacity = UnsafeAccess.getInt(address + CAPACITY_OFFSET);
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1
+                        || HEADER_SIZE + 2L * MappedRing.size(capacity) > buffer.capacity()) {
+            UnsafeAccess.unmap(buffer);
+            throw new IOException(String.format(
+                            "'%s' declares capacity '%s' which does not fit into '%s' bytes", file,
+                            capacity, buffer.capacity()));
+        }
+        final SharedMemoryTransport result =
+                        new SharedMemoryTransport(buffer, capacity, file.getPath(), false);
+        UnsafeAccess.putIntVolatile(address + ACCEPTED_OFFSET, 1);
+        file.delete();
+        return result;
+    }
+
+    private static MappedByteBuffer create(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                        FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static MappedByteBuffer open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("'%s' is too large to be mapped", file));
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private boolean isSet(int offset) {
+        return UnsafeAccess.getIntVolatile(address + offset) != 0;
+    }
+
+    private boolean enter() {
+        for (;;) {
+            final int current = users.get();
+            if (current < 0) {
+                return false;
+            }
+            if (users.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void enterOrFail() throws AsynchronousCloseException {
+        if (!enter()) {
+            throw new AsynchronousCloseException();
+        }
+    }
+
+    private void exit() {
+        if (users.decrementAndGet() == CLOSED) {
+            UnsafeAccess.unmap(buffer);
+        }
+    }
+
+    @Override
+    public void send(@Nonnull byte[] frame) throws IOException {
+        frames.write(frame);
+    }
+
+    @Nullable
+    @Override
+    public byte[] receive() throws IOException {
+        return frames.read();
+    }
+
+    @Nullable
+    @Override
+    public FrameInputStream receiveStream() throws IOException {
+        return frames.readStream();
+    }
+
+    @Override
+    public void setFrameLimit(@Nullable FrameLimit limit) {
+        frames.setFrameLimit(limit);
+    }
+
+    @Override
+    public boolean isOpen() {
+        if (!enter()) {
+            return false;
+        }
+        try {
+            return UnsafeAccess.getIntVolatile(closedAddress) == 0;
+        } finally {
+            exit();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!enter()) {
+            return;
+        }
+        try {
+            UnsafeAccess.putIntVolatile(closedAddress, 1);
+        } finally {
+            for (;;) {
+                final int current = users.get();
+                if (current < 0 || users.compareAndSet(current, current | CLOSED)) {
+                    break;
+                }
+            }
+            exit();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [file=%s, side=%s, bytes=%s]", getClass().getSimpleName(), name,
+                        client ? "client" : "server", buffer.capacity());
+    }
+
+    /**
+     * Keeps mapping alive while thread reads from the ring.
+     */
+    private final class GuardedInput extends InputStream {
+        private final InputStream delegate;
+
+        private GuardedInput(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            enterOrFail();
+            try {
+                return delegate.read();
+            } finally {
+                exit();
+            }
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            enterOrFail();
+            try {
+                return delegate.read(bytes, offset, length);
+            } finally {
+                exit();
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            enterOrFail();
+            try {
+                return delegate.available();
+            } finally {
+                exit();
+            }
+        }
+    }
+
+    /**
+     * Keeps mapping alive while thread writes into the ring.
+     */
+    private final class GuardedOutput extends OutputStream {
+        private final OutputStream delegate;
+
+        private GuardedOutput(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            enterOrFail();
+            try {
+                delegate.write(value);
+            } finally {
+                exit();
+            }
+        }
+
+        @Override
+        public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            enterOrFail();
+            try {
+                delegate.write(bytes, offset, length);
+            } finally {
+                exit();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            enterOrFail();
+            try {
+                delegate.flush();
+            } finally {
+                exit();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link SharedMemoryTransportConnector} connects {@link SharedMemoryTransport}s to the server
+ * listening the directory.
+ */
+public class SharedMemoryTransportConnector implements TransportConnector {
+    private final File directory;
+    private final int capacity;
+    private final long timeoutMs;
+
+    /**
+     * Creates {@link SharedMemoryTransportConnector} instance.
+     *
+     * @param directory directory listening by the server.
+     * @param capacity size of the buffer for each direction in bytes, should be a power of
+     *                 two.
+     * @param timeoutMs maximum time to wait until server will accept connection.
+     */
+    public SharedMemoryTransportConnector(@Nonnull File directory, int capacity, long timeoutMs) {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Nonnull
+    @Override
+    public Transport connect() throws IOException {
+        return SharedMemoryTransport.connect(directory, capacity, timeoutMs);
+    }
+
+    @Override
+    public String toString() {
+        return directory.getPath();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SharedMemoryTransportServer} accepts {@link SharedMemoryTransport}s created by clients in
+ * the listening directory. Directory is watched for new files, files which have been created
+ * before server started are accepted too.
+ */
+public class SharedMemoryTransportServer implements TransportServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMemoryTransportServer.class);
+    private final File directory;
+    private final WatchService watcher;
+    private final Queue<File> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates {@link SharedMemoryTransportServer} instance.
+     *
+     * @param directory directory in which clients will create shared memory files.
+     * @throws IOException in case directory cannot be created or watched.
+     */
+    public SharedMemoryTransportServer(@Nonnull File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(String.format("Cannot create '%s' directory", directory));
+        }
+        this.directory = directory;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        directory.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+        scan();
+    }
+
+    @Nonnull
+    @Override
+    public Transport accept() throws IOException {
+        while (!closed) {
+            final File file = pending.poll();
+            if (file == null) {
+                awaitFiles();
+                continue;
+            }
+            try {
+                return SharedMemoryTransport.accept(file);
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.warn("Cannot accept '{}' shared memory file", file, ex);
+            }
+        }
+        throw new AsynchronousCloseException();
+    }
+
+    private void awaitFiles() throws IOException {
+        final WatchKey key;
+        try {
+            key = watcher.take();
+        } catch (ClosedWatchServiceException ex) {
+            throw new AsynchronousCloseException();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                scan();
+                continue;
+            }
+            final Path name = (Path)event.context();
+            if (name.toString().endsWith(SharedMemoryTransport.FILE_SUFFIX)) {
+                pending.add(new File(directory, name.toString()));
+            }
+        }
+        key.reset();
+    }
+
+    private void scan() {
+        final File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(SharedMemoryTransport.FILE_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!pending.contains(file)) {
+                pending.add(file);
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watcher.close();
+    }
+
+    @Override
+    public String toString() {
+        return directory.getPath();
+    }
+}
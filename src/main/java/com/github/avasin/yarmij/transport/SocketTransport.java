@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link SocketTransport} is {@link Transport} implementation which relies on blocking
+ * {@link Socket}. Outgoing frames are buffered, so every frame is passed to the socket by a single
+ * write. Incoming bytes are buffered as well, so frame header and small frames read as a stream do
+ * not cost a system call per read. Socket has no channel, so file regions are copied by
+ * {@link FileChannel#transferTo} into the socket stream through an intermediate buffer.
+ */
+public class SocketTransport implements StreamingTransport, RegionTransport {
+    private static final int BUFFER_SIZE = 8192;
+    private final Socket socket;
+    private final FramedStreams frames;
+    private final WritableByteChannel regionChannel;
+
+    /**
+     * Creates {@link SocketTransport} instance with default {@link TransportOptions}.
+     *
+     * @param socket connected socket which would be used to transfer bytes.
+     * @throws IOException in case socket cannot be configured.
+     */
+    public SocketTransport(@Nonnull Socket socket) throws IOException {
+        this(socket, new TransportOptions());
+    }
+
+    /**
+     * Creates {@link SocketTransport} instance.
+     *
+     * @param socket connected socket which would be used to transfer bytes.
+     * @param options options which should be applied to the socket.
+     * @throws IOException in case socket cannot be configured.
+     */
+    public SocketTransport(@Nonnull Socket socket, @Nonnull TransportOptions options)
+                    throws IOException {
+        this.socket = socket;
+        options.apply(socket);
+        this.frames = new FramedStreams(
+                        new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE),
+                        new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        this.regionChannel = Channels.newChannel(socket.getOutputStream());
+    }
+
+    @Override
+    public void send(@Nonnull byte[] frame) throws IOException {
+        frames.write(frame);
+    }
+
+    @Override
+    public void send(@Nonnull byte[] frame, @Nonnull FileChannel file, long position,
+                    long count, int maxFrameLength) throws IOException {
+        frames.write(frame, file, position, count, maxFrameLength, regionChannel);
+    }
+
+    @Nullable
+    @Override
+    public byte[] receive() throws IOException {
+        return frames.read();
+    }
+
+    @Nullable
+    @Override
+    public FrameInputStream receiveStream() throws IOException {
+        return frames.readStream();
+    }
+
+    @Override
+    public void setFrameLimit(@Nullable FrameLimit limit) {
+        frames.setFrameLimit(limit);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !socket.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s", socket.getInetAddress(), socket.getPort());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link SocketTransportConnector} connects transports to the server listening TCP port. Blocking
+ * sockets served by {@link SocketTransport} are used by default, sockets are opened through
+ * {@link SocketChannel} and served by {@link ChannelTransport} in case
+ * {@link TransportOptions#isSocketChannels()}.
+ */
+public class SocketTransportConnector implements TransportConnector {
+    private final String address;
+    private final int port;
+    private final TransportOptions options;
+
+    /**
+     * Creates {@link SocketTransportConnector} instance.
+     *
+     * @param address host name or address of the server.
+     * @param port port listening by the server.
+     * @param options options which should be applied to the sockets.
+     */
+    public SocketTransportConnector(@Nonnull String address, int port,
+                    @Nonnull TransportOptions options) {
+        this.address = address;
+        this.port = port;
+        this.options = options;
+    }
+
+    @Nonnull
+    @Override
+    public Transport connect() throws IOException {
+        if (!options.isSocketChannels()) {
+            final Socket socket = new Socket();
+            try {
+                connect(socket);
+                return new SocketTransport(socket, options);
+            } catch (IOException ex) {
+                socket.close();
+                throw ex;
+            }
+        }
+        final SocketChannel channel = SocketChannel.open();
+        try {
+            connect(channel.socket());
+            return new ChannelTransport(channel, options);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private void connect(Socket socket) throws IOException {
+        if (options.getReceiveBufferSize() > 0) {
+            socket.setReceiveBufferSize(options.getReceiveBufferSize());
+        }
+        socket.connect(new InetSocketAddress(address, port), options.getConnectTimeoutMs());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s", address, port);
+    }
+}
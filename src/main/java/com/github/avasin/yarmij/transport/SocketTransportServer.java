@@ -0,0 +1,295 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SocketTransportServer} accepts transports through {@link ServerSocket}. Accepted sockets
+ * are served by {@link SocketTransport}, unless they are accepted through server socket of
+ * {@link ServerSocketChannel}, like the ones bound by {@link #bind} in case
+ * {@link TransportOptions#isSocketChannels()}, which are served by {@link ChannelTransport}. By
+ * default clients are accepted and their sockets are configured by the thread calling
+ * {@link #accept()}. With several acceptors specified by {@link TransportOptions} this is done by
+ * dedicated threads, which either share the server socket or listen their own sockets bound to
+ * the same port with {@code SO_REUSEPORT}, while {@link #accept()} only takes transports which are
+ * ready.
+ */
+public class SocketTransportServer implements TransportServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SocketTransportServer.class);
+    private static final String SOCKET_CLOSED = "Socket closed";
+    private static final Object CLOSED = new Object();
+    private static final long MIN_BACKOFF_MS = 10L;
+    private static final long MAX_BACKOFF_MS = 1000L;
+    private final List<ServerSocket> sockets;
+    private final TransportOptions options;
+    private final BlockingQueue<Object> accepted = new LinkedBlockingQueue<>();
+    private final ExecutorService acceptorPool;
+
+    /**
+     * Creates {@link SocketTransportServer} instance with default {@link TransportOptions}.
+     *
+     * @param socket bound server socket which would be used to accept clients.
+     */
+    public SocketTransportServer(@Nonnull ServerSocket socket) {
+        this(socket, new TransportOptions());
+    }
+
+    /**
+     * Creates {@link SocketTransportServer} instance.
+     *
+     * @param socket bound server socket which would be used to accept clients.
+     * @param options options which should be applied to accepted sockets.
+     */
+    public SocketTransportServer(@Nonnull ServerSocket socket,
+                    @Nonnull TransportOptions options) {
+        this(Collections.singletonList(socket), options);
+    }
+
+    private SocketTransportServer(List<ServerSocket> sockets, TransportOptions options) {
+        this.sockets = sockets;
+        this.options = options;
+        final int acceptors = Math.max(sockets.size(), options.getAcceptors());
+        if (acceptors <= 1) {
+            this.acceptorPool = null;
+            return;
+        }
+        this.acceptorPool = Executors.newFixedThreadPool(acceptors);
+        for (int i = 0; i < acceptors; i++) {
+            acceptorPool.submit(new Acceptor(sockets.get(i % sockets.size())));
+        }
+    }
+
+    /**
+     * Binds server socket to the port and creates {@link SocketTransportServer} which accepts
+     * clients through it. In case {@link TransportOptions#isReusePort()} separate socket is bound
+     * for every acceptor.
+     *
+     * @param port port to listen, {@code 0} to use any free port.
+     * @param options options which should be applied to the server socket and accepted
+     *                 sockets.
+     * @return server listening on the port.
+     * @throws IOException in case port cannot be bound.
+     */
+    @Nonnull
+    public static SocketTransportServer bind(int port, @Nonnull TransportOptions options)
+                    throws IOException {
+        final int count = options.isReusePort() ? Math.max(1, options.getAcceptors()) : 1;
+        final List<ServerSocket> sockets = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                sockets.add(bindSocket(i == 0 ? port : sockets.get(0).getLocalPort(),
+                                options));
+            }
+        } catch (IOException ex) {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+            throw ex;
+        }
+        return new SocketTransportServer(sockets, options);
+    }
+
+    private static ServerSocket bindSocket(int port, TransportOptions options)
+                    throws IOException {
+        final ServerSocket socket = options.isSocketChannels()
+                        ? ServerSocketChannel.open().socket() : new ServerSocket();
+        try {
+            if (options.getReceiveBufferSize() > 0) {
+                socket.setReceiveBufferSize(options.getReceiveBufferSize());
+            }
+            if (options.isReusePort()) {
+                reusePort(socket);
+            }
+            socket.bind(new InetSocketAddress(port), options.getBacklog());
+            return socket;
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Enables {@code SO_REUSEPORT}, which is available only since Java 9.
+     */
+    private static void reusePort(ServerSocket socket) throws IOException {
+        final ServerSocketChannel channel = socket.getChannel();
+        final Class<?> type = channel == null ? ServerSocket.class : NetworkChannel.class;
+        try {
+            final Object option = StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+            type.getMethod("setOption", SocketOption.class, Object.class)
+                            .invoke(channel == null ? socket : channel, option, Boolean.TRUE);
+        } catch (NoSuchFieldException | NoSuchMethodException | IllegalAccessException ex) {
+            throw new SocketException("SO_REUSEPORT requires Java 9 or later");
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException)ex.getCause();
+            }
+            throw new SocketException(String.format("SO_REUSEPORT is not supported: %s",
+                            ex.getCause()));
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Transport accept() throws IOException {
+        if (acceptorPool == null) {
+            return accept(sockets.get(0));
+        }
+        final Object next;
+        try {
+            next = accepted.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Accepting on '%s' interrupted", this));
+        }
+        if (next == CLOSED) {
+            accepted.offer(CLOSED);
+            throw new SocketException(SOCKET_CLOSED);
+        }
+        return (Transport)next;
+    }
+
+    private Transport accept(ServerSocket socket) throws IOException {
+        final Socket clientSocket = socket.accept();
+        try {
+            final SocketChannel channel = clientSocket.getChannel();
+            if (channel != null) {
+                return new ChannelTransport(channel, options);
+            }
+            return new SocketTransport(clientSocket, options);
+        } catch (IOException ex) {
+            clientSocket.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !sockets.get(0).isClosed();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return sockets.get(0).getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ServerSocket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (acceptorPool != null) {
+            acceptorPool.shutdownNow();
+            for (Object next = accepted.poll(); next != null; next = accepted.poll()) {
+                if (next != CLOSED) {
+                    closeQuietly((Transport)next);
+                }
+            }
+            accepted.offer(CLOSED);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s", sockets.get(0).getInetAddress(),
+                        sockets.get(0).getLocalPort());
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot close '{}'", transport, ex);
+        }
+    }
+
+    /**
+     * Accepts clients through single server socket until it is closed. In case accepting fails,
+     * for example because process runs out of file descriptors, next attempt is delayed, so
+     * acceptor does not spin while the failure persists.
+     */
+    private final class Acceptor implements Runnable {
+        private final ServerSocket socket;
+
+        private Acceptor(ServerSocket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            long backoffMs = 0L;
+            while (!socket.isClosed()) {
+                final Transport transport;
+                try {
+                    transport = accept(socket);
+                } catch (IOException ex) {
+                    if (socket.isClosed()) {
+                        continue;
+                    }
+                    LOGGER.warn("Cannot accept client on '{}'", SocketTransportServer.this, ex);
+                    backoffMs = Math.min(MAX_BACKOFF_MS, Math.max(MIN_BACKOFF_MS, backoffMs * 2));
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(backoffMs);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                    continue;
+                }
+                backoffMs = 0L;
+                if (socket.isClosed() || !accepted.offer(transport)) {
+                    closeQuietly(transport);
+                } else if (socket.isClosed() && accepted.remove(transport)) {
+                    // server has been closed while transport was queued
+                    closeQuietly(transport);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link StreamingTransport} is {@link Transport} which could provide received frame as a stream
+ * reading the underlying connection directly, so frame could be decoded while it is still arriving
+ * and is never kept in memory as a whole.
+ */
+public interface StreamingTransport extends Transport {
+    /**
+     * Receives next frame as a stream bounded by the frame length, blocks until frame header is
+     * received. Stream should be closed before the next frame is received, closing skips unread
+     * bytes of the frame. Should not be called concurrently with {@link #receive()}.
+     *
+     * @return stream of the frame bytes or {@code null} in case other side closed
+     *                 connection.
+     * @throws IOException in case frame header cannot be read.
+     */
+    @Nullable
+    FrameInputStream receiveStream() throws IOException;
+
+    /**
+     * Specifies limit checked against the length of every frame received by {@link #receive()}
+     * before memory for the frame is allocated. Frames received by {@link #receiveStream()} are
+     * never allocated as a whole, so their length is left to the reader of the stream.
+     *
+     * @param limit limit of the frame length or {@code null} in case length is not
+     *                 limited.
+     */
+    void setFrameLimit(@Nullable FrameLimit limit);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link Transport} represents established bidirectional channel between client and server which is
+ * used to transfer frames of serialized messages. Implementations decide how frames are delimited
+ * and delivered.
+ */
+public interface Transport extends Closeable {
+    /**
+     * Sends frame to the other side. Could be called concurrently, every frame is delivered as a
+     * whole.
+     *
+     * @param frame bytes which should be delivered.
+     * @throws IOException in case frame cannot be sent.
+     */
+    void send(@Nonnull byte[] frame) throws IOException;
+
+    /**
+     * Waits for the next frame sent by the other side. Should not be called concurrently.
+     *
+     * @return received frame or {@code null} in case other side closed transport.
+     * @throws IOException in case frame cannot be received or transport has been closed.
+     */
+    @Nullable
+    byte[] receive() throws IOException;
+
+    /**
+     * Checks whether transport is still opened.
+     *
+     * @return {@code true} in case transport has not been closed yet.
+     */
+    boolean isOpen();
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.net.Socket;
+import java.net.SocketException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link TransportOptions} contains socket options applied to every socket based {@link Transport}.
+ * Options which are not specified keep values provided by operating system.
+ */
+public class TransportOptions {
+    private boolean tcpNoDelay = true;
+    private boolean keepAlive = true;
+    private int sendBufferSize;
+    private int receiveBufferSize;
+    private int connectTimeoutMs;
+    private int backlog;
+    private int acceptors = 1;
+    private boolean reusePort;
+    private boolean socketChannels;
+
+    /**
+     * Specifies whether Nagle's algorithm should be disabled. It is disabled by default, because
+     * every message is written as a whole and waiting for more data only adds latency.
+     *
+     * @param tcpNoDelay {@code true} to send data immediately.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    /**
+     * Specifies whether keep alive packets should be sent for idle connections, they are sent by
+     * default.
+     *
+     * @param keepAlive {@code true} to detect dead peers of idle connections.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * Specifies size of the socket send buffer.
+     *
+     * @param sendBufferSize size in bytes, {@code 0} to keep system default.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+        return this;
+    }
+
+    /**
+     * Specifies size of the socket receive buffer.
+     *
+     * @param receiveBufferSize size in bytes, {@code 0} to keep system default.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * Specifies maximum time to establish connection.
+     *
+     * @param connectTimeoutMs timeout in milliseconds, {@code 0} to wait infinitely.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        return this;
+    }
+
+    /**
+     * Specifies maximum number of connections accepted by operating system, but not yet by the
+     * server, capped by the system limit, like {@code net.core.somaxconn} on Linux.
+     *
+     * @param backlog number of connections, {@code 0} to keep default of the JVM.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withBacklog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * Specifies number of threads which accept clients and configure their sockets, so storm of
+     * connections is not handled one by one. Single thread of the caller is used by default.
+     *
+     * @param acceptors number of threads.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+        return this;
+    }
+
+    /**
+     * Specifies whether every acceptor thread should listen its own server socket bound to the
+     * same port with {@code SO_REUSEPORT}, so Linux kernel spreads connections across them
+     * instead of making threads contend for single socket. Requires Java 9 or later and support
+     * of the option by operating system, disabled by default.
+     *
+     * @param reusePort {@code true} to bind socket for every acceptor.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+        return this;
+    }
+
+    /**
+     * Specifies whether TCP sockets should be opened through {@link java.nio.channels.SocketChannel}
+     * and served by {@link ChannelTransport}, so file regions are passed from the file to the
+     * socket by the kernel. Channels are interruptible, interruption of the thread blocked in
+     * socket operation closes the connection, so blocking {@link Socket}s are used by default.
+     *
+     * @param socketChannels {@code true} to open sockets through channels.
+     * @return current instance of {@link TransportOptions}.
+     */
+    @Nonnull
+    public TransportOptions withSocketChannels(boolean socketChannels) {
+        this.socketChannels = socketChannels;
+        return this;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public boolean isSocketChannels() {
+        return socketChannels;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Applies options to the socket.
+     *
+     * @param socket socket which should be configured.
+     * @throws SocketException in case some option cannot be applied.
+     */
+    public void apply(@Nonnull Socket socket) throws SocketException {
+        socket.setTcpNoDelay(tcpNoDelay);
+        socket.setKeepAlive(keepAlive);
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [tcpNoDelay=%s, keepAlive=%s, sendBufferSize=%s, "
+                        + "receiveBufferSize=%s, connectTimeoutMs=%s, backlog=%s, acceptors=%s, "
+                        + "reusePort=%s, socketChannels=%s]", getClass().getSimpleName(),
+                        tcpNoDelay, keepAlive, sendBufferSize, receiveBufferSize, connectTimeoutMs,
+                        backlog, acceptors, reusePort, socketChannels);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link TransportServer} accepts {@link Transport}s initiated by clients.
+ */
+public interface TransportServer extends Closeable {
+    /**
+     * Waits for the next client and establishes {@link Transport} to it.
+     *
+     * @return transport to the connected client.
+     * @throws IOException in case client cannot be accepted or server has been closed.
+     */
+    @Nonnull
+    Transport accept() throws IOException;
+
+    /**
+     * Checks whether server is still accepting new clients.
+     *
+     * @return {@code true} in case server has not been closed yet.
+     */
+    boolean isOpen();
+
+    /**
+     * Returns port listening by the server.
+     *
+     * @return port number or {@code -1} in case transport does not rely on ports.
+     */
+    int getLocalPort();
+}
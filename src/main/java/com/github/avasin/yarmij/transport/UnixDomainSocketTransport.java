@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link UnixDomainSocketTransport} is {@link ChannelTransport} connected through Unix domain
+ * socket, so processes running on the same host could interact without TCP/IP stack overhead and
+ * without allocating ports.
+ * <p>
+ * Unix domain socket channels are available since Java 16 only, while library targets Java 7 and
+ * Android, so corresponding API is accessed reflectively. On older runtimes connection attempt
+ * fails with {@link IOException}.
+ */
+public class UnixDomainSocketTransport extends ChannelTransport {
+    private static final String UNIX_FAMILY = "UNIX";
+    private static final String ADDRESS_CLASS = "java.net.UnixDomainSocketAddress";
+    private static final String OPEN_METHOD = "open";
+    private static final String OF_METHOD = "of";
+    private final File path;
+
+    /**
+     * Creates {@link UnixDomainSocketTransport} instance.
+     *
+     * @param channel connected Unix domain socket channel.
+     * @param path path of the socket file.
+     * @throws IOException in case channel cannot be configured.
+     */
+    UnixDomainSocketTransport(@Nonnull SocketChannel channel, @Nonnull File path)
+                    throws IOException {
+        super(channel);
+        this.path = path;
+    }
+
+    /**
+     * Connects to the {@link UnixDomainSocketTransportServer} listening on the specified socket
+     * file.
+     *
+     * @param path socket file listening by the server.
+     * @return transport connected to the server.
+     * @throws IOException in case server is not listening or Unix domain sockets are not
+     *                 supported by the runtime.
+     */
+    @Nonnull
+    public static UnixDomainSocketTransport connect(@Nonnull File path) throws IOException {
+        final SocketChannel channel = (SocketChannel)open(SocketChannel.class);
+        try {
+            channel.connect(address(path));
+            return new UnixDomainSocketTransport(channel, path);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks whether current runtime supports Unix domain socket channels.
+     *
+     * @return {@code true} in case Unix domain sockets could be used.
+     */
+    public static boolean isSupported() {
+        try {
+            family();
+            Class.forName(ADDRESS_CLASS);
+            return true;
+        } catch (IOException | ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens server socket channel for Unix domain protocol family.
+     *
+     * @return unbound server channel.
+     * @throws IOException in case channel cannot be opened.
+     */
+    @Nonnull
+    static ServerSocketChannel openServer() throws IOException {
+        return (ServerSocketChannel)open(ServerSocketChannel.class);
+    }
+
+    /**
+     * Creates Unix domain socket address for the specified file.
+     *
+     * @param path socket file.
+     * @return socket address.
+     * @throws IOException in case Unix domain sockets are not supported.
+     */
+    @Nonnull
+    static SocketAddress address(@Nonnull File path) throws IOException {
+        try {
+            final Method of = Class.forName(ADDRESS_CLASS).getMethod(OF_METHOD, String.class);
+            return (SocketAddress)of.invoke(null, path.getPath());
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException ex) {
+            throw unsupported(ex);
+        } catch (InvocationTargetException ex) {
+            throw rethrow(ex);
+        }
+    }
+
+    private static Object open(Class<?> type) throws IOException {
+        try {
+            return type.getMethod(OPEN_METHOD, ProtocolFamily.class).invoke(null, family());
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw unsupported(ex);
+        } catch (InvocationTargetException ex) {
+            throw rethrow(ex);
+        }
+    }
+
+    private static ProtocolFamily family() throws IOException {
+        try {
+            return Enum.valueOf(StandardProtocolFamily.class, UNIX_FAMILY);
+        } catch (IllegalArgumentException ex) {
+            throw unsupported(ex);
+        }
+    }
+
+    private static IOException unsupported(Exception cause) {
+        return new IOException(String.format("Unix domain sockets are not supported by Java '%s'",
+                        System.getProperty("java.version")), cause);
+    }
+
+    private static IOException rethrow(InvocationTargetException ex) {
+        final Throwable cause = ex.getCause();
+        if (cause instanceof IOException) {
+            return (IOException)cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException)cause;
+        }
+        return new IOException(cause);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("unix:%s", path);
+    }
+}
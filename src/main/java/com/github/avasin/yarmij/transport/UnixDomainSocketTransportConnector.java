@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link UnixDomainSocketTransportConnector} connects {@link UnixDomainSocketTransport}s to the
+ * server listening the socket file.
+ */
+public class UnixDomainSocketTransportConnector implements TransportConnector {
+    private final File path;
+
+    /**
+     * Creates {@link UnixDomainSocketTransportConnector} instance.
+     *
+     * @param path socket file listening by the server.
+     */
+    public UnixDomainSocketTransportConnector(@Nonnull File path) {
+        this.path = path;
+    }
+
+    @Nonnull
+    @Override
+    public Transport connect() throws IOException {
+        return UnixDomainSocketTransport.connect(path);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("unix:%s", path);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link UnixDomainSocketTransportServer} accepts {@link UnixDomainSocketTransport}s through
+ * server socket bound to the file. The file is removed when server is closed.
+ */
+public class UnixDomainSocketTransportServer implements TransportServer {
+    private final ServerSocketChannel channel;
+    private final File path;
+
+    /**
+     * Creates {@link UnixDomainSocketTransportServer} instance.
+     *
+     * @param path socket file to bind, file should not exist.
+     * @throws IOException in case socket cannot be bound or Unix domain sockets are not
+     *                 supported by the runtime.
+     */
+    public UnixDomainSocketTransportServer(@Nonnull File path) throws IOException {
+        this.path = path;
+        this.channel = UnixDomainSocketTransport.openServer();
+        try {
+            channel.bind(UnixDomainSocketTransport.address(path));
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Transport accept() throws IOException {
+        final SocketChannel clientChannel = channel.accept();
+        try {
+            return new UnixDomainSocketTransport(clientChannel, path);
+        } catch (IOException ex) {
+            clientChannel.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            path.delete();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("unix:%s", path);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij.transport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link UnsafeAccess} provides ordered and volatile access to the memory shared between processes.
+ * Java 7 does not have any other way to get such guarantees for memory mapped files.
+ * <p>
+ * {@code sun.misc.Unsafe} is reached only reflectively, through constant method handles which are
+ * inlined by JIT as well as direct calls. Referring to it in the source produces warnings about
+ * proprietary API, which cannot be suppressed by {@link SuppressWarnings}, so keeping the build
+ * warning-clean requires the only reference to be a class name string in this class.
+ */
+final class UnsafeAccess {
+    private static final String UNSAFE_CLASS = "sun.misc.Unsafe";
+    private static final MethodHandle GET_INT;
+    private static final MethodHandle PUT_INT;
+    private static final MethodHandle GET_INT_VOLATILE;
+    private static final MethodHandle PUT_INT_VOLATILE;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle PUT_ORDERED_LONG;
+    private static final MethodHandle INVOKE_CLEANER;
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        try {
+            final Class<?> type = Class.forName(UNSAFE_CLASS);
+            final Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            final Object unsafe = field.get(null);
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            GET_INT = lookup.findVirtual(type, "getInt",
+                            MethodType.methodType(int.class, long.class)).bindTo(unsafe);
+            PUT_INT = lookup.findVirtual(type, "putInt",
+                            MethodType.methodType(void.class, long.class, int.class))
+                            .bindTo(unsafe);
+            GET_INT_VOLATILE = lookup.findVirtual(type, "getIntVolatile",
+                            MethodType.methodType(int.class, Object.class, long.class))
+                            .bindTo(unsafe);
+            PUT_INT_VOLATILE = lookup.findVirtual(type, "putIntVolatile",
+                            MethodType.methodType(void.class, Object.class, long.class,
+                                            int.class)).bindTo(unsafe);
+            GET_LONG_VOLATILE = lookup.findVirtual(type, "getLongVolatile",
+                            MethodType.methodType(long.class, Object.class, long.class))
+                            .bindTo(unsafe);
+            PUT_ORDERED_LONG = lookup.findVirtual(type, "putOrderedLong",
+                            MethodType.methodType(void.class, Object.class, long.class,
+                                            long.class)).bindTo(unsafe);
+            INVOKE_CLEANER = findCleaner(lookup, type, unsafe);
+            final Method offset = type.getMethod("objectFieldOffset", Field.class);
+            ADDRESS_OFFSET = (Long)offset.invoke(unsafe,
+                            Buffer.class.getDeclaredField("address"));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private UnsafeAccess() {
+    }
+
+    @Nullable
+    private static MethodHandle findCleaner(MethodHandles.Lookup lookup, Class<?> type,
+                    Object unsafe) throws IllegalAccessException {
+        try {
+            return lookup.findVirtual(type, "invokeCleaner",
+                            MethodType.methodType(void.class, ByteBuffer.class)).bindTo(unsafe);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns native address of the direct buffer.
+     *
+     * @param buffer direct or memory mapped buffer.
+     * @return address of the first byte in the buffer.
+     */
+    static long address(@Nonnull ByteBuffer buffer) {
+        try {
+            return (long)GET_LONG_VOLATILE.invokeExact((Object)buffer, ADDRESS_OFFSET);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    static int getInt(long address) {
+        try {
+            return (int)GET_INT.invokeExact(address);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    static void putInt(long address, int value) {
+        try {
+            PUT_INT.invokeExact(address, value);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    static int getIntVolatile(long address) {
+        try {
+            return (int)GET_INT_VOLATILE.invokeExact((Object)null, address);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    static void putIntVolatile(long address, int value) {
+        try {
+            PUT_INT_VOLATILE.invokeExact((Object)null, address, value);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    static long getLongVolatile(long address) {
+        try {
+            return (long)GET_LONG_VOLATILE.invokeExact((Object)null, address);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    static void putOrderedLong(long address, long value) {
+        try {
+            PUT_ORDERED_LONG.invokeExact((Object)null, address, value);
+        } catch (Throwable ex) {
+            throw propagate(ex);
+        }
+    }
+
+    /**
+     * Releases memory mapping of the buffer without waiting for garbage collection, buffer must
+     * not be accessed afterwards. Mapping is left to the garbage collector in case JVM does not
+     * allow to release it explicitly.
+     *
+     * @param buffer memory mapped buffer.
+     * @return {@code true} in case mapping has been released.
+     */
+    static boolean unmap(@Nonnull MappedByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invokeExact((ByteBuffer)buffer);
+                return true;
+            }
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner == null) {
+                return false;
+            }
+            cleaner.getClass().getMethod("clean").invoke(cleaner);
+            return true;
+        } catch (Throwable ex) {
+            return false;
+        }
+    }
+
+    private static RuntimeException propagate(Throwable ex) {
+        if (ex instanceof RuntimeException) {
+            return (RuntimeException)ex;
+        }
+        if (ex instanceof Error) {
+            throw (Error)ex;
+        }
+        return new IllegalStateException(ex);
+    }
+}
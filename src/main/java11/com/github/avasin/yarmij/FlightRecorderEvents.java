@@ -0,0 +1,327 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiSignature;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link FlightRecorderEvents} emits {@link RmiEvents} as JDK Flight Recorder events. Loaded
+ * reflectively, so the rest of the library does not depend on {@code jdk.jfr} module.
+ */
+class FlightRecorderEvents extends RmiEvents {
+    private static final String CATEGORY = "Yarmij";
+
+    @Override
+    public Object callStarted() {
+        final CallEvent call = new CallEvent();
+        final SlowCallEvent slow = new SlowCallEvent();
+        if (!call.isEnabled() && !slow.isEnabled()) {
+            return null;
+        }
+        call.begin();
+        slow.begin();
+        return new StartedCall(call, slow);
+    }
+
+    @Override
+    public void callFinished(Object event, RmiSignature<?> signature, Long traceId,
+                    boolean failed) {
+        if (event instanceof StartedCall) {
+            final StartedCall started = (StartedCall)event;
+            commit(started.call, signature, traceId, failed);
+            commit(started.slow, signature, traceId, failed);
+        }
+    }
+
+    private static void commit(AbstractCallEvent event, RmiSignature<?> signature, Long traceId,
+                    boolean failed) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.interfaceType = signature.getInterfaceType();
+            event.method = signature.getMethodName();
+            event.traceId = traceId == null ? 0L : traceId;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void callTimedOut(RmiSignature<?> signature, Long traceId, long timeoutMs) {
+        final CallTimeoutEvent event = new CallTimeoutEvent();
+        if (event.shouldCommit()) {
+            event.interfaceType = signature.getInterfaceType();
+            event.method = signature.getMethodName();
+            event.traceId = traceId == null ? 0L : traceId;
+            event.timeout = timeoutMs;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object sendStarted() {
+        final FrameSentEvent event = new FrameSentEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void frameSent(Object event, RmiMessage<?> message, int size,
+                    long serializationNanos) {
+        if (event instanceof FrameSentEvent) {
+            final FrameSentEvent sent = (FrameSentEvent)event;
+            sent.end();
+            if (sent.shouldCommit()) {
+                describe(sent, message);
+                sent.size = size;
+                sent.serialization = serializationNanos;
+                sent.commit();
+            }
+        }
+    }
+
+    @Override
+    public Object receiveStarted() {
+        final FrameReceivedEvent event = new FrameReceivedEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void frameReceived(Object event, RmiMessage<?> message, int size) {
+        if (event instanceof FrameReceivedEvent) {
+            final FrameReceivedEvent received = (FrameReceivedEvent)event;
+            received.end();
+            if (received.shouldCommit()) {
+                describe(received, message);
+                received.size = size;
+                received.commit();
+            }
+        }
+    }
+
+    private static void describe(AbstractFrameEvent event, RmiMessage<?> message) {
+        final RmiSignature<?> signature = message.getMessageId().getSignature();
+        event.messageType = message.getClass();
+        event.interfaceType = signature == null ? null : signature.getInterfaceType();
+        event.method = signature == null ? null : signature.getMethodName();
+    }
+
+    @Override
+    public Object serializationStarted() {
+        final SerializationEvent event = new SerializationEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void serialized(Object event, Class<?> type, int rawSize, int size) {
+        if (event instanceof SerializationEvent) {
+            commit((SerializationEvent)event, type, rawSize, size);
+        }
+    }
+
+    @Override
+    public Object deserializationStarted() {
+        final DeserializationEvent event = new DeserializationEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void deserialized(Object event, Class<?> type, int rawSize, int size) {
+        if (event instanceof DeserializationEvent) {
+            commit((DeserializationEvent)event, type, rawSize, size);
+        }
+    }
+
+    private static void commit(AbstractSerializationEvent event, Class<?> type, int rawSize,
+                    int size) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.objectType = type;
+            event.rawSize = rawSize;
+            event.size = size;
+            event.commit();
+        }
+    }
+
+    /**
+     * {@link StartedCall} keeps events of the call which is in progress.
+     */
+    private static final class StartedCall {
+        private final CallEvent call;
+        private final SlowCallEvent slow;
+
+        private StartedCall(CallEvent call, SlowCallEvent slow) {
+            this.call = call;
+            this.slow = slow;
+        }
+    }
+
+    /**
+     * {@link AbstractCallEvent} describes remote call.
+     */
+    @Category(CATEGORY)
+    abstract static class AbstractCallEvent extends Event {
+        @Label("Interface")
+        Class<?> interfaceType;
+        @Label("Method")
+        String method;
+        @Label("Trace Id")
+        @Description("Identifier of the trace or 0 in case call is not traced")
+        long traceId;
+        @Label("Failed")
+        boolean failed;
+    }
+
+    /**
+     * {@link CallEvent} is recorded for every remote call.
+     */
+    @Name("yarmij.Call")
+    @Label("Remote Call")
+    @StackTrace(false)
+    static class CallEvent extends AbstractCallEvent {
+    }
+
+    /**
+     * {@link SlowCallEvent} is recorded together with stack trace for calls exceeding
+     * threshold.
+     */
+    @Name("yarmij.SlowCall")
+    @Label("Slow Remote Call")
+    @Description("Remote call which exceeded threshold, recorded with stack trace")
+    @Threshold("100 ms")
+    @StackTrace(true)
+    static class SlowCallEvent extends AbstractCallEvent {
+    }
+
+    /**
+     * {@link CallTimeoutEvent} is recorded for calls which result has not been received in
+     * time.
+     */
+    @Name("yarmij.CallTimeout")
+    @Label("Remote Call Timeout")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class CallTimeoutEvent extends Event {
+        @Label("Interface")
+        Class<?> interfaceType;
+        @Label("Method")
+        String method;
+        @Label("Trace Id")
+        @Description("Identifier of the trace or 0 in case call is not traced")
+        long traceId;
+        @Label("Timeout")
+        @Timespan(Timespan.MILLISECONDS)
+        long timeout;
+    }
+
+    /**
+     * {@link AbstractFrameEvent} describes frame transferred through the connection.
+     */
+    @Category(CATEGORY)
+    @StackTrace(false)
+    abstract static class AbstractFrameEvent extends Event {
+        @Label("Message Type")
+        Class<?> messageType;
+        @Label("Interface")
+        Class<?> interfaceType;
+        @Label("Method")
+        String method;
+        @Label("Size")
+        @Description("Size of the frame in bytes")
+        @DataAmount
+        int size;
+    }
+
+    /**
+     * {@link FrameSentEvent} covers serialization of the message, waiting for the other frames
+     * and writing to the transport.
+     */
+    @Name("yarmij.FrameSent")
+    @Label("Frame Sent")
+    static class FrameSentEvent extends AbstractFrameEvent {
+        @Label("Serialization")
+        @Timespan
+        long serialization;
+    }
+
+    /**
+     * {@link FrameReceivedEvent} covers deserialization of the received frame.
+     */
+    @Name("yarmij.FrameReceived")
+    @Label("Frame Received")
+    static class FrameReceivedEvent extends AbstractFrameEvent {
+    }
+
+    /**
+     * {@link AbstractSerializationEvent} describes conversion between object and bytes.
+     */
+    @Category(CATEGORY)
+    @StackTrace(false)
+    abstract static class AbstractSerializationEvent extends Event {
+        @Label("Object Type")
+        Class<?> objectType;
+        @Label("Raw Size")
+        @Description("Size before compression or -1 in case it is unknown")
+        @DataAmount
+        int rawSize;
+        @Label("Size")
+        @Description("Size after compression or -1 in case it is unknown")
+        @DataAmount
+        int size;
+    }
+
+    /**
+     * {@link SerializationEvent} covers serialization and compression of the object.
+     */
+    @Name("yarmij.Serialization")
+    @Label("Serialization")
+    static class SerializationEvent extends AbstractSerializationEvent {
+    }
+
+    /**
+     * {@link DeserializationEvent} covers decompression and deserialization of the object.
+     */
+    @Name("yarmij.Deserialization")
+    @Label("Deserialization")
+    static class DeserializationEvent extends AbstractSerializationEvent {
+    }
+}
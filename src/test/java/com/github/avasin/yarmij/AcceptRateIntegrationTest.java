@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.transport.SocketTransportServer;
+import com.github.avasin.yarmij.transport.Transport;
+import com.github.avasin.yarmij.transport.TransportOptions;
+
+/**
+ * {@link AcceptRateIntegrationTest} measures how many connections per second TCP server accepts
+ * when many clients connect at once, with different acceptor configurations.
+ */
+public class AcceptRateIntegrationTest {
+    private static final int CONNECTORS = 16;
+    private static final int CONNECTIONS = 10_000;
+    private static final int ACCEPTORS = 4;
+    private static final int BACKLOG = 4096;
+    private final Logger logger = LogManager.getLogger(getClass());
+    private ExecutorService threadPool;
+
+    /**
+     * Initializes thread pool which connects clients.
+     */
+    @Before
+    public void before() {
+        threadPool = Executors.newFixedThreadPool(CONNECTORS);
+    }
+
+    /**
+     * Stops connecting clients.
+     */
+    @After
+    public void after() {
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Measures accepting by the caller thread.
+     *
+     * @throws Exception in case of transport failure.
+     */
+    @Ignore
+    @Test
+    public void measureSingleAcceptor() throws Exception {
+        measure("Single acceptor", new TransportOptions().withBacklog(BACKLOG));
+    }
+
+    /**
+     * Measures accepting by several threads sharing server socket.
+     *
+     * @throws Exception in case of transport failure.
+     */
+    @Ignore
+    @Test
+    public void measureSharedSocket() throws Exception {
+        measure("Shared socket", new TransportOptions().withBacklog(BACKLOG)
+                        .withAcceptors(ACCEPTORS));
+    }
+
+    /**
+     * Measures accepting by several threads listening their own sockets bound with
+     * {@code SO_REUSEPORT}.
+     *
+     * @throws Exception in case of transport failure.
+     */
+    @Ignore
+    @Test
+    public void measureReusedPort() throws Exception {
+        measure("Reused port", new TransportOptions().withBacklog(BACKLOG)
+                        .withAcceptors(ACCEPTORS).withReusePort(true));
+    }
+
+    private void measure(String name, TransportOptions options) throws Exception {
+        try (SocketTransportServer server = SocketTransportServer.bind(0, options)) {
+            final int port = server.getLocalPort();
+            final AtomicInteger remaining = new AtomicInteger(CONNECTIONS);
+            final long start = System.nanoTime();
+            final List<Future<Void>> connectors = new ArrayList<>(CONNECTORS);
+            for (int i = 0; i < CONNECTORS; i++) {
+                connectors.add(threadPool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        while (remaining.getAndDecrement() > 0) {
+                            new Socket(InetAddress.getLoopbackAddress(), port).close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (int i = 0; i < CONNECTIONS; i++) {
+                final Transport transport = server.accept();
+                transport.close();
+            }
+            final long elapsed = System.nanoTime() - start;
+            for (Future<Void> connector : connectors) {
+                connector.get();
+            }
+            logger.info(String.format("%s accepted %.0f connections per second", name,
+                            CONNECTIONS * (double)TimeUnit.SECONDS.toNanos(1L) / elapsed));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.transport.SocketTransportServer;
+import com.github.avasin.yarmij.transport.TransportOptions;
+
+/**
+ * {@link AcceptorTest} checks that clients connecting at once are served by the server which
+ * accepts them by several threads.
+ */
+public class AcceptorTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int ACCEPTORS = 4;
+    private static final int CLIENTS = 50;
+    private static final long ACCEPT_MS = 200L;
+    private ExecutorService threadPool;
+
+    /**
+     * Creates thread pool which connects clients.
+     */
+    @Before
+    public void before() {
+        threadPool = Executors.newFixedThreadPool(CLIENTS);
+    }
+
+    /**
+     * Stops thread pool.
+     */
+    @After
+    public void after() {
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Checks that acceptor threads sharing single server socket accept all clients.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkSharedSocket() throws Exception {
+        checkClientsServed(new TransportOptions().withAcceptors(ACCEPTORS).withBacklog(CLIENTS));
+    }
+
+    /**
+     * Checks that acceptor threads listening their own sockets bound to the same port accept all
+     * clients.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkReusedPort() throws Exception {
+        checkClientsServed(new TransportOptions().withAcceptors(ACCEPTORS).withReusePort(true));
+    }
+
+    /**
+     * Checks that clients accepted by acceptor threads, but not yet taken by the server, are
+     * disconnected once server is closed.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkQueuedClientsClosed() throws Exception {
+        final SocketTransportServer server = SocketTransportServer.bind(0,
+                        new TransportOptions().withAcceptors(ACCEPTORS));
+        try (Socket client = new Socket(LOCALHOST, server.getLocalPort())) {
+            TimeUnit.MILLISECONDS.sleep(ACCEPT_MS);
+            server.close();
+            client.setSoTimeout((int)ACCEPT_MS * 10);
+            MatcherAssert.assertThat(client.getInputStream().read(), CoreMatchers.is(-1));
+        } finally {
+            server.close();
+        }
+    }
+
+    private void checkClientsServed(TransportOptions options) throws Exception {
+        final RmiBuilder builder = new RmiBuilder().withTransportOptions(options);
+        try (RmiServer server = builder.server(0)) {
+            server.register(NameService.class, new NameService() {
+                @Override
+                public String greet(String name) {
+                    return "Hello " + name;
+                }
+            });
+            new Thread(server).start();
+            final int port = server.getPort();
+            final List<Future<String>> greetings = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                final String name = "client" + i;
+                greetings.add(threadPool.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        try (RmiClient client = builder.client(LOCALHOST, port)) {
+                            return client.getService(NameService.class).greet(name);
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < CLIENTS; i++) {
+                MatcherAssert.assertThat(greetings.get(i).get(),
+                                CoreMatchers.is("Hello client" + i));
+            }
+        }
+    }
+
+    /**
+     * Service called by every client.
+     */
+    public interface NameService {
+        /**
+         * Greets client.
+         *
+         * @param name name of the client.
+         * @return greeting.
+         */
+        String greet(String name);
+    }
+}
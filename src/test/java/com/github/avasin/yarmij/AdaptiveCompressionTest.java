@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiSignature;
+import com.github.avasin.yarmij.serialization.AdaptiveCompression;
+import com.github.avasin.yarmij.serialization.CompressionStats;
+import com.github.avasin.yarmij.serialization.GzipCompression;
+import com.github.avasin.yarmij.serialization.KryoDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSerializer;
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link AdaptiveCompressionTest} checks that compression is applied only to the messages where it
+ * pays off and probed again periodically.
+ */
+public class AdaptiveCompressionTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int PROBE_MESSAGES = 4;
+    private static final int PROBE_INTERVAL = 10;
+    private static final int SIZE = 512;
+    private static final int MESSAGES = 50;
+
+    /**
+     * Checks that incompressible messages are sent as is after probing, while compressible
+     * messages of another method are still compressed.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkDecisionsPerSignature() throws Exception {
+        final AdaptiveCompression sender = new AdaptiveCompression(new GzipCompression(),
+                        PROBE_MESSAGES, PROBE_INTERVAL, 0.1D, Double.MAX_VALUE);
+        final AdaptiveCompression receiver = new AdaptiveCompression(new GzipCompression());
+        final Object random = createMessage("random");
+        final Object text = createMessage("text");
+        final Random generator = new Random(1L);
+        for (int i = 0; i < PROBE_MESSAGES + PROBE_INTERVAL - 1; i++) {
+            final byte[] noise = new byte[SIZE];
+            generator.nextBytes(noise);
+            final byte[] sent = sender.compress(noise, random);
+            MatcherAssert.assertThat(receiver.decompress(sent), CoreMatchers.is(noise));
+            MatcherAssert.assertThat(sent[0] == 0, CoreMatchers.is(i >= PROBE_MESSAGES));
+            final byte[] repeated = new byte[SIZE];
+            Arrays.fill(repeated, (byte)'a');
+            final byte[] compressed = sender.compress(repeated, text);
+            MatcherAssert.assertThat(receiver.decompress(compressed), CoreMatchers.is(repeated));
+            MatcherAssert.assertThat(compressed.length < SIZE / 4, CoreMatchers.is(true));
+        }
+        MatcherAssert.assertThat(getStats(sender, "random").isCompressing(), CoreMatchers.is(false));
+        MatcherAssert.assertThat(sender.compress(new byte[SIZE], random)[0] == 0,
+                        CoreMatchers.is(false));
+        final CompressionStats textStats = getStats(sender, "text");
+        MatcherAssert.assertThat(textStats.isCompressing(), CoreMatchers.is(true));
+        MatcherAssert.assertThat(textStats.getSavedBytes() > textStats.getRawBytes() / 2,
+                        CoreMatchers.is(true));
+        MatcherAssert.assertThat(getStats(sender, "random").getCompressedCount(),
+                        CoreMatchers.is((long)PROBE_MESSAGES + 1));
+    }
+
+    /**
+     * Checks that compression is stopped in case it takes more time than saved bytes are worth.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkExpensiveCompressionStopped() throws Exception {
+        final AdaptiveCompression sender = new AdaptiveCompression(new GzipCompression(),
+                        PROBE_MESSAGES, PROBE_INTERVAL, 0.1D, 0D);
+        final Object text = createMessage("text");
+        for (int i = 0; i < PROBE_MESSAGES; i++) {
+            sender.compress(new byte[SIZE], text);
+        }
+        MatcherAssert.assertThat(getStats(sender, "text").isCompressing(), CoreMatchers.is(false));
+        MatcherAssert.assertThat(sender.compress(new byte[SIZE], text).length,
+                        CoreMatchers.is(SIZE + 1));
+    }
+
+    /**
+     * Checks that client and server exchange adaptively compressed messages and client collects
+     * statistics per method.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCallsThroughAdaptiveCompression() throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final AdaptiveCompression clientCompression =
+                        new AdaptiveCompression(new GzipCompression());
+        final AdaptiveCompression serverCompression =
+                        new AdaptiveCompression(new GzipCompression());
+        try (RmiServer server = new RmiBuilder()
+                        .withSerializer(new KryoSerializer(serverCompression))
+                        .withDeserializer(new KryoDeserializer(serverCompression)).server(0);
+                        RmiClient rmiClient = startClient(server, threadPool, clientCompression)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            final SimpleService service = rmiClient.getService(SimpleService.class);
+            for (int i = 0; i < MESSAGES; i++) {
+                MatcherAssert.assertThat(service.sayHello("first", "last" + i),
+                                CoreMatchers.is("Hello first last" + i + "!"));
+            }
+            MatcherAssert.assertThat(service.getStructures(Arrays.asList("a", "b")).size(),
+                            CoreMatchers.is(2));
+            final CompressionStats stats = getStats(clientCompression,
+                            "RmiInvokeMethodMessage SimpleService#sayHello");
+            MatcherAssert.assertThat(stats.getCount(), CoreMatchers.is((long)MESSAGES));
+            MatcherAssert.assertThat(getStats(serverCompression,
+                            "RmiMethodResultMessage SimpleService#getStructures").getCount(),
+                            CoreMatchers.is(1L));
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static RmiClient startClient(RmiServer server, ExecutorService threadPool,
+                    AdaptiveCompression compression) throws Exception {
+        threadPool.submit(server);
+        return new RmiBuilder().withSerializer(new KryoSerializer(compression))
+                        .withDeserializer(new KryoDeserializer(compression))
+                        .client(LOCALHOST, server.getPort());
+    }
+
+    private static CompressionStats getStats(AdaptiveCompression compression, String messages) {
+        for (CompressionStats stats : compression.getStats()) {
+            if (stats.getMessages().endsWith(messages)) {
+                return stats;
+            }
+        }
+        throw new AssertionError(String.format("No statistics for '%s' in %s", messages,
+                        compression.getStats()));
+    }
+
+    private static Object createMessage(String method) {
+        return new RmiInvokeMethodMessage<>(new RmiMessageId<>("main", 0L,
+                        new RmiSignature<>(SimpleService.class, method, new Class<?>[0])));
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link BalancingTest} checks that {@link RmiBalancingClient} spreads calls among servers and
+ * survives loss of one of them.
+ */
+public class BalancingTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long TIMEOUT_MS = 30_000L;
+    private static final int CALLS = 100;
+    private static final int HEDGED_CALLS = 20;
+    private static final long HEDGE_DELAY_MS = 50L;
+    private static final RmiBuilder SERVER_BUILDER = new RmiBuilder();
+    private ExecutorService threadPool;
+    private RmiServer first;
+    private RmiServer second;
+
+    /**
+     * Starts servers.
+     *
+     * @throws RmiException in case servers cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        threadPool = Executors.newCachedThreadPool();
+        first = startServer(0);
+        second = startServer(0);
+    }
+
+    /**
+     * Stops servers and thread pool.
+     *
+     * @throws IOException in case servers cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        first.close();
+        second.close();
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Checks that all servers receive calls.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCallsSpreadAmongServers() throws Exception {
+        try (RmiBalancingClient client = createClient(first.getPort(), second.getPort())) {
+            final SimpleService service = client.getService(SimpleService.class);
+            awaitConnected(client);
+            for (int i = 0; i < CALLS; i++) {
+                MatcherAssert.assertThat(service.sayHello("first", "last"),
+                                CoreMatchers.is("Hello first last!"));
+            }
+            final List<EndpointStats> stats = client.getEndpointStats();
+            MatcherAssert.assertThat(stats.size(), CoreMatchers.is(2));
+            long calls = 0;
+            for (EndpointStats endpoint : stats) {
+                MatcherAssert.assertThat(endpoint.toString(), endpoint.getCalls() > 0,
+                                CoreMatchers.is(true));
+                MatcherAssert.assertThat(endpoint.getInFlight(), CoreMatchers.is(0));
+                MatcherAssert.assertThat(endpoint.getFailures(), CoreMatchers.is(0L));
+                calls += endpoint.getCalls();
+            }
+            MatcherAssert.assertThat(calls, CoreMatchers.is(CALLS + 1L));
+        }
+    }
+
+    /**
+     * Checks that calls keep succeeding through remaining server once another one is stopped.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCallsSucceedAfterServerLoss() throws Exception {
+        try (RmiBalancingClient client = createClient(first.getPort(), second.getPort())) {
+            final SimpleService service = client.getService(SimpleService.class);
+            MatcherAssert.assertThat(service.sayHello("first"), CoreMatchers.is("Hello first"));
+            second.close();
+            for (int i = 0; i < CALLS; i++) {
+                MatcherAssert.assertThat(service.sayHello("second"),
+                                CoreMatchers.is("Hello second"));
+            }
+            MatcherAssert.assertThat(client.getEndpointStats().get(1).isConnected(),
+                            CoreMatchers.is(false));
+        }
+    }
+
+    /**
+     * Checks that server which was not reachable initially joins the rotation once started.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkLateServerJoinsRotation() throws Exception {
+        final int port = second.getPort();
+        second.close();
+        try (RmiBalancingClient client = createClient(first.getPort(), port)) {
+            final SimpleService service = client.getService(SimpleService.class);
+            MatcherAssert.assertThat(service.sayHello("first"), CoreMatchers.is("Hello first"));
+            second = startServer(port);
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (client.getEndpointStats().get(1).getCalls() == 0
+                            && System.currentTimeMillis() < deadline) {
+                MatcherAssert.assertThat(service.sayHello("second"),
+                                CoreMatchers.is("Hello second"));
+                Thread.sleep(1L);
+            }
+            MatcherAssert.assertThat(client.getEndpointStats().get(1).getCalls() > 0,
+                            CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * Checks that late idempotent calls are duplicated to another server, so slow server does
+     * not delay results and calls abandoned on the slow server steer traffic away from it.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkLateCallsHedged() throws Exception {
+        first.close();
+        first = startServer(0, new SimpleServiceImpl() {
+            @Override
+            public String sayHello(String name) {
+                try {
+                    Thread.sleep(TIMEOUT_MS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.sayHello(name);
+            }
+        });
+        try (RmiBalancingClient client = createClientBuilder()
+                        .withHedgingPolicy(new HedgingPolicy().withDelayMs(HEDGE_DELAY_MS)
+                                        .withMaxRatio(1D))
+                        .balancingClient(new InetSocketAddress(LOCALHOST, first.getPort()),
+                                        new InetSocketAddress(LOCALHOST, second.getPort()))) {
+            final SimpleService service = client.getService(SimpleService.class);
+            awaitConnected(client);
+            final long start = System.currentTimeMillis();
+            for (int i = 0; i < HEDGED_CALLS; i++) {
+                MatcherAssert.assertThat(service.sayHello("first"),
+                                CoreMatchers.is("Hello first"));
+            }
+            MatcherAssert.assertThat(System.currentTimeMillis() - start < TIMEOUT_MS,
+                            CoreMatchers.is(true));
+            MatcherAssert.assertThat(client.getHedgedCalls() > 0, CoreMatchers.is(true));
+            MatcherAssert.assertThat(client.getHedgedCalls() < HEDGED_CALLS / 2,
+                            CoreMatchers.is(true));
+        }
+    }
+
+    private static void awaitConnected(RmiBalancingClient client) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        for (int i = 0; i < client.getEndpointStats().size(); i++) {
+            while (!client.getEndpointStats().get(i).isConnected()
+                            && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1L);
+            }
+        }
+    }
+
+    private RmiBalancingClient createClient(int firstPort, int secondPort) {
+        return createClientBuilder().balancingClient(new InetSocketAddress(LOCALHOST, firstPort),
+                        new InetSocketAddress(LOCALHOST, secondPort));
+    }
+
+    private static RmiBuilder createClientBuilder() {
+        return new RmiBuilder().withTimeoutMs(TIMEOUT_MS).withReconnectPolicy(
+                        new ReconnectPolicy().withInitialDelayMs(10L).withMaxDelayMs(100L))
+                        .withCoolDownMs(100L);
+    }
+
+    private RmiServer startServer(int port) throws RmiException {
+        return startServer(port, new SimpleServiceImpl());
+    }
+
+    private RmiServer startServer(int port, SimpleService implementation) throws RmiException {
+        final RmiServer result = SERVER_BUILDER.server(port);
+        result.register(SimpleService.class, implementation);
+        threadPool.submit(result);
+        return result;
+    }
+}
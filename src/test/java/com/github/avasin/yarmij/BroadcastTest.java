@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.messages.RmiMessage;
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.serialization.KryoDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSerializer;
+import com.github.avasin.yarmij.transport.Transport;
+
+/**
+ * {@link BroadcastTest} checks that messages broadcast by the server are serialized once and
+ * delivered to the subscribed clients, and that slow clients do not hold the broadcast.
+ */
+public class BroadcastTest {
+    private static final String LOCALHOST = "localhost";
+    private static final String GROUP = "group";
+    private static final int CLIENTS = 3;
+    private static final int UPDATES = 50;
+    private static final long TIMEOUT_MS = 10_000L;
+    private RmiServer server;
+    private ExecutorService threadPool;
+
+    /**
+     * Starts server which lets clients join the group.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        threadPool = Executors.newCachedThreadPool();
+        server = new RmiBuilder().server(0);
+        server.register(GroupService.class, new GroupService() {
+            @Override
+            public boolean join(String group) {
+                return server.join(group);
+            }
+        });
+        new Thread(server).start();
+    }
+
+    /**
+     * Stops server.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Checks that every client receives all updates in order, while every update is serialized
+     * only once.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkUpdatesSerializedOnce() throws Exception {
+        final List<RmiClient> clients = new ArrayList<>();
+        final List<RecordingListener> listeners = new ArrayList<>();
+        try {
+            for (int i = 0; i < CLIENTS; i++) {
+                final RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort());
+                clients.add(client);
+                final RecordingListener listener = new RecordingListener(UPDATES);
+                client.subscribe(StateListener.class, listener);
+                listeners.add(listener);
+                client.getService(GroupService.class);
+            }
+            final StateListener broadcaster = server.broadcaster(StateListener.class);
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < UPDATES; i++) {
+                broadcaster.onState(i);
+                expected.add(i);
+            }
+            for (RecordingListener listener : listeners) {
+                MatcherAssert.assertThat(listener.await(), CoreMatchers.is(expected));
+            }
+            final BroadcastStats stats = server.getBroadcastStats();
+            MatcherAssert.assertThat(stats.getBroadcasts(), CoreMatchers.is((long)UPDATES));
+            MatcherAssert.assertThat(stats.getSerializations(), CoreMatchers.is((long)UPDATES));
+            MatcherAssert.assertThat(stats.getSent(), CoreMatchers.is((long)UPDATES * CLIENTS));
+        } finally {
+            for (RmiClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Checks that messages broadcast to the group are received only by its members.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkGroupReceivesItsUpdates() throws Exception {
+        try (RmiClient member = new RmiBuilder().client(LOCALHOST, server.getPort());
+                        RmiClient other = new RmiBuilder().inProcessClient(server)) {
+            final RecordingListener memberListener = new RecordingListener(2);
+            member.subscribe(StateListener.class, memberListener);
+            final RecordingListener otherListener = new RecordingListener(1);
+            other.subscribe(StateListener.class, otherListener);
+            MatcherAssert.assertThat(member.getService(GroupService.class).join(GROUP),
+                            CoreMatchers.is(true));
+            other.getService(GroupService.class);
+            server.broadcaster(StateListener.class, GROUP).onState(1);
+            server.broadcaster(StateListener.class).onState(2);
+            MatcherAssert.assertThat(memberListener.await(), CoreMatchers.is(Arrays.asList(1, 2)));
+            MatcherAssert.assertThat(otherListener.await(),
+                            CoreMatchers.is(Collections.singletonList(2)));
+        }
+    }
+
+    /**
+     * Checks that queued updates of the slow client are replaced by the latest one.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkSlowConsumerCoalesced() throws Exception {
+        final BlockingTransport transport = new BlockingTransport();
+        final Broadcaster broadcaster = createBroadcaster(transport,
+                        new BroadcastPolicy().withMaxQueued(2)
+                                        .withSlowConsumerAction(SlowConsumerAction.COALESCE));
+        final StateListener stub = broadcaster.createStub(StateListener.class, null);
+        for (int i = 0; i < UPDATES; i++) {
+            stub.onState(i);
+            transport.awaitSending();
+        }
+        transport.release();
+        MatcherAssert.assertThat(transport.awaitStates(2), CoreMatchers.is(Arrays.asList(0,
+                        UPDATES - 1)));
+        final BroadcastStats stats = broadcaster.getStats();
+        MatcherAssert.assertThat(stats.getCoalesced(), CoreMatchers.is((long)UPDATES - 2));
+        MatcherAssert.assertThat(stats.getSerializations(), CoreMatchers.is((long)UPDATES));
+    }
+
+    /**
+     * Checks that slow client is disconnected once its queue is full.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkSlowConsumerDisconnected() throws Exception {
+        final BlockingTransport transport = new BlockingTransport();
+        final Broadcaster broadcaster = createBroadcaster(transport,
+                        new BroadcastPolicy().withMaxQueued(2)
+                                        .withSlowConsumerAction(SlowConsumerAction.DISCONNECT));
+        final StateListener stub = broadcaster.createStub(StateListener.class, null);
+        for (int i = 0; i < 4; i++) {
+            stub.onState(i);
+            transport.awaitSending();
+        }
+        MatcherAssert.assertThat(transport.isOpen(), CoreMatchers.is(false));
+        MatcherAssert.assertThat(broadcaster.getStats().getDisconnected(), CoreMatchers.is(1L));
+    }
+
+    private Broadcaster createBroadcaster(Transport transport, BroadcastPolicy policy) {
+        final Collection<RmiConnection> connections =
+                        Collections.newSetFromMap(new ConcurrentHashMap<RmiConnection, Boolean>());
+        connections.add(new RmiConnection(new KryoSerializer(), new KryoDeserializer(),
+                        transport));
+        return new Broadcaster(new KryoSerializer(), connections, threadPool, policy);
+    }
+
+    /**
+     * Listener of the state updates.
+     */
+    public interface StateListener {
+        /**
+         * Notifies about new state.
+         *
+         * @param state actual state.
+         */
+        void onState(int state);
+    }
+
+    /**
+     * Service which lets client join the group.
+     */
+    public interface GroupService {
+        /**
+         * Adds calling client to the group.
+         *
+         * @param group name of the group.
+         * @return {@code true} in case client has not been member of the group yet.
+         * @throws RmiException in case of interaction failure.
+         */
+        boolean join(String group) throws RmiException;
+    }
+
+    /**
+     * Listener which records received states.
+     */
+    private static class RecordingListener implements StateListener {
+        private final List<Integer> states = Collections.synchronizedList(new ArrayList<Integer>());
+        private final CountDownLatch received;
+
+        private RecordingListener(int expected) {
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onState(int state) {
+            states.add(state);
+            received.countDown();
+        }
+
+        private List<Integer> await() throws InterruptedException {
+            received.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            return new ArrayList<>(states);
+        }
+    }
+
+    /**
+     * Transport which does not send frames until it is released, as a client which does not read
+     * them.
+     */
+    private static class BlockingTransport implements Transport {
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final List<byte[]> frames = Collections.synchronizedList(new ArrayList<byte[]>());
+        private volatile boolean open = true;
+
+        @Override
+        public void send(@Nonnull byte[] frame) throws IOException {
+            sending.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            frames.add(frame);
+        }
+
+        private void awaitSending() throws InterruptedException {
+            sending.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private void release() {
+            released.countDown();
+        }
+
+        private List<Integer> awaitStates(int count) throws Exception {
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (frames.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            final KryoDeserializer deserializer = new KryoDeserializer();
+            final List<Integer> result = new ArrayList<>();
+            for (byte[] frame : new ArrayList<>(frames)) {
+                final RmiMessage<?> message = deserializer.deserialize(frame, RmiMessage.class);
+                result.add((Integer)((RmiInvokeMethodMessage<?>)message).getArgs()[0]);
+            }
+            return result;
+        }
+
+        @Nullable
+        @Override
+        public byte[] receive() throws IOException {
+            throw new IOException("Transport is used only to send frames");
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            released.countDown();
+        }
+    }
+}
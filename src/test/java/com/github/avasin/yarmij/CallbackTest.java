@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link CallbackTest} checks that server is able to invoke {@link Callback}s passed by the client
+ * through the same connection.
+ */
+public class CallbackTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long TIMEOUT_MS = 30_000L;
+    private static final long FAST_FAILURE_MS = 5_000L;
+    private static final int EVENTS = 100;
+    private Publisher publisher;
+    private RmiServer server;
+
+    /**
+     * Starts server which publishes events to the subscribed clients.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        publisher = new Publisher();
+        server = new RmiBuilder().withTimeoutMs(TIMEOUT_MS).server(0);
+        server.register(EventService.class, publisher);
+        new Thread(server).start();
+    }
+
+    /**
+     * Stops server.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks that events pushed by the server are received by the client callback in order, and
+     * the same callback is represented by the same stub on the server side.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkEventsPushedInOrder() throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort())) {
+            final EventService service = client.getService(EventService.class);
+            final RecordingListener listener = new RecordingListener();
+            MatcherAssert.assertThat(service.subscribe(listener), CoreMatchers.is(true));
+            MatcherAssert.assertThat(service.subscribe(listener), CoreMatchers.is(false));
+            MatcherAssert.assertThat(service.publish(EVENTS), CoreMatchers.is(EVENTS));
+            MatcherAssert.assertThat(listener.getEvents(), CoreMatchers.is(sequence(EVENTS)));
+            MatcherAssert.assertThat(service.unsubscribe(listener), CoreMatchers.is(true));
+            MatcherAssert.assertThat(service.publish(EVENTS), CoreMatchers.is(0));
+        }
+    }
+
+    /**
+     * Checks that server fails to invoke callback which has been unexported by the client.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkUnexportedCallbackFails() throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort())) {
+            final EventService service = client.getService(EventService.class);
+            final RecordingListener listener = new RecordingListener();
+            service.subscribe(listener);
+            MatcherAssert.assertThat(client.unexport(listener), CoreMatchers.is(true));
+            MatcherAssert.assertThat(service.publish(1), CoreMatchers.is(0));
+            MatcherAssert.assertThat(publisher.getFailures(), CoreMatchers.is(1));
+            MatcherAssert.assertThat(listener.getEvents().isEmpty(), CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * Checks that stubs of the callbacks fail immediately once client has disconnected, instead of
+     * waiting for the whole timeout.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkStubFailsAfterDisconnect() throws Exception {
+        final RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort());
+        client.getService(EventService.class).subscribe(new RecordingListener());
+        client.close();
+        final long start = System.nanoTime();
+        while (publisher.publish(1) != 0) {
+            Thread.sleep(10L);
+        }
+        MatcherAssert.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                        < FAST_FAILURE_MS, CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that callbacks are supported by clients running in the same JVM.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkInProcessCallbacks() throws Exception {
+        try (RmiClient client = new RmiBuilder().inProcessClient(server)) {
+            final EventService service = client.getService(EventService.class);
+            final RecordingListener listener = new RecordingListener();
+            service.subscribe(listener);
+            MatcherAssert.assertThat(service.publish(EVENTS), CoreMatchers.is(EVENTS));
+            MatcherAssert.assertThat(listener.getEvents(), CoreMatchers.is(sequence(EVENTS)));
+        }
+    }
+
+    private static List<Integer> sequence(int count) {
+        final List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    /**
+     * Listener of the events pushed by the server.
+     */
+    @Callback
+    public interface EventListener {
+        /**
+         * Notifies about the event.
+         *
+         * @param event number of the event.
+         * @return {@code true} in case event has been accepted.
+         * @throws RmiException in case of interaction failure.
+         */
+        boolean onEvent(int event) throws RmiException;
+    }
+
+    /**
+     * Service which pushes events to the subscribed listeners.
+     */
+    public interface EventService {
+        /**
+         * Subscribes listener to the events.
+         *
+         * @param listener listener which should receive events.
+         * @return {@code true} in case listener has not been subscribed yet.
+         * @throws RmiException in case of interaction failure.
+         */
+        boolean subscribe(EventListener listener) throws RmiException;
+
+        /**
+         * Unsubscribes listener from the events.
+         *
+         * @param listener listener which should not receive events anymore.
+         * @return {@code true} in case listener has been subscribed.
+         * @throws RmiException in case of interaction failure.
+         */
+        boolean unsubscribe(EventListener listener) throws RmiException;
+
+        /**
+         * Pushes events to all subscribed listeners.
+         *
+         * @param count number of events.
+         * @return number of accepted events.
+         * @throws RmiException in case of interaction failure.
+         */
+        int publish(int count) throws RmiException;
+    }
+
+    /**
+     * Server side implementation of the {@link EventService}.
+     */
+    private static class Publisher implements EventService {
+        private final Collection<EventListener> listeners = new CopyOnWriteArraySet<>();
+        private volatile int failures;
+
+        @Override
+        public boolean subscribe(EventListener listener) {
+            return listeners.add(listener);
+        }
+
+        @Override
+        public boolean unsubscribe(EventListener listener) {
+            return listeners.remove(listener);
+        }
+
+        @Override
+        public int publish(int count) {
+            int accepted = 0;
+            for (EventListener listener : listeners) {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        if (listener.onEvent(i)) {
+                            accepted++;
+                        }
+                    }
+                } catch (RmiException ex) {
+                    failures++;
+                }
+            }
+            return accepted;
+        }
+
+        int getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * Listener which records received events.
+     */
+    private static class RecordingListener implements EventListener {
+        private final List<Integer> events = Collections.synchronizedList(new ArrayList<Integer>());
+
+        @Override
+        public boolean onEvent(int event) {
+            events.add(event);
+            return true;
+        }
+
+        List<Integer> getEvents() {
+            return new ArrayList<>(events);
+        }
+    }
+}
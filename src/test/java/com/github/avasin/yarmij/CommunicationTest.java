@@ -17,9 +17,12 @@
 package com.github.avasin.yarmij;
 
 import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -30,10 +33,14 @@ import java.util.concurrent.TimeUnit;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import com.github.avasin.yarmij.services.CheckedException;
 import com.github.avasin.yarmij.services.ComplexStructure;
@@ -41,16 +48,19 @@ import com.github.avasin.yarmij.services.NestedStructure;
 import com.github.avasin.yarmij.services.SimpleService;
 import com.github.avasin.yarmij.services.SimpleServiceImpl;
 import com.github.avasin.yarmij.services.UnregisteredService;
+import com.github.avasin.yarmij.transport.TransportOptions;
 
 /**
- * {@link CommunicationTest} checks how RMI client and server are interacting between each other.
+ * {@link CommunicationTest} checks how RMI client and server are interacting between each other
+ * through every supported transport.
  */
+@RunWith(Parameterized.class)
 public class CommunicationTest {
 
-    private static final int PORT = 0;
-    private static final String LOCALHOST = "localhost";
     private static final String STRUCTURE_ID = "structureId";
     public static final long ONE_MINUTE = 60_000L;
+    private static final long CALL_TIMEOUT_MS = 500L;
+    private static final int CALLS_IN_FLIGHT = 2;
     private static final RmiBuilder RMI_BUILDER = new RmiBuilder().
                     withTimeoutMs(ONE_MINUTE);
 
@@ -60,11 +70,38 @@ public class CommunicationTest {
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
+    private final TransportType transportType;
     private ExecutorService threadPool;
+    private SimpleServiceImpl implementation;
     private RmiServer server;
     private RmiClient client;
     private SimpleService service;
 
+    /**
+     * Creates {@link CommunicationTest} instance.
+     *
+     * @param transportType transport through which client and server will interact.
+     */
+    public CommunicationTest(TransportType transportType) {
+        this.transportType = transportType;
+    }
+
+    /**
+     * Provides all transports which should be checked.
+     *
+     * @return transports which should be checked.
+     */
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> transportTypes() {
+        final Collection<Object[]> result = new ArrayList<>();
+        for (TransportType transportType : TransportType.values()) {
+            if (transportType.isSupported()) {
+                result.add(new Object[] {transportType});
+            }
+        }
+        return result;
+    }
+
     /**
      * Initializes thread pool.
      *
@@ -75,8 +112,9 @@ public class CommunicationTest {
     @Before
     public void before() throws RmiException, InterruptedException {
         threadPool = Executors.newSingleThreadExecutor();
-        server = createServer(threadPool);
-        client = RMI_BUILDER.client(LOCALHOST, server.getPort());
+        implementation = new SimpleServiceImpl();
+        server = createServer(threadPool, implementation);
+        client = transportType.createClient(RMI_BUILDER, server);
         service = client.getService(SimpleService.class);
     }
 
@@ -196,6 +234,136 @@ public class CommunicationTest {
         service.methodPrimitiveResult();
     }
 
+    /**
+     * Checks that method which returns {@link Future} does not wait for the result and provides it
+     * through the returned future.
+     *
+     * @throws Exception in case something goes wrong during client/server interaction.
+     */
+    @Test
+    public void checkAsyncMethodCall() throws Exception {
+        final String name = "name";
+        MatcherAssert.assertThat(service.sayHelloAsync(name).get(ONE_MINUTE, TimeUnit.MILLISECONDS),
+                        CoreMatchers.is(String.format(SimpleServiceImpl.HELLO_NAME_ONLY_FORMAT, name)));
+    }
+
+    /**
+     * Checks that cancellation of the future returned by remote method cancels invocation on the
+     * server side.
+     *
+     * @throws Exception in case something goes wrong during client/server interaction.
+     */
+    @Test
+    public void checkFutureCancellationCancelsServerInvocation() throws Exception {
+        final Future<String> result = service.waitForCancellationAsync();
+        MatcherAssert.assertThat(implementation.awaitInvocation(ONE_MINUTE), CoreMatchers.is(true));
+        MatcherAssert.assertThat(result.cancel(true), CoreMatchers.is(true));
+        MatcherAssert.assertThat(implementation.awaitCancellation(ONE_MINUTE), CoreMatchers.is(true));
+        MatcherAssert.assertThat(result.isCancelled(), CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that in case client stops waiting for the result because of timeout, invocation on the
+     * server side is cancelled.
+     *
+     * @throws Exception in case something goes wrong during client/server interaction.
+     */
+    @Test
+    public void checkTimeoutCancelsServerInvocation() throws Exception {
+        final RmiClient impatientClient = transportType
+                        .createClient(new RmiBuilder().withTimeoutMs(CALL_TIMEOUT_MS), server);
+        try {
+            impatientClient.getService(SimpleService.class).waitForCancellation();
+            Assert.fail("Timeout is expected");
+        } catch (RmiException ex) {
+            MatcherAssert.assertThat(ex.getMessage(), CoreMatchers.containsString("milliseconds"));
+        } finally {
+            impatientClient.close();
+        }
+        MatcherAssert.assertThat(implementation.awaitCancellation(ONE_MINUTE), CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that call made by interrupted thread does not close connection, so later calls
+     * complete.
+     *
+     * @throws Exception in case something goes wrong during client/server interaction.
+     */
+    @Test
+    public void checkInterruptedCallerKeepsConnection() throws Exception {
+        checkInterruptedCaller(service);
+    }
+
+    /**
+     * Checks that interrupted caller does not close connection established through TCP socket
+     * channels, which are interruptible.
+     *
+     * @throws Exception in case something goes wrong during client/server interaction.
+     */
+    @Test
+    public void checkInterruptedCallerKeepsSocketChannelConnection() throws Exception {
+        Assume.assumeThat(transportType, CoreMatchers.is(TransportType.TCP));
+        final RmiBuilder builder = new RmiBuilder().withTimeoutMs(ONE_MINUTE)
+                        .withTransportOptions(new TransportOptions().withSocketChannels(true));
+        final RmiServer channelServer = transportType.createServer(builder);
+        channelServer.register(SimpleService.class, implementation);
+        new Thread(channelServer).start();
+        try (RmiClient channelClient = transportType.createClient(builder, channelServer)) {
+            checkInterruptedCaller(channelClient.getService(SimpleService.class));
+        } finally {
+            channelServer.close();
+        }
+    }
+
+    private static void checkInterruptedCaller(SimpleService target) throws RmiException {
+        Thread.currentThread().interrupt();
+        try {
+            target.sayHello("interrupted");
+        } catch (RmiException | UndeclaredThrowableException ex) {
+            // call may fail, connection should stay open
+        } finally {
+            Thread.interrupted();
+        }
+        MatcherAssert.assertThat(target.sayHello("name"), CoreMatchers.is("Hello name"));
+    }
+
+    /**
+     * Checks that number of invocations processed at the same time for one connection is limited
+     * and queued invocations complete once earlier ones do.
+     *
+     * @throws Exception in case something goes wrong during client/server interaction.
+     */
+    @Test
+    public void checkCallsInFlightLimited() throws Exception {
+        final int calls = CALLS_IN_FLIGHT * 3;
+        final GateServiceImpl gate = new GateServiceImpl();
+        server.register(GateService.class, gate);
+        server.setMaxCallsInFlight(CALLS_IN_FLIGHT);
+        final ExecutorService callers = Executors.newFixedThreadPool(calls);
+        try (RmiClient limited = transportType.createClient(RMI_BUILDER, server)) {
+            final GateService stub = limited.getService(GateService.class);
+            final Collection<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < calls; i++) {
+                results.add(callers.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws RmiException {
+                        return stub.pass();
+                    }
+                }));
+            }
+            MatcherAssert.assertThat(gate.awaitRunning(CALLS_IN_FLIGHT, ONE_MINUTE),
+                            CoreMatchers.is(true));
+            TimeUnit.MILLISECONDS.sleep(CALL_TIMEOUT_MS);
+            gate.open();
+            for (Future<Integer> result : results) {
+                MatcherAssert.assertThat(result.get(ONE_MINUTE, TimeUnit.MILLISECONDS),
+                                CoreMatchers.is(CALLS_IN_FLIGHT));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
     /**
      * Checks that in case multiple clients will decide to call the same method with different
      * parameters will return expected results.
@@ -215,7 +383,7 @@ public class CommunicationTest {
         final Collection<Future<?>> futures = new HashSet<>();
         multipleClientsPool.submit(createServiceTask(clientReadyLatch, service, "Name"));
         for (int i = 0; i < clientsAmount - 1; i++) {
-            final RmiClient clientN = RMI_BUILDER.client(LOCALHOST, server.getPort());
+            final RmiClient clientN = transportType.createClient(RMI_BUILDER, server);
             clients.add(clientN);
             final SimpleService serviceN = clientN.getService(SimpleService.class);
             futures.add(multipleClientsPool
@@ -252,11 +420,68 @@ public class CommunicationTest {
                                         0)), String.format("Name for %s", id));
     }
 
-    private static RmiServer createServer(ExecutorService threadPool) throws RmiException {
-        final RmiServer server = RMI_BUILDER.server(PORT);
-        server.register(SimpleService.class, new SimpleServiceImpl());
+    private RmiServer createServer(ExecutorService threadPool,
+                    SimpleServiceImpl implementation) throws RmiException {
+        final RmiServer server = transportType.createServer(RMI_BUILDER);
+        server.register(SimpleService.class, implementation);
         threadPool.submit(server);
         return server;
     }
 
+    /**
+     * Service which keeps invocations running until it is opened.
+     */
+    public interface GateService {
+        /**
+         * Waits until gate is opened.
+         *
+         * @return maximum number of invocations which have been running at the same time.
+         * @throws RmiException in case call fails.
+         */
+        int pass() throws RmiException;
+    }
+
+    /**
+     * {@link GateService} implementation which counts invocations running at the same time.
+     */
+    private static final class GateServiceImpl implements GateService {
+        private final CountDownLatch opened = new CountDownLatch(1);
+        private int running;
+        private int maxRunning;
+
+        @Override
+        public int pass() {
+            synchronized (this) {
+                running++;
+                maxRunning = Math.max(maxRunning, running);
+                notifyAll();
+            }
+            try {
+                opened.await(ONE_MINUTE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                running--;
+                return maxRunning;
+            }
+        }
+
+        private synchronized boolean awaitRunning(int count, long timeoutMs)
+                        throws InterruptedException {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (running < count) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+
+        private void open() {
+            opened.countDown();
+        }
+    }
 }
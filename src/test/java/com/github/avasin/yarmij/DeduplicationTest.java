@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiSignature;
+import com.github.avasin.yarmij.serialization.DeduplicatingDeserializer;
+import com.github.avasin.yarmij.serialization.DeduplicatingSerializer;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.KryoDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSerializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+
+/**
+ * {@link DeduplicationTest} checks that large arguments are sent through the connection only once.
+ */
+public class DeduplicationTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int MIN_SIZE = 1024;
+    private static final int BLOB_SIZE = 256 * 1024;
+    private static final long MAX_BYTES = 1024L * 1024;
+    private static final int CALLS = 5;
+    private RmiServer server;
+
+    /**
+     * Starts server which deduplicates arguments.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        server = new RmiBuilder().withArgumentDeduplication(MIN_SIZE, MAX_BYTES).server(0);
+        server.register(ConfigService.class, new ConfigService() {
+            @Override
+            public int apply(List<String> config, int version) {
+                return config.size() + version;
+            }
+        });
+        new Thread(server).start();
+    }
+
+    /**
+     * Stops server.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks that the same configuration passed to several calls is uploaded once.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkLargeArgumentUploadedOnce() throws Exception {
+        final DeduplicatingSerializer serializer =
+                        new DeduplicatingSerializer(new KryoSerializer(), MIN_SIZE, MAX_BYTES);
+        final List<String> config = createConfig(1);
+        try (RmiClient client = new RmiBuilder().withSerializer(serializer)
+                        .withDeserializer(new DeduplicatingDeserializer(new KryoDeserializer(),
+                                        MAX_BYTES))
+                        .client(LOCALHOST, server.getPort())) {
+            final ConfigService service = client.getService(ConfigService.class);
+            for (int i = 0; i < CALLS; i++) {
+                MatcherAssert.assertThat(service.apply(config, i),
+                                CoreMatchers.is(config.size() + i));
+            }
+        }
+        MatcherAssert.assertThat(serializer.getStats().getUploaded(), CoreMatchers.is(1L));
+        MatcherAssert.assertThat(serializer.getStats().getDeduplicated(),
+                        CoreMatchers.is((long)CALLS - 1));
+        MatcherAssert.assertThat(serializer.getStats().getSavedBytes()
+                        > (CALLS - 1L) * BLOB_SIZE / 2, CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that content forgotten by both sides is uploaded again and restored correctly.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkEvictedContentUploadedAgain() throws Exception {
+        final long maxBytes = BLOB_SIZE * 3 / 2;
+        final DeduplicatingSerializer root =
+                        new DeduplicatingSerializer(new KryoSerializer(), MIN_SIZE, maxBytes);
+        final Serializer sender = root.openSession();
+        final Deserializer receiver = new DeduplicatingDeserializer(new KryoDeserializer(),
+                        maxBytes).openSession();
+        final List<String> first = createConfig(1);
+        final List<String> second = createConfig(2);
+        for (List<String> config : Arrays.asList(first, first, second, first)) {
+            final RmiInvokeMethodMessage<?> received = receiver.deserialize(
+                            sender.serialize(createMessage(config)), RmiInvokeMethodMessage.class);
+            MatcherAssert.assertThat(received.getArgs()[0], CoreMatchers.<Object>is(config));
+        }
+        MatcherAssert.assertThat(root.getStats().getUploaded(), CoreMatchers.is(3L));
+        MatcherAssert.assertThat(root.getStats().getDeduplicated(), CoreMatchers.is(1L));
+    }
+
+    private static RmiInvokeMethodMessage<ConfigService> createMessage(List<String> config) {
+        return new RmiInvokeMethodMessage<>(new RmiMessageId<>("test", 0L,
+                        new RmiSignature<>(ConfigService.class, "apply",
+                                        new Class<?>[] {List.class, int.class})), config, 0);
+    }
+
+    private static List<String> createConfig(long seed) {
+        final Random random = new Random(seed);
+        final List<String> result = new ArrayList<>();
+        for (int size = 0; size < BLOB_SIZE; size += 32) {
+            result.add(Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+        }
+        return result;
+    }
+
+    /**
+     * Service which receives large configuration.
+     */
+    public interface ConfigService {
+        /**
+         * Applies configuration.
+         *
+         * @param config configuration entries.
+         * @param version version of the configuration.
+         * @return sum of the entries number and version.
+         * @throws RmiException in case of interaction failure.
+         */
+        int apply(List<String> config, int version) throws RmiException;
+    }
+}
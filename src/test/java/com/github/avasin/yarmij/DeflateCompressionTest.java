@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.serialization.Compression;
+import com.github.avasin.yarmij.serialization.DeflateCompression;
+import com.github.avasin.yarmij.serialization.GzipCompression;
+import com.github.avasin.yarmij.serialization.KryoDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSerializer;
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link DeflateCompressionTest} checks that compression with context takeover restores the same
+ * bytes and benefits from similarity of consecutive messages.
+ */
+public class DeflateCompressionTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int MESSAGES = 50;
+    private static final int WINDOW_SIZE = 1024;
+
+    /**
+     * Checks that similar messages are compressed better than by independent compression.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkSimilarMessagesShrink() throws Exception {
+        final Compression sender = new DeflateCompression().openSession();
+        final Compression receiver = new DeflateCompression().openSession();
+        final Compression gzip = new GzipCompression();
+        final byte[] message = createMessage(new Random(1L), 200);
+        final byte[] first = sender.compress(message);
+        final byte[] second = sender.compress(message);
+        MatcherAssert.assertThat(receiver.decompress(first), CoreMatchers.is(message));
+        MatcherAssert.assertThat(receiver.decompress(second), CoreMatchers.is(message));
+        MatcherAssert.assertThat(second.length < first.length, CoreMatchers.is(true));
+        MatcherAssert.assertThat(second.length < gzip.compress(message).length,
+                        CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that both sides keep the same window for messages of various sizes, including
+     * messages larger than the window.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkWindowStaysInSync() throws Exception {
+        final Compression sender = new DeflateCompression(WINDOW_SIZE, 1);
+        final Compression receiver = new DeflateCompression(WINDOW_SIZE, 1);
+        final Random random = new Random(2L);
+        for (int i = 0; i < MESSAGES; i++) {
+            final byte[] message = createMessage(random, random.nextInt(WINDOW_SIZE * 3));
+            MatcherAssert.assertThat(receiver.decompress(sender.compress(message)),
+                            CoreMatchers.is(message));
+        }
+    }
+
+    /**
+     * Checks that client and server exchange messages compressed with context takeover through
+     * TCP.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCallsThroughDeflate() throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final RmiBuilder builder = new RmiBuilder()
+                        .withSerializer(new KryoSerializer(new DeflateCompression()))
+                        .withDeserializer(new KryoDeserializer(new DeflateCompression()));
+        try (RmiServer server = builder.server(0)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            threadPool.submit(server);
+            for (int client = 0; client < 2; client++) {
+                try (RmiClient rmiClient = builder.client(LOCALHOST, server.getPort())) {
+                    final SimpleService service = rmiClient.getService(SimpleService.class);
+                    for (int i = 0; i < MESSAGES; i++) {
+                        MatcherAssert.assertThat(service.sayHello("first", "last" + i),
+                                        CoreMatchers.is("Hello first last" + i + "!"));
+                    }
+                    MatcherAssert.assertThat(service.getStructures(Arrays.asList("a", "b")).size(),
+                                    CoreMatchers.is(2));
+                }
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static byte[] createMessage(Random random, int size) {
+        final byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (byte)('a' + random.nextInt(26));
+        }
+        return result;
+    }
+}
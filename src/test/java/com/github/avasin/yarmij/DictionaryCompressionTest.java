@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiSignature;
+import com.github.avasin.yarmij.serialization.Compression;
+import com.github.avasin.yarmij.serialization.DictionaryCompression;
+import com.github.avasin.yarmij.serialization.DictionaryTrainer;
+import com.github.avasin.yarmij.serialization.GzipCompression;
+import com.github.avasin.yarmij.serialization.KryoDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSerializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link DictionaryCompressionTest} checks that dictionary trained on captured messages shrinks
+ * small messages and that dictionary identifiers are validated by the receiver.
+ */
+public class DictionaryCompressionTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int SAMPLES = 200;
+    private static final int DICTIONARY_SIZE = 4096;
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Checks that dictionary trained on similar messages compresses a new message considerably
+     * better than GZIP and restores the same bytes.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkSmallMessagesShrink() throws Exception {
+        final byte[] dictionary = DictionaryTrainer.train(captureSamples(), DICTIONARY_SIZE);
+        MatcherAssert.assertThat(dictionary.length > 0, CoreMatchers.is(true));
+        MatcherAssert.assertThat(dictionary.length <= DICTIONARY_SIZE, CoreMatchers.is(true));
+        final Compression compression = new DictionaryCompression(dictionary);
+        final byte[] message = new KryoSerializer(new NoCompression())
+                        .serialize(createMessage(new Random(7L), SAMPLES));
+        final byte[] compressed = compression.compress(message);
+        MatcherAssert.assertThat(compression.decompress(compressed), CoreMatchers.is(message));
+        final int gzipped = new GzipCompression().compress(message).length;
+        MatcherAssert.assertThat(compressed.length * 2 < gzipped,
+                        CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that receiver accepts messages compressed with any of the known dictionaries and
+     * rejects messages compressed with unknown one.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkDictionaryIdentifiers() throws Exception {
+        final byte[] oldDictionary = "first last Hello".getBytes("UTF-8");
+        final byte[] newDictionary = "Hello first last!".getBytes("UTF-8");
+        final byte[] message = "Hello first last!".getBytes("UTF-8");
+        final Compression receiver = new DictionaryCompression(newDictionary, 1, oldDictionary);
+        final byte[] compressed = new DictionaryCompression(oldDictionary).compress(message);
+        MatcherAssert.assertThat(receiver.decompress(compressed), CoreMatchers.is(message));
+        try {
+            new DictionaryCompression(newDictionary)
+                            .decompress(new DictionaryCompression(oldDictionary).compress(message));
+            MatcherAssert.assertThat("Unknown dictionary accepted", false);
+        } catch (RmiException ex) {
+            MatcherAssert.assertThat(ex.getMessage(), CoreMatchers.containsString(String.format(
+                            "%08x", DictionaryCompression.getDictionaryId(oldDictionary))));
+        }
+    }
+
+    /**
+     * Checks that samples captured from the real traffic are turned into dictionary offline and
+     * the dictionary is used by client and server.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCallsThroughTrainedDictionary() throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final DictionaryTrainer trainer = new DictionaryTrainer(new GzipCompression(), SAMPLES);
+        final File samples = folder.newFolder("samples");
+        final File dictionary = new File(folder.getRoot(), "dictionary.bin");
+        callService(new RmiBuilder().withSerializer(new KryoSerializer(trainer)), threadPool);
+        MatcherAssert.assertThat(trainer.getSamples().size(), CoreMatchers.is(SAMPLES));
+        trainer.saveSamples(samples);
+        DictionaryTrainer.main(new String[] {samples.getPath(), dictionary.getPath(),
+                        String.valueOf(DICTIONARY_SIZE)});
+        final DictionaryCompression compression = DictionaryCompression.load(dictionary);
+        try {
+            callService(new RmiBuilder().withSerializer(new KryoSerializer(compression))
+                            .withDeserializer(new KryoDeserializer(compression)), threadPool);
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static void callService(RmiBuilder builder, ExecutorService threadPool)
+                    throws Exception {
+        try (RmiServer server = builder.server(0)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            threadPool.submit(server);
+            try (RmiClient rmiClient = builder.client(LOCALHOST, server.getPort())) {
+                final SimpleService service = rmiClient.getService(SimpleService.class);
+                for (int i = 0; i < SAMPLES; i++) {
+                    MatcherAssert.assertThat(service.sayHello("first", "last" + i),
+                                    CoreMatchers.is("Hello first last" + i + "!"));
+                }
+            }
+        }
+    }
+
+    private static List<byte[]> captureSamples() throws RmiException {
+        final DictionaryTrainer trainer = new DictionaryTrainer(new GzipCompression(), SAMPLES);
+        final Serializer serializer = new KryoSerializer(trainer);
+        final Random random = new Random(1L);
+        for (int i = 0; i < SAMPLES; i++) {
+            serializer.serialize(createMessage(random, i));
+        }
+        return trainer.getSamples();
+    }
+
+    private static RmiInvokeMethodMessage<SimpleService> createMessage(Random random, long call) {
+        final RmiSignature<SimpleService> signature = new RmiSignature<>(SimpleService.class,
+                        "sayHello", new Class<?>[] {String.class, String.class});
+        return new RmiInvokeMethodMessage<>(new RmiMessageId<>("main", call, signature),
+                        "first" + random.nextInt(1000), "last" + random.nextInt(1000));
+    }
+
+    /**
+     * {@link NoCompression} keeps serialized bytes as is.
+     */
+    private static class NoCompression implements Compression {
+        @Override
+        public byte[] compress(byte[] data) {
+            return data;
+        }
+
+        @Override
+        public byte[] decompress(byte[] data) {
+            return data;
+        }
+    }
+}
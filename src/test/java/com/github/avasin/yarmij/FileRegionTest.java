@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * {@link FileRegionTest} checks that {@link RemoteFileRegion} returned by the service is received
+ * by the client through every transport which could send it, without breaking later calls, and
+ * that call fails through other transports.
+ */
+@RunWith(Parameterized.class)
+public class FileRegionTest {
+    private static final int FILE_LENGTH = 20 << 20;
+    private static final int OFFSET = 12_345;
+    private static final RmiBuilder BUILDER = new RmiBuilder().withTimeoutMs(60_000L);
+    private static final long EXPIRY_MS = 500L;
+
+    /**
+     * Folder which keeps served and received files.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final TransportType transportType;
+    private byte[] content;
+    private File served;
+    private RmiServer server;
+    private RmiClient client;
+    private FileService service;
+
+    /**
+     * Creates {@link FileRegionTest} instance.
+     *
+     * @param transportType transport through which client and server will interact.
+     */
+    public FileRegionTest(TransportType transportType) {
+        this.transportType = transportType;
+    }
+
+    /**
+     * Provides all transports which should be checked.
+     *
+     * @return transports which should be checked.
+     */
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> transportTypes() {
+        final Collection<Object[]> result = new ArrayList<>();
+        for (TransportType transportType : TransportType.values()) {
+            if (transportType.isSupported()) {
+                result.add(new Object[] {transportType});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates served file and starts server which returns its regions.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Before
+    public void before() throws Exception {
+        content = new byte[FILE_LENGTH];
+        new Random(42L).nextBytes(content);
+        served = folder.newFile("served.bin");
+        Files.write(served.toPath(), content);
+        server = transportType.createServer(BUILDER);
+        server.register(FileService.class, new FileService() {
+            @Override
+            public RemoteFileRegion read(long offset, long length) {
+                return new RemoteFileRegion(served, offset, length);
+            }
+
+            @Override
+            public String echo(String value) {
+                return value;
+            }
+        });
+        new Thread(server).start();
+        client = transportType.createClient(BUILDER, server);
+        service = client.getService(FileService.class);
+    }
+
+    /**
+     * Stops client and server.
+     *
+     * @throws IOException in case client or server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        server.close();
+    }
+
+    /**
+     * Checks that region is received into the channel and connection could be used afterwards.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkRegionTransferred() throws Exception {
+        Assume.assumeTrue(isRegionSupported());
+        final int length = FILE_LENGTH - OFFSET * 2;
+        final RemoteFileRegion region = service.read(OFFSET, length);
+        MatcherAssert.assertThat(region.getLength(), CoreMatchers.is((long)length));
+        final ByteArrayOutputStream received = new ByteArrayOutputStream(length);
+        MatcherAssert.assertThat(region.transferTo(Channels.newChannel(received)),
+                        CoreMatchers.is((long)length));
+        MatcherAssert.assertThat(Arrays.equals(received.toByteArray(),
+                        Arrays.copyOfRange(content, OFFSET, OFFSET + length)),
+                        CoreMatchers.is(true));
+        MatcherAssert.assertThat(service.echo("after"), CoreMatchers.is("after"));
+    }
+
+    /**
+     * Checks that region is received into the memory mapped file.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkRegionMapped() throws Exception {
+        Assume.assumeTrue(isRegionSupported());
+        final MappedByteBuffer mapped = service.read(0L, FILE_LENGTH)
+                        .map(folder.newFile("received.bin"));
+        final byte[] received = new byte[mapped.remaining()];
+        mapped.get(received);
+        MatcherAssert.assertThat(Arrays.equals(received, content), CoreMatchers.is(true));
+        MatcherAssert.assertThat(service.echo("after"), CoreMatchers.is("after"));
+    }
+
+    /**
+     * Checks that discarded region and region which has not been consumed do not prevent later
+     * calls from completing.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkRegionDiscarded() throws Exception {
+        Assume.assumeTrue(isRegionSupported());
+        service.read(OFFSET, FILE_LENGTH - OFFSET).discard();
+        MatcherAssert.assertThat(service.echo("discarded"), CoreMatchers.is("discarded"));
+        final RemoteFileRegion region = service.read(0L, 0L);
+        MatcherAssert.assertThat(service.echo("empty"), CoreMatchers.is("empty"));
+        region.discard();
+    }
+
+    /**
+     * Checks that region which has not been consumed within call timeout is discarded, so later
+     * calls complete and region cannot be consumed anymore.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkUnconsumedRegionExpired() throws Exception {
+        Assume.assumeTrue(isRegionSupported() && transportType != TransportType.IN_PROCESS_COPY
+                        && transportType != TransportType.IN_PROCESS_REFERENCE);
+        try (RmiClient expiring = transportType.createClient(
+                        new RmiBuilder().withTimeoutMs(EXPIRY_MS), server)) {
+            final FileService expiringService = expiring.getService(FileService.class);
+            final RemoteFileRegion region = expiringService.read(0L, FILE_LENGTH);
+            TimeUnit.MILLISECONDS.sleep(EXPIRY_MS * 2);
+            MatcherAssert.assertThat(expiringService.echo("expired"), CoreMatchers.is("expired"));
+            try {
+                region.transferTo(Channels.newChannel(new ByteArrayOutputStream()));
+                MatcherAssert.assertThat("Region should be discarded", false);
+            } catch (IOException ex) {
+                MatcherAssert.assertThat(ex.getMessage(), CoreMatchers.containsString("consumed"));
+            }
+        }
+    }
+
+    /**
+     * Checks that call returning region fails in case transport cannot send file regions.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkUnsupportedTransportFails() throws Exception {
+        Assume.assumeFalse(isRegionSupported());
+        try {
+            service.read(0L, FILE_LENGTH);
+            MatcherAssert.assertThat("Call should fail", false);
+        } catch (RmiException ex) {
+            MatcherAssert.assertThat(ex.getMessage(), CoreMatchers.containsString("cannot send"));
+        }
+        MatcherAssert.assertThat(service.echo("after"), CoreMatchers.is("after"));
+    }
+
+    private boolean isRegionSupported() {
+        return transportType != TransportType.SHARED_MEMORY
+                        && transportType != TransportType.CUSTOM;
+    }
+
+    /**
+     * Service which returns regions of the served file.
+     */
+    public interface FileService {
+        /**
+         * Provides region of the served file.
+         *
+         * @param offset position of the first byte of the region.
+         * @param length number of bytes in the region.
+         * @return region of the served file.
+         * @throws RmiException in case region cannot be received.
+         */
+        RemoteFileRegion read(long offset, long length) throws RmiException;
+
+        /**
+         * Returns the same value.
+         *
+         * @param value value which should be returned.
+         * @return the same value.
+         * @throws RmiException in case call fails.
+         */
+        String echo(String value) throws RmiException;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link HeartbeatTest} checks that idle connections stay open while the other side answers
+ * heartbeats and are closed once it stops answering.
+ */
+public class HeartbeatTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long INTERVAL_MS = 50L;
+    private static final int MISS_COUNT = 2;
+    private static final long DETECTION_MS = 2000L;
+    private final RmiBuilder builder = new RmiBuilder().withTimeoutMs(10_000L)
+                    .withHeartbeatPolicy(new HeartbeatPolicy().withIntervalMs(INTERVAL_MS)
+                                    .withMissCount(MISS_COUNT));
+    private RmiServer server;
+
+    /**
+     * Starts server which sends heartbeats.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        server = builder.server(0);
+        server.register(EchoService.class, new EchoService() {
+            @Override
+            public String echo(String value) {
+                return value;
+            }
+        });
+        new Thread(server).start();
+    }
+
+    /**
+     * Stops server.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks that connection idle for several intervals is kept open by heartbeats.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkIdleConnectionKept() throws Exception {
+        try (RmiClient client = builder.client(LOCALHOST, server.getPort())) {
+            final EchoService service = client.getService(EchoService.class);
+            MatcherAssert.assertThat(service.echo("first"), CoreMatchers.is("first"));
+            TimeUnit.MILLISECONDS.sleep(INTERVAL_MS * (MISS_COUNT + 1) * 4);
+            MatcherAssert.assertThat(service.echo("second"), CoreMatchers.is("second"));
+        }
+    }
+
+    /**
+     * Checks that pending call fails soon after server stopped answering, rather than after the
+     * timeout.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkSilentServerDetected() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0);
+             RmiClient client = builder.client(LOCALHOST, silent.getLocalPort());
+             Socket accepted = silent.accept()) {
+            final long startedAt = System.nanoTime();
+            try {
+                client.getService(EchoService.class).echo("lost");
+                MatcherAssert.assertThat("Call should fail", false);
+            } catch (RmiConnectionException ex) {
+                MatcherAssert.assertThat(accepted.isConnected(), CoreMatchers.is(true));
+            }
+            MatcherAssert.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+                            < DETECTION_MS, CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * Checks that server closes connection of the client which stopped answering.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkSilentClientDisconnected() throws Exception {
+        try (Socket silent = new Socket(LOCALHOST, server.getPort())) {
+            silent.setSoTimeout((int)DETECTION_MS);
+            final InputStream input = silent.getInputStream();
+            final byte[] buffer = new byte[1024];
+            while (input.read(buffer) >= 0) {
+                // pings are ignored
+            }
+        }
+    }
+
+    /**
+     * Service which is called through watched connections.
+     */
+    public interface EchoService {
+        /**
+         * Returns the same value.
+         *
+         * @param value any value.
+         * @return the same value.
+         * @throws RmiException in case call fails.
+         */
+        String echo(String value) throws RmiException;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link InProcessTest} checks how objects are passed between client and server running in the
+ * same JVM.
+ */
+public class InProcessTest {
+    private RmiServer server;
+
+    /**
+     * Creates in-process server.
+     */
+    @Before
+    public void before() {
+        server = new RmiBuilder().inProcessServer();
+        server.register(EchoService.class, new EchoService() {
+            @Override
+            public Object echo(Object value) {
+                return value;
+            }
+        });
+    }
+
+    /**
+     * Closes in-process server.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks that copies are received by both sides in case of {@link PassingPolicy#COPY}.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkCopyPolicyPassesCopies() throws Exception {
+        final List<String> value = new ArrayList<>(Arrays.asList("first", "second"));
+        try (RmiClient client = new RmiBuilder().withPassingPolicy(PassingPolicy.COPY)
+                        .inProcessClient(server)) {
+            final Object result = client.getService(EchoService.class).echo(value);
+            MatcherAssert.assertThat(result, CoreMatchers.<Object>is(value));
+            MatcherAssert.assertThat(result, CoreMatchers.not(CoreMatchers.sameInstance(
+                            (Object)value)));
+        }
+    }
+
+    /**
+     * Checks that the same instances are received by both sides in case of
+     * {@link PassingPolicy#REFERENCE}.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkReferencePolicyPassesSameInstances() throws Exception {
+        final List<String> value = new ArrayList<>(Arrays.asList("first", "second"));
+        try (RmiClient client = new RmiBuilder().withPassingPolicy(PassingPolicy.REFERENCE)
+                        .inProcessClient(server)) {
+            final Object result = client.getService(EchoService.class).echo(value);
+            MatcherAssert.assertThat(result, CoreMatchers.sameInstance((Object)value));
+        }
+    }
+
+    /**
+     * Checks that closed client does not stay registered in the server.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkClosedClientCannotCall() throws Exception {
+        final RmiClient client = new RmiBuilder().inProcessClient(server);
+        final EchoService service = client.getService(EchoService.class);
+        client.close();
+        try {
+            service.echo("value");
+            MatcherAssert.assertThat("Call through closed client should fail", false);
+        } catch (RmiException ex) {
+            MatcherAssert.assertThat(ex.getMessage(), CoreMatchers.containsString("Cannot send"));
+        }
+    }
+
+    /**
+     * Service which returns received value back.
+     */
+    public interface EchoService {
+        /**
+         * Returns received value.
+         *
+         * @param value value to return.
+         * @return the same value.
+         * @throws RmiException in case of interaction failure.
+         */
+        Object echo(Object value) throws RmiException;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.avasin.yarmij.serialization.BudgetedDeserializer;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.InboundBudget;
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link InboundBudgetTest} checks that received messages exceeding limits are rejected and that
+ * reading waits once shared budget is exhausted.
+ */
+public class InboundBudgetTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long TIMEOUT_MS = 10_000L;
+    private static final int ITEMS = 10_000;
+    private static final int HUGE_LENGTH = Integer.MAX_VALUE - 16;
+    /**
+     * Folder for the wire captures.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    private ExecutorService threadPool;
+
+    /**
+     * Creates thread pool.
+     */
+    @Before
+    public void before() {
+        threadPool = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Stops thread pool.
+     */
+    @After
+    public void after() {
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Checks that server drops connection which sent too large frame and keeps serving others.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkLargeFrameRejected() throws Exception {
+        checkRejected(new InboundBudget().withMaxFrameSize(1024));
+    }
+
+    /**
+     * Checks that server drops connection which sent message decompressed into too many bytes.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkLargeDecompressedMessageRejected() throws Exception {
+        checkRejected(new InboundBudget().withMaxDecompressedSize(ITEMS));
+    }
+
+    /**
+     * Checks that frame header announcing huge length is rejected before the frame is allocated,
+     * both when the frame is read as a stream and when it is read as a whole for the capture.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkHugeFrameHeaderRejected() throws Exception {
+        checkHeaderRejected(null);
+        try (WireCapture capture = new WireCapture(folder.newFile("capture.bin"))) {
+            checkHeaderRejected(capture);
+        }
+    }
+
+    private void checkHeaderRejected(WireCapture capture) throws Exception {
+        final InboundBudget budget = new InboundBudget().withMaxFrameSize(1024);
+        try (RmiServer server = new RmiBuilder().withInboundBudget(budget).server(0)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            server.capture(capture);
+            threadPool.submit(server);
+            try (Socket socket = new Socket(LOCALHOST, server.getPort())) {
+                socket.setSoTimeout((int)TIMEOUT_MS);
+                new DataOutputStream(socket.getOutputStream()).writeInt(HUGE_LENGTH);
+                MatcherAssert.assertThat(socket.getInputStream().read(), CoreMatchers.is(-1));
+            }
+            MatcherAssert.assertThat(budget.getStats().getRejectedMessages(),
+                            CoreMatchers.is(1L));
+            MatcherAssert.assertThat(budget.getStats().getInboundBytes(), CoreMatchers.is(0L));
+        }
+    }
+
+    private void checkRejected(InboundBudget budget) throws Exception {
+        final RmiBuilder builder = new RmiBuilder().withTimeoutMs(TIMEOUT_MS);
+        try (RmiServer server = new RmiBuilder().withInboundBudget(budget).server(0)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            threadPool.submit(server);
+            try (RmiClient rmiClient = builder.client(LOCALHOST, server.getPort())) {
+                final SimpleService service = rmiClient.getService(SimpleService.class);
+                final Collection<String> names = new ArrayList<>();
+                for (int i = 0; i < ITEMS; i++) {
+                    names.add("name" + i);
+                }
+                try {
+                    service.getStructures(names);
+                    MatcherAssert.assertThat("Large message accepted", false);
+                } catch (RmiConnectionException ex) {
+                    MatcherAssert.assertThat(budget.getStats().getRejectedMessages(),
+                                    CoreMatchers.is(1L));
+                }
+            }
+            try (RmiClient rmiClient = builder.client(LOCALHOST, server.getPort())) {
+                MatcherAssert.assertThat(rmiClient.getService(SimpleService.class)
+                                .sayHello("first"), CoreMatchers.is("Hello first"));
+            }
+            MatcherAssert.assertThat(budget.getStats().getInboundBytes(), CoreMatchers.is(0L));
+        }
+    }
+
+    /**
+     * Checks that frame waits for the budget taken by another frame instead of being read.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkReadingPausedUntilBudgetReleased() throws Exception {
+        final InboundBudget budget = new InboundBudget().withMaxInboundBytes(100L);
+        final BlockingDeserializer blocking = new BlockingDeserializer();
+        final Deserializer deserializer = new BudgetedDeserializer(blocking, budget);
+        final Future<Object> first = deserialize(deserializer, 80);
+        MatcherAssert.assertThat(blocking.started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS),
+                        CoreMatchers.is(true));
+        final Future<Object> second = deserialize(deserializer, 80);
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (budget.getStats().getPausedReads() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1L);
+        }
+        MatcherAssert.assertThat(budget.getStats().getPausedReads(), CoreMatchers.is(1L));
+        MatcherAssert.assertThat(budget.getStats().getInboundBytes(), CoreMatchers.is(80L));
+        MatcherAssert.assertThat(second.isDone(), CoreMatchers.is(false));
+        blocking.release.countDown();
+        MatcherAssert.assertThat(first.get(TIMEOUT_MS, TimeUnit.MILLISECONDS),
+                        CoreMatchers.<Object>is(80));
+        MatcherAssert.assertThat(second.get(TIMEOUT_MS, TimeUnit.MILLISECONDS),
+                        CoreMatchers.<Object>is(80));
+        MatcherAssert.assertThat(budget.getStats().getInboundBytes(), CoreMatchers.is(0L));
+    }
+
+    private Future<Object> deserialize(final Deserializer deserializer, final int size) {
+        return threadPool.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return deserializer.deserialize(new byte[size], Object.class);
+            }
+        });
+    }
+
+    /**
+     * {@link BlockingDeserializer} holds every message until it is released and returns its
+     * size.
+     */
+    private static class BlockingDeserializer implements Deserializer {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Nullable
+        @Override
+        public <T> T deserialize(@Nullable byte[] data, @Nonnull Class<T> desiredType)
+                        throws RmiException {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new RmiException("Interrupted", ex);
+            }
+            return desiredType.cast(data.length);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link LoadGeneratorTest} checks that load generator reports every method and includes delays
+ * of the late calls into their latency.
+ */
+public class LoadGeneratorTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long SLEEP_MS = 20L;
+    private static final PayloadGenerator NO_ARGUMENTS = new PayloadGenerator() {
+        @Override
+        public Object[] generate(Method method, long sequence) {
+            return new Object[0];
+        }
+    };
+    private RmiServer server;
+    private RmiClient client;
+
+    /**
+     * Starts server and connects client to it.
+     *
+     * @throws RmiException in case server cannot be started.
+     * @throws InterruptedException in case waiting for the server has been interrupted.
+     */
+    @Before
+    public void before() throws RmiException, InterruptedException {
+        server = new RmiBuilder().server(0);
+        server.register(LoadedService.class, new LoadedService() {
+            @Override
+            public int echo(int value) {
+                return value;
+            }
+
+            @Override
+            public void fail() {
+                throw new IllegalStateException("Expected failure");
+            }
+
+            @Override
+            public void sleep() throws InterruptedException {
+                TimeUnit.MILLISECONDS.sleep(SLEEP_MS);
+            }
+        });
+        new Thread(server).start();
+        client = new RmiBuilder().client(LOCALHOST, server.getPort());
+    }
+
+    /**
+     * Closes client and server.
+     *
+     * @throws IOException in case client or server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Checks that calls are spread across methods and failures are counted.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkEveryMethodReported() throws Exception {
+        final Map<String, LoadStats> stats = new LoadGenerator<>(LoadedService.class, client)
+                        .withCall("echo", new PayloadGenerator() {
+                            @Override
+                            public Object[] generate(Method method, long sequence) {
+                                return new Object[] {(int)sequence};
+                            }
+                        }).withCall("fail", NO_ARGUMENTS).withConcurrency(4).withWarmUpMs(100L)
+                        .withDurationMs(300L).run();
+        MatcherAssert.assertThat(stats.keySet().toString(), CoreMatchers.is("[echo, fail]"));
+        MatcherAssert.assertThat(stats.get("echo").getCalls() > 0L, CoreMatchers.is(true));
+        MatcherAssert.assertThat(stats.get("echo").getErrors(), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(stats.get("fail").getErrors(),
+                        CoreMatchers.is(stats.get("fail").getCalls()));
+        MatcherAssert.assertThat(stats.get("echo").getMaxUs() >= stats.get("echo").getP50Us(),
+                        CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that in the open model calls waiting for the slow ones are reported with the time
+     * they have been waiting, rather than with the service time only.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCoordinatedOmissionCorrected() throws Exception {
+        final long durationMs = 300L;
+        final LoadStats stats = new LoadGenerator<>(LoadedService.class, client)
+                        .withCall("sleep", NO_ARGUMENTS).withRate(100D)
+                        .withDurationMs(durationMs).run().get("sleep");
+        MatcherAssert.assertThat(stats.getCalls(), CoreMatchers.is(durationMs / 10L));
+        MatcherAssert.assertThat(stats.getMaxUs() >= TimeUnit.MILLISECONDS.toMicros(durationMs / 2),
+                        CoreMatchers.is(true));
+        MatcherAssert.assertThat(stats.getP50Us() > TimeUnit.MILLISECONDS.toMicros(SLEEP_MS * 2),
+                        CoreMatchers.is(true));
+    }
+
+    /**
+     * Checks that load could be generated from the command line against running server.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCommandLineLoad() throws Exception {
+        LoadGenerator.main(new String[] {LOCALHOST + ':' + server.getPort(),
+                        LoadedService.class.getName(), "-", "sleep", "2", "0", "100"});
+    }
+
+    /**
+     * Service which is loaded by the generator.
+     */
+    public interface LoadedService {
+        /**
+         * Returns the same value.
+         *
+         * @param value any value.
+         * @return the same value.
+         */
+        int echo(int value);
+
+        /**
+         * Always fails.
+         */
+        void fail();
+
+        /**
+         * Sleeps for a while.
+         *
+         * @throws InterruptedException in case sleep has been interrupted.
+         */
+        void sleep() throws InterruptedException;
+    }
+}
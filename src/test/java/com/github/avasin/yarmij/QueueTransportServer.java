@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.avasin.yarmij.transport.Transport;
+import com.github.avasin.yarmij.transport.TransportConnector;
+import com.github.avasin.yarmij.transport.TransportServer;
+
+/**
+ * {@link QueueTransportServer} is {@link TransportServer} which transfers frames through in-memory
+ * queues. It is used to check that custom transports could be plugged in.
+ */
+public class QueueTransportServer implements TransportServer, TransportConnector {
+    private static final byte[] CLOSED = new byte[0];
+    private final BlockingQueue<QueueTransport> pending = new LinkedBlockingQueue<>();
+    private volatile boolean open = true;
+
+    @Nonnull
+    @Override
+    public Transport connect() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        final BlockingQueue<byte[]> toServer = new LinkedBlockingQueue<>();
+        final BlockingQueue<byte[]> toClient = new LinkedBlockingQueue<>();
+        pending.add(new QueueTransport(toServer, toClient));
+        return new QueueTransport(toClient, toServer);
+    }
+
+    @Nonnull
+    @Override
+    public Transport accept() throws IOException {
+        try {
+            final QueueTransport result = pending.take();
+            if (!open) {
+                throw new AsynchronousCloseException();
+            }
+            return result;
+        } catch (InterruptedException ex) {
+            throw new AsynchronousCloseException();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        pending.add(new QueueTransport(null, null));
+    }
+
+    /**
+     * {@link QueueTransport} receives frames from one queue and sends them to another.
+     */
+    private static class QueueTransport implements Transport {
+        private final BlockingQueue<byte[]> input;
+        private final BlockingQueue<byte[]> output;
+        private volatile boolean open = true;
+
+        private QueueTransport(BlockingQueue<byte[]> input, BlockingQueue<byte[]> output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        public void send(@Nonnull byte[] frame) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            output.add(frame);
+        }
+
+        @Nullable
+        @Override
+        public byte[] receive() throws IOException {
+            try {
+                final byte[] result = input.take();
+                if (result == CLOSED) {
+                    input.add(CLOSED);
+                    return null;
+                }
+                return result;
+            } catch (InterruptedException ex) {
+                throw new AsynchronousCloseException();
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            input.add(CLOSED);
+            output.add(CLOSED);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link ReconnectTest} checks client behavior in case connection to the server has been lost.
+ */
+public class ReconnectTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long TIMEOUT_MS = 30_000L;
+    private static final long FAST_FAILURE_MS = 5_000L;
+    private static final RmiBuilder SERVER_BUILDER = new RmiBuilder();
+    private ExecutorService threadPool;
+    private SimpleServiceImpl implementation;
+    private RmiServer server;
+
+    /**
+     * Starts server.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        threadPool = Executors.newCachedThreadPool();
+        implementation = new SimpleServiceImpl();
+        server = startServer(0);
+    }
+
+    /**
+     * Stops server and thread pool.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Checks that calls waiting for the result fail as soon as connection is lost, instead of
+     * waiting for the whole timeout.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkPendingCallFailsOnConnectionLoss() throws Exception {
+        try (RmiClient client = new RmiBuilder().withTimeoutMs(TIMEOUT_MS)
+                        .client(LOCALHOST, server.getPort())) {
+            final SimpleService service = client.getService(SimpleService.class);
+            final Future<String> result = call(new Callable<String>() {
+                @Override
+                public String call() throws RmiException {
+                    return service.waitForCancellation();
+                }
+            });
+            MatcherAssert.assertThat(implementation.awaitInvocation(TIMEOUT_MS),
+                            CoreMatchers.is(true));
+            server.close();
+            assertConnectionFailure(result);
+            MatcherAssert.assertThat(implementation.awaitCancellation(TIMEOUT_MS),
+                            CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * Checks that reconnecting client restores connection to the restarted server, so idempotent
+     * calls made during the outage succeed and old stubs remain usable.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkIdempotentCallRetriedAfterReconnect() throws Exception {
+        final int port = server.getPort();
+        try (RmiClient client = createReconnectingClient(port)) {
+            final SimpleService service = client.getService(SimpleService.class);
+            MatcherAssert.assertThat(service.sayHello("first"), CoreMatchers.is("Hello first"));
+            server.close();
+            final Future<String> result = call(new Callable<String>() {
+                @Override
+                public String call() throws RmiException {
+                    return service.sayHello("second");
+                }
+            });
+            server = startServer(port);
+            MatcherAssert.assertThat(result.get(TIMEOUT_MS, TimeUnit.MILLISECONDS),
+                            CoreMatchers.is("Hello second"));
+            MatcherAssert.assertThat(service.sayHello("first", "last"),
+                            CoreMatchers.is("Hello first last!"));
+        }
+    }
+
+    /**
+     * Checks that calls of non idempotent methods fail immediately while connection is lost.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkNonIdempotentCallFailsWhileDisconnected() throws Exception {
+        try (RmiClient client = createReconnectingClient(server.getPort())) {
+            final SimpleService service = client.getService(SimpleService.class);
+            server.close();
+            final Future<String> result = call(new Callable<String>() {
+                @Override
+                public String call() throws RmiException, InterruptedException {
+                    while (true) {
+                        service.sayHello("first", "last");
+                        Thread.sleep(10L);
+                    }
+                }
+            });
+            assertConnectionFailure(result);
+        }
+    }
+
+    /**
+     * Checks that client stops reconnecting once server rejects the handshake, so waiting calls
+     * fail immediately instead of retrying forever.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkRejectedHandshakeIsTerminal() throws Exception {
+        final int port = server.getPort();
+        try (RmiClient client = createReconnectingClient(port)) {
+            final SimpleService service = client.getService(SimpleService.class);
+            MatcherAssert.assertThat(service.sayHello("first"), CoreMatchers.is("Hello first"));
+            server.close();
+            server = bind(port, false);
+            assertConnectionFailure(call(new Callable<String>() {
+                @Override
+                public String call() throws RmiException {
+                    return service.sayHello("second");
+                }
+            }));
+        }
+    }
+
+    /**
+     * Checks that handshake through the connection which never answers is abandoned after the
+     * timeout, so connection is restored once the server is back.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkSilentHandshakeTimedOut() throws Exception {
+        final int port = server.getPort();
+        final long timeoutMs = 500L;
+        final List<Socket> silent = new ArrayList<>();
+        try (RmiClient client = createReconnectingClient(port, timeoutMs)) {
+            final SimpleService service = client.getService(SimpleService.class);
+            MatcherAssert.assertThat(service.sayHello("first"), CoreMatchers.is("Hello first"));
+            server.close();
+            try (ServerSocket listener = bindSilent(port)) {
+                silent.add(listener.accept());
+            }
+            server = bind(port, true);
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+            String result = null;
+            while (result == null && System.nanoTime() < deadline) {
+                try {
+                    result = service.sayHello("second");
+                } catch (RmiConnectionException ex) {
+                    Thread.sleep(10L);
+                }
+            }
+            MatcherAssert.assertThat(result, CoreMatchers.is("Hello second"));
+        } finally {
+            for (Socket socket : silent) {
+                socket.close();
+            }
+        }
+    }
+
+    private RmiClient createReconnectingClient(int port) throws RmiException {
+        return createReconnectingClient(port, TIMEOUT_MS);
+    }
+
+    private RmiClient createReconnectingClient(int port, long timeoutMs) throws RmiException {
+        return new RmiBuilder().withTimeoutMs(timeoutMs).withReconnectPolicy(
+                        new ReconnectPolicy().withInitialDelayMs(10L).withMaxDelayMs(100L))
+                        .client(LOCALHOST, port);
+    }
+
+    private RmiServer startServer(int port) throws RmiException {
+        final RmiServer result = SERVER_BUILDER.server(port);
+        result.register(SimpleService.class, implementation);
+        threadPool.submit(result);
+        return result;
+    }
+
+    private RmiServer bind(int port, boolean registered) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                final RmiServer result = SERVER_BUILDER.server(port);
+                if (registered) {
+                    result.register(SimpleService.class, implementation);
+                }
+                threadPool.submit(result);
+                return result;
+            } catch (RmiException ex) {
+                if (attempt * 10L > FAST_FAILURE_MS) {
+                    throw ex;
+                }
+                Thread.sleep(10L);
+            }
+        }
+    }
+
+    private static ServerSocket bindSilent(int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new ServerSocket(port);
+            } catch (BindException ex) {
+                if (attempt * 10L > FAST_FAILURE_MS) {
+                    throw ex;
+                }
+                Thread.sleep(10L);
+            }
+        }
+    }
+
+    private Future<String> call(Callable<String> call) {
+        return threadPool.submit(call);
+    }
+
+    private static void assertConnectionFailure(Future<String> result) throws Exception {
+        try {
+            result.get(FAST_FAILURE_MS, TimeUnit.MILLISECONDS);
+            MatcherAssert.assertThat("Call should fail", false);
+        } catch (ExecutionException ex) {
+            MatcherAssert.assertThat(ex.getCause(),
+                            CoreMatchers.instanceOf(RmiConnectionException.class));
+        }
+    }
+}
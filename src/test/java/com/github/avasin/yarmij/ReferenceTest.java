@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link ReferenceTest} checks that objects returned {@link ByReference} stay on the server and
+ * are called through stubs.
+ */
+public class ReferenceTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long LEASE_MS = 100L;
+    private final List<Inventory> opened =
+                    Collections.synchronizedList(new ArrayList<Inventory>());
+    private RmiServer server;
+
+    /**
+     * Starts server which provides inventories by reference.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        server = new RmiBuilder().server(0);
+        server.register(Warehouse.class, new Warehouse() {
+            @Override
+            public Inventory open(String name) {
+                final Inventory result = new ListInventory();
+                opened.add(result);
+                return result;
+            }
+        });
+        new Thread(server).start();
+    }
+
+    /**
+     * Stops server.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks that calls of the stub change the object kept by the server.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkCallsReachServerObject() throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort())) {
+            final Inventory inventory = client.getService(Warehouse.class).open("main");
+            MatcherAssert.assertThat(Proxy.isProxyClass(inventory.getClass()),
+                            CoreMatchers.is(true));
+            inventory.add("first");
+            inventory.add("second");
+            MatcherAssert.assertThat(inventory.size(), CoreMatchers.is(2));
+            MatcherAssert.assertThat(inventory.get(1), CoreMatchers.is("second"));
+            MatcherAssert.assertThat(opened.get(0).size(), CoreMatchers.is(2));
+        }
+    }
+
+    /**
+     * Checks that released object could not be called anymore.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkReleasedReferenceFails() throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort())) {
+            final Inventory inventory = client.getService(Warehouse.class).open("main");
+            MatcherAssert.assertThat(client.release(inventory), CoreMatchers.is(true));
+            MatcherAssert.assertThat(client.release(inventory), CoreMatchers.is(false));
+            try {
+                inventory.size();
+                MatcherAssert.assertThat("Call of released object should fail", false);
+            } catch (RmiException ex) {
+                MatcherAssert.assertThat(ex.getMessage(),
+                                CoreMatchers.containsString("is not exported"));
+            }
+        }
+    }
+
+    /**
+     * Checks that object is forgotten once it has not been called during the lease, while calls
+     * renew the lease.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkLeaseExpires() throws Exception {
+        final RemoteReferences references = new RemoteReferences(LEASE_MS);
+        final long used = references.export(Inventory.class, new ListInventory()).getObjectId();
+        final long unused = references.export(Inventory.class, new ListInventory()).getObjectId();
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(LEASE_MS / 2);
+            MatcherAssert.assertThat(references.get(used), CoreMatchers.notNullValue());
+        }
+        MatcherAssert.assertThat(references.get(unused), CoreMatchers.nullValue());
+        MatcherAssert.assertThat(references.size(), CoreMatchers.is(1));
+    }
+
+    /**
+     * Checks that lease specified by the builder makes server forget object which client keeps
+     * idle, while calls of the stub renew it.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkIdleReferenceExpires() throws Exception {
+        try (RmiServer leasing = new RmiBuilder().withLeaseMs(LEASE_MS).server(0)) {
+            leasing.register(Warehouse.class, new Warehouse() {
+                @Override
+                public Inventory open(String name) {
+                    return new ListInventory();
+                }
+            });
+            new Thread(leasing).start();
+            try (RmiClient client = new RmiBuilder().client(LOCALHOST, leasing.getPort())) {
+                final Inventory inventory = client.getService(Warehouse.class).open("main");
+                for (int i = 0; i < 4; i++) {
+                    Thread.sleep(LEASE_MS / 2);
+                    inventory.add("item");
+                }
+                MatcherAssert.assertThat(inventory.size(), CoreMatchers.is(4));
+                Thread.sleep(LEASE_MS * 2);
+                try {
+                    inventory.size();
+                    MatcherAssert.assertThat("Call of idle object should fail", false);
+                } catch (RmiException ex) {
+                    MatcherAssert.assertThat(ex.getMessage(),
+                                    CoreMatchers.containsString("lease expired"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Collection of items which should stay on the server.
+     */
+    @ByReference
+    public interface Inventory {
+        /**
+         * Adds item.
+         *
+         * @param item item to add.
+         * @throws RmiException in case of interaction failure.
+         */
+        void add(String item) throws RmiException;
+
+        /**
+         * Provides item.
+         *
+         * @param index index of the item.
+         * @return item.
+         * @throws RmiException in case of interaction failure.
+         */
+        String get(int index) throws RmiException;
+
+        /**
+         * Provides number of items.
+         *
+         * @return number of items.
+         * @throws RmiException in case of interaction failure.
+         */
+        int size() throws RmiException;
+    }
+
+    /**
+     * Service which provides inventories.
+     */
+    public interface Warehouse {
+        /**
+         * Opens new inventory.
+         *
+         * @param name name of the inventory.
+         * @return inventory kept by the server.
+         * @throws RmiException in case of interaction failure.
+         */
+        Inventory open(String name) throws RmiException;
+    }
+
+    /**
+     * {@link Inventory} backed by the list.
+     */
+    private static class ListInventory implements Inventory {
+        private final List<String> items = new ArrayList<>();
+
+        @Override
+        public synchronized void add(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public synchronized String get(int index) {
+            return items.get(index);
+        }
+
+        @Override
+        public synchronized int size() {
+            return items.size();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.messages.RmiInvokeMethodMessage;
+import com.github.avasin.yarmij.messages.RmiMessageId;
+import com.github.avasin.yarmij.messages.RmiMethodResultMessage;
+import com.github.avasin.yarmij.messages.RmiSignature;
+import com.github.avasin.yarmij.serialization.Deserializer;
+import com.github.avasin.yarmij.serialization.KryoSessionDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSessionSerializer;
+import com.github.avasin.yarmij.serialization.Serializer;
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+
+/**
+ * {@link SessionSerializationTest} checks that session scoped serialization keeps class names and
+ * strings tables of both sides in sync.
+ */
+public class SessionSerializationTest {
+    private static final String LOCALHOST = "localhost";
+    private static final String TENANT = "tenant-0123456789";
+    private static final int MESSAGES = 50;
+
+    /**
+     * Checks that class names and strings are transferred in full only by the first message.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkRepeatedMessageIsSmaller() throws Exception {
+        final Serializer serializer = new KryoSessionSerializer().openSession();
+        final Deserializer deserializer = new KryoSessionDeserializer().openSession();
+        final byte[] first = serializer.serialize(createMessage(0, TENANT));
+        final byte[] second = serializer.serialize(createMessage(1, TENANT));
+        MatcherAssert.assertThat(second.length < first.length, CoreMatchers.is(true));
+        assertMessage(deserializer.deserialize(first, RmiInvokeMethodMessage.class), 0, TENANT);
+        assertMessage(deserializer.deserialize(second, RmiInvokeMethodMessage.class), 1, TENANT);
+    }
+
+    /**
+     * Checks that bounded tables are cleared by both sides at the same time.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkBoundedTablesStayInSync() throws Exception {
+        final Serializer serializer = new KryoSessionSerializer(4, 4, 16);
+        final Deserializer deserializer = new KryoSessionDeserializer(4, 4, 16);
+        for (int i = 0; i < MESSAGES; i++) {
+            final String value = i % 3 == 0 ? TENANT : "value-" + i;
+            final byte[] data = serializer.serialize(createMessage(i, value));
+            assertMessage(deserializer.deserialize(data, RmiInvokeMethodMessage.class), i, value);
+        }
+    }
+
+    /**
+     * Checks that failed serialization makes both sides start with empty tables.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkFailedSerializationResetsTables() throws Exception {
+        final Serializer serializer = new KryoSessionSerializer();
+        final Deserializer deserializer = new KryoSessionDeserializer();
+        assertMessage(deserializer.deserialize(serializer.serialize(createMessage(0, TENANT)),
+                        RmiInvokeMethodMessage.class), 0, TENANT);
+        try {
+            serializer.serialize(new RmiMethodResultMessage<>(new BrokenException(), null,
+                            createMessage(1, TENANT).getMessageId()));
+            MatcherAssert.assertThat("Serialization should fail", false);
+        } catch (RmiException ex) {
+            MatcherAssert.assertThat(ex.getMessage(), CoreMatchers.notNullValue());
+        }
+        assertMessage(deserializer.deserialize(serializer.serialize(createMessage(2, TENANT)),
+                        RmiInvokeMethodMessage.class), 2, TENANT);
+    }
+
+    /**
+     * Checks that client and server exchanging session scoped messages through TCP.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkCallsThroughSession() throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final RmiBuilder builder = new RmiBuilder().withSerializer(new KryoSessionSerializer())
+                        .withDeserializer(new KryoSessionDeserializer());
+        try (RmiServer server = builder.server(0)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            threadPool.submit(server);
+            for (int client = 0; client < 2; client++) {
+                try (RmiClient rmiClient = builder.client(LOCALHOST, server.getPort())) {
+                    final SimpleService service = rmiClient.getService(SimpleService.class);
+                    for (int i = 0; i < MESSAGES; i++) {
+                        MatcherAssert.assertThat(service.sayHello(TENANT, "last" + i),
+                                        CoreMatchers.is("Hello " + TENANT + " last" + i + "!"));
+                    }
+                    MatcherAssert.assertThat(service.getStructures(Arrays.asList("a", "b")).size(),
+                                    CoreMatchers.is(2));
+                }
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static RmiInvokeMethodMessage<SimpleService> createMessage(long number,
+                    String value) {
+        final RmiSignature<SimpleService> signature =
+                        new RmiSignature<>(SimpleService.class, "sayHello",
+                                        new Class<?>[] {String.class});
+        return new RmiInvokeMethodMessage<>(new RmiMessageId<>("main", number, signature),
+                        (Object)value);
+    }
+
+    private static void assertMessage(RmiInvokeMethodMessage<?> message, long number,
+                    String value) {
+        MatcherAssert.assertThat(message.getMessageId(),
+                        CoreMatchers.<Object>is(createMessage(number, value).getMessageId()));
+        MatcherAssert.assertThat(message.getArgs(), CoreMatchers.is(new Object[] {value}));
+    }
+
+    /**
+     * Exception which cannot be serialized by Java serialization.
+     */
+    private static class BrokenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final Object payload = new Object();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SharedMemoryTest} checks that shared memory server survives malformed files in the
+ * listening directory.
+ */
+public class SharedMemoryTest {
+    private static final int MAGIC = 0x594d524a;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 256;
+    private final File directory = new File(System.getProperty("java.io.tmpdir"),
+                    "yarmij-" + UUID.randomUUID());
+    private final RmiBuilder builder = new RmiBuilder().withTimeoutMs(10_000L);
+    private RmiServer server;
+
+    /**
+     * Places malformed files into the directory and starts server listening it.
+     *
+     * @throws IOException in case files cannot be written or server cannot be started.
+     */
+    @Before
+    public void before() throws IOException {
+        if (!directory.mkdirs()) {
+            throw new IOException(String.format("Cannot create '%s' directory", directory));
+        }
+        writeHeader("oversized.shm", 1 << 20);
+        writeHeader("negative.shm", -HEADER_SIZE);
+        writeHeader("uneven.shm", 3);
+        server = builder.sharedMemoryServer(directory);
+        server.register(HeartbeatTest.EchoService.class, new HeartbeatTest.EchoService() {
+            @Override
+            public String echo(String value) {
+                return value;
+            }
+        });
+        new Thread(server).start();
+    }
+
+    /**
+     * Stops server and removes the directory.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        server.close();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Checks that files which declare capacity not matching their size are rejected and the
+     * server keeps accepting well formed connections.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkMalformedFilesSkipped() throws Exception {
+        try (RmiClient client = builder.sharedMemoryClient(directory)) {
+            final HeartbeatTest.EchoService service =
+                            client.getService(HeartbeatTest.EchoService.class);
+            MatcherAssert.assertThat(service.echo("value"), CoreMatchers.is("value"));
+        }
+    }
+
+    private void writeHeader(String name, int capacity) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+        header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity);
+        try (FileOutputStream output = new FileOutputStream(new File(directory, name))) {
+            output.write(header.array());
+        }
+    }
+}
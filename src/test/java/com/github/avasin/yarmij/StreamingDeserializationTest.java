@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.serialization.AdaptiveCompression;
+import com.github.avasin.yarmij.serialization.Compression;
+import com.github.avasin.yarmij.serialization.DeflateCompression;
+import com.github.avasin.yarmij.serialization.GzipCompression;
+import com.github.avasin.yarmij.serialization.KryoDeserializer;
+import com.github.avasin.yarmij.serialization.KryoSerializer;
+import com.github.avasin.yarmij.services.SimpleService;
+import com.github.avasin.yarmij.services.SimpleServiceImpl;
+import com.github.avasin.yarmij.transport.SocketTransport;
+import com.github.avasin.yarmij.transport.StreamingTransport;
+
+/**
+ * {@link StreamingDeserializationTest} checks that messages are deserialized directly from the
+ * stream of the received frame.
+ */
+public class StreamingDeserializationTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int ITEMS = 10_000;
+
+    /**
+     * Checks that frame stream is bounded by the frame length and unread bytes are skipped
+     * before the next frame.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkFrameStreamsBounded() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+                        Socket client = new Socket(LOCALHOST, server.getLocalPort());
+                        Socket accepted = server.accept()) {
+            final SocketTransport sender = new SocketTransport(client);
+            final StreamingTransport receiver = new SocketTransport(accepted);
+            sender.send(new byte[] {1, 2, 3, 4});
+            sender.send(new byte[] {5, 6});
+            sender.send(new byte[0]);
+            final InputStream first = receiver.receiveStream();
+            MatcherAssert.assertThat(first.read(), CoreMatchers.is(1));
+            final InputStream second = receiver.receiveStream();
+            final byte[] buffer = new byte[4];
+            MatcherAssert.assertThat(second.read(buffer), CoreMatchers.is(2));
+            MatcherAssert.assertThat(buffer[1], CoreMatchers.is((byte)6));
+            MatcherAssert.assertThat(second.read(buffer), CoreMatchers.is(-1));
+            MatcherAssert.assertThat(receiver.receiveStream().read(), CoreMatchers.is(-1));
+            client.close();
+            MatcherAssert.assertThat(receiver.receiveStream(), CoreMatchers.nullValue());
+        }
+    }
+
+    /**
+     * Checks that messages read from the stream are the same as read from bytes for streaming
+     * and non-streaming compressions.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkStreamMatchesBytes() throws Exception {
+        final List<String> message = createMessage();
+        for (Compression compression : Arrays.asList(new GzipCompression(),
+                        new AdaptiveCompression(new GzipCompression()),
+                        new DeflateCompression())) {
+            final byte[] serialized = new KryoSerializer(compression).serialize(message);
+            final List<?> result = new KryoDeserializer(compression)
+                            .deserialize(new ByteArrayInputStream(serialized), List.class,
+                                            Long.MAX_VALUE);
+            MatcherAssert.assertThat(compression.toString(), result,
+                            CoreMatchers.<Object>is(message));
+        }
+    }
+
+    /**
+     * Checks that large results are received through TCP.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkLargeResultStreamed() throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final RmiBuilder builder = new RmiBuilder();
+        try (RmiServer server = builder.server(0)) {
+            server.register(SimpleService.class, new SimpleServiceImpl());
+            threadPool.submit(server);
+            try (RmiClient rmiClient = builder.client(LOCALHOST, server.getPort())) {
+                final SimpleService service = rmiClient.getService(SimpleService.class);
+                for (int i = 0; i < 3; i++) {
+                    MatcherAssert.assertThat(service.getStructures(createMessage()).size(),
+                                    CoreMatchers.is(ITEMS));
+                    MatcherAssert.assertThat(service.sayHello("first"),
+                                    CoreMatchers.is("Hello first"));
+                }
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static List<String> createMessage() {
+        final List<String> result = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            result.add("item" + i);
+        }
+        return result;
+    }
+}
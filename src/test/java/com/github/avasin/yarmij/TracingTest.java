@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link TracingTest} checks that breakdown of the call is reported to the client and trace
+ * identifier is passed to the calls made by the server.
+ */
+public class TracingTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int DELAY_MS = 50;
+    private RmiServer backend;
+    private RmiServer frontend;
+    private RmiClient backendClient;
+
+    /**
+     * Starts backend server and frontend server which calls backend.
+     *
+     * @throws Exception in case servers cannot be started.
+     */
+    @Before
+    public void before() throws Exception {
+        backend = new RmiBuilder().server(0);
+        backend.register(BackendService.class, new BackendService() {
+            @Override
+            public Long process(int delayMs) throws InterruptedException {
+                TimeUnit.MILLISECONDS.sleep(delayMs);
+                return RmiCallContext.current().getTraceId();
+            }
+        });
+        new Thread(backend).start();
+        backendClient = new RmiBuilder().client(LOCALHOST, backend.getPort());
+        final BackendService service = backendClient.getService(BackendService.class);
+        frontend = new RmiBuilder().server(0);
+        frontend.register(FrontendService.class, new FrontendService() {
+            @Override
+            public Long process(int delayMs) throws RmiException, InterruptedException {
+                return service.process(delayMs);
+            }
+        });
+        new Thread(frontend).start();
+    }
+
+    /**
+     * Stops servers.
+     *
+     * @throws IOException in case servers cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        backendClient.close();
+        frontend.close();
+        backend.close();
+    }
+
+    /**
+     * Checks that client receives breakdown of the call, which server stages fit into.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkCallBreakdownReported() throws Exception {
+        final List<CallTrace> traces = new CopyOnWriteArrayList<>();
+        try (RmiClient client = new RmiBuilder().withCallTraceListener(new CallTraceListener() {
+            @Override
+            public void traced(CallTrace trace) {
+                traces.add(trace);
+            }
+        }).client(LOCALHOST, backend.getPort())) {
+            final Long traceId = client.getService(BackendService.class).process(DELAY_MS);
+            MatcherAssert.assertThat(traces.size(), CoreMatchers.is(1));
+            final CallTrace trace = traces.get(0);
+            MatcherAssert.assertThat(trace.getTraceId(), CoreMatchers.is(traceId));
+            MatcherAssert.assertThat(trace.getSignature().getMethodName(),
+                            CoreMatchers.is("process"));
+            MatcherAssert.assertThat(trace.getServerExecutionNanos()
+                            >= TimeUnit.MILLISECONDS.toNanos(DELAY_MS), CoreMatchers.is(true));
+            MatcherAssert.assertThat(trace.getServerNanos() >= trace.getServerExecutionNanos()
+                            + trace.getServerQueueNanos(), CoreMatchers.is(true));
+            MatcherAssert.assertThat(trace.getTotalNanos() >= trace.getSerializationNanos()
+                            + trace.getSendNanos() + trace.getNetworkNanos()
+                            + trace.getServerNanos(), CoreMatchers.is(true));
+            MatcherAssert.assertThat(trace.getSerializationNanos() > 0L, CoreMatchers.is(true));
+            MatcherAssert.assertThat(trace.getDeserializationNanos() > 0L, CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * Checks that call made by the server while processing traced call belongs to the same
+     * trace.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkTraceIdPropagated() throws Exception {
+        final List<CallTrace> traces = new CopyOnWriteArrayList<>();
+        try (RmiClient client = new RmiBuilder().withCallTraceListener(new CallTraceListener() {
+            @Override
+            public void traced(CallTrace trace) {
+                traces.add(trace);
+            }
+        }).client(LOCALHOST, frontend.getPort())) {
+            final Long traceId = client.getService(FrontendService.class).process(0);
+            MatcherAssert.assertThat(traceId, CoreMatchers.notNullValue());
+            MatcherAssert.assertThat(traces.get(0).getTraceId(), CoreMatchers.is(traceId));
+        }
+    }
+
+    /**
+     * Checks that calls are not traced unless listener is specified.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkCallsNotTracedByDefault() throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, frontend.getPort())) {
+            MatcherAssert.assertThat(client.getService(FrontendService.class).process(0),
+                            CoreMatchers.nullValue());
+        }
+    }
+
+    /**
+     * Service which is called by the frontend.
+     */
+    public interface BackendService {
+        /**
+         * Processes request.
+         *
+         * @param delayMs time of the processing in milliseconds.
+         * @return trace identifier of the invocation.
+         * @throws RmiException in case of interaction failure.
+         * @throws InterruptedException in case processing has been interrupted.
+         */
+        Long process(int delayMs) throws RmiException, InterruptedException;
+    }
+
+    /**
+     * Service which calls backend.
+     */
+    public interface FrontendService {
+        /**
+         * Processes request with the help of the backend.
+         *
+         * @param delayMs time of the processing by the backend in milliseconds.
+         * @return trace identifier of the backend invocation.
+         * @throws RmiException in case of interaction failure.
+         * @throws InterruptedException in case processing has been interrupted.
+         */
+        Long process(int delayMs) throws RmiException, InterruptedException;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.github.avasin.yarmij.transport.SharedMemoryTransport;
+import com.github.avasin.yarmij.transport.SharedMemoryTransportServer;
+import com.github.avasin.yarmij.transport.SocketTransport;
+import com.github.avasin.yarmij.transport.SocketTransportServer;
+import com.github.avasin.yarmij.transport.Transport;
+import com.github.avasin.yarmij.transport.TransportServer;
+import com.github.avasin.yarmij.transport.UnixDomainSocketTransport;
+import com.github.avasin.yarmij.transport.UnixDomainSocketTransportServer;
+
+/**
+ * {@link TransportLatencyIntegrationTest} measures round trip latency of small frames sent through
+ * different transports. Serialization is not involved, so only transport costs are measured.
+ */
+public class TransportLatencyIntegrationTest {
+    private static final int WARMUP_ROUND_TRIPS = 50_000;
+    private static final int ROUND_TRIPS = 200_000;
+    private static final int FRAME_SIZE = 64;
+    private static final long TIMEOUT_MS = 10_000L;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private final Logger logger = LogManager.getLogger(getClass());
+    private ExecutorService threadPool;
+
+    /**
+     * Initializes thread pool which runs echoing side.
+     */
+    @Before
+    public void before() {
+        threadPool = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Stops echoing side.
+     */
+    @After
+    public void after() {
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Measures round trips through loopback TCP socket.
+     *
+     * @throws Exception in case of transport failure.
+     */
+    @Ignore
+    @Test
+    public void measureTcp() throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        final TransportServer server = new SocketTransportServer(serverSocket);
+        final Future<Transport> accepted = accept(server);
+        final Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        measure("TCP", new SocketTransport(socket), accepted.get(), server);
+    }
+
+    /**
+     * Measures round trips through shared memory.
+     *
+     * @throws Exception in case of transport failure.
+     */
+    @Ignore
+    @Test
+    public void measureSharedMemory() throws Exception {
+        final File directory = new File(System.getProperty("java.io.tmpdir"),
+                        "yarmij-" + UUID.randomUUID());
+        directory.deleteOnExit();
+        final TransportServer server = new SharedMemoryTransportServer(directory);
+        final Future<Transport> accepted = accept(server);
+        measure("Shared memory", SharedMemoryTransport.connect(directory, 1 << 16, TIMEOUT_MS),
+                        accepted.get(), server);
+    }
+
+    /**
+     * Measures round trips through Unix domain socket.
+     *
+     * @throws Exception in case of transport failure.
+     */
+    @Ignore
+    @Test
+    public void measureUnixDomainSocket() throws Exception {
+        Assume.assumeTrue(UnixDomainSocketTransport.isSupported());
+        final File path = new File(System.getProperty("java.io.tmpdir"),
+                        "yarmij-" + UUID.randomUUID() + ".sock");
+        final TransportServer server = new UnixDomainSocketTransportServer(path);
+        final Future<Transport> accepted = accept(server);
+        measure("Unix domain socket", UnixDomainSocketTransport.connect(path), accepted.get(),
+                        server);
+    }
+
+    private Future<Transport> accept(final TransportServer server) {
+        return Executors.newSingleThreadExecutor().submit(new Callable<Transport>() {
+            @Override
+            public Transport call() throws IOException {
+                return server.accept();
+            }
+        });
+    }
+
+    private void measure(String name, Transport client, final Transport peer,
+                    TransportServer server) throws IOException {
+        threadPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                byte[] frame = peer.receive();
+                while (frame != null) {
+                    peer.send(frame);
+                    frame = peer.receive();
+                }
+                return null;
+            }
+        });
+        final byte[] frame = new byte[FRAME_SIZE];
+        for (int i = 0; i < WARMUP_ROUND_TRIPS; i++) {
+            client.send(frame);
+            client.receive();
+        }
+        final long[] latencies = new long[ROUND_TRIPS];
+        for (int i = 0; i < ROUND_TRIPS; i++) {
+            final long start = System.nanoTime();
+            client.send(frame);
+            client.receive();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        final StringBuilder report = new StringBuilder(name).append(" round trip, us:");
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(" p%s=%.1f", percentile * 100,
+                            latencies[(int)(percentile * (ROUND_TRIPS - 1))] / 1000.0));
+        }
+        logger.info(report);
+        client.close();
+        peer.close();
+        server.close();
+    }
+}
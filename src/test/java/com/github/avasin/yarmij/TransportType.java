@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.File;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+
+import com.github.avasin.yarmij.transport.UnixDomainSocketTransport;
+
+/**
+ * {@link TransportType} creates client and server endpoints which are interacting through
+ * particular transport.
+ */
+public enum TransportType {
+    /**
+     * Client and server are interacting through TCP sockets.
+     */
+    TCP {
+        private static final String LOCALHOST = "localhost";
+        private static final int PORT = 0;
+
+        @Nonnull
+        @Override
+        public RmiServer createServer(@Nonnull RmiBuilder builder) throws RmiException {
+            return builder.server(PORT);
+        }
+
+        @Nonnull
+        @Override
+        public RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server)
+                        throws RmiException, InterruptedException {
+            return builder.client(LOCALHOST, server.getPort());
+        }
+    },
+    /**
+     * Client and server are interacting through memory mapped files.
+     */
+    SHARED_MEMORY {
+        private final File directory = new File(System.getProperty("java.io.tmpdir"),
+                        "yarmij-" + UUID.randomUUID());
+
+        @Nonnull
+        @Override
+        public RmiServer createServer(@Nonnull RmiBuilder builder) throws RmiException {
+            directory.deleteOnExit();
+            return builder.sharedMemoryServer(directory);
+        }
+
+        @Nonnull
+        @Override
+        public RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server)
+                        throws RmiException {
+            return builder.sharedMemoryClient(directory);
+        }
+    },
+    /**
+     * Client and server are interacting through Unix domain sockets.
+     */
+    UNIX_DOMAIN_SOCKET {
+        private volatile File path;
+
+        @Override
+        public boolean isSupported() {
+            return UnixDomainSocketTransport.isSupported();
+        }
+
+        @Nonnull
+        @Override
+        public RmiServer createServer(@Nonnull RmiBuilder builder) throws RmiException {
+            path = new File(System.getProperty("java.io.tmpdir"),
+                            "yarmij-" + UUID.randomUUID() + ".sock");
+            return builder.unixSocketServer(path);
+        }
+
+        @Nonnull
+        @Override
+        public RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server)
+                        throws RmiException {
+            return builder.unixSocketClient(path);
+        }
+    },
+
+    /**
+     * Client and server are interacting through custom transport implementation.
+     */
+    CUSTOM {
+        private volatile QueueTransportServer transportServer;
+
+        @Nonnull
+        @Override
+        public RmiServer createServer(@Nonnull RmiBuilder builder) {
+            transportServer = new QueueTransportServer();
+            return builder.server(transportServer);
+        }
+
+        @Nonnull
+        @Override
+        public RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server)
+                        throws RmiException {
+            return builder.client(transportServer);
+        }
+    },
+    /**
+     * Client calls server running in the same JVM directly, messages are deeply copied.
+     */
+    IN_PROCESS_COPY {
+        @Nonnull
+        @Override
+        public RmiServer createServer(@Nonnull RmiBuilder builder) {
+            return builder.inProcessServer();
+        }
+
+        @Nonnull
+        @Override
+        public RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server) {
+            return builder.withPassingPolicy(PassingPolicy.COPY).inProcessClient(server);
+        }
+    },
+    /**
+     * Client calls server running in the same JVM directly, messages are passed by reference.
+     */
+    IN_PROCESS_REFERENCE {
+        @Nonnull
+        @Override
+        public RmiServer createServer(@Nonnull RmiBuilder builder) {
+            return builder.inProcessServer();
+        }
+
+        @Nonnull
+        @Override
+        public RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server) {
+            return builder.withPassingPolicy(PassingPolicy.REFERENCE).inProcessClient(server);
+        }
+    };
+
+    /**
+     * Checks whether transport could be used in the current runtime.
+     *
+     * @return {@code true} in case transport is available.
+     */
+    public boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Creates server endpoint.
+     *
+     * @param builder builder configured with desired parameters.
+     * @return server which is not started yet.
+     * @throws RmiException in case server cannot be created.
+     */
+    @Nonnull
+    public abstract RmiServer createServer(@Nonnull RmiBuilder builder) throws RmiException;
+
+    /**
+     * Creates client endpoint connected to the specified server.
+     *
+     * @param builder builder configured with desired parameters.
+     * @param server server to which client should be connected.
+     * @return client connected to the server.
+     * @throws RmiException in case client cannot connect to the server.
+     * @throws InterruptedException in case waiting for the server start has been
+     *                 interrupted.
+     */
+    @Nonnull
+    public abstract RmiClient createClient(@Nonnull RmiBuilder builder, @Nonnull RmiServer server)
+                    throws RmiException, InterruptedException;
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.avasin.yarmij.transport.SocketTransportConnector;
+import com.github.avasin.yarmij.transport.TransportOptions;
+
+/**
+ * {@link WireCaptureTest} checks that frames received by the server are captured and invocations
+ * could be replayed against another server.
+ */
+public class WireCaptureTest {
+    private static final String LOCALHOST = "localhost";
+    private static final int CALLS = 20;
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    private final AtomicInteger sourceCalls = new AtomicInteger();
+    private final AtomicInteger targetCalls = new AtomicInteger();
+    private RmiServer source;
+    private RmiServer target;
+
+    /**
+     * Starts server which frames are captured and server against which they are replayed.
+     *
+     * @throws RmiException in case servers cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        source = start(sourceCalls);
+        target = start(targetCalls);
+    }
+
+    private static RmiServer start(final AtomicInteger calls) throws RmiException {
+        final RmiServer server = new RmiBuilder().server(0);
+        server.register(Counter.class, new Counter() {
+            @Override
+            public int add(int value) {
+                return calls.addAndGet(value);
+            }
+        });
+        new Thread(server).start();
+        return server;
+    }
+
+    /**
+     * Stops servers.
+     *
+     * @throws IOException in case servers cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        source.close();
+        target.close();
+    }
+
+    /**
+     * Checks that invocations captured on one server are replayed against another server and all
+     * of them complete successfully.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void replaysCapturedInvocations() throws Exception {
+        final File file = folder.newFile("capture.bin");
+        try (WireCapture capture = new WireCapture(file)) {
+            source.capture(capture);
+            call(CALLS);
+            MatcherAssert.assertThat(capture.getFrames() >= CALLS, CoreMatchers.is(true));
+        }
+        final ReplayStats stats = new RmiBuilder().wireReplay(file)
+                        .withSpeed(Double.POSITIVE_INFINITY).replay(new SocketTransportConnector(
+                                        LOCALHOST, target.getPort(), new TransportOptions()));
+        MatcherAssert.assertThat(stats.getSent() >= CALLS, CoreMatchers.is(true));
+        MatcherAssert.assertThat(stats.getCompleted(), CoreMatchers.is(stats.getSent()));
+        MatcherAssert.assertThat(stats.getErrorRate(), CoreMatchers.is(0D));
+        MatcherAssert.assertThat(stats.getMaxUs() >= stats.getP50Us(), CoreMatchers.is(true));
+        MatcherAssert.assertThat(targetCalls.get(), CoreMatchers.is(sourceCalls.get()));
+    }
+
+    /**
+     * Checks that connections are not captured when sample rate is zero.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void skipsConnectionsNotSampled() throws Exception {
+        final File file = folder.newFile("sampled.bin");
+        try (WireCapture capture = new WireCapture(file, 0D)) {
+            source.capture(capture);
+            call(CALLS);
+            MatcherAssert.assertThat(capture.getFrames(), CoreMatchers.is(0L));
+        }
+        final ReplayStats stats = new RmiBuilder().wireReplay(file).replay(
+                        new SocketTransportConnector(LOCALHOST, target.getPort(),
+                                        new TransportOptions()));
+        MatcherAssert.assertThat(stats.getSent(), CoreMatchers.is(0L));
+        MatcherAssert.assertThat(targetCalls.get(), CoreMatchers.is(0));
+    }
+
+    private void call(int calls) throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, source.getPort())) {
+            final Counter counter = client.getService(Counter.class);
+            for (int i = 1; i <= calls; i++) {
+                counter.add(i);
+            }
+        }
+    }
+
+    /**
+     * Service which invocations are captured.
+     */
+    public interface Counter {
+        /**
+         * Adds value to the counter.
+         *
+         * @param value value to add.
+         * @return new value of the counter.
+         */
+        int add(int value);
+    }
+}
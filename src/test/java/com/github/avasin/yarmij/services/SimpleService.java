@@ -17,7 +17,9 @@
 package com.github.avasin.yarmij.services;
 
 import java.util.Collection;
+import java.util.concurrent.Future;
 
+import com.github.avasin.yarmij.Idempotent;
 import com.github.avasin.yarmij.RmiException;
 
 /**
@@ -31,6 +33,7 @@ public interface SimpleService {
      * @return hail for specified name.
      * @throws RmiException in case of any error during remote method execution
      */
+    @Idempotent
     String sayHello(String name) throws RmiException;
 
     /**
@@ -89,4 +92,30 @@ public interface SimpleService {
      */
     int methodPrimitiveResult() throws RmiException;
 
+    /**
+     * Returns hail for specified name asynchronously.
+     *
+     * @param name name which will be hailed.
+     * @return future which provides hail for specified name.
+     * @throws RmiException in case of any error during remote method execution
+     */
+    Future<String> sayHelloAsync(String name) throws RmiException;
+
+    /**
+     * Blocks until invocation will be cancelled by the client.
+     *
+     * @return nothing, because invocation is expected to be cancelled.
+     * @throws RmiException in case of any error during remote method execution
+     */
+    String waitForCancellation() throws RmiException;
+
+    /**
+     * Blocks until invocation will be cancelled by the client, client is not waiting for the
+     * result.
+     *
+     * @return future which is expected to be cancelled.
+     * @throws RmiException in case of any error during remote method execution
+     */
+    Future<String> waitForCancellationAsync() throws RmiException;
+
 }
@@ -19,6 +19,13 @@ package com.github.avasin.yarmij.services;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import com.github.avasin.yarmij.RmiCallContext;
 
 /**
  * {@link SimpleServiceImpl} implementation of the service dedicated to tests.
@@ -27,6 +34,10 @@ public class SimpleServiceImpl implements SimpleService {
 
     public static final String HELLO_NAME_ONLY_FORMAT = "Hello %s";
     public static final String HELLO_NAME_AND_LAST_NAME_FORMAT = "Hello %s %s!";
+    private static final long CANCELLATION_CHECK_INTERVAL_MS = 10L;
+
+    private final CountDownLatch invocations = new CountDownLatch(1);
+    private final CountDownLatch cancellations = new CountDownLatch(1);
 
     @Override
     public String sayHello(String name) {
@@ -68,4 +79,58 @@ public class SimpleServiceImpl implements SimpleService {
     public int methodPrimitiveResult() {
         return 0;
     }
+
+    @Override
+    public Future<String> sayHelloAsync(final String name) {
+        final FutureTask<String> result = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() {
+                return sayHello(name);
+            }
+        });
+        result.run();
+        return result;
+    }
+
+    @Override
+    public String waitForCancellation() {
+        invocations.countDown();
+        try {
+            while (!RmiCallContext.isCurrentCancelled()) {
+                Thread.sleep(CANCELLATION_CHECK_INTERVAL_MS);
+            }
+        } catch (InterruptedException ex) {
+            // Interruption is expected in case of cancellation
+        }
+        cancellations.countDown();
+        return null;
+    }
+
+    @Override
+    public Future<String> waitForCancellationAsync() {
+        waitForCancellation();
+        return null;
+    }
+
+    /**
+     * Waits until one of the invocations waiting for cancellation will be started.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds.
+     * @return {@code true} in case invocation has been started in time.
+     * @throws InterruptedException in case waiting has been interrupted.
+     */
+    public boolean awaitInvocation(long timeoutMs) throws InterruptedException {
+        return invocations.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits until one of the invocations waiting for cancellation will be cancelled.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds.
+     * @return {@code true} in case cancellation has been detected in time.
+     * @throws InterruptedException in case waiting has been interrupted.
+     */
+    public boolean awaitCancellation(long timeoutMs) throws InterruptedException {
+        return cancellations.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020-2021 Alexander Vasin (vasin.alexandr.olegovich@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.avasin.yarmij;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.hamcrest.MatcherAssert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * {@link FlightRecorderEventsTest} checks that calls and frames are recorded by JDK Flight
+ * Recorder.
+ */
+public class FlightRecorderEventsTest {
+    private static final String LOCALHOST = "localhost";
+    private static final long TIMEOUT_MS = 200L;
+    private static final int SLOW_MS = 50;
+    private RmiServer server;
+    private Recording recording;
+
+    /**
+     * Starts server and recording.
+     *
+     * @throws RmiException in case server cannot be started.
+     */
+    @Before
+    public void before() throws RmiException {
+        server = new RmiBuilder().server(0);
+        server.register(SleepingService.class, new SleepingService() {
+            @Override
+            public int sleep(int delayMs) throws InterruptedException {
+                TimeUnit.MILLISECONDS.sleep(delayMs);
+                return delayMs;
+            }
+        });
+        new Thread(server).start();
+        recording = new Recording();
+        for (String name : new String[] {"yarmij.Call", "yarmij.CallTimeout", "yarmij.FrameSent",
+                        "yarmij.FrameReceived", "yarmij.Serialization",
+                        "yarmij.Deserialization"}) {
+            recording.enable(name);
+        }
+        recording.enable("yarmij.SlowCall").withThreshold(Duration.ofMillis(SLOW_MS / 2));
+        recording.start();
+    }
+
+    /**
+     * Stops server and recording.
+     *
+     * @throws IOException in case server cannot be closed.
+     */
+    @After
+    public void after() throws IOException {
+        recording.close();
+        server.close();
+    }
+
+    /**
+     * Checks that every call is recorded, while stack trace is recorded only for the slow one.
+     *
+     * @throws Exception in case of interaction failure.
+     */
+    @Test
+    public void checkCallsRecorded() throws Exception {
+        try (RmiClient client = new RmiBuilder().client(LOCALHOST, server.getPort())) {
+            final SleepingService service = client.getService(SleepingService.class);
+            service.sleep(0);
+            service.sleep(SLOW_MS);
+        }
+        final List<RecordedEvent> calls = read("yarmij.Call");
+        MatcherAssert.assertThat(calls.size(), CoreMatchers.is(2));
+        MatcherAssert.assertThat(calls.get(0).getString("method"), CoreMatchers.is("sleep"));
+        MatcherAssert.assertThat(calls.get(0).getStackTrace(), CoreMatchers.nullValue());
+        final List<RecordedEvent> slow = read("yarmij.SlowCall");
+        MatcherAssert.assertThat(slow.isEmpty(), CoreMatchers.is(false));
+        // the first call could also be slow while classes are loaded and compiled
+        RecordedEvent slowest = null;
+        for (RecordedEvent event : slow) {
+            if ("sleep".equals(event.getString("method")) && (slowest == null
+                            || event.getDuration().compareTo(slowest.getDuration()) > 0)) {
+                slowest = event;
+            }
+        }
+        MatcherAssert.assertThat(slowest, CoreMatchers.notNullValue());
+        MatcherAssert.assertThat(slowest.getStackTrace(), CoreMatchers.notNullValue());
+        MatcherAssert.assertThat(slowest.getDuration().toMillis() >= SLOW_MS,
+                        CoreMatchers.is(true));
+        MatcherAssert.assertThat(read("yarmij.FrameSent").isEmpty(), CoreMatchers.is(false));
+        final List<RecordedEvent> received = read("yarmij.FrameReceived");
+        MatcherAssert.assertThat(received.isEmpty(), CoreMatchers.is(false));
+        for (RecordedEvent frame : received) {
+            MatcherAssert.assertThat(frame.getInt("size") > 0, CoreMatchers.is(true));
+        }
+        for (RecordedEvent serialization : read("yarmij.Serialization")) {
+            MatcherAssert.assertThat(serialization.getInt("rawSize") > 0, CoreMatchers.is(true));
+            MatcherAssert.assertThat(serialization.getInt("size") > 0, CoreMatchers.is(true));
+        }
+    }
+
+    /**
+     * Checks that call which result has not been received in time is recorded.
+     *
+     * @throws Exception in case of unexpected failure.
+     */
+    @Test
+    public void checkTimeoutRecorded() throws Exception {
+        try (RmiClient client = new RmiBuilder().withTimeoutMs(TIMEOUT_MS).client(LOCALHOST,
+                        server.getPort())) {
+            client.getService(SleepingService.class).sleep((int)TIMEOUT_MS * 2);
+        } catch (RmiException ex) {
+            // expected timeout
+        }
+        final List<RecordedEvent> timeouts = read("yarmij.CallTimeout");
+        MatcherAssert.assertThat(timeouts.size(), CoreMatchers.is(1));
+        MatcherAssert.assertThat(timeouts.get(0).getLong("timeout"), CoreMatchers.is(TIMEOUT_MS));
+        MatcherAssert.assertThat(read("yarmij.Call").get(0).getBoolean("failed"),
+                        CoreMatchers.is(true));
+    }
+
+    private List<RecordedEvent> read(String name) throws IOException {
+        final Path file = Files.createTempFile("yarmij", ".jfr");
+        try {
+            recording.dump(file);
+            final List<RecordedEvent> result = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals(name)) {
+                    result.add(event);
+                }
+            }
+            return result;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Service which processes requests slowly.
+     */
+    public interface SleepingService {
+        /**
+         * Sleeps for the specified time.
+         *
+         * @param delayMs time to sleep in milliseconds.
+         * @return the same time.
+         * @throws RmiException in case of interaction failure.
+         * @throws InterruptedException in case sleep has been interrupted.
+         */
+        int sleep(int delayMs) throws RmiException, InterruptedException;
+    }
+}